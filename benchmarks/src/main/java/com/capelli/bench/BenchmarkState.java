@@ -0,0 +1,42 @@
+package com.capelli.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base sintética compartida por los benchmarks, creada una vez por corrida (fork).
+ * El tamaño se elige con los parámetros JMH, por ejemplo: -p months=24 -p salesPerDay=60
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    // Referencia fuerte: si el logger se recolecta, pierde el nivel configurado
+    private static final Logger APP_LOGGER = Logger.getLogger("com.capelli");
+
+    @Param({"3", "12"})
+    public int months;
+
+    @Param({"40"})
+    public int salesPerDay;
+
+    public SyntheticDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        // Los INFO de cada consulta distorsionan las mediciones
+        APP_LOGGER.setLevel(java.util.logging.Level.WARNING);
+        database = SyntheticDatabase.create(months, salesPerDay);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.delete();
+    }
+}
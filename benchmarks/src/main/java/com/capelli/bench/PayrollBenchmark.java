@@ -0,0 +1,78 @@
+package com.capelli.bench;
+
+import com.capelli.payroll.CommissionLedger;
+import com.capelli.payroll.PayrollMatrix;
+import com.capelli.payroll.PayrollResult;
+import com.capelli.payroll.PayrollService;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cálculo de nómina sobre la base sintética, y "Recalcular Comisiones" de la ventana de nómina.
+ * Con -p months=12 los casos de todo el historial cubren un año de ventas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PayrollBenchmark {
+
+    @Benchmark
+    public List<PayrollResult> weeklyPayroll(BenchmarkState state) throws SQLException, IOException {
+        LocalDate end = state.database.lastDay();
+        return new PayrollService().calculatePayroll(end.minusDays(6), end);
+    }
+
+    @Benchmark
+    public List<PayrollResult> monthlyPayroll(BenchmarkState state) throws SQLException, IOException {
+        LocalDate end = state.database.lastDay();
+        return new PayrollService().calculatePayroll(end.minusMonths(1).plusDays(1), end);
+    }
+
+    @Benchmark
+    public List<PayrollResult> fullHistoryPayroll(BenchmarkState state) throws SQLException, IOException {
+        return new PayrollService().calculatePayroll(state.database.firstDay(), state.database.lastDay());
+    }
+
+    /**
+     * Nómina de cada semana del historial, una semana tras otra.
+     */
+    @Benchmark
+    public List<List<PayrollResult>> weeklyPeriodsSequential(BenchmarkState state) throws SQLException, IOException {
+        PayrollService service = new PayrollService();
+        List<List<PayrollResult>> results = new ArrayList<>();
+        for (PayrollMatrix.Period period : PayrollMatrix.weeklyPeriods(state.database.firstDay(), state.database.lastDay())) {
+            results.add(service.calculatePayroll(period.startDate(), period.endDate()));
+        }
+        return results;
+    }
+
+    /**
+     * Lo mismo que weeklyPeriodsSequential con la nómina por lotes (períodos en paralelo).
+     */
+    @Benchmark
+    public PayrollMatrix weeklyPeriodsParallel(BenchmarkState state) throws SQLException, IOException {
+        return new PayrollService().calculatePayroll(PayrollMatrix.weeklyPeriods(state.database.firstDay(), state.database.lastDay()));
+    }
+
+    /**
+     * Recalcula las comisiones de todo el historial sin que hayan cambiado las reglas:
+     * compara cada ítem con su asiento y no escribe nada.
+     */
+    @Benchmark
+    public int fullHistoryRepost(BenchmarkState state) throws SQLException {
+        return new CommissionLedger().repost(state.database.firstDay(), state.database.lastDay());
+    }
+}
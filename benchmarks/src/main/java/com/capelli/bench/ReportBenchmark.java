@@ -0,0 +1,88 @@
+package com.capelli.bench;
+
+import com.capelli.database.Database;
+import com.capelli.database.ReportQueries;
+import com.capelli.reports.DailyReportWindow;
+import com.capelli.salesdashboard.SalesHistoryTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Consultas de las ventanas de reportes, sin la parte de Swing:
+ * cierre diario, reporte financiero de un mes e historial del dashboard de ventas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ReportBenchmark {
+
+    @Benchmark
+    public DailyReportWindow.DailyStats dailyReport(BenchmarkState state) {
+        return DailyReportWindow.computeStats(state.database.lastDay());
+    }
+
+    @Benchmark
+    public DailyReportWindow.DailyStats monthToDateReport(BenchmarkState state) {
+        LocalDate day = state.database.lastDay();
+        return DailyReportWindow.computeStats(day.withDayOfMonth(1), day);
+    }
+
+    @Benchmark
+    public void financialReportMonth(BenchmarkState state, Blackhole bh) throws SQLException {
+        LocalDate end = state.database.lastDay();
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(ReportQueries.FINANCIAL_REPORT)) {
+            ReportQueries.bindDateRange(pstmt, 1, end.minusMonths(1).plusDays(1), end);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        bh.consume(rs.getObject(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Índice de páginas del historial; state hace que JMH cree la base sintética antes de medir. */
+    @Benchmark
+    public SalesHistoryTableModel.PageIndex salesDashboardIndex(BenchmarkState state) throws SQLException {
+        return SalesHistoryTableModel.loadIndex();
+    }
+
+    /** Una página en la mitad del historial, como al arrastrar la barra de desplazamiento. */
+    @Benchmark
+    public List<SalesHistoryTableModel.SaleRow> salesDashboardPage(DashboardIndex dashboard) throws SQLException {
+        return SalesHistoryTableModel.loadPage(dashboard.middlePage, SalesHistoryTableModel.PAGE_SIZE);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DashboardIndex {
+
+        public SalesHistoryTableModel.RowKey middlePage;
+
+        @Setup
+        public void setUp(BenchmarkState state) throws SQLException {
+            List<SalesHistoryTableModel.RowKey> starts = SalesHistoryTableModel.loadIndex().pageStarts();
+            middlePage = starts.get(starts.size() / 2);
+        }
+    }
+}
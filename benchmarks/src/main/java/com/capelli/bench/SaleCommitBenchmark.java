@@ -0,0 +1,63 @@
+package com.capelli.bench;
+
+import com.capelli.database.CatalogCache;
+import com.capelli.database.SaleDAO;
+import com.capelli.model.Money;
+import com.capelli.model.SaleSnapshot;
+import com.capelli.model.Service;
+import com.capelli.model.Trabajadora;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Guardado de una venta nueva (lo que hace "Generar Factura" después de validar):
+ * venta, ítems, pagos, propina y correlativo en una transacción del hilo escritor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SaleCommitBenchmark {
+
+    @State(Scope.Thread)
+    public static class Sale {
+
+        public SaleSnapshot snapshot;
+
+        @Setup
+        public void setUp(BenchmarkState state) throws SQLException {
+            List<Service> services = CatalogCache.getInstance().getActiveServices();
+            List<Trabajadora> trabajadoras = CatalogCache.getInstance().getTrabajadoras();
+            Service service = services.get(0);
+            Trabajadora worker = trabajadoras.get(0);
+            Money price = Money.of(service.getPrice_corto() > 0 ? service.getPrice_corto() : 10.0);
+            Money vat = price.times(0.16);
+            String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+            snapshot = new SaleSnapshot(-1, 1, date, price, "Ninguno", Money.ZERO, vat, price.plus(vat), 200.0,
+                    List.of(new SaleSnapshot.Item(service.getName(), worker.getId(), price, false)),
+                    List.of(new SaleSnapshot.Payment(price.plus(vat), "$", "Efectivo $", null, null, 200.0)),
+                    List.of(new SaleSnapshot.Tip(worker.getId(), worker.getNombreCompleto(), Money.ofCents(200))),
+                    Money.ZERO);
+        }
+    }
+
+    @Benchmark
+    public SaleDAO.SavedSale commitSale(Sale sale) {
+        return new SaleDAO().submit(sale.snapshot).join();
+    }
+}
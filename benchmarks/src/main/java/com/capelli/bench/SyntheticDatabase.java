@@ -0,0 +1,222 @@
+package com.capelli.bench;
+
+import com.capelli.config.AppConfig;
+import com.capelli.database.CatalogCache;
+import com.capelli.database.CommissionRuleDAO;
+import com.capelli.database.DailyCloseDAO;
+import com.capelli.database.Database;
+import com.capelli.database.SaleDAO;
+import com.capelli.model.CommissionRule;
+import com.capelli.model.Money;
+import com.capelli.model.Service;
+import com.capelli.model.Trabajadora;
+import com.capelli.payroll.CommissionLedger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Base de datos SQLite de prueba con ventas sintéticas.
+ * Usa el esquema y la semilla reales (Database.initialize) y agrega clientes, ventas, ítems,
+ * pagos y propinas de los últimos N meses. La semilla del generador es fija, así que dos
+ * corridas con los mismos parámetros producen exactamente los mismos datos.
+ */
+public final class SyntheticDatabase {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] METHODS = {"TD", "TC", "Pago Movil", "Efectivo $", "Efectivo Bs", "Transferencia"};
+    private static final int CLIENTS = 500;
+    private static final double BCV_RATE = 200.0;
+
+    private final Path file;
+    private final LocalDate firstDay;
+    private final LocalDate lastDay;
+
+    private SyntheticDatabase(Path file, LocalDate firstDay, LocalDate lastDay) {
+        this.file = file;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+    }
+
+    /**
+     * Crea la base en un archivo temporal y la deja configurada como base de la aplicación.
+     * @param months Meses de historia hasta hoy
+     * @param salesPerDay Ventas por día
+     */
+    public static SyntheticDatabase create(int months, int salesPerDay) throws IOException, SQLException {
+        Path file = Files.createTempFile("capelli-bench-", ".db");
+        AppConfig.setProperty(AppConfig.DB_URL, "jdbc:sqlite:" + file.toAbsolutePath());
+        Database.initialize();
+
+        LocalDate lastDay = LocalDate.now();
+        LocalDate firstDay = lastDay.minusMonths(months);
+        SyntheticDatabase db = new SyntheticDatabase(file, firstDay, lastDay);
+        db.populate(salesPerDay);
+        return db;
+    }
+
+    public LocalDate firstDay() {
+        return firstDay;
+    }
+
+    public LocalDate lastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Cierra las conexiones y borra el archivo (y los de WAL).
+     */
+    public void delete() throws IOException {
+        Database.shutdown();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+    }
+
+    private void populate(int salesPerDay) throws SQLException {
+        Random random = new Random(42);
+        List<Trabajadora> trabajadoras = CatalogCache.getInstance().getTrabajadoras();
+        List<Service> services = CatalogCache.getInstance().getActiveServices();
+
+        // Cada ítem se asigna a una trabajadora con tasa para su categoría, como en el salón,
+        // para que la nómina no recorra casi solo el caso "sin regla"
+        Map<Integer, Trabajadora> byId = new HashMap<>();
+        trabajadoras.forEach(t -> byId.put(t.getId(), t));
+        Map<String, List<Trabajadora>> workersByCategory = new HashMap<>();
+        for (CommissionRule rule : new CommissionRuleDAO().getAll()) {
+            Trabajadora t = byId.get(rule.getTrabajadora_id());
+            if (t != null) {
+                workersByCategory.computeIfAbsent(rule.getService_category(), k -> new ArrayList<>()).add(t);
+            }
+        }
+
+        Database.executeWrite(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO clients (cedula, full_name, phone) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= CLIENTS; i++) {
+                    pstmt.setString(1, "V-" + (10_000_000 + i));
+                    pstmt.setString(2, "Cliente " + i);
+                    pstmt.setString(3, "0414" + (1_000_000 + i));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            return null;
+        });
+
+        int correlative = 1;
+        // Una transacción por mes para no retener el hilo escritor con todo el historial
+        for (LocalDate month = firstDay.withDayOfMonth(1); !month.isAfter(lastDay); month = month.plusMonths(1)) {
+            LocalDate from = month.isBefore(firstDay) ? firstDay : month;
+            LocalDate to = month.plusMonths(1).minusDays(1).isAfter(lastDay) ? lastDay : month.plusMonths(1).minusDays(1);
+            int start = correlative;
+            correlative = Database.executeWrite(conn -> insertSales(conn, random, trabajadoras, workersByCategory, services, from, to, salesPerDay, start));
+        }
+
+        // Las ventas se insertaron directamente, sin SaleDAO
+        Database.executeWrite(conn -> {
+            SaleDAO.rebuildSummaries(conn);
+            DailyCloseDAO.rebuildAll(conn);
+            return CommissionLedger.postMissing(conn);
+        });
+    }
+
+    private static int insertSales(Connection conn, Random random, List<Trabajadora> trabajadoras,
+                                   Map<String, List<Trabajadora>> workersByCategory, List<Service> services,
+                                   LocalDate from, LocalDate to, int salesPerDay, int correlative) throws SQLException {
+        String saleSql = "INSERT INTO sales (client_id, sale_date, subtotal_cents, discount_type, discount_cents, vat_cents, total_cents, "
+                + "bcv_rate_at_sale, correlative_number) VALUES (?, ?, ?, 'Ninguno', 0, ?, ?, ?, ?)";
+        String itemSql = "INSERT INTO sale_items (sale_id, service_id, employee_id, price_cents, client_brought_product) VALUES (?, ?, ?, ?, ?)";
+        String paymentSql = "INSERT INTO sale_payments (sale_id, monto_cents, moneda, metodo_pago, destino_pago, referencia_pago, tasa_bcv_al_pago) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String tipSql = "INSERT INTO tips (sale_id, recipient_id, recipient_name, amount_cents) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement saleStmt = conn.prepareStatement(saleSql);
+             PreparedStatement itemStmt = conn.prepareStatement(itemSql);
+             PreparedStatement paymentStmt = conn.prepareStatement(paymentSql);
+             PreparedStatement tipStmt = conn.prepareStatement(tipSql);
+             Statement lastId = conn.createStatement()) {
+
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                for (int n = 0; n < salesPerDay; n++) {
+                    LocalDateTime time = day.atTime(9, 0).plusMinutes(random.nextInt(10 * 60));
+                    int itemCount = 1 + random.nextInt(3);
+                    Service[] itemServices = new Service[itemCount];
+                    Money subtotal = Money.ZERO;
+                    for (int i = 0; i < itemCount; i++) {
+                        itemServices[i] = services.get(random.nextInt(services.size()));
+                        subtotal = subtotal.plus(priceOf(itemServices[i]));
+                    }
+                    Money vat = subtotal.times(0.16);
+                    Money total = subtotal.plus(vat);
+
+                    saleStmt.setInt(1, 1 + random.nextInt(CLIENTS));
+                    saleStmt.setString(2, TIMESTAMP.format(time));
+                    saleStmt.setLong(3, subtotal.cents());
+                    saleStmt.setLong(4, vat.cents());
+                    saleStmt.setLong(5, total.cents());
+                    saleStmt.setDouble(6, BCV_RATE);
+                    saleStmt.setString(7, String.valueOf(correlative++));
+                    saleStmt.executeUpdate();
+                    long saleId;
+                    try (ResultSet keys = lastId.executeQuery("SELECT last_insert_rowid()")) {
+                        keys.next();
+                        saleId = keys.getLong(1);
+                    }
+
+                    for (Service service : itemServices) {
+                        List<Trabajadora> candidates = workersByCategory.getOrDefault(service.getService_category(), trabajadoras);
+                        Trabajadora worker = candidates.get(random.nextInt(candidates.size()));
+                        itemStmt.setLong(1, saleId);
+                        itemStmt.setInt(2, service.getId());
+                        itemStmt.setInt(3, worker.getId());
+                        itemStmt.setLong(4, priceOf(service).cents());
+                        itemStmt.setBoolean(5, random.nextInt(10) == 0);
+                        itemStmt.addBatch();
+                    }
+
+                    String method = METHODS[random.nextInt(METHODS.length)];
+                    boolean bolivares = method.equals("Pago Movil") || method.equals("Efectivo Bs") || method.equals("Transferencia");
+                    paymentStmt.setLong(1, saleId);
+                    paymentStmt.setLong(2, (bolivares ? total.toBs(BCV_RATE) : total).cents());
+                    paymentStmt.setString(3, bolivares ? "Bs" : "$");
+                    paymentStmt.setString(4, method);
+                    paymentStmt.setString(5, bolivares ? "Capelli" : null);
+                    paymentStmt.setString(6, bolivares ? String.valueOf(100_000 + random.nextInt(900_000)) : null);
+                    paymentStmt.setDouble(7, bolivares ? BCV_RATE : 0.0);
+                    paymentStmt.addBatch();
+
+                    if (random.nextInt(4) == 0) {
+                        tipStmt.setLong(1, saleId);
+                        Trabajadora recipient = trabajadoras.get(random.nextInt(trabajadoras.size()));
+                        tipStmt.setInt(2, recipient.getId());
+                        tipStmt.setString(3, recipient.getNombreCompleto());
+                        tipStmt.setLong(4, (1 + random.nextInt(5)) * 100L);
+                        tipStmt.addBatch();
+                    }
+                }
+            }
+            itemStmt.executeBatch();
+            paymentStmt.executeBatch();
+            tipStmt.executeBatch();
+        }
+        return correlative;
+    }
+
+    private static Money priceOf(Service service) {
+        return Money.of(service.getPrice_corto() > 0 ? service.getPrice_corto() : 10.0);
+    }
+}
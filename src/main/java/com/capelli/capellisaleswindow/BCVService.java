@@ -1,66 +1,189 @@
 package com.capelli.capellisaleswindow;
 
 import com.capelli.config.AppConfig;
+import com.capelli.database.BcvRateDAO;
+import com.capelli.database.BcvRateDAO.BcvRate;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.json.JSONObject;
 
 /**
  * Servicio para obtener la tasa de cambio del BCV.
+ * La tasa vigente se guarda en memoria durante bcv.update.interval.minutes y un hilo
+ * en segundo plano la renueva al vencer. Cada consulta exitosa queda en la tabla bcv_rates,
+ * así que al iniciar se usa la última tasa conocida sin esperar a la API, y las ventas
+ * históricas buscan la tasa de su fecha localmente.
  */
 public class BCVService {
 
     private static final Logger LOGGER = Logger.getLogger(BCVService.class.getName());
-    
+
+    private static final BcvRateDAO rateDAO = new BcvRateDAO();
+    private static final List<DoubleConsumer> listeners = new CopyOnWriteArrayList<>();
+    private static final Object refreshLock = new Object();
+
+    private static volatile BcvRate current;
+    private static ScheduledExecutorService scheduler;
+
     /**
      * Obtiene la tasa de cambio actual del BCV.
+     * Solo consulta la API si no hay ninguna tasa en memoria ni en el historial.
      * @return La tasa de cambio o la tasa por defecto si hay error
      */
     public static double getBCVRate() {
+        ensureStarted();
+
+        BcvRate rate = current;
+        if (rate == null) {
+            rate = refreshNow();
+        }
+        if (rate == null) {
+            return getDefaultRate();
+        }
+        return rate.rate();
+    }
+
+    /**
+     * Tasa vigente en una fecha según el historial local (bcv_rates).
+     * @return La tasa, o vacío si no hay ninguna registrada hasta esa fecha
+     */
+    public static OptionalDouble getRateForDate(LocalDate date) {
+        try {
+            BcvRate rate = rateDAO.findForDate(date);
+            return rate != null ? OptionalDouble.of(rate.rate()) : OptionalDouble.empty();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error al buscar la tasa BCV del " + date, e);
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * Registra un oyente que recibe cada tasa nueva obtenida de la API.
+     * Se invoca desde el hilo de actualización, no desde el EDT.
+     */
+    public static void addRateListener(DoubleConsumer listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeRateListener(DoubleConsumer listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Carga la última tasa conocida e inicia la actualización periódica, una sola vez.
+     */
+    private static synchronized void ensureStarted() {
+        if (scheduler != null) {
+            return;
+        }
+
+        try {
+            current = rateDAO.findLatest();
+            if (current != null) {
+                LOGGER.info("Tasa BCV del historial: " + current.rate() + " (" + current.fetchedAt() + ")");
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer el historial de tasas BCV", e);
+        }
+
+        long intervalSeconds = TimeUnit.MINUTES.toSeconds(Math.max(1, AppConfig.getBcvUpdateIntervalMinutes()));
+        long initialDelay = 0;
+        if (current != null) {
+            // Si la última tasa aún no vence, se espera lo que le falta
+            long age = Duration.between(current.fetchedAt(), LocalDateTime.now()).getSeconds();
+            initialDelay = Math.max(0, intervalSeconds - age);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bcv-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(BCVService::refreshNow, initialDelay, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Consulta la API, actualiza la tasa en memoria y la registra en el historial.
+     * @return La tasa vigente después del intento (la anterior si la API falló)
+     */
+    private static BcvRate refreshNow() {
+        synchronized (refreshLock) {
+            try {
+                double quote = fetchFromApi();
+                BcvRate rate = new BcvRate(LocalDateTime.now().withNano(0), quote, "api");
+                current = rate;
+                rateDAO.submit(rate).exceptionally(e -> {
+                    LOGGER.log(Level.WARNING, "No se pudo registrar la tasa BCV en el historial", e);
+                    return null;
+                });
+                for (DoubleConsumer listener : listeners) {
+                    listener.accept(quote);
+                }
+            } catch (IOException | org.json.JSONException e) {
+                LOGGER.log(Level.WARNING, "Error al obtener tasa BCV, se mantiene la última conocida", e);
+            } catch (RuntimeException e) {
+                // Una excepción no capturada cancelaría la actualización periódica
+                LOGGER.log(Level.WARNING, "Error inesperado al actualizar la tasa BCV", e);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Consulta la tasa directamente a la API, sin caché ni historial.
+     * @return La tasa publicada
+     */
+    public static double fetchFromApi() throws IOException {
+        String apiUrl = AppConfig.getBcvApiUrl();
+        int timeout = AppConfig.getBcvTimeoutSeconds() * 1000; // Convertir a milisegundos
+
+        LOGGER.info("Consultando tasa BCV desde: " + apiUrl);
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(apiUrl).openConnection();
         try {
-            String apiUrl = AppConfig.getBcvApiUrl();
-            int timeout = AppConfig.getBcvTimeoutSeconds() * 1000; // Convertir a milisegundos
-            
-            LOGGER.info("Consultando tasa BCV desde: " + apiUrl);
-            
-            URL url = new URL(apiUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
             conn.setConnectTimeout(timeout);
             conn.setReadTimeout(timeout);
-            conn.connect();
 
             int responseCode = conn.getResponseCode();
             if (responseCode != 200) {
-                LOGGER.warning("API BCV respondió con código: " + responseCode);
-                return getDefaultRate();
+                throw new IOException("API BCV respondió con código: " + responseCode);
             }
 
-            StringBuilder inline = new StringBuilder();
-            try (Scanner scanner = new Scanner(url.openStream())) {
-                while (scanner.hasNext()) {
-                    inline.append(scanner.nextLine());
-                }
+            // Se lee la respuesta de la misma conexión: abrir la URL otra vez repetiría la petición
+            String body;
+            try (InputStream in = conn.getInputStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
             }
 
-            JSONObject data_obj = new JSONObject(inline.toString());
+            JSONObject data_obj = new JSONObject(body);
             JSONObject sources = data_obj.getJSONObject("sources");
             JSONObject bcv = sources.getJSONObject("BCV");
             double rate = bcv.getDouble("quote");
-            
+
             LOGGER.info("Tasa BCV obtenida exitosamente: " + rate);
             return rate;
-
-        } catch (IOException | org.json.JSONException e) {
-            LOGGER.log(Level.WARNING, "Error al obtener tasa BCV, usando tasa por defecto", e);
-            return getDefaultRate();
+        } finally {
+            conn.disconnect();
         }
     }
-    
+
     /**
      * Obtiene la tasa por defecto configurada.
      * @return La tasa por defecto
@@ -70,7 +193,7 @@ public class BCVService {
         LOGGER.info("Usando tasa BCV por defecto: " + defaultRate);
         return defaultRate;
     }
-    
+
     /**
      * Intenta obtener la tasa desde la API, pero no lanza excepción.
      * @return La tasa obtenida o la tasa por defecto
@@ -83,4 +206,4 @@ public class BCVService {
             return getDefaultRate();
         }
     }
-}
\ No newline at end of file
+}
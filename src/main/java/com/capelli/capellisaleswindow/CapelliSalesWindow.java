@@ -2,6 +2,7 @@ package com.capelli.capellisaleswindow;
 
 import com.capelli.clientmanagementwindow.ClientManagementWindow;
 import com.capelli.database.Database;
+import com.capelli.model.Money;
 import com.capelli.model.Trabajadora;
 import com.capelli.reports.DailyReportWindow;
 import com.capelli.salesdashboard.SalesDashboardWindow;
@@ -23,8 +24,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -35,8 +39,14 @@ import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 import javax.swing.event.TableModelEvent;
 import com.capelli.config.AppConfig;
+import com.capelli.config.ConfigSnapshot;
 import com.capelli.config.ConfigManager;
+import com.capelli.database.CatalogCache;
+import com.capelli.database.ClientSearchIndex;
+import com.capelli.database.CorrelativeSequence;
+import com.capelli.database.SaleDAO;
 import com.capelli.database.ServiceDAO;
+import com.capelli.model.SaleSnapshot;
 import com.capelli.model.Service;
 import com.capelli.servicemanagement.ServiceManagementWindow;
 import com.capelli.validation.*;
@@ -121,14 +131,47 @@ public class CapelliSalesWindow extends JFrame {
     private JTextField montoPagoField;
     private final DecimalFormat currencyFormat = new DecimalFormat("#,##0.00");
 
-    private record Pago(double monto, String moneda, String metodo, String destino, String referencia, double tasaBcv) {}
+    /**
+     * Pago agregado a la factura.
+     * @param monto Monto en la moneda del pago, tal como se guarda
+     */
+    private record Pago(Money monto, String moneda, String metodo, String destino, String referencia, double tasaBcv) {
 
-    private record Tip(String recipientName, double amount) {}
+        Money montoUsd() {
+            return moneda.equals("Bs") ? monto.toUsd(tasaBcv) : monto;
+        }
+    }
+
+    /**
+     * @param recipientId ID de la trabajadora, o null si la propina es para el salón
+     */
+    private record Tip(Integer recipientId, String recipientName, Money amount) {}
+
+    /**
+     * Montos de la factura en pantalla. actualizarTotales y generarFactura usan el mismo cálculo,
+     * en centavos, así lo que se muestra es exactamente lo que se valida y se guarda.
+     */
+    private record Totales(Money subtotalGravable, Money subtotalNoGravable, Money descuento,
+                           Money iva, Money propina, Money pagado) {
+
+        Money subtotal() {
+            return subtotalGravable.plus(subtotalNoGravable);
+        }
+
+        Money total() {
+            return subtotalGravable.minus(descuento).plus(subtotalNoGravable).plus(iva).plus(propina);
+        }
+    }
 
     private DefaultTableModel propinasTableModel;
     private JTable propinasTable;
     private final List<Tip> propinasAgregados = new ArrayList<>();
 
+    private final SaleDAO saleDAO = new SaleDAO();
+    private JButton facturarBtn;
+    private JLabel estadoGuardadoLabel;
+    private int pendingCommits = 0; // Ventas encoladas en el hilo escritor aún sin confirmar (solo se usa en el EDT)
+
     public CapelliSalesWindow() {
         super(AppConfig.getAppTitle());
 
@@ -145,6 +188,15 @@ public class CapelliSalesWindow extends JFrame {
         }
         
         runBcvWorker();
+        BCVService.addRateListener(bcvRateListener);
+        AppConfig.addChangeListener(configListener);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                BCVService.removeRateListener(bcvRateListener);
+                AppConfig.removeChangeListener(configListener);
+            }
+        });
 
         tableModel = new DefaultTableModel(new String[]{"Servicio", "Trabajador(a)", "Precio ($)"}, 0) {
             @Override
@@ -154,6 +206,7 @@ public class CapelliSalesWindow extends JFrame {
         };
 
         cargarDatosDesdeDB();
+        precargarIndiceClientes();
         loadApplicationSettings();
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -292,10 +345,10 @@ public class CapelliSalesWindow extends JFrame {
                     if (rs.getBoolean("client_brought_product")) serviceName += " (Cliente)";
                     
                     String workerName = rs.getString("nombres") + " " + rs.getString("apellidos");
-                    double price = rs.getDouble("price_at_sale");
+                    Money price = Money.ofCents(rs.getLong("price_cents"));
                     
                     serviciosAgregados.add(new VentaServicio(serviceName, workerName, price));
-                    tableModel.addRow(new Object[]{serviceName, workerName, currencyFormat.format(price)});
+                    tableModel.addRow(new Object[]{serviceName, workerName, currencyFormat.format(price.toDouble())});
                 }
             }
 
@@ -309,18 +362,16 @@ public class CapelliSalesWindow extends JFrame {
                 ResultSet rs = pstmt.executeQuery();
                 while (rs.next()) {
                     String moneda = rs.getString("moneda");
-                    double monto = rs.getDouble("monto");
+                    // El monto está guardado en la moneda del pago
+                    Money monto = Money.ofCents(rs.getLong("monto_cents"));
                     double tasaPago = rs.getDouble("tasa_bcv_al_pago");
                     
-                    // Recuperar el monto en la moneda original para visualización
-                    double montoInput = moneda.equals("Bs") ? (monto / tasaPago) : monto;
-                    
                     Pago p = new Pago(monto, moneda, rs.getString("metodo_pago"), 
                                     rs.getString("destino_pago"), rs.getString("referencia_pago"), tasaPago);
                     
                     pagosAgregados.add(p);
                     
-                    String montoDisplay = (moneda.equals("Bs") ? "Bs " : "$ ") + currencyFormat.format(montoInput);
+                    String montoDisplay = (moneda.equals("Bs") ? "Bs " : "$ ") + currencyFormat.format(monto.toDouble());
                     
                     pagosTableModel.addRow(new Object[]{
                         montoDisplay,
@@ -339,11 +390,13 @@ public class CapelliSalesWindow extends JFrame {
                 pstmt.setLong(1, saleId);
                 ResultSet rs = pstmt.executeQuery();
                 while (rs.next()) {
+                    int recipientId = rs.getInt("recipient_id");
+                    Integer recipientIdOrNull = rs.wasNull() ? null : recipientId;
                     String recipient = rs.getString("recipient_name");
-                    double amount = rs.getDouble("amount");
+                    Money amount = Money.ofCents(rs.getLong("amount_cents"));
                     
-                    propinasAgregados.add(new Tip(recipient, amount));
-                    propinasTableModel.addRow(new Object[]{recipient, currencyFormat.format(amount)});
+                    propinasAgregados.add(new Tip(recipientIdOrNull, recipient, amount));
+                    propinasTableModel.addRow(new Object[]{recipient, currencyFormat.format(amount.toDouble())});
                 }
             }
 
@@ -382,7 +435,7 @@ public class CapelliSalesWindow extends JFrame {
 
     private void loadApplicationSettings() {
         if (!isEditMode) {
-            this.currentCorrelative = ConfigManager.getCurrentCorrelative();
+            this.currentCorrelative = CorrelativeSequence.getInstance().peek();
             if (correlativeLabel != null) {
                 correlativeLabel.setText("Factura N°: " + currentCorrelative);
             }
@@ -474,6 +527,28 @@ public class CapelliSalesWindow extends JFrame {
         worker.execute();
     }
 
+    /**
+     * Carga en segundo plano el índice de clientes, para que la primera sugerencia no espere la lectura.
+     */
+    private void precargarIndiceClientes() {
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                ClientSearchIndex.getInstance().preload();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "No se pudo cargar el índice de clientes", e);
+                }
+            }
+        }.execute();
+    }
+
     private void cargarDatosDesdeDB() {
         ServiceDAO serviceDAO = new ServiceDAO(); 
 
@@ -495,8 +570,9 @@ public class CapelliSalesWindow extends JFrame {
             LOGGER.log(Level.SEVERE, "Error al cargar servicios desde DB", e);
         }
 
-         String sqlEmployees = "SELECT id, nombres, apellidos FROM trabajadoras ORDER BY nombres";
-         try (Connection conn = Database.connect(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sqlEmployees)) {
+         try {
+             List<Trabajadora> trabajadoras = CatalogCache.getInstance().getTrabajadoras();
+             trabajadoras.sort(Comparator.comparing(Trabajadora::getNombres));
              trabajadorasList.clear();
              trabajadorasNombres.clear();
              if (trabajadorasComboBox != null) {
@@ -508,11 +584,7 @@ public class CapelliSalesWindow extends JFrame {
 
              List<String> propinaDestinatarios = new ArrayList<>();
 
-             while (rs.next()) {
-                 Trabajadora t = new Trabajadora();
-                 t.setId(rs.getInt("id"));
-                 t.setNombres(rs.getString("nombres"));
-                 t.setApellidos(rs.getString("apellidos"));
+             for (Trabajadora t : trabajadoras) {
                  trabajadorasList.add(t);
                  String nombreCompleto = t.getNombreCompleto();
                  trabajadorasNombres.add(nombreCompleto);
@@ -566,6 +638,15 @@ public class CapelliSalesWindow extends JFrame {
         clientePanel.add(cedulaPanel, gbcCliente);
         
         cedulaNumeroField.addActionListener(e -> buscarClienteEnDB());
+        // Sugerencias por cédula o teléfono mientras se escribe; al elegir se carga como con Enter
+        new ClientSuggestionPopup(cedulaNumeroField, cedulaNumeroField::getText, entry -> {
+            String cedulaFull = entry.cedula();
+            if (cedulaFull != null && cedulaFull.length() > 2) {
+                cedulaTipoComboBox.setSelectedItem(cedulaFull.substring(0, 1));
+                cedulaNumeroField.setText(cedulaFull.substring(2));
+            }
+            buscarClienteEnDB();
+        });
 
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -700,6 +781,7 @@ public class CapelliSalesWindow extends JFrame {
         
         manualBcvField.getDocument().addDocumentListener(new SimpleDocumentListener(this::actualizarTasaManual));
         historicalSaleCheck.addActionListener(e -> toggleHistoricalMode());
+        dateSpinner.addChangeListener(e -> cargarTasaHistorica());
 
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -828,8 +910,57 @@ public class CapelliSalesWindow extends JFrame {
             if (!isEditMode) runBcvWorker(); 
         } else {
             actualizarTasaManual();
+            cargarTasaHistorica();
         }
     }
+
+    /**
+     * Tasa nueva publicada por el BCV mientras la ventana está abierta. Llega desde el hilo de actualización.
+     */
+    private final java.util.function.DoubleConsumer bcvRateListener = rate -> SwingUtilities.invokeLater(() -> {
+        if (isEditMode || historicalSaleCheck == null || historicalSaleCheck.isSelected()) return;
+        tasaBcv = rate;
+        tasaLabel.setText("Tasa BCV: " + String.format("%.2f", tasaBcv) + " Bs/$");
+        actualizarTotales();
+    });
+
+    /**
+     * Configuración recargada (IVA o descuento de promoción pueden haber cambiado). Llega desde el hilo que vigila los archivos.
+     */
+    private final java.util.function.Consumer<ConfigSnapshot> configListener =
+            config -> SwingUtilities.invokeLater(this::actualizarTotales);
+
+    /**
+     * Busca en el historial local la tasa de la fecha elegida para la venta histórica.
+     * Si no hay ninguna, el campo queda para escribirla a mano.
+     */
+    private void cargarTasaHistorica() {
+        if (isEditMode || !historicalSaleCheck.isSelected()) return;
+
+        LocalDate fecha = ((Date) dateSpinner.getValue()).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        new SwingWorker<java.util.OptionalDouble, Void>() {
+            @Override
+            protected java.util.OptionalDouble doInBackground() {
+                return BCVService.getRateForDate(fecha);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    java.util.OptionalDouble rate = get();
+                    if (!historicalSaleCheck.isSelected()) return;
+                    if (rate.isPresent()) {
+                        manualBcvField.setText(String.format(java.util.Locale.US, "%.4f", rate.getAsDouble()));
+                        manualBcvField.setToolTipText("Tasa registrada para el " + fecha);
+                    } else {
+                        manualBcvField.setToolTipText("No hay tasa registrada para el " + fecha + "; ingrésela manualmente");
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error al buscar la tasa histórica", e);
+                }
+            }
+        }.execute();
+    }
     
     private void actualizarTasaManual() {
         if (historicalSaleCheck.isSelected()) {
@@ -987,7 +1118,7 @@ public class CapelliSalesWindow extends JFrame {
             nombreEnTabla += " (Cliente)"; 
         }
     
-        serviciosAgregados.add(new VentaServicio(nombreEnTabla, trabajadora, precioFinal)); 
+        serviciosAgregados.add(new VentaServicio(nombreEnTabla, trabajadora, Money.of(precioFinal))); 
         tableModel.addRow(new Object[]{nombreEnTabla, trabajadora, new DecimalFormat("#,##0.00").format(precioFinal)}); 
         LOGGER.info("Servicio agregado a la venta: " + nombreEnTabla + ", Trabajadora: " + trabajadora + ", Precio: $" + precioFinal);
     
@@ -1052,7 +1183,7 @@ public class CapelliSalesWindow extends JFrame {
                             
                             // Actualizamos la lista lógica de servicios
                             if (row < serviciosAgregados.size()) {
-                                serviciosAgregados.get(row).setPrecio(nuevoPrecio);
+                                serviciosAgregados.get(row).setPrecio(Money.of(nuevoPrecio));
                                 
                                 // Recalculamos los totales de la venta
                                 actualizarTotales();
@@ -1251,13 +1382,17 @@ public class CapelliSalesWindow extends JFrame {
         panel.add(scrollPagos, "grow, pushy, h 100:200:"); 
 
         // Botón Facturar / Actualizar
-        JButton facturarBtn = new JButton(isEditMode ? "Actualizar Venta" : "Generar Factura");
+        facturarBtn = new JButton(isEditMode ? "Actualizar Venta" : "Generar Factura");
         facturarBtn.setFont(new Font("Arial", Font.BOLD, 16));
         if (isEditMode) facturarBtn.setBackground(new Color(200, 230, 255));
         facturarBtn.addActionListener(e -> generarFactura());
         
         panel.add(facturarBtn, "center, gaptop 5");
 
+        estadoGuardadoLabel = new JLabel(" ");
+        estadoGuardadoLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        panel.add(estadoGuardadoLabel, "center");
+
         actualizarPanelesPago(); 
 
         return panel;
@@ -1283,12 +1418,20 @@ public class CapelliSalesWindow extends JFrame {
 
         String destinatario = (String) propinaTrabajadoraComboBox.getSelectedItem();
         
-        ValidationResult result = VentaValidator.validatePropina(monto, destinatario);
+        ValidationResult result = VentaValidator.validatePropina(Money.of(monto), destinatario);
         if (!ValidationHelper.validateAndShow(this, result, "Validación de Propina")) {
             return;
         }
 
-        Tip nuevaPropina = new Tip(destinatario, monto);
+        Integer recipientId;
+        try {
+            recipientId = getTipRecipientId(destinatario);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        Tip nuevaPropina = new Tip(recipientId, destinatario, Money.of(monto));
         propinasAgregados.add(nuevaPropina);
         
         propinasTableModel.addRow(new Object[]{
@@ -1370,19 +1513,17 @@ public class CapelliSalesWindow extends JFrame {
             }
         }
         
-        double montoEnDolares = monto;
         String montoDisplay = "$ " + currencyFormat.format(monto);
 
         if (moneda.equals("Bs")) {
-            if (tasa <= 0) {
+            if (Money.rateUnits(tasa) <= 0) {
                  JOptionPane.showMessageDialog(this, "No se puede agregar pago en Bs sin una tasa BCV válida.", "Error de Tasa", JOptionPane.ERROR_MESSAGE);
                  return;
             }
-            montoEnDolares = monto / tasa;
             montoDisplay = "Bs " + currencyFormat.format(monto);
         }
 
-        Pago nuevoPago = new Pago(montoEnDolares, moneda, metodo, destino, referencia, tasa);
+        Pago nuevoPago = new Pago(Money.of(monto), moneda, metodo, destino, referencia, tasa);
         pagosAgregados.add(nuevoPago);
         
         String detalle = metodo;
@@ -1426,58 +1567,58 @@ public class CapelliSalesWindow extends JFrame {
         }
     }
 
-    private void actualizarTotales() {
-        
-        double subtotalGravable = 0.0; 
-        double subtotalNoGravable = 0.0; 
-
+    /**
+     * Calcula los montos de la factura. Descuento e IVA salen del mismo snapshot de
+     * configuración, aunque se recargue mientras tanto.
+     */
+    private Totales calcularTotales(ConfigSnapshot config, String tipoDesc) {
+        Money subtotalGravable = Money.ZERO;
+        Money subtotalNoGravable = Money.ZERO;
         for (VentaServicio vs : serviciosAgregados) {
             if (vs.getServicio().equals("Abono Manual Staff")) {
-                subtotalNoGravable += vs.getPrecio();
+                subtotalNoGravable = subtotalNoGravable.plus(vs.getPrecio());
             } else {
-                subtotalGravable += vs.getPrecio();
+                subtotalGravable = subtotalGravable.plus(vs.getPrecio());
             }
         }
-        
-        double subtotal = subtotalGravable + subtotalNoGravable;
-        
-        double propina = propinasAgregados.stream()
-            .mapToDouble(Tip::amount)
-            .sum();
 
-        double descuento = 0.0;
-        String tipoDesc = Objects.requireNonNull(descuentoComboBox.getSelectedItem()).toString();
+        Money propina = Money.ZERO;
+        for (Tip tip : propinasAgregados) {
+            propina = propina.plus(tip.amount());
+        }
 
-        if (tipoDesc.equals("Promoción")) {
-            descuento = subtotalGravable * AppConfig.getPromoDiscountPercentage();
+        Money descuento = tipoDesc.equals("Promoción")
+                ? subtotalGravable.times(config.promoDiscountPercentage())
+                : Money.ZERO;
+        Money iva = ivaExcluido ? Money.ZERO : subtotalGravable.minus(descuento).times(config.vatPercentage());
+
+        Money pagado = Money.ZERO;
+        for (Pago p : pagosAgregados) {
+            pagado = pagado.plus(p.montoUsd());
         }
-        
-        double subtotalConDescuento = (subtotalGravable - descuento) + subtotalNoGravable;
-        
-        double iva = ivaExcluido ? 0.0 : (subtotalGravable - descuento) * AppConfig.getVatPercentage();
-        
-        double total = subtotalConDescuento + iva + propina; 
+        return new Totales(subtotalGravable, subtotalNoGravable, descuento, iva, propina, pagado);
+    }
 
-        double totalPagadoEnDolares = pagosAgregados.stream()
-            .mapToDouble(Pago::monto)
-            .sum();
-            
-        double restantePorPagar = total - totalPagadoEnDolares;
+    private void actualizarTotales() {
+        String tipoDesc = Objects.requireNonNull(descuentoComboBox.getSelectedItem()).toString();
+        Totales totales = calcularTotales(AppConfig.current(), tipoDesc);
+        Money total = totales.total();
+        Money restantePorPagar = total.minus(totales.pagado());
         
         double tasa = this.tasaBcv; 
 
-        subtotalLabel.setText("Subtotal ($): " + currencyFormat.format(subtotal));
-        descuentoLabel.setText("Descuento ($): " + currencyFormat.format(descuento));
-        ivaLabel.setText("IVA ($): " + currencyFormat.format(iva));
-        propinaLabelGUI.setText("Propina ($): " + currencyFormat.format(propina));
-        totalLabel.setText("Total ($): " + currencyFormat.format(total));
+        subtotalLabel.setText("Subtotal ($): " + currencyFormat.format(totales.subtotal().toDouble()));
+        descuentoLabel.setText("Descuento ($): " + currencyFormat.format(totales.descuento().toDouble()));
+        ivaLabel.setText("IVA ($): " + currencyFormat.format(totales.iva().toDouble()));
+        propinaLabelGUI.setText("Propina ($): " + currencyFormat.format(totales.propina().toDouble()));
+        totalLabel.setText("Total ($): " + currencyFormat.format(total.toDouble()));
         
-        montoRestanteLabel.setText("Restante ($): " + currencyFormat.format(restantePorPagar) + 
-                                  "  (Bs " + currencyFormat.format(restantePorPagar * tasa) + ")");
+        montoRestanteLabel.setText("Restante ($): " + currencyFormat.format(restantePorPagar.toDouble()) + 
+                                  "  (Bs " + currencyFormat.format(restantePorPagar.toBs(tasa).toDouble()) + ")");
         
-        if (restantePorPagar <= 0.01) { 
+        if (!restantePorPagar.isPositive()) { 
             montoRestanteLabel.setForeground(new Color(0, 150, 0)); 
-            montoRestanteLabel.setText("Total Cubierto. Vuelto ($): " + currencyFormat.format(restantePorPagar * -1));
+            montoRestanteLabel.setText("Total Cubierto. Vuelto ($): " + currencyFormat.format(restantePorPagar.negate().toDouble()));
         } else {
             montoRestanteLabel.setForeground(Color.RED);
         }
@@ -1495,41 +1636,17 @@ public class CapelliSalesWindow extends JFrame {
             ));
         }
 
-        double subtotalGravable = 0.0;
-        double subtotalNoGravable = 0.0;
-        for (VentaServicio vs : serviciosAgregados) {
-            if (vs.getServicio().equals("Abono Manual Staff")) {
-                subtotalNoGravable += vs.getPrecio();
-            } else {
-                subtotalGravable += vs.getPrecio();
-            }
-        }
-        double subtotal = subtotalGravable + subtotalNoGravable;
-
-        double propina = propinasAgregados.stream()
-            .mapToDouble(Tip::amount)
-            .sum();
-
         String tipoDesc = Objects.requireNonNull(descuentoComboBox.getSelectedItem()).toString();
-        double descuento = 0.0;
-        if (tipoDesc.equals("Promoción")) {
-            descuento = subtotalGravable * AppConfig.getPromoDiscountPercentage();
-        }
-
-        double subtotalConDescuentoGravable = subtotalGravable - descuento;
-        double iva = ivaExcluido ? 0.0 : subtotalConDescuentoGravable * AppConfig.getVatPercentage();
-        double totalEnDolares = subtotalConDescuentoGravable + subtotalNoGravable + iva + propina;
-        
-        double totalPagadoEnDolares = pagosAgregados.stream()
-            .mapToDouble(Pago::monto) 
-            .sum();
+        Totales totales = calcularTotales(AppConfig.current(), tipoDesc);
+        Money totalEnDolares = totales.total();
+        Money totalPagadoEnDolares = totales.pagado();
 
         ValidationResult result = VentaValidator.validateVenta(
                 serviciosParaValidar,
-                subtotal,
-                descuento,
-                iva, 
-                propina,
+                totales.subtotal(),
+                totales.descuento(),
+                totales.iva(), 
+                totales.propina(),
                 totalEnDolares, 
                 totalPagadoEnDolares, 
                 tipoDesc
@@ -1540,7 +1657,7 @@ public class CapelliSalesWindow extends JFrame {
         }
         
         ValidationResult descuentoResult = VentaValidator.validateDescuento(
-                tipoDesc, descuento, subtotalGravable 
+                tipoDesc, totales.descuento(), totales.subtotalGravable() 
         );
         result.merge(descuentoResult);
 
@@ -1556,11 +1673,6 @@ public class CapelliSalesWindow extends JFrame {
 
         LOGGER.info("Validación de venta exitosa, procediendo a guardar...");
 
-        Connection conn = null;
-        long saleId = -1;
-        
-        int correlativeToSave = isEditMode ? Integer.parseInt(correlativeLabel.getText().replaceAll("[^0-9]", "")) : ConfigManager.getCurrentCorrelative();
-        
         java.util.Date saleDateUtil;
         if (historicalSaleCheck.isSelected()) {
             try {
@@ -1576,230 +1688,242 @@ public class CapelliSalesWindow extends JFrame {
         
         java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         String saleDateSqlString = sdf.format(saleDateUtil);
-        
+
+        // --- MANEJO DE SALDO (Solo para ventas nuevas para evitar complejidad de reversión) ---
+        // Se pregunta antes de encolar la venta: ningún diálogo debe retener el bloqueo de escritura.
+        Money vuelto = totalPagadoEnDolares.minus(totalEnDolares);
+        Money abonoSaldo = Money.ZERO;
+
+        if (!isEditMode && vuelto.isPositive() && clienteActual != null) {
+            String msg = String.format("Hay un vuelto de $%s.\n¿Desea abonarlo al saldo a favor de %s?", 
+                                       vuelto, clienteActual.getNombre());
+            int respuesta = JOptionPane.showConfirmDialog(this, msg, "Gestionar Vuelto", 
+                                                          JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+            if (respuesta == JOptionPane.YES_OPTION) {
+                abonoSaldo = vuelto;
+            }
+        }
+
+        // --- SNAPSHOT INMUTABLE: a partir de aquí la ventana puede limpiarse sin afectar lo que se guarda ---
+        List<SaleSnapshot.Item> items = new ArrayList<>();
         try {
-            conn = Database.connect();
-            conn.setAutoCommit(false);
+            for (VentaServicio vs : serviciosAgregados) {
+                items.add(new SaleSnapshot.Item(
+                        vs.getServicio(),
+                        getEmployeeIdByName(vs.getTrabajadora()),
+                        vs.getPrecio(),
+                        vs.getServicio().contains(" (Cliente)")));
+            }
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            // --- LÓGICA PARA EDITAR O CREAR ---
-            if (isEditMode) {
-                saleId = currentEditingSaleId;
-                
-                // 1. Actualizar Cabecera
-                String sqlUpdate = "UPDATE sales SET client_id=?, sale_date=?, subtotal=?, discount_type=?, " +
-                                   "discount_amount=?, vat_amount=?, total=?, bcv_rate_at_sale=? WHERE sale_id=?";
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlUpdate)) {
-                    if (clienteActual != null) pstmt.setInt(1, clienteActual.getId());
-                    else pstmt.setNull(1, java.sql.Types.INTEGER);
-                    
-                    pstmt.setString(2, saleDateSqlString);
-                    pstmt.setDouble(3, subtotal);
-                    pstmt.setString(4, tipoDesc);
-                    pstmt.setDouble(5, descuento);
-                    pstmt.setDouble(6, iva);
-                    pstmt.setDouble(7, totalEnDolares);
-                    pstmt.setDouble(8, tasaBcv);
-                    pstmt.setLong(9, saleId);
-                    pstmt.executeUpdate();
-                }
+        List<SaleSnapshot.Payment> payments = new ArrayList<>();
+        for (Pago p : pagosAgregados) {
+            // Se guarda el monto en la moneda del pago, tal como se cobró
+            payments.add(new SaleSnapshot.Payment(p.monto(), p.moneda(), p.metodo(), p.destino(), p.referencia(), p.tasaBcv()));
+        }
 
-                // 2. Borrar detalles antiguos para reinsertar los nuevos
-                Statement stmtDel = conn.createStatement();
-                stmtDel.executeUpdate("DELETE FROM sale_items WHERE sale_id = " + saleId);
-                stmtDel.executeUpdate("DELETE FROM sale_payments WHERE sale_id = " + saleId);
-                stmtDel.executeUpdate("DELETE FROM tips WHERE sale_id = " + saleId);
-                stmtDel.close();
-                
-                LOGGER.info("Detalles antiguos eliminados para actualización de venta ID: " + saleId);
+        List<SaleSnapshot.Tip> tips = new ArrayList<>();
+        for (Tip tip : propinasAgregados) {
+            tips.add(new SaleSnapshot.Tip(tip.recipientId(), tip.recipientName(), tip.amount()));
+        }
 
-            } else {
-                // Lógica de INSERT normal
-                String sqlSale = "INSERT INTO sales (client_id, sale_date, subtotal, discount_type, "
-                        + "discount_amount, vat_amount, total, bcv_rate_at_sale, correlative_number) " 
-                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlSale)) {
-                    if (clienteActual != null) {
-                        pstmt.setInt(1, clienteActual.getId());
-                    } else {
-                        pstmt.setNull(1, java.sql.Types.INTEGER);
-                    }
-                    pstmt.setString(2, saleDateSqlString); 
-                    pstmt.setDouble(3, subtotal); 
-                    pstmt.setString(4, tipoDesc); 
-                    pstmt.setDouble(5, descuento); 
-                    pstmt.setDouble(6, iva); 
-                    pstmt.setDouble(7, totalEnDolares); 
-                    pstmt.setDouble(8, tasaBcv); 
-                    pstmt.setString(9, String.valueOf(correlativeToSave));
-                    pstmt.executeUpdate();
-                }
+        SaleSnapshot venta = new SaleSnapshot(
+                isEditMode ? currentEditingSaleId : -1,
+                clienteActual != null ? clienteActual.getId() : null,
+                saleDateSqlString,
+                totales.subtotal(),
+                tipoDesc,
+                totales.descuento(),
+                totales.iva(),
+                totalEnDolares,
+                tasaBcv,
+                items,
+                payments,
+                tips,
+                abonoSaldo);
+
+        // --- GUARDADO ASÍNCRONO en el hilo escritor ---
+        enviarVenta(venta, currentCorrelative, totalPagadoEnDolares);
 
-                try (Statement stmt = conn.createStatement();
-                     ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
-                    if (rs.next()) {
-                        saleId = rs.getLong(1);
-                    } else {
-                        throw new SQLException("Error al obtener el ID de la venta generada");
-                    }
-                }
-            }
+        if (!isEditMode) {
+            // La cajera puede empezar la siguiente factura mientras se confirma esta.
+            // El número mostrado es una previsión: el definitivo se asigna al confirmar.
+            currentCorrelative++;
+            correlativeLabel.setText("Factura N°: " + currentCorrelative);
+            limpiarVentana();
+        }
+    }
 
-            // --- INSERCIÓN DE DETALLES (Común para Create y Update) ---
-            
-            // 1. Items
-            String sqlItems = "INSERT INTO sale_items (sale_id, service_id, employee_id, price_at_sale, client_brought_product) "
-                    + "VALUES (?, ?, ?, ?, ?)";
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlItems)) {
-                for (VentaServicio vs : serviciosAgregados) {
-                    int serviceId = getServiceId(vs.getServicio(), conn);
-                    int employeeId = getEmployeeIdByName(vs.getTrabajadora(), conn);
-                    boolean clienteTrajo = vs.getServicio().contains(" (Cliente)");
-                    
-                    pstmt.setLong(1, saleId);
-                    pstmt.setInt(2, serviceId);
-                    pstmt.setInt(3, employeeId);
-                    pstmt.setDouble(4, vs.getPrecio());
-                    pstmt.setBoolean(5, clienteTrajo);
-                    pstmt.addBatch();
-                }
-                pstmt.executeBatch();
-            }
+    /**
+     * Encola la venta en el hilo escritor. También se usa para reintentar una venta que no se guardó.
+     *
+     * @param numeroFactura Número mostrado al facturar; en una venta nueva es una previsión
+     */
+    private void enviarVenta(SaleSnapshot venta, int numeroFactura, Money totalPagado) {
+        pendingCommits++;
+        actualizarIndicadorGuardado(null);
+        if (isEditMode) {
+            facturarBtn.setEnabled(false);
+        }
 
-            // 2. Pagos
-            String sqlPayments = "INSERT INTO sale_payments (sale_id, monto, moneda, metodo_pago, "
-                    + "destino_pago, referencia_pago, tasa_bcv_al_pago) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlPayments)) {
-                for (Pago p : pagosAgregados) {
-                    pstmt.setLong(1, saleId);
-                    
-                    // Guardamos el valor nominal o convertido según la lógica original
-                    if(p.moneda().equals("Bs")) {
-                        pstmt.setDouble(2, p.monto() * p.tasaBcv()); 
-                    } else {
-                        pstmt.setDouble(2, p.monto()); 
-                    }
-                    
-                    pstmt.setString(3, p.moneda());
-                    pstmt.setString(4, p.metodo());
-                    pstmt.setString(5, p.destino());
-                    pstmt.setString(6, p.referencia());
-                    pstmt.setDouble(7, p.tasaBcv()); 
-                    pstmt.addBatch();
-                }
-                pstmt.executeBatch();
-            }
+        saleDAO.submit(venta).whenComplete((guardada, error) ->
+                SwingUtilities.invokeLater(() -> onVentaGuardada(venta, numeroFactura, guardada, error, totalPagado)));
+    }
 
-            // 3. Propinas
-            if (!propinasAgregados.isEmpty()) {
-                String sqlTip = "INSERT INTO tips (sale_id, recipient_name, amount) VALUES (?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlTip)) {
-                    for (Tip tip : propinasAgregados) {
-                        pstmt.setLong(1, saleId);
-                        pstmt.setString(2, tip.recipientName());
-                        pstmt.setDouble(3, tip.amount());
-                        pstmt.addBatch();
-                    }
-                    pstmt.executeBatch();
-                }
+    /**
+     * Resultado del guardado asíncrono de una venta. Se ejecuta en el EDT.
+     * Si falló, la venta sigue en {@code venta} y se ofrece reintentarla tal cual.
+     */
+    private void onVentaGuardada(SaleSnapshot venta, int numeroFactura, SaleDAO.SavedSale guardada, Throwable error, Money totalPagado) {
+        pendingCommits--;
+
+        if (error != null) {
+            Throwable cause = error instanceof java.util.concurrent.CompletionException && error.getCause() != null ? error.getCause() : error;
+            LOGGER.log(Level.SEVERE, "Error al registrar/actualizar la venta", cause);
+            actualizarIndicadorGuardado("❌ Factura N° " + numeroFactura + " de $"
+                    + currencyFormat.format(venta.total().toDouble()) + " NO guardada");
+            if (!isEditMode && pendingCommits == 0) {
+                loadApplicationSettings(); // Re-sincronizar el correlativo con la BD
             }
-
-            // --- MANEJO DE SALDO (Solo para ventas nuevas para evitar complejidad de reversión) ---
-            double vuelto = totalPagadoEnDolares - totalEnDolares;
-            boolean abonoSaldoExitoso = false;
-
-            if (!isEditMode && vuelto > 0.01 && clienteActual != null) {
-                String msg = String.format("Hay un vuelto de $%.2f.\n¿Desea abonarlo al saldo a favor de %s?", 
-                                           vuelto, clienteActual.getNombre());
-                int respuesta = JOptionPane.showConfirmDialog(this, msg, "Gestionar Vuelto", 
-                                                              JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
-                if (respuesta == JOptionPane.YES_OPTION) {
-                    Database.updateClientBalance(conn, clienteActual.getId(), vuelto);
-                    abonoSaldoExitoso = true;
-                }
+            facturarBtn.setEnabled(true);
+            Object[] opciones = {"Reintentar", "Cerrar"};
+            int opcion = JOptionPane.showOptionDialog(this,
+                    "No se pudo guardar la factura N° " + numeroFactura
+                    + " (Total $" + currencyFormat.format(venta.total().toDouble()) + ").\n"
+                    + "Error en base de datos:\n" + cause.getMessage() + "\n\n"
+                    + describirVenta(venta) + "\n"
+                    + "¿Reintentar el guardado con estos mismos datos?",
+                    "Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE, null, opciones, opciones[0]);
+            if (opcion == 0) {
+                enviarVenta(venta, numeroFactura, totalPagado);
             }
-            
-            conn.commit();
+            return;
+        }
 
-            // Post-proceso
-            if (!isEditMode) {
-                int nextCorrelative = correlativeToSave + 1;
-                ConfigManager.setCorrelative(nextCorrelative);
-                loadApplicationSettings();
-            }
+        if (isEditMode) {
+            actualizarIndicadorGuardado(null);
+            JOptionPane.showMessageDialog(this, construirMensajeExito(guardada.saleId(), venta.total(), totalPagado), "✅ Éxito", JOptionPane.INFORMATION_MESSAGE);
+            dispose(); // Cerrar ventana de edición
+            return;
+        }
 
-            String accionStr = isEditMode ? "Actualizada" : "Registrada";
-            String mensajeExito;
-            
-            if (abonoSaldoExitoso) {
-                mensajeExito = "Venta " + accionStr + " y saldo abonado exitosamente.";
-            } else {
-                mensajeExito = construirMensajeExito(saleId, totalEnDolares, totalPagadoEnDolares);
-            }
+        String mensaje = "✅ Factura N° " + guardada.correlative() + " registrada";
+        if (venta.balanceCredit().isPositive()) {
+            mensaje += " y saldo abonado";
+        }
+        actualizarIndicadorGuardado(mensaje);
+        if (pendingCommits == 0) {
+            loadApplicationSettings(); // Otra terminal pudo haber tomado números entretanto
+        }
+    }
 
-            JOptionPane.showMessageDialog(this, mensajeExito, "✅ Éxito", JOptionPane.INFORMATION_MESSAGE);
-            
-            if (isEditMode) {
-                dispose(); // Cerrar ventana de edición
-            } else {
-                limpiarVentana(); // Preparar para siguiente venta
-            }
+    /**
+     * Muestra las ventas pendientes de confirmar o, si no hay, el último resultado.
+     */
+    private void actualizarIndicadorGuardado(String ultimoResultado) {
+        if (pendingCommits > 0) {
+            estadoGuardadoLabel.setText("⏳ Guardando " + pendingCommits + (pendingCommits == 1 ? " venta..." : " ventas..."));
+            estadoGuardadoLabel.setForeground(new Color(200, 120, 0));
+        } else if (ultimoResultado != null) {
+            estadoGuardadoLabel.setText(ultimoResultado);
+            estadoGuardadoLabel.setForeground(ultimoResultado.startsWith("❌") ? Color.RED : new Color(0, 150, 0));
+        } else {
+            estadoGuardadoLabel.setText(" ");
+        }
+    }
 
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error al registrar/actualizar la venta", e);
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(this, "Error en base de datos:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
+    /**
+     * Servicios, pagos y propinas de una venta, para que la cajera pueda volver a cargarla
+     * si decide no reintentar.
+     */
+    private String describirVenta(SaleSnapshot venta) {
+        StringBuilder detalle = new StringBuilder();
+        if (venta.clientId() != null) {
+            detalle.append("Cliente ID: ").append(venta.clientId()).append("\n");
+        }
+        detalle.append("Servicios:\n");
+        for (SaleSnapshot.Item item : venta.items()) {
+            detalle.append("  • ").append(item.serviceName())
+                    .append(" - ").append(nombreTrabajadora(item.employeeId()))
+                    .append(": $").append(currencyFormat.format(item.price().toDouble())).append("\n");
+        }
+        if (!venta.payments().isEmpty()) {
+            detalle.append("Pagos:\n");
+            for (SaleSnapshot.Payment pago : venta.payments()) {
+                detalle.append("  • ").append(pago.method()).append(": ").append(pago.currency()).append(" ")
+                        .append(currencyFormat.format(pago.amount().toDouble()));
+                if (pago.destination() != null) {
+                    detalle.append(" (").append(pago.destination()).append(")");
                 }
-            } catch (SQLException ex) { ex.printStackTrace(); }
+                if (pago.reference() != null && !pago.reference().isEmpty()) {
+                    detalle.append(" Ref: ").append(pago.reference());
+                }
+                detalle.append("\n");
+            }
         }
+        if (!venta.tips().isEmpty()) {
+            detalle.append("Propinas:\n");
+            for (SaleSnapshot.Tip tip : venta.tips()) {
+                detalle.append("  • ").append(tip.recipientName())
+                        .append(": $").append(currencyFormat.format(tip.amount().toDouble())).append("\n");
+            }
+        }
+        if (!"Ninguno".equals(venta.discountType())) {
+            detalle.append("Descuento: ").append(venta.discountType()).append("\n");
+        }
+        return detalle.toString();
     }
 
-    private int getServiceId(String serviceName, Connection conn) throws SQLException {
-        String originalServiceName = serviceName.replace(" (Cliente)", "").trim();
-        
-        String sql = "SELECT service_id FROM services WHERE name = ?";
-    
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, originalServiceName); 
-            ResultSet rs = pstmt.executeQuery();
-    
-            if (rs.next()) {
-                return rs.getInt("service_id");
-            } else {
-                throw new SQLException("Servicio no encontrado en la base de datos: " + originalServiceName);
+    private String nombreTrabajadora(int id) {
+        try {
+            Trabajadora t = CatalogCache.getInstance().findTrabajadora(id);
+            if (t != null) {
+                return t.getNombreCompleto();
             }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer la trabajadora " + id, e);
         }
+        return "Trabajadora ID " + id;
     }
 
-    private int getEmployeeIdByName(String nombreCompleto, Connection conn) throws SQLException {
-        for (Trabajadora t : trabajadorasList) {
-            if (t.getNombreCompleto().equals(nombreCompleto)) {
-                return t.getId(); 
-            }
+    private int getEmployeeIdByName(String nombreCompleto) {
+        Trabajadora t;
+        try {
+            t = CatalogCache.getInstance().findTrabajadoraByName(nombreCompleto);
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("No se pudo consultar la trabajadora " + nombreCompleto + ": " + e.getMessage(), e);
+        }
+        if (t == null) {
+            throw new IllegalArgumentException("Trabajadora no encontrada: " + nombreCompleto);
+        }
+        return t.getId();
+    }
+
+    /**
+     * @return ID de la trabajadora que recibe la propina, o null si la propina es para el salón
+     */
+    private Integer getTipRecipientId(String destinatario) {
+        if ("Salón".equals(destinatario)) {
+            return null;
         }
-        throw new SQLException("Trabajadora no encontrada: " + nombreCompleto);
+        return getEmployeeIdByName(destinatario);
     }
     
-    private String construirMensajeExito(long saleId, double total, double montoPagado) {
+    private String construirMensajeExito(long saleId, Money total, Money montoPagado) {
         StringBuilder mensaje = new StringBuilder();
         String titulo = isEditMode ? "Venta Actualizada" : "Venta Registrada";
         mensaje.append(titulo).append(" Exitosamente\n\n");
         mensaje.append("═══════════════════════════════════\n");
         if (!isEditMode) mensaje.append("N° Factura: ").append(currentCorrelative).append("\n");
         mensaje.append("───────────────────────────────────\n");
-        mensaje.append("Total: $").append(currencyFormat.format(total)).append("\n");
-        mensaje.append("Pagado: $").append(currencyFormat.format(montoPagado)).append("\n");
-        double vuelto = montoPagado - total;
-        if (vuelto > 0.01) { 
-            mensaje.append("Vuelto: $").append(currencyFormat.format(vuelto)).append("\n");
+        mensaje.append("Total: $").append(currencyFormat.format(total.toDouble())).append("\n");
+        mensaje.append("Pagado: $").append(currencyFormat.format(montoPagado.toDouble())).append("\n");
+        Money vuelto = montoPagado.minus(total);
+        if (vuelto.isPositive()) { 
+            mensaje.append("Vuelto: $").append(currencyFormat.format(vuelto.toDouble())).append("\n");
         }
         mensaje.append("═══════════════════════════════════\n");
         return mensaje.toString();
@@ -1867,6 +1991,7 @@ public class CapelliSalesWindow extends JFrame {
     public static void main(String[] args) throws SQLException {
         LOGGER.info("=== INICIANDO APLICACIÓN CAPELLI ===");
         AppConfig.printConfiguration();
+        AppConfig.startWatching();
         Database.initialize();
         try {
             if (AppConfig.isDarkModeDefault()) {
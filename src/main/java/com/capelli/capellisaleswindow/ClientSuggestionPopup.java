@@ -0,0 +1,135 @@
+package com.capelli.capellisaleswindow;
+
+import com.capelli.database.ClientSearchIndex;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+
+/**
+ * Lista de clientes sugeridas debajo de un campo de texto mientras se escribe.
+ * Las sugerencias salen de ClientSearchIndex, sin consultar la base de datos.
+ * Flechas para moverse, Enter para elegir y Escape para cerrar; si la lista
+ * está cerrada, Enter llega al ActionListener del campo como siempre.
+ */
+public class ClientSuggestionPopup {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientSuggestionPopup.class.getName());
+
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextField field;
+    private final Supplier<String> query;
+    private final Consumer<ClientSearchIndex.Entry> onSelect;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<ClientSearchIndex.Entry> model = new DefaultListModel<>();
+    private final JList<ClientSearchIndex.Entry> list = new JList<>(model);
+
+    /**
+     * @param query Texto a buscar, armado a partir del campo
+     * @param onSelect Recibe la cliente elegida
+     */
+    public ClientSuggestionPopup(JTextField field, Supplier<String> query, Consumer<ClientSearchIndex.Entry> onSelect) {
+        this.field = field;
+        this.query = query;
+        this.onSelect = onSelect;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        field.getDocument().addDocumentListener(new SimpleDocumentListener(this::update));
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                handleKey(e);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                select();
+            }
+        });
+    }
+
+    /**
+     * Recalcula las sugerencias. Solo se muestran si el usuario está escribiendo en el campo,
+     * no cuando la ventana lo llena al cargar una venta.
+     */
+    public void update() {
+        if (!field.isFocusOwner()) {
+            popup.setVisible(false);
+            return;
+        }
+        List<ClientSearchIndex.Entry> matches;
+        try {
+            matches = ClientSearchIndex.getInstance().search(query.get(), MAX_SUGGESTIONS);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron buscar sugerencias de clientes", e);
+            matches = List.of();
+        }
+
+        model.clear();
+        model.addAll(matches);
+        if (matches.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(matches.size());
+        popup.pack();
+        if (!popup.isVisible()) {
+            popup.show(field, 0, field.getHeight());
+        }
+    }
+
+    private void handleKey(KeyEvent e) {
+        if (!popup.isVisible()) {
+            return;
+        }
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_DOWN -> {
+                list.setSelectedIndex(Math.min(list.getSelectedIndex() + 1, model.size() - 1));
+                e.consume();
+            }
+            case KeyEvent.VK_UP -> {
+                list.setSelectedIndex(Math.max(list.getSelectedIndex() - 1, 0));
+                e.consume();
+            }
+            case KeyEvent.VK_ENTER -> {
+                select();
+                e.consume();
+            }
+            case KeyEvent.VK_ESCAPE -> {
+                popup.setVisible(false);
+                e.consume();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void select() {
+        ClientSearchIndex.Entry entry = list.getSelectedValue();
+        popup.setVisible(false);
+        if (entry != null) {
+            onSelect.accept(entry);
+            // onSelect suele reescribir el campo; la lista no debe volver a abrirse por eso
+            popup.setVisible(false);
+        }
+    }
+}
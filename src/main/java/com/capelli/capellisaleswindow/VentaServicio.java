@@ -1,12 +1,14 @@
 package com.capelli.capellisaleswindow;
 
+import com.capelli.model.Money;
+
 public class VentaServicio {
 
     private final String servicio;
     private final String trabajadora;
-    private double precio;
+    private Money precio;
 
-    public VentaServicio(String servicio, String trabajadora, double precio) {
+    public VentaServicio(String servicio, String trabajadora, Money precio) {
         this.servicio = servicio;
         this.trabajadora = trabajadora;
         this.precio = precio;
@@ -20,11 +22,11 @@ public class VentaServicio {
         return trabajadora;
     }
 
-    public double getPrecio() {
+    public Money getPrecio() {
         return precio;
     }
 
-    public void setPrecio(double precio) {
+    public void setPrecio(Money precio) {
         this.precio = precio;
     }
 }
\ No newline at end of file
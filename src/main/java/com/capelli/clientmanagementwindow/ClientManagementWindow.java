@@ -1,5 +1,6 @@
 package com.capelli.clientmanagementwindow;
 
+import com.capelli.database.ClientSearchIndex;
 import com.capelli.database.Database;
 import com.capelli.validation.ClienteValidator;
 import com.capelli.validation.CommonValidators;
@@ -18,6 +19,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.ParseException;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -46,6 +49,13 @@ public class ClientManagementWindow extends JFrame {
     
     private static final Logger LOGGER = Logger.getLogger(ClientManagementWindow.class.getName());
 
+    /** Máximo de clientes en la tabla; para encontrar otras se usa el campo de búsqueda. */
+    private static final int MAX_ROWS = 500;
+
+    private static final String CLIENT_COLUMNS = "c.full_name, c.cedula, c.address, c.phone, c.hair_type, c.birth_date, "
+            + "c.last_dye_date, c.last_chemical_date, c.last_keratin_date, c.extensions_type, c.last_extensions_maintenance_date";
+
+    private JTextField searchField;
     private JTextField clienteField, cedulaField, direccionField, telefonoField, tipoExtensionesField;
     private JFormattedTextField fechaCumpleañosField, fechaUltimoTinteField, fechaUltimoQuimicoField, fechaUltimaKeratinaField, fechaUltimoMantField;
     private JButton addButton, updateButton, deleteButton, clearButton;
@@ -85,6 +95,8 @@ public class ClientManagementWindow extends JFrame {
     }
 
     private void initComponents() {
+        searchField = new JTextField();
+        searchField.setToolTipText("Nombre, cédula o teléfono");
         clienteField = new JTextField();
         cedulaField = new JTextField();
         direccionField = new JTextField();
@@ -176,6 +188,11 @@ public class ClientManagementWindow extends JFrame {
         formPanel.add(buttonPanel, "span 4, growx, gaptop 15");
 
         mainPanel.add(formPanel, "north");
+
+        JPanel searchPanel = new JPanel(new MigLayout("fillx, insets 0 10 5 10", "[right]10[grow, fill]"));
+        searchPanel.add(new JLabel("Buscar:"));
+        searchPanel.add(searchField, "growx");
+        mainPanel.add(searchPanel, "north");
         mainPanel.add(new JScrollPane(clientTable), "grow");
 
         add(mainPanel, BorderLayout.CENTER);
@@ -186,6 +203,11 @@ public class ClientManagementWindow extends JFrame {
         updateButton.addActionListener(e -> updateClient());
         deleteButton.addActionListener(e -> deleteClient());
         clearButton.addActionListener(e -> clearFields());
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { loadClients(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { loadClients(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { loadClients(); }
+        });
 
         clientTable.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
@@ -247,31 +269,64 @@ public class ClientManagementWindow extends JFrame {
         });
     }
 
+    /**
+     * Llena la tabla con las clientes que coinciden con el campo de búsqueda (del índice en
+     * memoria, en su orden) o, sin búsqueda, con las primeras MAX_ROWS por nombre.
+     */
     private void loadClients() {
         tableModel.setRowCount(0);
-        
-        String sql = "SELECT full_name, cedula, address, phone, hair_type, birth_date, last_dye_date, last_chemical_date, last_keratin_date, extensions_type, last_extensions_maintenance_date FROM clients";
-        try (Connection conn = Database.connect(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                tableModel.addRow(new Object[]{
-                    rs.getString("full_name"),
-                    rs.getString("cedula"),
-                    rs.getString("address"),
-                    rs.getString("phone"),
-                    rs.getString("hair_type"), 
-                    rs.getString("birth_date"),
-                    rs.getString("last_dye_date"),
-                    rs.getString("last_chemical_date"),
-                    rs.getString("last_keratin_date"),
-                    rs.getString("extensions_type"),
-                    rs.getString("last_extensions_maintenance_date")
-                });
+
+        String query = searchField.getText().trim();
+        try (Connection conn = Database.connect()) {
+            PreparedStatement pstmt;
+            if (query.isEmpty()) {
+                pstmt = conn.prepareStatement("SELECT " + CLIENT_COLUMNS + " FROM clients c ORDER BY c.full_name LIMIT ?");
+                pstmt.setInt(1, MAX_ROWS);
+            } else {
+                List<ClientSearchIndex.Entry> matches = ClientSearchIndex.getInstance().search(query, MAX_ROWS);
+                pstmt = conn.prepareStatement("SELECT " + CLIENT_COLUMNS + " FROM json_each(?) ids "
+                        + "JOIN clients c ON c.client_id = ids.value ORDER BY ids.key");
+                pstmt.setString(1, matches.stream()
+                        .map(entry -> String.valueOf(entry.clientId()))
+                        .collect(Collectors.joining(",", "[", "]")));
+            }
+            try (pstmt; ResultSet rs = pstmt.executeQuery()) {
+                addRows(rs);
             }
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error al cargar los clientes: " + e.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private void addRows(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            tableModel.addRow(new Object[]{
+                rs.getString("full_name"),
+                rs.getString("cedula"),
+                rs.getString("address"),
+                rs.getString("phone"),
+                rs.getString("hair_type"), 
+                rs.getString("birth_date"),
+                rs.getString("last_dye_date"),
+                rs.getString("last_chemical_date"),
+                rs.getString("last_keratin_date"),
+                rs.getString("extensions_type"),
+                rs.getString("last_extensions_maintenance_date")
+            });
+        }
+    }
+
+    /**
+     * @return El client_id de la cédula, o null si no existe
+     */
+    private static Integer findClientId(Connection conn, String cedula) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT client_id FROM clients WHERE cedula = ?")) {
+            pstmt.setString(1, cedula);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
     
   
     private String getSelectedHairType() {
@@ -309,21 +364,37 @@ public class ClientManagementWindow extends JFrame {
                      "birth_date, last_dye_date, last_chemical_date, last_keratin_date, " +
                      "extensions_type, last_extensions_maintenance_date) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
 
-        try (Connection conn = Database.connect(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, clienteField.getText());
-            pstmt.setString(2, cedulaField.getText());
-            pstmt.setString(3, direccionField.getText());
-            pstmt.setString(4, telefonoField.getText());
-            pstmt.setString(5, getSelectedHairType());
-            pstmt.setString(6, fechaCumpleañosField.getText());
-            pstmt.setString(7, fechaUltimoTinteField.getText());
-            pstmt.setString(8, fechaUltimoQuimicoField.getText());
-            pstmt.setString(9, fechaUltimaKeratinaField.getText());
-            pstmt.setString(10, tipoExtensionesField.getText());
-            pstmt.setString(11, fechaUltimoMantField.getText());
-            pstmt.executeUpdate();
+        // Los valores se leen en el EDT; el hilo escritor solo recibe los datos.
+        String[] values = {
+            clienteField.getText(),
+            cedulaField.getText(),
+            direccionField.getText(),
+            telefonoField.getText(),
+            getSelectedHairType(),
+            fechaCumpleañosField.getText(),
+            fechaUltimoTinteField.getText(),
+            fechaUltimoQuimicoField.getText(),
+            fechaUltimaKeratinaField.getText(),
+            tipoExtensionesField.getText(),
+            fechaUltimoMantField.getText()
+        };
+
+        try {
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < values.length; i++) {
+                        pstmt.setString(i + 1, values[i]);
+                    }
+                    pstmt.executeUpdate();
+                }
+                int clientId;
+                try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                    clientId = rs.getInt(1);
+                }
+                Database.onCommit(() -> ClientSearchIndex.getInstance().put(
+                        new ClientSearchIndex.Entry(clientId, values[1], values[0], values[3])));
+                return null;
+            });
 
             LOGGER.info("Cliente agregado exitosamente");
             JOptionPane.showMessageDialog(this, "Cliente agregado con éxito.");
@@ -383,22 +454,35 @@ public class ClientManagementWindow extends JFrame {
                      "last_keratin_date = ?, extensions_type = ?, " +
                      "last_extensions_maintenance_date = ? WHERE cedula = ?";
 
-        try (Connection conn = Database.connect(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, clienteField.getText());
-            pstmt.setString(2, direccionField.getText());
-            pstmt.setString(3, telefonoField.getText());
-            pstmt.setString(4, getSelectedHairType());
-            pstmt.setString(5, fechaCumpleañosField.getText());
-            pstmt.setString(6, fechaUltimoTinteField.getText());
-            pstmt.setString(7, fechaUltimoQuimicoField.getText());
-            pstmt.setString(8, fechaUltimaKeratinaField.getText());
-            pstmt.setString(9, tipoExtensionesField.getText());
-            pstmt.setString(10, fechaUltimoMantField.getText());
-            pstmt.setString(11, cedulaField.getText());
+        String[] values = {
+            clienteField.getText(),
+            direccionField.getText(),
+            telefonoField.getText(),
+            getSelectedHairType(),
+            fechaCumpleañosField.getText(),
+            fechaUltimoTinteField.getText(),
+            fechaUltimoQuimicoField.getText(),
+            fechaUltimaKeratinaField.getText(),
+            tipoExtensionesField.getText(),
+            fechaUltimoMantField.getText(),
+            cedulaField.getText()
+        };
 
-            pstmt.executeUpdate();
+        try {
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < values.length; i++) {
+                        pstmt.setString(i + 1, values[i]);
+                    }
+                    pstmt.executeUpdate();
+                }
+                Integer clientId = findClientId(conn, values[10]);
+                if (clientId != null) {
+                    Database.onCommit(() -> ClientSearchIndex.getInstance().put(
+                            new ClientSearchIndex.Entry(clientId, values[10], values[0], values[2])));
+                }
+                return null;
+            });
 
             LOGGER.info("Cliente actualizado exitosamente");
             JOptionPane.showMessageDialog(this, "Cliente actualizado con éxito.");
@@ -424,9 +508,19 @@ public class ClientManagementWindow extends JFrame {
         int confirm = JOptionPane.showConfirmDialog(this, "¿Está seguro de que desea eliminar a este cliente?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             String sql = "DELETE FROM clients WHERE cedula = ?";
-            try (Connection conn = Database.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, cedulaField.getText());
-                pstmt.executeUpdate();
+            String cedula = cedulaField.getText();
+            try {
+                Database.executeWrite(conn -> {
+                    Integer clientId = findClientId(conn, cedula);
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setString(1, cedula);
+                        pstmt.executeUpdate();
+                    }
+                    if (clientId != null) {
+                        Database.onCommit(() -> ClientSearchIndex.getInstance().remove(clientId));
+                    }
+                    return null;
+                });
                 JOptionPane.showMessageDialog(this, "Cliente eliminado con éxito.");
                 loadClients();
                 clearFields();
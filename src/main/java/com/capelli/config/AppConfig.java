@@ -2,24 +2,41 @@
 package com.capelli.config;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Sistema centralizado de configuración de la aplicación.
  * Lee configuraciones desde archivo properties y proporciona valores por defecto.
+ *
+ * Las propiedades se interpretan una sola vez en un ConfigSnapshot inmutable; los getters
+ * leen sus campos. Con {@link #startWatching()} los archivos se vigilan y, si cambian,
+ * se arma un snapshot nuevo y se reemplaza de una vez, sin reiniciar la aplicación.
  */
 public class AppConfig {
     
     private static final Logger LOGGER = Logger.getLogger(AppConfig.class.getName());
-    private static final Properties props = new Properties();
-    private static boolean initialized = false;
+
+    private static volatile ConfigSnapshot snapshot;
+    /** Valores fijados con setProperty; se mantienen por encima de los archivos al recargar. */
+    private static final Properties overrides = new Properties();
+    private static final List<Consumer<ConfigSnapshot>> LISTENERS = new CopyOnWriteArrayList<>();
+    private static ConfigWatcher watcher;
     
     // Configuración de Base de Datos
     public static final String DB_URL = "db.url";
     public static final String DB_INIT_ON_STARTUP = "db.init.on.startup";
+    public static final String DB_POOL_SIZE = "db.pool.size";
+    public static final String DB_POOL_TIMEOUT_SECONDS = "db.pool.timeout.seconds";
+    public static final String DB_BUSY_TIMEOUT_MS = "db.busy.timeout.ms";
+    public static final String DB_SYNCHRONOUS = "db.synchronous";
+    public static final String DB_WAL_AUTOCHECKPOINT_PAGES = "db.wal.autocheckpoint.pages";
+    public static final String DB_WAL_CHECKPOINT_INTERVAL_SECONDS = "db.wal.checkpoint.interval.seconds";
+    public static final String DB_CORRELATIVE_BLOCK_SIZE = "db.correlative.block.size";
     
     // Configuración de API BCV
     public static final String BCV_API_URL = "bcv.api.url";
@@ -43,25 +60,22 @@ public class AppConfig {
     public static final String PAYMENT_METHODS = "business.payment.methods";
     
     static {
-        initialize();
+        EnvironmentLoader.printEnvironmentInfo();
+        snapshot = ConfigSnapshot.compile(loadProperties());
     }
     
     /**
-     * Inicializa el sistema de configuración cargando el archivo properties.
+     * Lee los archivos de configuración del ambiente, o los valores por defecto si no hay ninguno.
      * Utiliza EnvironmentLoader para soportar múltiples ambientes.
      */
-    private static void initialize() {
-        if (initialized) {
-            return;
-        }
-        
+    private static Properties loadProperties() {
+        Properties props = new Properties();
         try {
-            EnvironmentLoader.printEnvironmentInfo();
             Properties loadedProps = EnvironmentLoader.loadEnvironmentProperties();
             
             if (loadedProps.isEmpty()) {
                 LOGGER.warning("No se cargaron propiedades, usando valores por defecto");
-                loadDefaults();
+                loadDefaults(props);
             } else {
                 props.putAll(loadedProps);
                 LOGGER.info("Configuración cargada exitosamente");
@@ -69,19 +83,28 @@ public class AppConfig {
             
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error al cargar configuración, usando valores por defecto", e);
-            loadDefaults();
+            loadDefaults(props);
         }
-        
-        initialized = true;
+        synchronized (overrides) {
+            props.putAll(overrides);
+        }
+        return props;
     }
     
     /**
      * Carga valores por defecto en caso de que no exista el archivo de configuración.
      */
-    private static void loadDefaults() {
+    private static void loadDefaults(Properties props) {
         // Base de datos
         props.setProperty(DB_URL, "jdbc:sqlite:capelli_salon.db");
         props.setProperty(DB_INIT_ON_STARTUP, "true");
+        props.setProperty(DB_POOL_SIZE, "4");
+        props.setProperty(DB_POOL_TIMEOUT_SECONDS, "15");
+        props.setProperty(DB_BUSY_TIMEOUT_MS, "5000");
+        props.setProperty(DB_SYNCHRONOUS, "NORMAL");
+        props.setProperty(DB_WAL_AUTOCHECKPOINT_PAGES, "1000");
+        props.setProperty(DB_WAL_CHECKPOINT_INTERVAL_SECONDS, "60");
+        props.setProperty(DB_CORRELATIVE_BLOCK_SIZE, "1");
         
         // API BCV
         props.setProperty(BCV_API_URL, "https://api.exchangedyn.com/markets/quotes/usdves/bcv");
@@ -105,126 +128,203 @@ public class AppConfig {
         props.setProperty(PAYMENT_METHODS, "TD,TC,Pago Movil,Efectivo $,Efectivo Bs,Transferencia");
     }
     
+    // ===== SNAPSHOT Y RECARGA =====
+    
+    /**
+     * @return La configuración vigente. Leer varios valores del mismo snapshot los mantiene
+     *         coherentes aunque una recarga ocurra en el medio.
+     */
+    public static ConfigSnapshot current() {
+        return snapshot;
+    }
+    
+    /**
+     * Vuelve a leer los archivos y, si algo cambió, reemplaza el snapshot y avisa a los listeners.
+     * Los valores de base de datos y ventana se conservan hasta reiniciar la aplicación.
+     */
+    public static synchronized void reload() {
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot next = ConfigSnapshot.compile(loadProperties());
+        if (next.requiresRestart(previous)) {
+            LOGGER.warning("Cambiaron valores de base de datos o ventana: se aplicarán al reiniciar la aplicación");
+            next = next.keepingRestartValues(previous);
+        }
+        if (next.equals(previous)) {
+            return;
+        }
+        snapshot = next;
+        LOGGER.info("Configuración recargada");
+        for (Consumer<ConfigSnapshot> listener : LISTENERS) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Error en un listener de configuración", e);
+            }
+        }
+    }
+    
+    /**
+     * Empieza a vigilar los archivos de configuración (ver EnvironmentLoader.getWatchedFiles)
+     * y recarga cuando cambian. Llamarlo más de una vez no tiene efecto.
+     */
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        try {
+            watcher = ConfigWatcher.start(EnvironmentLoader.getWatchedFiles(), AppConfig::reload);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo vigilar la configuración; los cambios requieren reiniciar", e);
+        }
+    }
+    
+    /**
+     * Registra un listener que recibe el snapshot nuevo después de cada recarga.
+     * Se llama desde el hilo que vigila los archivos; los listeners de Swing deben pasar al EDT.
+     */
+    public static void addChangeListener(Consumer<ConfigSnapshot> listener) {
+        LISTENERS.add(listener);
+    }
+    
+    public static void removeChangeListener(Consumer<ConfigSnapshot> listener) {
+        LISTENERS.remove(listener);
+    }
+    
     // ===== MÉTODOS GETTER GENÉRICOS =====
     
     /**
      * Obtiene una propiedad como String.
      */
     public static String getString(String key) {
-        return props.getProperty(key);
+        return snapshot.values().get(key);
     }
     
     /**
      * Obtiene una propiedad como String con valor por defecto.
      */
     public static String getString(String key, String defaultValue) {
-        return props.getProperty(key, defaultValue);
+        return snapshot.values().getOrDefault(key, defaultValue);
     }
     
     /**
      * Obtiene una propiedad como int.
      */
     public static int getInt(String key, int defaultValue) {
-        try {
-            return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)));
-        } catch (NumberFormatException e) {
-            LOGGER.warning("Error al parsear int para key: " + key + ", usando default: " + defaultValue);
-            return defaultValue;
-        }
+        return ConfigSnapshot.parseInt(snapshot.values(), key, defaultValue);
     }
     
     /**
      * Obtiene una propiedad como double.
      */
     public static double getDouble(String key, double defaultValue) {
-        try {
-            // Reemplazar coma por punto para compatibilidad
-            String value = props.getProperty(key, String.valueOf(defaultValue));
-            return Double.parseDouble(value.replace(",", "."));
-        } catch (NumberFormatException e) {
-            LOGGER.warning("Error al parsear double para key: " + key + ", usando default: " + defaultValue);
-            return defaultValue;
-        }
+        return ConfigSnapshot.parseDouble(snapshot.values(), key, defaultValue);
     }
     
     /**
      * Obtiene una propiedad como boolean.
      */
     public static boolean getBoolean(String key, boolean defaultValue) {
-        String value = props.getProperty(key);
-        if (value == null) {
-            return defaultValue;
-        }
-        return Boolean.parseBoolean(value);
+        return ConfigSnapshot.parseBoolean(snapshot.values(), key, defaultValue);
     }
     
     /**
      * Obtiene una lista de valores separados por coma.
      */
     public static String[] getStringArray(String key) {
-        String value = props.getProperty(key);
-        if (value == null || value.trim().isEmpty()) {
-            return new String[0];
-        }
-        return value.split(",");
+        return ConfigSnapshot.parseList(snapshot.values().get(key)).toArray(new String[0]);
     }
     
     // ===== MÉTODOS GETTER ESPECÍFICOS =====
     
     // Base de datos
     public static String getDatabaseUrl() {
-        return getString(DB_URL);
+        return snapshot.databaseUrl();
     }
     
     public static boolean shouldInitDatabaseOnStartup() {
-        return getBoolean(DB_INIT_ON_STARTUP, true);
+        return snapshot.initDatabaseOnStartup();
+    }
+    
+    public static int getDbPoolSize() {
+        return snapshot.dbPoolSize();
+    }
+    
+    public static int getDbPoolTimeoutSeconds() {
+        return snapshot.dbPoolTimeoutSeconds();
+    }
+    
+    public static int getDbBusyTimeoutMillis() {
+        return snapshot.dbBusyTimeoutMillis();
+    }
+    
+    /**
+     * Nivel de PRAGMA synchronous. Con WAL, NORMAL es seguro ante caídas de la aplicación.
+     */
+    public static String getDbSynchronous() {
+        return snapshot.dbSynchronous();
+    }
+    
+    public static int getDbWalAutocheckpointPages() {
+        return snapshot.dbWalAutocheckpointPages();
+    }
+    
+    public static int getDbWalCheckpointIntervalSeconds() {
+        return snapshot.dbWalCheckpointIntervalSeconds();
+    }
+    
+    /**
+     * Correlativos reservados por terminal en cada acceso a la BD.
+     * 1 = numeración estrictamente consecutiva; mayor que 1 puede dejar huecos al cerrar la aplicación.
+     */
+    public static int getDbCorrelativeBlockSize() {
+        return snapshot.dbCorrelativeBlockSize();
     }
     
     // API BCV
     public static String getBcvApiUrl() {
-        return getString(BCV_API_URL);
+        return snapshot.bcvApiUrl();
     }
     
     public static double getDefaultBcvRate() {
-        return getDouble(BCV_DEFAULT_RATE, 36.5);
+        return snapshot.defaultBcvRate();
     }
     
     public static int getBcvUpdateIntervalMinutes() {
-        return getInt(BCV_UPDATE_INTERVAL_MINUTES, 30);
+        return snapshot.bcvUpdateIntervalMinutes();
     }
     
     public static int getBcvTimeoutSeconds() {
-        return getInt(BCV_TIMEOUT_SECONDS, 10);
+        return snapshot.bcvTimeoutSeconds();
     }
     
     // UI
     public static String getAppTitle() {
-        return getString(APP_TITLE);
+        return snapshot.appTitle();
     }
     
     public static String getIconPath() {
-        return getString(APP_ICON_PATH);
+        return snapshot.iconPath();
     }
     
     public static boolean isDarkModeDefault() {
-        return "dark".equalsIgnoreCase(getString(APP_DEFAULT_THEME, "dark"));
+        return snapshot.darkModeDefault();
     }
     
     public static int getDefaultWindowWidth() {
-        return getInt(APP_WINDOW_WIDTH, 1200);
+        return snapshot.windowWidth();
     }
     
     public static int getDefaultWindowHeight() {
-        return getInt(APP_WINDOW_HEIGHT, 800);
+        return snapshot.windowHeight();
     }
     
     public static boolean isMaximizedByDefault() {
-        return getBoolean(APP_MAXIMIZED, true);
+        return snapshot.maximizedByDefault();
     }
     
     // Negocio
     public static double getPromoDiscountPercentage() {
-        return getDouble(PROMO_DISCOUNT_PERCENTAGE, 20.0) / 100.0;
+        return snapshot.promoDiscountPercentage();
     }
     
     /**
@@ -232,35 +332,42 @@ public class AppConfig {
      * @return El porcentaje de IVA.
      */
     public static double getVatPercentage() {
-        return getDouble(BUSINESS_VAT_PERCENTAGE, 16.0) / 100.0;
+        return snapshot.vatPercentage();
     }
     
     public static String[] getMultipleWorkerServices() {
-        return getStringArray(MULTIPLE_WORKER_SERVICES);
+        return snapshot.multipleWorkerServices().toArray(new String[0]);
     }
     
     public static String[] getDiscountTypes() {
-        return getStringArray(DISCOUNT_TYPES);
+        return snapshot.discountTypes().toArray(new String[0]);
     }
     
     public static String[] getPaymentMethods() {
-        return getStringArray(PAYMENT_METHODS);
+        return snapshot.paymentMethods().toArray(new String[0]);
     }
     
     // ===== MÉTODOS SETTER (para configuración en tiempo de ejecución) =====
     
     /**
-     * Establece una propiedad (solo en memoria, no persiste).
+     * Establece una propiedad (solo en memoria, no persiste). Se mantiene al recargar los archivos.
      */
-    public static void setProperty(String key, String value) {
+    public static synchronized void setProperty(String key, String value) {
+        synchronized (overrides) {
+            overrides.setProperty(key, value);
+        }
+        Properties props = getAllProperties();
         props.setProperty(key, value);
+        snapshot = ConfigSnapshot.compile(props);
     }
     
     /**
      * Obtiene todas las propiedades (útil para debugging).
      */
     public static Properties getAllProperties() {
-        return (Properties) props.clone();
+        Properties props = new Properties();
+        props.putAll(snapshot.values());
+        return props;
     }
     
     /**
@@ -268,7 +375,7 @@ public class AppConfig {
      */
     public static void printConfiguration() {
         LOGGER.info("=== CONFIGURACIÓN DE LA APLICACIÓN ===");
-        props.forEach((key, value) -> {
+        snapshot.values().forEach((key, value) -> {
             LOGGER.info(key + " = " + value);
         });
         LOGGER.info("=====================================");
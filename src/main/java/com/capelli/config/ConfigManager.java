@@ -1,61 +1,182 @@
 package com.capelli.config;
 
+import com.capelli.database.CorrelativeSequence;
 import com.capelli.database.Database;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Gestiona la configuración dinámica almacenada en la base de datos,
  * como el número correlativo de facturas.
+ *
+ * La tabla app_settings se lee completa al iniciar (ver {@link #reload}) y las lecturas
+ * se sirven desde memoria. Las escrituras actualizan la memoria al instante y se guardan
+ * juntas en una sola transacción: al cabo de FLUSH_DELAY_MILLIS, o antes si alguien llama
+ * a {@link #setSetting(Connection, String, String)} dentro de su propia escritura.
  */
 public class ConfigManager {
 
     private static final Logger LOGGER = Logger.getLogger(ConfigManager.class.getName());
     public static final String KEY_CORRELATIVE = "correlative";
 
+    /** Espera antes de guardar, para juntar varios cambios seguidos en una transacción. */
+    private static final long FLUSH_DELAY_MILLIS = 500;
+    /** Espera antes de reintentar un guardado que se revirtió. */
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private static final String UPSERT_SQL = "INSERT OR REPLACE INTO app_settings (setting_key, setting_value) VALUES (?, ?)";
+
+    private static final Map<String, String> SETTINGS = new ConcurrentHashMap<>();
+    /** Cambios aún no guardados en la base. */
+    private static final Map<String, String> PENDING = new ConcurrentHashMap<>();
+    private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean();
+    private static volatile boolean loaded;
+
     /**
-     * Obtiene una configuración específica de la base de datos.
-     * @param key La clave de la configuración (ej: "correlative")
-     * @return El valor guardado, o null si no se encuentra.
+     * Vuelve a leer app_settings completa. Database.initialize lo llama al terminar,
+     * también cuando se cambia de base de datos. Los cambios pendientes se conservan.
      */
-    private static String getSetting(String key) {
-        String sql = "SELECT setting_value FROM app_settings WHERE setting_key = ?";
+    public static synchronized void reload() {
+        Map<String, String> values = new HashMap<>();
         try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, key);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getString("setting_value");
+             PreparedStatement pstmt = conn.prepareStatement("SELECT setting_key, setting_value FROM app_settings");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                values.put(rs.getString("setting_key"), rs.getString("setting_value"));
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error al leer configuración de BD: " + key, e);
+            LOGGER.log(Level.SEVERE, "Error al leer configuración de BD", e);
+            return;
+        }
+        values.putAll(PENDING);
+        SETTINGS.clear();
+        SETTINGS.putAll(values);
+        loaded = true;
+    }
+
+    private static void ensureLoaded() {
+        if (!loaded) {
+            reload();
         }
-        return null;
     }
 
     /**
-     * Guarda o actualiza una configuración en la base de datos.
+     * Obtiene una configuración específica.
+     * @param key La clave de la configuración (ej: "correlative")
+     * @return El valor guardado, o null si no se encuentra.
+     */
+    public static String getSetting(String key) {
+        ensureLoaded();
+        return SETTINGS.get(key);
+    }
+
+    /**
+     * Guarda o actualiza una configuración. El valor se ve enseguida en {@link #getSetting};
+     * la base se actualiza en segundo plano, junto con los demás cambios pendientes.
      * @param key La clave de la configuración.
      * @param value El nuevo valor.
      */
-    private static void setSetting(String key, String value) {
-        // INSERT OR REPLACE (UPSERT)
-        String sql = "INSERT OR REPLACE INTO app_settings (setting_key, setting_value) VALUES (?, ?)";
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, key);
-            pstmt.setString(2, value);
-            pstmt.executeUpdate();
-            
+    public static void setSetting(String key, String value) {
+        ensureLoaded();
+        SETTINGS.put(key, value);
+        PENDING.put(key, value);
+        scheduleFlush(FLUSH_DELAY_MILLIS);
+    }
+
+    /**
+     * Programa el guardado de los cambios pendientes, salvo que ya haya uno programado.
+     */
+    private static void scheduleFlush(long delayMillis) {
+        if (FLUSH_SCHEDULED.compareAndSet(false, true)) {
+            Database.submitWriteDelayed(conn -> {
+                FLUSH_SCHEDULED.set(false);
+                writePending(conn);
+                return null;
+            }, delayMillis).exceptionally(e -> {
+                LOGGER.log(Level.SEVERE, "Error al guardar configuración en BD", e);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Guarda una configuración dentro de la transacción de quien llama, junto con los
+     * cambios pendientes. Debe llamarse dentro de una escritura (Database.executeWrite / submitWrite).
+     */
+    public static void setSetting(Connection conn, String key, String value) throws SQLException {
+        ensureLoaded();
+        PENDING.put(key, value);
+        writePending(conn);
+        cacheWritten(key, value);
+    }
+
+    /**
+     * Actualiza la memoria con un valor que se escribió en app_settings por SQL directo,
+     * dentro de la escritura en curso. Si la transacción se revierte, se vuelve al valor anterior.
+     */
+    public static void cacheWritten(String key, String value) {
+        String previous = SETTINGS.put(key, value);
+        Database.onRollback(() -> {
+            if (previous != null) {
+                SETTINGS.put(key, previous);
+            } else {
+                SETTINGS.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Guarda ya los cambios pendientes. Database.shutdown lo llama antes de cerrar.
+     */
+    public static void flush() {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        try {
+            Database.executeWrite(conn -> {
+                writePending(conn);
+                return null;
+            });
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error al guardar configuración en BD: " + key, e);
+            LOGGER.log(Level.SEVERE, "Error al guardar configuración en BD", e);
+        }
+    }
+
+    /**
+     * Escribe los cambios pendientes en una sola tanda. Si la transacción se revierte,
+     * vuelven a quedar pendientes (sin pisar otros más nuevos) y se programa otro intento.
+     */
+    private static void writePending(Connection conn) throws SQLException {
+        Map<String, String> batch = new HashMap<>();
+        for (String key : PENDING.keySet()) {
+            String value = PENDING.remove(key);
+            if (value != null) {
+                batch.put(key, value);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Database.onRollback(() -> {
+            batch.forEach(PENDING::putIfAbsent);
+            scheduleFlush(RETRY_DELAY_MILLIS);
+        });
+
+        try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (Map.Entry<String, String> entry : batch.entrySet()) {
+                pstmt.setString(1, entry.getKey());
+                pstmt.setString(2, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
         }
     }
 
@@ -77,10 +198,15 @@ public class ConfigManager {
     }
 
     /**
-     * Establece un nuevo número correlativo para la factura.
+     * Establece el próximo número correlativo de factura (ajuste manual).
+     * Las ventas no usan este método: toman su número con CorrelativeSequence al guardarse.
      * @param correlative El nuevo número.
      */
     public static void setCorrelative(int correlative) {
-        setSetting(KEY_CORRELATIVE, String.valueOf(correlative));
+        try {
+            CorrelativeSequence.getInstance().reset(correlative);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al guardar configuración en BD: " + KEY_CORRELATIVE, e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,220 @@
+package com.capelli.config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Configuración ya interpretada: cada propiedad se convierte una sola vez a su tipo al cargar
+ * (o recargar) los archivos, y AppConfig devuelve estos campos sin volver a parsear.
+ * Es inmutable; una recarga arma otra instancia y la reemplaza completa.
+ *
+ * @param values Propiedades tal como se leyeron, para los getters genéricos de AppConfig
+ * @param promoDiscountPercentage Descuento de promoción como fracción (0.20 para 20%)
+ * @param vatPercentage IVA como fracción (0.16 para 16%)
+ */
+public record ConfigSnapshot(
+    Map<String, String> values,
+    // Base de datos
+    String databaseUrl,
+    boolean initDatabaseOnStartup,
+    int dbPoolSize,
+    int dbPoolTimeoutSeconds,
+    int dbBusyTimeoutMillis,
+    String dbSynchronous,
+    int dbWalAutocheckpointPages,
+    int dbWalCheckpointIntervalSeconds,
+    int dbCorrelativeBlockSize,
+    // API BCV
+    String bcvApiUrl,
+    double defaultBcvRate,
+    int bcvUpdateIntervalMinutes,
+    int bcvTimeoutSeconds,
+    // UI
+    String appTitle,
+    String iconPath,
+    boolean darkModeDefault,
+    int windowWidth,
+    int windowHeight,
+    boolean maximizedByDefault,
+    // Negocio
+    double promoDiscountPercentage,
+    double vatPercentage,
+    List<String> multipleWorkerServices,
+    List<String> discountTypes,
+    List<String> paymentMethods
+) {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigSnapshot.class.getName());
+
+    /** Propiedades que solo se aplican al iniciar: base de datos y ventana. */
+    private static final List<String> RESTART_KEYS = List.of(
+            AppConfig.DB_URL, AppConfig.DB_POOL_SIZE, AppConfig.DB_POOL_TIMEOUT_SECONDS,
+            AppConfig.DB_BUSY_TIMEOUT_MS, AppConfig.DB_SYNCHRONOUS, AppConfig.DB_WAL_AUTOCHECKPOINT_PAGES,
+            AppConfig.DB_WAL_CHECKPOINT_INTERVAL_SECONDS, AppConfig.DB_CORRELATIVE_BLOCK_SIZE,
+            AppConfig.APP_DEFAULT_THEME, AppConfig.APP_WINDOW_WIDTH, AppConfig.APP_WINDOW_HEIGHT,
+            AppConfig.APP_MAXIMIZED);
+
+    public ConfigSnapshot {
+        values = Map.copyOf(values);
+        multipleWorkerServices = List.copyOf(multipleWorkerServices);
+        discountTypes = List.copyOf(discountTypes);
+        paymentMethods = List.copyOf(paymentMethods);
+    }
+
+    /**
+     * Interpreta las propiedades. Un valor inválido se informa y se reemplaza por su valor por defecto.
+     */
+    public static ConfigSnapshot compile(Properties props) {
+        Map<String, String> values = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            values.put(key, props.getProperty(key));
+        }
+        return new ConfigSnapshot(
+            values,
+            values.get(AppConfig.DB_URL),
+            parseBoolean(values, AppConfig.DB_INIT_ON_STARTUP, true),
+            parseInt(values, AppConfig.DB_POOL_SIZE, 4),
+            parseInt(values, AppConfig.DB_POOL_TIMEOUT_SECONDS, 15),
+            parseInt(values, AppConfig.DB_BUSY_TIMEOUT_MS, 5000),
+            parseSynchronous(values.getOrDefault(AppConfig.DB_SYNCHRONOUS, "NORMAL")),
+            parseInt(values, AppConfig.DB_WAL_AUTOCHECKPOINT_PAGES, 1000),
+            parseInt(values, AppConfig.DB_WAL_CHECKPOINT_INTERVAL_SECONDS, 60),
+            Math.max(1, parseInt(values, AppConfig.DB_CORRELATIVE_BLOCK_SIZE, 1)),
+            values.get(AppConfig.BCV_API_URL),
+            parseDouble(values, AppConfig.BCV_DEFAULT_RATE, 36.5),
+            parseInt(values, AppConfig.BCV_UPDATE_INTERVAL_MINUTES, 30),
+            parseInt(values, AppConfig.BCV_TIMEOUT_SECONDS, 10),
+            values.get(AppConfig.APP_TITLE),
+            values.get(AppConfig.APP_ICON_PATH),
+            "dark".equalsIgnoreCase(values.getOrDefault(AppConfig.APP_DEFAULT_THEME, "dark")),
+            parseInt(values, AppConfig.APP_WINDOW_WIDTH, 1200),
+            parseInt(values, AppConfig.APP_WINDOW_HEIGHT, 800),
+            parseBoolean(values, AppConfig.APP_MAXIMIZED, true),
+            parseDouble(values, AppConfig.PROMO_DISCOUNT_PERCENTAGE, 20.0) / 100.0,
+            parseDouble(values, AppConfig.BUSINESS_VAT_PERCENTAGE, 16.0) / 100.0,
+            parseList(values.get(AppConfig.MULTIPLE_WORKER_SERVICES)),
+            parseList(values.get(AppConfig.DISCOUNT_TYPES)),
+            parseList(values.get(AppConfig.PAYMENT_METHODS)));
+    }
+
+    /**
+     * @return true si cambió algún valor que solo se aplica al iniciar (base de datos y ventana)
+     */
+    public boolean requiresRestart(ConfigSnapshot other) {
+        return !Objects.equals(databaseUrl, other.databaseUrl)
+                || dbPoolSize != other.dbPoolSize
+                || dbPoolTimeoutSeconds != other.dbPoolTimeoutSeconds
+                || dbBusyTimeoutMillis != other.dbBusyTimeoutMillis
+                || !dbSynchronous.equals(other.dbSynchronous)
+                || dbWalAutocheckpointPages != other.dbWalAutocheckpointPages
+                || dbWalCheckpointIntervalSeconds != other.dbWalCheckpointIntervalSeconds
+                || dbCorrelativeBlockSize != other.dbCorrelativeBlockSize
+                || darkModeDefault != other.darkModeDefault
+                || windowWidth != other.windowWidth
+                || windowHeight != other.windowHeight
+                || maximizedByDefault != other.maximizedByDefault;
+    }
+
+    /**
+     * Esta configuración con los valores de {@code running} en las propiedades que solo se
+     * aplican al iniciar, para que una recarga no los cambie mientras la aplicación corre.
+     */
+    public ConfigSnapshot keepingRestartValues(ConfigSnapshot running) {
+        Map<String, String> merged = new HashMap<>(values);
+        for (String key : RESTART_KEYS) {
+            String value = running.values.get(key);
+            if (value != null) {
+                merged.put(key, value);
+            } else {
+                merged.remove(key);
+            }
+        }
+        return new ConfigSnapshot(
+            merged,
+            running.databaseUrl,
+            initDatabaseOnStartup,
+            running.dbPoolSize,
+            running.dbPoolTimeoutSeconds,
+            running.dbBusyTimeoutMillis,
+            running.dbSynchronous,
+            running.dbWalAutocheckpointPages,
+            running.dbWalCheckpointIntervalSeconds,
+            running.dbCorrelativeBlockSize,
+            bcvApiUrl,
+            defaultBcvRate,
+            bcvUpdateIntervalMinutes,
+            bcvTimeoutSeconds,
+            appTitle,
+            iconPath,
+            running.darkModeDefault,
+            running.windowWidth,
+            running.windowHeight,
+            running.maximizedByDefault,
+            promoDiscountPercentage,
+            vatPercentage,
+            multipleWorkerServices,
+            discountTypes,
+            paymentMethods);
+    }
+
+    static int parseInt(Map<String, String> values, String key, int defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Error al parsear int para key: " + key + ", usando default: " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    static double parseDouble(Map<String, String> values, String key, double defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            // Reemplazar coma por punto para compatibilidad
+            return Double.parseDouble(value.trim().replace(",", "."));
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Error al parsear double para key: " + key + ", usando default: " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    static boolean parseBoolean(Map<String, String> values, String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    static List<String> parseList(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(value.split(","));
+    }
+
+    /**
+     * Nivel de PRAGMA synchronous. Con WAL, NORMAL es seguro ante caídas de la aplicación.
+     */
+    private static String parseSynchronous(String raw) {
+        String value = raw.trim().toUpperCase();
+        switch (value) {
+            case "OFF":
+            case "NORMAL":
+            case "FULL":
+            case "EXTRA":
+                return value;
+            default:
+                LOGGER.warning("Valor inválido para " + AppConfig.DB_SYNCHRONOUS + ": " + value + ", usando NORMAL");
+                return "NORMAL";
+        }
+    }
+}
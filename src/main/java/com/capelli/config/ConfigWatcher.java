@@ -0,0 +1,112 @@
+package com.capelli.config;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hilo que vigila los archivos de configuración con un WatchService y avisa cuando cambian.
+ * Se vigila la carpeta de cada archivo (WatchService no vigila archivos sueltos) y se
+ * ignoran los demás archivos de la carpeta.
+ */
+final class ConfigWatcher implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigWatcher.class.getName());
+
+    /** Los editores suelen guardar en varios pasos; se espera a que terminen antes de recargar. */
+    private static final long SETTLE_MILLIS = 300;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> files = new HashSet<>();
+    private final Runnable onChange;
+
+    private ConfigWatcher(WatchService watchService, Runnable onChange) {
+        this.watchService = watchService;
+        this.onChange = onChange;
+    }
+
+    /**
+     * @return El watcher ya corriendo, o null si no hay archivos que vigilar
+     */
+    static ConfigWatcher start(Collection<Path> files, Runnable onChange) throws IOException {
+        if (files.isEmpty()) {
+            LOGGER.info("No hay archivos de configuración en disco para vigilar");
+            return null;
+        }
+        ConfigWatcher watcher = new ConfigWatcher(FileSystems.getDefault().newWatchService(), onChange);
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            Path dir = absolute.getParent();
+            if (dir == null || !dir.toFile().isDirectory()) {
+                LOGGER.warning("Carpeta de configuración inexistente, no se vigila: " + dir);
+                continue;
+            }
+            watcher.files.add(absolute);
+            if (!watcher.directories.containsValue(dir)) {
+                WatchKey key = dir.register(watcher.watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                watcher.directories.put(key, dir);
+            }
+        }
+
+        Thread thread = new Thread(watcher, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Vigilando configuración: " + watcher.files);
+        return watcher;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = collect(key);
+                if (!changed) {
+                    continue;
+                }
+                Thread.sleep(SETTLE_MILLIS);
+                // Descartar los eventos que llegaron mientras se esperaba: una sola recarga alcanza
+                for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                    collect(pending);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Error al recargar la configuración", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true si alguno de los eventos de la clave es de un archivo vigilado
+     */
+    private boolean collect(WatchKey key) {
+        Path dir = directories.get(key);
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir != null && event.context() instanceof Path name && files.contains(dir.resolve(name))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -80,7 +80,7 @@ public class ConfigurationTest {
         System.out.println("🌐 VERIFICACIÓN DE API BCV:");
         try {
             System.out.print("  Consultando API... ");
-            double rate = com.capelli.capellisaleswindow.BCVService.getBCVRate();
+            double rate = com.capelli.capellisaleswindow.BCVService.fetchFromApi();
             if (rate > 0) {
                 System.out.println("✓ EXITOSA");
                 System.out.println("  Tasa obtenida: " + rate + " Bs/$");
@@ -2,12 +2,23 @@ package com.capelli.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
 /**
  * Cargador de configuración por ambiente (desarrollo/producción).
  * Permite tener diferentes configuraciones según el ambiente.
+ *
+ * Si se define una carpeta externa (propiedad de sistema app.config.dir o variable
+ * APP_CONFIG_DIR), sus archivos se cargan después de los del classpath y los sobrescriben;
+ * así un administrador puede cambiar la configuración sin tocar el jar.
  */
 public class EnvironmentLoader {
     
@@ -80,9 +91,76 @@ public class EnvironmentLoader {
             loadPropertiesFile(currentEnv.getFileName(), props, false);
         }
         
+        // 3. Archivos de la carpeta externa, si hay (sobrescriben los del classpath)
+        Path externalDir = getExternalConfigDir();
+        if (externalDir != null) {
+            for (String fileName : fileNames(currentEnv)) {
+                loadExternalFile(externalDir.resolve(fileName), props);
+            }
+        }
+        
         return props;
     }
     
+    /**
+     * @return La carpeta externa de configuración, o null si no se definió
+     */
+    public static Path getExternalConfigDir() {
+        String dir = System.getProperty("app.config.dir");
+        if (dir == null) {
+            dir = System.getenv("APP_CONFIG_DIR");
+        }
+        return dir != null && !dir.isBlank() ? Paths.get(dir).toAbsolutePath() : null;
+    }
+    
+    /**
+     * Archivos del sistema de archivos de los que sale la configuración, existan o no todavía:
+     * los de la carpeta externa y los del classpath cuando no están dentro de un jar
+     * (por ejemplo, al ejecutar desde el IDE).
+     */
+    public static List<Path> getWatchedFiles() {
+        List<Path> files = new ArrayList<>();
+        List<String> names = fileNames(getCurrentEnvironment());
+        for (String fileName : names) {
+            URL resource = EnvironmentLoader.class.getClassLoader().getResource(fileName);
+            if (resource != null && "file".equals(resource.getProtocol())) {
+                try {
+                    files.add(Paths.get(resource.toURI()));
+                } catch (URISyntaxException e) {
+                    LOGGER.warning("Ruta de configuración inválida: " + resource);
+                }
+            }
+        }
+        Path externalDir = getExternalConfigDir();
+        if (externalDir != null) {
+            for (String fileName : names) {
+                files.add(externalDir.resolve(fileName));
+            }
+        }
+        return files;
+    }
+    
+    private static List<String> fileNames(Environment env) {
+        List<String> names = new ArrayList<>();
+        names.add(Environment.DEFAULT.getFileName());
+        if (env != Environment.DEFAULT) {
+            names.add(env.getFileName());
+        }
+        return names;
+    }
+    
+    private static void loadExternalFile(Path file, Properties props) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            props.load(inputStream);
+            LOGGER.info("Archivo de configuración externo cargado: " + file);
+        } catch (IOException e) {
+            LOGGER.warning("Error al cargar configuración externa: " + file);
+        }
+    }
+    
     /**
      * Carga un archivo de propiedades.
      * 
@@ -0,0 +1,77 @@
+package com.capelli.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Historial de tasas BCV (tabla bcv_rates).
+ * fetched_at usa el mismo formato de texto que sales.sale_date, en hora local.
+ */
+public class BcvRateDAO {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Tasa registrada en un momento dado.
+     */
+    public record BcvRate(LocalDateTime fetchedAt, double rate, String source) {}
+
+    /**
+     * Encola el registro de una tasa consultada en el hilo escritor.
+     */
+    public CompletableFuture<Void> submit(BcvRate rate) {
+        String sql = "INSERT INTO bcv_rates (fetched_at, rate, source) VALUES (?, ?, ?)";
+        return Database.submitWrite(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, TIMESTAMP.format(rate.fetchedAt()));
+                pstmt.setDouble(2, rate.rate());
+                pstmt.setString(3, rate.source());
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return La última tasa registrada, o null si el historial está vacío
+     */
+    public BcvRate findLatest() throws SQLException {
+        String sql = "SELECT fetched_at, rate, source FROM bcv_rates ORDER BY fetched_at DESC LIMIT 1";
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            return readOne(pstmt);
+        }
+    }
+
+    /**
+     * Tasa vigente en una fecha: la última registrada hasta el final de ese día.
+     * @return La tasa, o null si no hay ninguna registrada hasta esa fecha
+     */
+    public BcvRate findForDate(LocalDate date) throws SQLException {
+        String sql = "SELECT fetched_at, rate, source FROM bcv_rates "
+                + "WHERE fetched_at < ? ORDER BY fetched_at DESC LIMIT 1";
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, date.plusDays(1).toString());
+            return readOne(pstmt);
+        }
+    }
+
+    private static BcvRate readOne(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            return new BcvRate(
+                    LocalDateTime.parse(rs.getString("fetched_at"), TIMESTAMP),
+                    rs.getDouble("rate"),
+                    rs.getString("source"));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.capelli.database;
+
+import com.capelli.model.Service;
+import com.capelli.model.Trabajadora;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Caché en memoria del catálogo de servicios y trabajadoras, indexado por ID y por nombre.
+ * Se carga completo en la primera consulta y se descarta cuando ServiceDAO o TrabajadoraDAO
+ * escriben, así que las búsquedas del flujo de ventas no tocan la base de datos.
+ *
+ * Los objetos devueltos son compartidos: quien los modifique debe guardarlos con su DAO,
+ * que invalida la caché.
+ */
+public final class CatalogCache {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogCache.class.getName());
+
+    private static final CatalogCache INSTANCE = new CatalogCache();
+
+    /** Servicios activos ordenados por nombre; los índices incluyen también los desactivados. */
+    record ServiceCatalog(List<Service> active, Map<Integer, Service> byId, Map<String, Service> byName) {}
+
+    record TrabajadoraCatalog(List<Trabajadora> all, Map<Integer, Trabajadora> byId, Map<String, Trabajadora> byName) {}
+
+    private final Slot<ServiceCatalog> services = new Slot<>("servicios", ServiceDAO::loadCatalog);
+    private final Slot<TrabajadoraCatalog> trabajadoras = new Slot<>("trabajadoras", CatalogCache::loadTrabajadoras);
+
+    private CatalogCache() {
+    }
+
+    public static CatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    // ========== SERVICIOS ==========
+
+    /**
+     * @return Copia de la lista de servicios activos, ordenada por nombre
+     */
+    public List<Service> getActiveServices() throws SQLException {
+        return new ArrayList<>(services.get().active());
+    }
+
+    /**
+     * @return Copia de la lista de todos los servicios, incluidos los desactivados
+     */
+    public List<Service> getAllServices() throws SQLException {
+        return new ArrayList<>(services.get().byId().values());
+    }
+
+    /**
+     * @return El servicio (activo o no), o null si no existe
+     */
+    public Service findService(int serviceId) throws SQLException {
+        return services.get().byId().get(serviceId);
+    }
+
+    /**
+     * @return El servicio con ese nombre exacto (activo o no), o null si no existe
+     */
+    public Service findServiceByName(String name) throws SQLException {
+        return services.get().byName().get(name);
+    }
+
+    public void invalidateServices() {
+        services.invalidate();
+    }
+
+    // ========== TRABAJADORAS ==========
+
+    /**
+     * @return Copia de la lista de trabajadoras, en orden de ID
+     */
+    public List<Trabajadora> getTrabajadoras() throws SQLException {
+        return new ArrayList<>(trabajadoras.get().all());
+    }
+
+    /**
+     * @return La trabajadora, o null si no existe
+     */
+    public Trabajadora findTrabajadora(int id) throws SQLException {
+        return trabajadoras.get().byId().get(id);
+    }
+
+    /**
+     * @param nombreCompleto "nombres apellidos", como lo devuelve Trabajadora.getNombreCompleto()
+     * @return La trabajadora, o null si no existe
+     */
+    public Trabajadora findTrabajadoraByName(String nombreCompleto) throws SQLException {
+        return trabajadoras.get().byName().get(nombreCompleto);
+    }
+
+    public void invalidateTrabajadoras() {
+        trabajadoras.invalidate();
+    }
+
+    public void invalidateAll() {
+        invalidateServices();
+        invalidateTrabajadoras();
+    }
+
+    /**
+     * @return Número que cambia con cada invalidación, para quien derive datos del catálogo
+     */
+    public long version() {
+        return services.version() + trabajadoras.version();
+    }
+
+    private static TrabajadoraCatalog loadTrabajadoras(Connection conn) throws SQLException {
+        List<Trabajadora> all = TrabajadoraDAO.loadAll(conn);
+        Map<Integer, Trabajadora> byId = new HashMap<>();
+        Map<String, Trabajadora> byName = new HashMap<>();
+        for (Trabajadora t : all) {
+            byId.put(t.getId(), t);
+            byName.putIfAbsent(t.getNombreCompleto(), t);
+        }
+        return new TrabajadoraCatalog(List.copyOf(all), Map.copyOf(byId), Map.copyOf(byName));
+    }
+
+    /**
+     * Valor cargado de forma perezosa. Cada invalidación incrementa la versión, y una carga que
+     * empezó antes de una invalidación no se publica: así una lectura lenta no reinstala datos viejos.
+     */
+    private static final class Slot<T> {
+
+        private final String name;
+        private final SqlWork<T> loader;
+        private T value;
+        private long version;
+
+        Slot(String name, SqlWork<T> loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        T get() throws SQLException {
+            long startVersion;
+            synchronized (this) {
+                if (value != null) {
+                    return value;
+                }
+                startVersion = version;
+            }
+
+            T loaded;
+            try (Connection conn = Database.connect()) {
+                loaded = loader.execute(conn);
+            }
+
+            synchronized (this) {
+                if (version == startVersion) {
+                    value = loaded;
+                    LOGGER.fine("Catálogo de " + name + " cargado en caché");
+                }
+            }
+            return loaded;
+        }
+
+        synchronized void invalidate() {
+            value = null;
+            version++;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.capelli.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de clientes para las sugerencias mientras se escribe.
+ * Busca por prefijo de cédula, por prefijo de cada palabra del nombre (sin acentos ni
+ * mayúsculas) y por dígitos del teléfono, sin consultar la base de datos.
+ *
+ * Se carga completo en la primera búsqueda. Quien escribe en clients lo mantiene al día
+ * con {@link #put} y {@link #remove} después del commit (ver {@link Database#onCommit}).
+ * Solo guarda lo necesario para buscar y mostrar la sugerencia; el saldo y el resto de
+ * la ficha se leen de la base al elegir la cliente.
+ */
+public final class ClientSearchIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientSearchIndex.class.getName());
+
+    /** Largo de los n-gramas de teléfono; búsquedas más cortas usan solo el prefijo. */
+    private static final int PHONE_GRAM = 3;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{Alnum}.-]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{Alnum}]");
+    private static final Pattern NON_DIGIT = Pattern.compile("\\D");
+
+    private static final ClientSearchIndex INSTANCE = new ClientSearchIndex();
+
+    /**
+     * Cliente tal como se muestra en una sugerencia.
+     */
+    public record Entry(int clientId, String cedula, String fullName, String phone) {
+
+        @Override
+        public String toString() {
+            return cedula + " - " + fullName;
+        }
+    }
+
+    private boolean loaded;
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    /** Dígitos del teléfono de cada cliente, para verificar las búsquedas por n-gramas. */
+    private final Map<Integer, String> phoneDigits = new HashMap<>();
+    /** IDs ordenados por nombre normalizado; null si hay que recalcularlo. */
+    private int[] nameOrder;
+    /** Cédula sin guion ni espacios ("v12345678") y solo sus dígitos ("12345678"). */
+    private final NavigableMap<String, Set<Integer>> cedulaKeys = new TreeMap<>();
+    /** Palabras del nombre normalizadas. */
+    private final NavigableMap<String, Set<Integer>> nameTokens = new TreeMap<>();
+    /** Dígitos completos del teléfono, para búsquedas más cortas que un n-grama. */
+    private final NavigableMap<String, Set<Integer>> phonePrefixes = new TreeMap<>();
+    /**
+     * N-gramas de los dígitos del teléfono, para encontrar cualquier tramo del número.
+     * Hay a lo sumo mil n-gramas y cada uno lo comparten muchas clientes, así que van en BitSet.
+     */
+    private final Map<String, BitSet> phoneGrams = new HashMap<>();
+
+    private ClientSearchIndex() {
+    }
+
+    public static ClientSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Busca clientes que cumplan todas las palabras de la consulta. Una palabra con letras
+     * busca en el nombre; una con dígitos busca en la cédula y en el teléfono; "V-123"
+     * busca la cédula con ese tipo.
+     *
+     * @return Hasta {@code limit} clientes: primero las cédulas exactas, luego por nombre
+     */
+    public synchronized List<Entry> search(String query, int limit) throws SQLException {
+        ensureLoaded();
+        List<String> terms = terms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // Los conjuntos intermedios son BitSet por ID: con consultas cortas pueden ser miles
+        BitSet result = null;
+        for (String term : terms) {
+            BitSet matches = match(term);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+            if (result.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(Math.min(limit, result.cardinality()));
+        if (terms.size() == 1) {
+            for (Integer id : cedulaKeys.getOrDefault(terms.get(0), Set.of())) {
+                if (entries.size() < limit && result.get(id)) {
+                    entries.add(byId.get(id));
+                    result.clear(id);
+                }
+            }
+        }
+        // Recorrer en orden de nombre y cortar al llegar al límite evita ordenar las coincidencias
+        for (int id : nameOrder()) {
+            if (entries.size() >= limit) {
+                break;
+            }
+            if (result.get(id)) {
+                entries.add(byId.get(id));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Carga el índice si aún no está cargado, para que la primera búsqueda no espere la lectura.
+     */
+    public synchronized void preload() throws SQLException {
+        ensureLoaded();
+    }
+
+    /**
+     * Agrega o reemplaza una cliente. Si el índice aún no se cargó no hace nada:
+     * la primera búsqueda la leerá de la base.
+     */
+    public synchronized void put(Entry entry) {
+        if (!loaded) {
+            return;
+        }
+        unindex(entry.clientId());
+        index(entry);
+    }
+
+    public synchronized void remove(int clientId) {
+        if (loaded) {
+            unindex(clientId);
+        }
+    }
+
+    /**
+     * Descarta el índice; se vuelve a cargar en la próxima búsqueda.
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        byId.clear();
+        phoneDigits.clear();
+        nameOrder = null;
+        cedulaKeys.clear();
+        nameTokens.clear();
+        phonePrefixes.clear();
+        phoneGrams.clear();
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT client_id, cedula, full_name, phone FROM clients");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                index(new Entry(rs.getInt("client_id"), rs.getString("cedula"),
+                        rs.getString("full_name"), rs.getString("phone")));
+            }
+        }
+        loaded = true;
+        nameOrder();
+        LOGGER.info("Índice de clientes cargado: " + byId.size() + " clientes en "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private int[] nameOrder() {
+        if (nameOrder == null) {
+            Map<Integer, String> names = new HashMap<>();
+            for (Entry entry : byId.values()) {
+                names.put(entry.clientId(), normalize(entry.fullName()));
+            }
+            nameOrder = names.keySet().stream()
+                    .sorted(Comparator.comparing(names::get))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return nameOrder;
+    }
+
+    private BitSet match(String term) {
+        BitSet matches = new BitSet();
+        if (term.chars().allMatch(Character::isDigit)) {
+            addPrefix(cedulaKeys, term, matches);
+            if (term.length() >= PHONE_GRAM) {
+                matches.or(phoneSubstring(term));
+            } else {
+                addPrefix(phonePrefixes, term, matches);
+            }
+        } else if (term.chars().anyMatch(Character::isDigit)) {
+            addPrefix(cedulaKeys, term, matches);
+        } else {
+            addPrefix(nameTokens, term, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Clientes cuyo teléfono contiene {@code digits}: intersección de los n-gramas
+     * y verificación contra el número completo.
+     */
+    private BitSet phoneSubstring(String digits) {
+        BitSet candidates = null;
+        for (int i = 0; i + PHONE_GRAM <= digits.length(); i++) {
+            BitSet posting = phoneGrams.get(digits.substring(i, i + PHONE_GRAM));
+            if (posting == null) {
+                return new BitSet();
+            }
+            if (candidates == null) {
+                candidates = (BitSet) posting.clone();
+            } else {
+                candidates.and(posting);
+            }
+        }
+        if (digits.length() == PHONE_GRAM) {
+            return candidates;
+        }
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (!phoneDigits.get(id).contains(digits)) {
+                candidates.clear(id);
+            }
+        }
+        return candidates;
+    }
+
+    private static void addPrefix(NavigableMap<String, Set<Integer>> map, String prefix, BitSet into) {
+        for (Set<Integer> ids : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int id : ids) {
+                into.set(id);
+            }
+        }
+    }
+
+    private void index(Entry entry) {
+        int id = entry.clientId();
+        byId.put(id, entry);
+        phoneDigits.put(id, digits(entry.phone()));
+        nameOrder = null;
+        forEachKey(entry, (map, key) -> map.computeIfAbsent(key, k -> new HashSet<>()).add(id));
+        for (String gram : phoneGrams(phoneDigits.get(id))) {
+            phoneGrams.computeIfAbsent(gram, k -> new BitSet()).set(id);
+        }
+    }
+
+    private void unindex(int clientId) {
+        Entry old = byId.remove(clientId);
+        if (old == null) {
+            return;
+        }
+        for (String gram : phoneGrams(phoneDigits.remove(clientId))) {
+            BitSet ids = phoneGrams.get(gram);
+            ids.clear(clientId);
+            if (ids.isEmpty()) {
+                phoneGrams.remove(gram);
+            }
+        }
+        nameOrder = null;
+        forEachKey(old, (map, key) -> {
+            Set<Integer> ids = map.get(key);
+            if (ids != null) {
+                ids.remove(clientId);
+                if (ids.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        });
+    }
+
+    private interface KeyVisitor {
+        void visit(Map<String, Set<Integer>> map, String key);
+    }
+
+    /**
+     * Recorre todas las claves del índice que le corresponden a una cliente.
+     */
+    private void forEachKey(Entry entry, KeyVisitor visitor) {
+        if (entry.cedula() != null) {
+            visitor.visit(cedulaKeys, cedulaKey(entry.cedula()));
+            String cedulaDigits = digits(entry.cedula());
+            if (!cedulaDigits.isEmpty()) {
+                visitor.visit(cedulaKeys, cedulaDigits);
+            }
+        }
+        for (String token : terms(entry.fullName())) {
+            visitor.visit(nameTokens, token);
+        }
+        String phone = digits(entry.phone());
+        if (!phone.isEmpty()) {
+            visitor.visit(phonePrefixes, phone);
+        }
+    }
+
+    private static Set<String> phoneGrams(String phoneDigits) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + PHONE_GRAM <= phoneDigits.length(); i++) {
+            grams.add(phoneDigits.substring(i, i + PHONE_GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Separa un texto en palabras normalizadas. Los guiones y puntos no separan,
+     * así "V-12.345.678" queda como una sola palabra "v12345678".
+     */
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : WORD_SEPARATOR.split(normalize(text))) {
+            String term = word.replace("-", "").replace(".", "");
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Minúsculas y sin acentos ("Ñáñez" → "nanez").
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return ACCENTS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static String cedulaKey(String cedula) {
+        return NON_ALNUM.matcher(normalize(cedula)).replaceAll("");
+    }
+
+    private static String digits(String text) {
+        return text == null ? "" : NON_DIGIT.matcher(text).replaceAll("");
+    }
+}
@@ -1,15 +1,27 @@
 package com.capelli.database;
 
 import com.capelli.model.CommissionRule;
+import com.capelli.model.PriorityCommissionRule;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CommissionRuleDAO {
 
+    /** Se incrementa después de cada escritura de reglas (ver CommissionEngine.current()). */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    /**
+     * @return Versión de las reglas de comisión; cambia cada vez que se guardan o se borran
+     */
+    public static long version() {
+        return VERSION.get();
+    }
+
     public List<CommissionRule> getAll() throws SQLException {
         List<CommissionRule> rules = new ArrayList<>();
         String sql = "SELECT cr.rule_id, cr.trabajadora_id, cr.service_category, cr.commission_rate, "
@@ -35,6 +47,36 @@ public class CommissionRuleDAO {
         return rules;
     }
 
+    /**
+     * Reglas de commission_rules ordenadas por prioridad.
+     */
+    public List<PriorityCommissionRule> getPriorityRules() throws SQLException {
+        List<PriorityCommissionRule> rules = new ArrayList<>();
+        String sql = "SELECT rule_id, priority, trabajadora_id, service_id, service_category, "
+                   + "client_brought_product, price_equals, rate_type, amount, description "
+                   + "FROM commission_rules ORDER BY priority, rule_id";
+
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                rules.add(new PriorityCommissionRule(
+                        rs.getInt("rule_id"),
+                        rs.getInt("priority"),
+                        rs.getObject("trabajadora_id") == null ? null : rs.getInt("trabajadora_id"),
+                        rs.getObject("service_id") == null ? null : rs.getInt("service_id"),
+                        rs.getString("service_category"),
+                        rs.getObject("client_brought_product") == null ? null : rs.getBoolean("client_brought_product"),
+                        rs.getObject("price_equals") == null ? null : rs.getDouble("price_equals"),
+                        PriorityCommissionRule.RateType.valueOf(rs.getString("rate_type")),
+                        rs.getDouble("amount"),
+                        rs.getString("description")));
+            }
+        }
+        return rules;
+    }
+
     public void save(CommissionRule rule) throws SQLException {
         String sql;
         if (rule.getRule_id() == 0) {
@@ -45,25 +87,30 @@ public class CommissionRuleDAO {
             sql = "UPDATE trabajadora_commission_rules SET trabajadora_id = ?, service_category = ?, commission_rate = ? WHERE rule_id = ?";
         }
 
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, rule.getTrabajadora_id());
-            pstmt.setString(2, rule.getService_category());
-            pstmt.setDouble(3, rule.getCommission_rate());
-            if (rule.getRule_id() != 0) {
-                pstmt.setInt(4, rule.getRule_id());
+        Database.executeWrite(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, rule.getTrabajadora_id());
+                pstmt.setString(2, rule.getService_category());
+                pstmt.setDouble(3, rule.getCommission_rate());
+                if (rule.getRule_id() != 0) {
+                    pstmt.setInt(4, rule.getRule_id());
+                }
+                pstmt.executeUpdate();
             }
-            pstmt.executeUpdate();
-        }
+            return null;
+        });
+        VERSION.incrementAndGet();
     }
 
     public void delete(int rule_id) throws SQLException {
         String sql = "DELETE FROM trabajadora_commission_rules WHERE rule_id = ?";
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, rule_id);
-            pstmt.executeUpdate();
-        }
+        Database.executeWrite(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, rule_id);
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+        VERSION.incrementAndGet();
     }
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+package com.capelli.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool acotado de conexiones SQLite.
+ * Las conexiones se entregan ya configuradas (PRAGMA) y envueltas en un proxy:
+ * al llamar close() vuelven al pool en lugar de cerrarse físicamente.
+ */
+public class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Configuración aplicada una sola vez a cada conexión física nueva.
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void init(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Métricas del pool en un instante dado.
+     */
+    public record PoolStats(
+        int maxSize,
+        int created,
+        int inUse,
+        int idle,
+        long borrowCount,
+        long timeouts,
+        double avgWaitMillis,
+        double maxWaitMillis
+    ) {}
+
+    private final String url;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final Initializer initializer;
+
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, int maxSize, long timeoutMillis, Initializer initializer) {
+        this.url = url;
+        this.maxSize = Math.max(1, maxSize);
+        this.timeoutMillis = timeoutMillis;
+        this.initializer = initializer;
+        this.permits = new Semaphore(this.maxSize, true);
+    }
+
+    /**
+     * Toma una conexión del pool, esperando como máximo el timeout configurado.
+     *
+     * @return Conexión lista para usar; close() la devuelve al pool
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Tiempo de espera agotado al obtener conexión ("
+                        + inUse.get() + "/" + maxSize + " en uso)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido al esperar una conexión", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        Connection physical;
+        try {
+            physical = takeIdleOrOpen();
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+
+        inUse.incrementAndGet();
+        borrowCount.increment();
+        return wrap(physical);
+    }
+
+    private Connection takeIdleOrOpen() throws SQLException {
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            if (!physical.isClosed()) {
+                return physical;
+            }
+            created.decrementAndGet();
+        }
+        physical = DriverManager.getConnection(url);
+        try {
+            initializer.init(physical);
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        created.incrementAndGet();
+        LOGGER.fine("Nueva conexión física creada (" + created.get() + "/" + maxSize + ")");
+        return physical;
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(Connection physical, List<Statement> openStatements) {
+        for (Statement stmt : openStatements) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error cerrando statement pendiente", e);
+            }
+        }
+
+        boolean reusable = !closed;
+        try {
+            if (physical.isClosed()) {
+                reusable = false;
+            } else if (!physical.getAutoCommit()) {
+                // Transacción abandonada por el llamador: se descarta para no filtrarla.
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Conexión defectuosa descartada del pool", e);
+            reusable = false;
+        }
+
+        if (reusable) {
+            idle.offerFirst(physical);
+        } else {
+            closeQuietly(physical);
+            created.decrementAndGet();
+        }
+        inUse.decrementAndGet();
+        permits.release();
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Cierra todas las conexiones inactivas. Las que estén en uso se cierran al devolverse.
+     */
+    public void close() {
+        closed = true;
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            closeQuietly(physical);
+            created.decrementAndGet();
+        }
+    }
+
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        double avgWait = borrows == 0 ? 0.0 : totalWaitNanos.sum() / (double) borrows / 1_000_000.0;
+        return new PoolStats(
+                maxSize,
+                created.get(),
+                inUse.get(),
+                idle.size(),
+                borrows,
+                timeouts.sum(),
+                avgWait,
+                maxWaitNanos.get() / 1_000_000.0);
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error cerrando conexión física", e);
+        }
+    }
+
+    /**
+     * Intercepta close() para devolver la conexión al pool y registra los statements
+     * abiertos para cerrarlos si el llamador los olvida (en SQLite mantienen bloqueos).
+     * Los statements y los metadatos se entregan envueltos, así su getConnection()
+     * devuelve este proxy y no la conexión física.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final Connection physical;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean returned = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical, statements);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                statements.removeIf(ConnectionPool::isStatementClosed);
+                statements.add((Statement) result);
+            }
+            if (result instanceof Statement || result instanceof DatabaseMetaData) {
+                // El tipo declarado (Statement, PreparedStatement, CallableStatement o DatabaseMetaData)
+                return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new OwnedByPoolHandler(result, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Delega todo en el objeto físico salvo getConnection(), que devuelve la conexión del pool:
+     * cerrarla la devuelve al pool en lugar de cerrar la física por detrás.
+     */
+    private static final class OwnedByPoolHandler implements InvocationHandler {
+
+        private final Object physical;
+        private final Connection pooled;
+
+        OwnedByPoolHandler(Object physical, Connection pooled) {
+            this.physical = physical;
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return pooled;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static boolean isStatementClosed(Statement stmt) {
+        try {
+            return stmt.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
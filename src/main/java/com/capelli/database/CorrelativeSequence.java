@@ -0,0 +1,133 @@
+package com.capelli.database;
+
+import com.capelli.config.AppConfig;
+import com.capelli.config.ConfigManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * Secuencia de números correlativos de factura.
+ * El contador vive en app_settings (clave "correlative", el próximo número libre) y se
+ * incrementa dentro de la misma transacción que guarda la venta: si la venta se revierte,
+ * el número no se consume, y dos terminales nunca obtienen el mismo.
+ *
+ * Con db.correlative.block.size mayor que 1, cada terminal reserva un bloque de números
+ * y los entrega desde memoria hasta agotarlo. Los que no se usen antes de cerrar quedan como huecos.
+ */
+public final class CorrelativeSequence {
+
+    private static final Logger LOGGER = Logger.getLogger(CorrelativeSequence.class.getName());
+
+    private static final CorrelativeSequence INSTANCE = new CorrelativeSequence(AppConfig.getDbCorrelativeBlockSize());
+
+    private final int blockSize;
+
+    // Bloque reservado [nextValue, limit); vacío cuando nextValue >= limit
+    private int nextValue = 0;
+    private int limit = 0;
+
+    CorrelativeSequence(int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public static CorrelativeSequence getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Asigna el siguiente correlativo. Debe llamarse dentro de una escritura
+     * (Database.executeWrite / submitWrite), sobre su conexión.
+     */
+    public synchronized int next(Connection conn) throws SQLException {
+        int savedNext = nextValue;
+        int savedLimit = limit;
+        Database.onRollback(() -> restore(savedNext, savedLimit));
+
+        if (nextValue >= limit) {
+            nextValue = reserve(conn, blockSize);
+            limit = nextValue + blockSize;
+            if (blockSize > 1) {
+                LOGGER.info("Bloque de correlativos reservado: " + nextValue + " - " + (limit - 1));
+            }
+        }
+        return nextValue++;
+    }
+
+    /**
+     * Próximo correlativo que se asignaría, solo para mostrarlo. No reserva nada ni consulta
+     * la base: si otra terminal tomó números, se verá recién en la próxima reserva de esta.
+     */
+    public int peek() {
+        synchronized (this) {
+            if (nextValue < limit) {
+                return nextValue;
+            }
+        }
+        return ConfigManager.getCurrentCorrelative();
+    }
+
+    /**
+     * Fija el próximo correlativo (ajuste manual del administrador) y descarta el bloque en memoria.
+     */
+    public void reset(int next) throws SQLException {
+        Database.executeWrite(conn -> {
+            ConfigManager.setSetting(conn, ConfigManager.KEY_CORRELATIVE, String.valueOf(next));
+            synchronized (this) {
+                int savedNext = nextValue;
+                int savedLimit = limit;
+                Database.onRollback(() -> restore(savedNext, savedLimit));
+                nextValue = 0;
+                limit = 0;
+            }
+            return null;
+        });
+    }
+
+    private synchronized void restore(int savedNext, int savedLimit) {
+        nextValue = savedNext;
+        limit = savedLimit;
+    }
+
+    /**
+     * Avanza el contador compartido en 'count' y devuelve el primer número reservado.
+     * La escritura toma el bloqueo de la BD hasta el commit, así que el UPDATE y el SELECT son atómicos.
+     */
+    private static int reserve(Connection conn, int count) throws SQLException {
+        String sqlUpdate = "UPDATE app_settings SET setting_value = CAST(setting_value AS INTEGER) + ? "
+                         + "WHERE setting_key = ?";
+        int updated;
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlUpdate)) {
+            pstmt.setInt(1, count);
+            pstmt.setString(2, ConfigManager.KEY_CORRELATIVE);
+            updated = pstmt.executeUpdate();
+        }
+
+        if (updated == 0) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO app_settings (setting_key, setting_value) VALUES (?, ?)")) {
+                pstmt.setString(1, ConfigManager.KEY_CORRELATIVE);
+                pstmt.setString(2, String.valueOf(1 + count));
+                pstmt.executeUpdate();
+            }
+            ConfigManager.cacheWritten(ConfigManager.KEY_CORRELATIVE, String.valueOf(1 + count));
+            return 1;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT CAST(setting_value AS INTEGER) FROM app_settings WHERE setting_key = ?")) {
+            pstmt.setString(1, ConfigManager.KEY_CORRELATIVE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int first = rs.next() ? rs.getInt(1) - count : 0;
+                if (first <= 0) {
+                    throw new SQLException("Correlativo inválido en app_settings; corríjalo desde la ventana de ventas");
+                }
+                // peek() lee de memoria; así muestra el número que dejó la última reserva
+                ConfigManager.cacheWritten(ConfigManager.KEY_CORRELATIVE, String.valueOf(first + count));
+                return first;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.capelli.database;
+
+import com.capelli.model.Money;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Cierre diario materializado (tabla daily_close): montos por día y por bucket.
+ * SaleDAO recalcula el día de cada venta en la misma transacción que la guarda,
+ * así que el reporte diario y los acumulados se leen sin recorrer pagos.
+ */
+public class DailyCloseDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(DailyCloseDAO.class.getName());
+
+    /**
+     * Clasificación de los montos del día; el nombre es el valor de daily_close.bucket.
+     */
+    public enum Bucket {
+        /** Efectivo en dólares. */
+        EFECTIVO_USD,
+        /** Transferencias (Zelle) en dólares. */
+        TRANSFERENCIA_USD,
+        /** Pagos en Bs que van a Capelli: punto de venta, efectivo Bs y pago móvil a Capelli. */
+        BS_CAPELLI,
+        /** Pagos móviles a la cuenta personal de Rosa. */
+        BS_ROSA,
+        /** Total de ventas a crédito. */
+        POR_COBRAR
+    }
+
+    /**
+     * Totales de un bucket en un rango.
+     * @param amount Monto en la moneda del bucket
+     * @param amountUsd Monto en dólares, convertido con la tasa de cada día
+     * @param unconverted Parte del monto de días sin tasa, pendiente de convertir
+     */
+    public record BucketTotal(Money amount, Money amountUsd, Money unconverted) {
+        public static final BucketTotal ZERO = new BucketTotal(Money.ZERO, Money.ZERO, Money.ZERO);
+    }
+
+    /**
+     * Cierre de uno o varios días.
+     * @param firstRate Tasa de la primera venta del último día, o 0 si no la hubo
+     */
+    public record DailyClose(double firstRate, Map<Bucket, BucketTotal> totals) {
+
+        public BucketTotal get(Bucket bucket) {
+            return totals.getOrDefault(bucket, BucketTotal.ZERO);
+        }
+    }
+
+    /**
+     * Recalcula los días indicados dentro de la transacción en curso.
+     */
+    public static void refreshDays(Connection conn, LocalDate... days) throws SQLException {
+        for (LocalDate day : days) {
+            refreshRange(conn, day, day);
+        }
+    }
+
+    /**
+     * Recalcula todos los días con ventas. Se usa al crear la tabla y para reconstruirla a pedido.
+     */
+    public static void rebuildAll(Connection conn) throws SQLException {
+        int rows = refreshRange(conn, LocalDate.of(1970, 1, 1), LocalDate.of(9999, 12, 30));
+        LOGGER.info("Cierre diario reconstruido: " + rows + " filas");
+    }
+
+    /**
+     * Encola la reconstrucción de un rango de días en el hilo escritor.
+     */
+    public void rebuild(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        Database.executeWrite(conn -> refreshRange(conn, firstDay, lastDay));
+    }
+
+    private static int refreshRange(Connection conn, LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(
+                "DELETE FROM daily_close WHERE close_date >= ? AND close_date <= ?")) {
+            delete.setString(1, firstDay.toString());
+            delete.setString(2, lastDay.toString());
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = conn.prepareStatement(ReportQueries.DAILY_CLOSE_REFRESH)) {
+            ReportQueries.bindDateRange(insert, 1, firstDay, lastDay);
+            return insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Lee el cierre acumulado de un rango de días (inclusive).
+     */
+    public DailyClose find(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        try (Connection conn = Database.connect()) {
+            double firstRate = 0.0;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT amount_cents FROM daily_close WHERE close_date = ? AND bucket = 'TASA'")) {
+                pstmt.setString(1, lastDay.toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        firstRate = rs.getLong(1) / (double) Money.RATE_SCALE;
+                    }
+                }
+            }
+
+            Map<Bucket, BucketTotal> totals = new EnumMap<>(Bucket.class);
+            try (PreparedStatement pstmt = conn.prepareStatement(ReportQueries.DAILY_CLOSE_TOTALS)) {
+                pstmt.setString(1, firstDay.toString());
+                pstmt.setString(2, lastDay.toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        totals.put(Bucket.valueOf(rs.getString("bucket")), new BucketTotal(
+                                Money.ofCents(rs.getLong("amount_cents")),
+                                Money.ofCents(rs.getLong("amount_usd_cents")),
+                                Money.ofCents(rs.getLong("unconverted_cents"))));
+                    }
+                }
+            }
+            return new DailyClose(firstRate, totals);
+        }
+    }
+}
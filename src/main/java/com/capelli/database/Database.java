@@ -2,12 +2,13 @@ package com.capelli.database;
 
 import com.capelli.config.AppConfig;
 import com.capelli.config.ConfigManager;
+import com.capelli.payroll.CommissionLedger;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,22 +23,96 @@ public class Database {
         return AppConfig.getDatabaseUrl();
     }
 
+    private static volatile ConnectionPool pool;
+    private static volatile DatabaseWriter writer;
+    private static boolean shutdownHookRegistered = false;
+
+    /**
+     * Obtiene (creándolo la primera vez) el pool de conexiones.
+     */
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (Database.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(
+                            getDatabaseUrl(),
+                            AppConfig.getDbPoolSize(),
+                            AppConfig.getDbPoolTimeoutSeconds() * 1000L,
+                            Database::configureConnection);
+                    pool = current;
+                    registerShutdownHook();
+                    LOGGER.info("Pool de conexiones creado (máximo " + AppConfig.getDbPoolSize() + ")");
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Obtiene (creándolo la primera vez) el hilo escritor único.
+     */
+    private static DatabaseWriter getWriter() {
+        DatabaseWriter current = writer;
+        if (current == null) {
+            synchronized (Database.class) {
+                current = writer;
+                if (current == null) {
+                    current = new DatabaseWriter(Database::openWriterConnection,
+                            AppConfig.getDbWalCheckpointIntervalSeconds());
+                    writer = current;
+                    registerShutdownHook();
+                }
+            }
+        }
+        return current;
+    }
+
+    private static synchronized void registerShutdownHook() {
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Database::shutdown, "db-shutdown"));
+            shutdownHookRegistered = true;
+        }
+    }
+
+    private static Connection openWriterConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(getDatabaseUrl());
+        try {
+            configureConnection(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
     /**
-     * Establece una conexión a la base de datos.
+     * Aplica los PRAGMA de la aplicación a una conexión física nueva.
+     * Se ejecuta una sola vez por conexión, no en cada préstamo.
+     */
+    private static void configureConnection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + AppConfig.getDbBusyTimeoutMillis());
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = " + AppConfig.getDbSynchronous());
+            stmt.execute("PRAGMA wal_autocheckpoint = " + AppConfig.getDbWalAutocheckpointPages());
+            stmt.execute("PRAGMA foreign_keys = ON;");
+            LOGGER.fine("PRAGMA foreign_keys = ON ejecutado.");
+        }
+        LOGGER.fine("Conexión a base de datos establecida: " + getDatabaseUrl());
+    }
+
+    /**
+     * Obtiene una conexión del pool.
+     * Al cerrarla (close) se devuelve al pool para ser reutilizada.
      *
      * @return Connection o null si hay error
      */
     public static Connection connect() {
         Connection conn = null;
         try {
-            conn = DriverManager.getConnection(getDatabaseUrl());
-
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON;");
-                LOGGER.fine("PRAGMA foreign_keys = ON ejecutado.");
-            }
-
-            LOGGER.fine("Conexión a base de datos establecida: " + getDatabaseUrl());
+            conn = getPool().borrow();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error al conectar a la base de datos", e);
         }
@@ -45,145 +120,136 @@ public class Database {
     }
 
     /**
-     * Actualiza el saldo de un cliente.
-     * @param conn Conexión activa (si es null, crea una nueva).
-     * @param clientId ID del cliente.
-     * @param amount Monto a sumar (positivo) o restar (negativo).
+     * Ejecuta una lectura en una conexión del pool de solo lectura (PRAGMA query_only),
+     * dentro de una transacción: todas sus consultas ven el mismo estado de la base.
+     * Puede llamarse desde varios hilos a la vez; cada llamada usa su propia conexión.
+     *
+     * @param work Trabajo a ejecutar; no debe escribir
+     * @return El resultado del trabajo
      */
-    public static void updateClientBalance(Connection conn, int clientId, double amount) throws SQLException {
-        String sql = "UPDATE clients SET balance = COALESCE(balance, 0) + ? WHERE client_id = ?";
-        
-        boolean localConn = (conn == null);
-        if (localConn) conn = connect();
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setDouble(1, amount);
-            pstmt.setInt(2, clientId);
-            pstmt.executeUpdate();
-        } finally {
-            if (localConn && conn != null) conn.close();
+    public static <T> T executeRead(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getPool().borrow()) {
+            setQueryOnly(conn, true);
+            conn.setAutoCommit(false);
+            try {
+                return work.execute(conn);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                setQueryOnly(conn, false);
+            }
+        }
+    }
+
+    private static void setQueryOnly(Connection conn, boolean queryOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA query_only = " + (queryOnly ? "ON" : "OFF"));
         }
     }
 
     /**
-     * Inserta o actualiza un servicio en la base de datos.
+     * Ejecuta una escritura en el hilo escritor único, dentro de una transacción,
+     * y espera a que se confirme.
+     * Si ya se está en el hilo escritor, participa de la transacción en curso.
+     *
+     * @param work Trabajo a ejecutar con la conexión del escritor
+     * @return El resultado del trabajo
      */
-    private static void addOrUpdateService(Connection conn, String name, double pCorto, double pMedio, double pLargo, double pExt, boolean permiteCliente, double pCliente) throws SQLException {
-        
-        String sql = "INSERT INTO services (name, price_corto, price_medio, price_largo, price_ext, permite_cliente_producto, price_cliente_producto, is_active) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, 1) " + 
-                     "ON CONFLICT(name) DO UPDATE SET " +
-                     "  price_corto = excluded.price_corto, " +
-                     "  price_medio = excluded.price_medio, " +
-                     "  price_largo = excluded.price_largo, " +
-                     "  price_ext = excluded.price_ext, " +
-                     "  permite_cliente_producto = excluded.permite_cliente_producto, " +
-                     "  price_cliente_producto = excluded.price_cliente_producto, " +
-                     "  is_active = 1";
+    public static <T> T executeWrite(SqlWork<T> work) throws SQLException {
+        return getWriter().execute(work);
+    }
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setDouble(2, pCorto);
-            pstmt.setDouble(3, pMedio);
-            pstmt.setDouble(4, pLargo);
-            pstmt.setDouble(5, pExt);
-            pstmt.setBoolean(6, permiteCliente);
-            pstmt.setDouble(7, pCliente);
-            pstmt.executeUpdate();
-        }
+    /**
+     * Encola una escritura en el hilo escritor sin esperar su confirmación.
+     *
+     * @param work Trabajo a ejecutar con la conexión del escritor
+     * @return Futuro que se completa al confirmar (o falla al revertir) la transacción
+     */
+    public static <T> CompletableFuture<T> submitWrite(SqlWork<T> work) {
+        return getWriter().submit(work);
     }
-    
+
     /**
-     * Inserta o actualiza una trabajadora.
+     * Encola una escritura que el hilo escritor ejecutará dentro de {@code delayMillis}.
+     *
+     * @return Futuro que se completa al confirmar (o falla al revertir) la transacción
      */
-    private static void addOrUpdateTrabajadora(Connection conn, String nombres, String apellidos, String tipo_ci, String numero_ci, String telefono) throws SQLException {
-        
-        String sql = "INSERT INTO trabajadoras (nombres, apellidos, tipo_ci, numero_ci, telefono, correo, foto) " +
-                     "VALUES (?, ?, ?, ?, ?, NULL, NULL) " +
-                     "ON CONFLICT(numero_ci) DO UPDATE SET " +
-                     "  nombres = excluded.nombres, " +
-                     "  apellidos = excluded.apellidos, " +
-                     "  tipo_ci = excluded.tipo_ci, " +
-                     "  telefono = excluded.telefono";
-                     
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, nombres);
-            pstmt.setString(2, apellidos);
-            pstmt.setString(3, tipo_ci);
-            pstmt.setString(4, numero_ci);
-            pstmt.setString(5, telefono);
-            pstmt.executeUpdate();
-        }
+    public static <T> CompletableFuture<T> submitWriteDelayed(SqlWork<T> work, long delayMillis) {
+        return getWriter().submitDelayed(work, delayMillis);
     }
 
     /**
-     * Inserta o actualiza una cuenta bancaria.
+     * Registra una acción para deshacer estado en memoria si la escritura en curso se revierte.
+     * Solo puede llamarse desde un trabajo que se está ejecutando en el hilo escritor.
      */
-    private static void addOrUpdateCuenta(Connection conn, String trabajadora_ci, String banco, String tipo_cuenta, String numero_cuenta, boolean es_principal) throws SQLException {
-        int trabajadora_id = -1;
-        String sqlGetId = "SELECT id FROM trabajadoras WHERE numero_ci = ?";
-        try (PreparedStatement pstmtGetId = conn.prepareStatement(sqlGetId)) {
-            pstmtGetId.setString(1, trabajadora_ci);
-            ResultSet rs = pstmtGetId.executeQuery();
-            if (rs.next()) {
-                trabajadora_id = rs.getInt("id");
-            } else {
-                LOGGER.warning("No se encontró trabajadora con CI: " + trabajadora_ci + " para agregar cuenta. Saltando...");
-                return; 
-            }
+    public static void onRollback(Runnable action) {
+        getWriter().onRollback(action);
+    }
+
+    /**
+     * Registra una acción a ejecutar cuando se confirme la escritura en curso.
+     * Solo puede llamarse desde un trabajo que se está ejecutando en el hilo escritor.
+     */
+    public static void onCommit(Runnable action) {
+        getWriter().onCommit(action);
+    }
+
+    /**
+     * Métricas actuales del pool (espera de préstamo, conexiones en uso, etc.).
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Termina las escrituras pendientes y cierra las conexiones. Se invoca automáticamente al salir de la aplicación.
+     */
+    public static synchronized void shutdown() {
+        if (writer != null) {
+            ConfigManager.flush();
+            writer.shutdown();
         }
-        
-        String sqlCuenta = "INSERT INTO cuentas_bancarias (trabajadora_id, banco, tipo_cuenta, numero_cuenta, es_principal) " +
-                           "VALUES (?, ?, ?, ?, ?) " +
-                           "ON CONFLICT(numero_cuenta) DO UPDATE SET " +
-                           "  trabajadora_id = excluded.trabajadora_id, " +
-                           "  banco = excluded.banco, " +
-                           "  tipo_cuenta = excluded.tipo_cuenta, " +
-                           "  es_principal = excluded.es_principal";
-                           
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlCuenta)) {
-            pstmt.setInt(1, trabajadora_id);
-            pstmt.setString(2, banco);
-            pstmt.setString(3, tipo_cuenta);
-            pstmt.setString(4, numero_cuenta);
-            pstmt.setBoolean(5, es_principal);
-            pstmt.executeUpdate();
+        if (pool != null) {
+            LOGGER.info("Cerrando pool de conexiones: " + pool.getStats());
+            pool.close();
         }
     }
-    
+
     /**
-     * Inserta o actualiza una regla de comisión.
+     * Actualiza el saldo de un cliente.
+     * @param conn Conexión activa (si es null, se ejecuta en el hilo escritor).
+     * @param clientId ID del cliente.
+     * @param amount Monto a sumar (positivo) o restar (negativo).
      */
-    private static void addOrUpdateCommissionRule(Connection conn, String trabajadora_ci, String service_category, double commission_rate) throws SQLException {
-        int trabajadora_id = -1;
-        String sqlGetId = "SELECT id FROM trabajadoras WHERE numero_ci = ?";
-        try (PreparedStatement pstmtGetId = conn.prepareStatement(sqlGetId)) {
-            pstmtGetId.setString(1, trabajadora_ci);
-            ResultSet rs = pstmtGetId.executeQuery();
-            if (rs.next()) {
-                trabajadora_id = rs.getInt("id");
-            } else {
-                LOGGER.warning("No se encontró trabajadora con CI: " + trabajadora_ci + " para agregar regla de comisión. Saltando...");
-                return; 
+    public static void updateClientBalance(Connection conn, int clientId, double amount) throws SQLException {
+        String sql = "UPDATE clients SET balance = COALESCE(balance, 0) + ? WHERE client_id = ?";
+        
+        SqlWork<Void> update = c -> {
+            try (PreparedStatement pstmt = c.prepareStatement(sql)) {
+                pstmt.setDouble(1, amount);
+                pstmt.setInt(2, clientId);
+                pstmt.executeUpdate();
             }
-        }
+            return null;
+        };
 
-        String sqlRule = "INSERT INTO trabajadora_commission_rules (trabajadora_id, service_category, commission_rate) " +
-                         "VALUES (?, ?, ?) " +
-                         "ON CONFLICT(trabajadora_id, service_category) DO UPDATE SET " +
-                         "  commission_rate = excluded.commission_rate";
-                         
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlRule)) {
-            pstmt.setInt(1, trabajadora_id);
-            pstmt.setString(2, service_category);
-            pstmt.setDouble(3, commission_rate);
-            pstmt.executeUpdate();
+        if (conn == null) {
+            executeWrite(update);
+        } else {
+            update.execute(conn);
         }
     }
 
-
     /**
-     * Inicializa la base de datos creando las tablas necesarias.
+     * Inicializa la base de datos:
+     * <ol>
+     * <li>aplica las migraciones de esquema pendientes y los datos iniciales si cambió su checksum;</li>
+     * <li>vuelve a leer app_settings (ConfigManager.reload);</li>
+     * <li>asienta en el libro de comisiones las ventas nuevas desde el último arranque que no
+     * pasaron por SaleDAO (CommissionLedger.postMissing solo revisa las posteriores a la última revisada);</li>
+     * <li>si se aplicaron los datos iniciales, vuelve a asentar los períodos de nómina abiertos.</li>
+     * </ol>
+     * Con todo al día y sin ventas nuevas, cada paso es una consulta corta.
      */
     public static void initialize() {
         if (!AppConfig.shouldInitDatabaseOnStartup()) {
@@ -193,347 +259,19 @@ public class Database {
 
         LOGGER.info("Inicializando base de datos...");
 
-        String sqlClients = "CREATE TABLE IF NOT EXISTS clients (\n"
-                + "    client_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    cedula TEXT NOT NULL UNIQUE,\n"
-                + "    full_name TEXT NOT NULL,\n"
-                + "    address TEXT,\n"
-                + "    phone TEXT,\n"
-                + "    hair_type TEXT,\n"
-                + "    birth_date TEXT,\n"
-                + "    last_dye_date TEXT,\n"
-                + "    last_chemical_date TEXT,\n"
-                + "    last_keratin_date TEXT,\n" 
-                + "    extensions_type TEXT,\n"
-                + "    last_extensions_maintenance_date TEXT\n"
-                + ");";
-
-        String sqlTrabajadoras = "CREATE TABLE IF NOT EXISTS trabajadoras (\n"
-                + "    id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    nombres TEXT NOT NULL,\n"
-                + "    apellidos TEXT NOT NULL,\n"
-                + "    tipo_ci TEXT,\n"
-                + "    numero_ci TEXT UNIQUE,\n"
-                + "    telefono TEXT,\n"
-                + "    correo TEXT,\n"
-                + "    foto BLOB\n"
-                + ");";
-
-        String sqlCuentas = "CREATE TABLE IF NOT EXISTS cuentas_bancarias (\n"
-                + "    id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    trabajadora_id INTEGER NOT NULL,\n"
-                + "    banco TEXT NOT NULL,\n"
-                + "    tipo_cuenta TEXT NOT NULL,\n"
-                + "    numero_cuenta TEXT NOT NULL UNIQUE,\n"
-                + "    es_principal BOOLEAN NOT NULL,\n"
-                + "    FOREIGN KEY (trabajadora_id) REFERENCES trabajadoras (id) ON DELETE CASCADE\n"
-                + ");";
-
-        String sqlServices = "CREATE TABLE IF NOT EXISTS services (\n"
-                + "    service_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    name TEXT NOT NULL UNIQUE,\n"
-                + "    price_corto REAL DEFAULT 0.0,\n"
-                + "    price_medio REAL DEFAULT 0.0,\n"
-                + "    price_largo REAL DEFAULT 0.0,\n"
-                + "    price_ext REAL DEFAULT 0.0,\n"
-                + "    permite_cliente_producto BOOLEAN DEFAULT 0,\n"
-                + "    price_cliente_producto REAL DEFAULT 0.0,\n"
-                + "    is_active BOOLEAN DEFAULT 1\n" 
-                + ");";
-
-        String sqlSales = "CREATE TABLE IF NOT EXISTS sales (\n"
-                + "    sale_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    client_id INTEGER,\n"
-                + "    sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n"
-                + "    subtotal REAL NOT NULL,\n"
-                + "    discount_type TEXT,\n"
-                + "    discount_amount REAL,\n"
-                + "    total REAL NOT NULL,\n"
-                + "    FOREIGN KEY (client_id) REFERENCES clients (client_id)\n"
-                + ");";
-
-        String sqlSalePayments = "CREATE TABLE IF NOT EXISTS sale_payments (\n"
-                + "    payment_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    sale_id INTEGER NOT NULL,\n"
-                + "    monto REAL NOT NULL,\n"
-                + "    moneda TEXT NOT NULL, \n" // '$' o 'Bs'
-                + "    metodo_pago TEXT NOT NULL,\n"
-                + "    destino_pago TEXT,\n"
-                + "    referencia_pago TEXT,\n"
-                + "    tasa_bcv_al_pago REAL DEFAULT 0.0,\n"
-                + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id) ON DELETE CASCADE\n"
-                + ");";
-
-        String sqlSaleItems = "CREATE TABLE IF NOT EXISTS sale_items (\n"
-                + "    sale_item_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    sale_id INTEGER NOT NULL,\n"
-                + "    service_id INTEGER NOT NULL,\n"
-                + "    employee_id INTEGER NOT NULL,\n"
-                + "    price_at_sale REAL NOT NULL,\n"
-                + "    client_brought_product BOOLEAN DEFAULT 0,\n"
-                + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id),\n"
-                + "    FOREIGN KEY (service_id) REFERENCES services (service_id),\n"
-                + "    FOREIGN KEY (employee_id) REFERENCES trabajadoras (id)\n"
-                + ");";
-
-        String sqlTips = "CREATE TABLE IF NOT EXISTS tips (\n"
-                + "    tip_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    sale_id INTEGER,\n"
-                + "    recipient_name TEXT NOT NULL,\n"
-                + "    amount REAL NOT NULL,\n"
-                + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id)\n"
-                + ");";
-
-        String sqlSettings = "CREATE TABLE IF NOT EXISTS app_settings (\n"
-                + "    setting_key TEXT PRIMARY KEY NOT NULL,\n"
-                + "    setting_value TEXT NOT NULL\n"
-                + ");";
-        
-        String sqlCommissionRules = "CREATE TABLE IF NOT EXISTS trabajadora_commission_rules (\n"
-                + "    rule_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
-                + "    trabajadora_id INTEGER NOT NULL,\n"
-                + "    service_category TEXT NOT NULL,\n"
-                + "    commission_rate REAL NOT NULL,\n"
-                + "    UNIQUE(trabajadora_id, service_category),\n"
-                + "    FOREIGN KEY (trabajadora_id) REFERENCES trabajadoras (id) ON DELETE CASCADE\n"
-                + ");";
-
-        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
-
-            stmt.execute(sqlClients);
-            LOGGER.info("Tabla 'clients' verificada/creada");
-
-            stmt.execute(sqlTrabajadoras);
-            LOGGER.info("Tabla 'trabajadoras' verificada/creada");
-
-            stmt.execute(sqlCuentas);
-            LOGGER.info("Tabla 'cuentas_bancarias' verificada/creada");
-
-            stmt.execute(sqlServices);
-            LOGGER.info("Tabla 'services' verificada/creada");
-
-            stmt.execute(sqlSales);
-            LOGGER.info("Tabla 'sales' verificada/creada");
-
-            stmt.execute(sqlSalePayments);
-            LOGGER.info("Tabla 'sale_payments' verificada/creada");
-
-            stmt.execute(sqlSaleItems);
-            LOGGER.info("Tabla 'sale_items' verificada/creada");
-
-            stmt.execute(sqlTips);
-            LOGGER.info("Tabla 'tips' verificada/creada");
-            
-            stmt.execute(sqlSettings);
-            LOGGER.info("Tabla 'app_settings' verificada/creada");
-            
-            stmt.execute(sqlCommissionRules);
-            LOGGER.info("Tabla 'trabajadora_commission_rules' verificada/creada");
-            
-            String sqlInitCorr = "INSERT OR IGNORE INTO app_settings (setting_key, setting_value) VALUES ('" + ConfigManager.KEY_CORRELATIVE + "', '1');";
-            stmt.execute(sqlInitCorr);
-            LOGGER.info("Correlativo inicial verificado/creado.");
-            
-            // Modificaciones de tablas existentes (Migraciones)
-            
-            try {
-                stmt.execute("ALTER TABLE sales ADD COLUMN bcv_rate_at_sale REAL DEFAULT 0.0");
-                LOGGER.info("Columna 'bcv_rate_at_sale' agregada a la tabla 'sales'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE sales ADD COLUMN vat_amount REAL DEFAULT 0.0");
-                LOGGER.info("Columna 'vat_amount' agregada a la tabla 'sales'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE sales ADD COLUMN correlative_number TEXT");
-                LOGGER.info("Columna 'correlative_number' agregada a la tabla 'sales'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE services ADD COLUMN service_category TEXT");
-                LOGGER.info("Columna 'service_category' agregada a la tabla 'services'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE services ADD COLUMN is_active BOOLEAN DEFAULT 1");
-                LOGGER.info("Columna 'is_active' agregada a la tabla 'services'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE sale_items ADD COLUMN client_brought_product BOOLEAN DEFAULT 0");
-                LOGGER.info("Columna 'client_brought_product' agregada a la tabla 'sale_items'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            
-            try {
-                stmt.execute("ALTER TABLE clients ADD COLUMN balance REAL DEFAULT 0.0");
-                LOGGER.info("Columna 'balance' agregada a la tabla 'clients'.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-
-            // =================================================================================
-            // NUEVAS COLUMNAS PARA BONOS FIJOS DE TRABAJADORAS
-            // =================================================================================
-            try {
-                stmt.execute("ALTER TABLE trabajadoras ADD COLUMN bono_activo BOOLEAN DEFAULT 0");
-                LOGGER.info("Columna 'bono_activo' agregada a trabajadoras.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-
-            try {
-                stmt.execute("ALTER TABLE trabajadoras ADD COLUMN monto_bono REAL DEFAULT 0.0");
-                LOGGER.info("Columna 'monto_bono' agregada a trabajadoras.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-
-            try {
-                stmt.execute("ALTER TABLE trabajadoras ADD COLUMN razon_bono TEXT");
-                LOGGER.info("Columna 'razon_bono' agregada a trabajadoras.");
-            } catch (SQLException e) {
-                // Ignorar si ya existe
-            }
-            // =================================================================================
-
-            LOGGER.info("Agregando/Actualizando lista de servicios...");
-            
-            addOrUpdateService(conn, "Lavado", 10.0, 0.0, 0.0, 0.0, true, 8.0); 
-            addOrUpdateService(conn, "Secado", 10.0, 12.0, 15.0, 20.0, false, 0.0);
-            addOrUpdateService(conn, "Ondas", 15.0, 20.0, 35.0, 40.0, false, 0.0);
-            addOrUpdateService(conn, "Corte Puntas", 20.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Corte Elaborado", 25.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Maquillaje", 60.0, 70.0, 80.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Peinados", 40.0, 50.0, 60.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Color (Tinte)", 40.0, 50.0, 0.0, 0.0, true, 25.0); 
-            addOrUpdateService(conn, "Mechas", 80.0, 100.0, 120.0, 150.0, false, 0.0);
-            addOrUpdateService(conn, "Cejas", 5.0, 8.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Bozo", 5.0, 8.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Manicure Tradicional", 12.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Pedicure Tradicional", 12.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Keratina", 60.0, 120.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Hidratación solo", 15.0, 20.0, 25.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Hidratación Fusio-Dose", 35.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Secado con extensiones", 25.0, 30.0, 45.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Planchado", 15.0, 20.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Pestañas", 10.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Manicure Gelish", 15.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Manicure Rubber", 18.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Manicure Polygel", 20.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Pedicure Gelish", 15.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Hidratación M/P", 15.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Extensiones (Medio Paquete)", 60.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Extensiones (1 Paquete)", 120.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Extensiones (2 Paquetes)", 140.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Extensiones (3 Paquetes)", 160.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Extensiones (4 Paquetes)", 180.0, 0.0, 0.0, 0.0, false, 0.0);
-            addOrUpdateService(conn, "Productos", 35.0, 0.0, 0.0, 0.0, false, 0.0);
-            
-            addOrUpdateService(conn, "Abono Manual Staff", 0.0, 0.0, 0.0, 0.0, false, 0.0);
-
-            LOGGER.info("Lista de servicios actualizada.");
-            
-            stmt.execute("UPDATE services SET service_category = 'Peluqueria' WHERE name IN ('Secado', 'Corte Puntas', 'Corte Elaborado', 'Peinados', 'Ondas', 'Planchado', 'Maquillaje', 'Pestañas', 'Cejas', 'Bozo', 'Secado con extensiones')");
-            stmt.execute("UPDATE services SET service_category = 'Quimico' WHERE name IN ('Color (Tinte)', 'Mechas', 'Keratina', 'Hidratación solo', 'Hidratación Fusio-Dose')");
-            stmt.execute("UPDATE services SET service_category = 'Manos/Pies' WHERE name IN ('Manicure Tradicional', 'Pedicure Tradicional', 'Manicure Gelish', 'Manicure Rubber', 'Manicure Polygel', 'Pedicure Gelish', 'Hidratación M/P')");
-            stmt.execute("UPDATE services SET service_category = 'Lavado' WHERE name = 'Lavado'");
-            stmt.execute("UPDATE services SET service_category = 'Extensiones' WHERE name IN ('Extensiones (Medio Paquete)', 'Extensiones (1 Paquete)', 'Extensiones (2 Paquetes)', 'Extensiones (3 Paquetes)', 'Extensiones (4 Paquetes)')");
-            stmt.execute("UPDATE services SET service_category = 'Otros' WHERE name IN ('Productos')");
-            
-            stmt.execute("UPDATE services SET service_category = 'PAGO-MANUAL' WHERE name = 'Abono Manual Staff'");
-            
-            LOGGER.info("Categorías de servicio por defecto re-asignadas.");
-            
-            try {
-                stmt.execute("UPDATE services SET is_active = 0 WHERE name IN ('Hidratación + Secado', 'Aplicación de Tinte', 'Mantenimiento', 'Extensiones')");
-                LOGGER.info("Servicios obsoletos desactivados (is_active = 0).");
-            } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "Error al desactivar servicios obsoletos", e);
+        try {
+            boolean seeded = executeWrite(conn -> {
+                SchemaMigrations.migrate(conn);
+                return SeedData.applyIfChanged(conn);
+            });
+            CatalogCache.getInstance().invalidateAll(); // La semilla pudo cambiar servicios
+            ConfigManager.reload();
+            // Después de confirmar la semilla: las comisiones se calculan con las reglas ya guardadas
+            executeWrite(CommissionLedger::postMissing);
+            if (seeded) {
+                // La semilla pudo cambiar reglas de comisión: la nómina abierta debe aplicarlas
+                new CommissionLedger().repostOpenPeriods();
             }
-        
-            LOGGER.info("Agregando/Actualizando lista de trabajadoras y cuentas...");
-
-            addOrUpdateTrabajadora(conn, "Dayana", "Govea", "V", "18522231", "04127915851");
-            addOrUpdateCuenta(conn, "18522231", "Banco Provincial", "Corriente", "01080511200100296908", true);
-
-            addOrUpdateTrabajadora(conn, "Maria Virginia", "Romero", "V", "31085005", "04143604499");
-            addOrUpdateCuenta(conn, "31085005", "Banesco", "Corriente", "01340039330391056651", true);
-
-            addOrUpdateTrabajadora(conn, "Pascualina", "Gutierrez", "V", "5562378", "04146638330");
-            addOrUpdateCuenta(conn, "5562378", "Banco Provincial", "Ahorro", "01080086240200360744", true);
-
-            addOrUpdateTrabajadora(conn, "Aurora Sofia", "Exposito", "V", "27683374", "04242092890");
-            addOrUpdateCuenta(conn, "27683374", "Banesco", "Corriente", "01340039330391055077", true);
-
-            addOrUpdateTrabajadora(conn, "Jeimy", "Añez", "V", "18921264", "04246695087");
-            addOrUpdateCuenta(conn, "18921264", "Banco Provincial", "Corriente", "01080059550100393036", true);
-
-            addOrUpdateTrabajadora(conn, "Belkis", "Gutierrez", "V", "9395233", "04146126300");
-            addOrUpdateCuenta(conn, "9395233", "Banco Provincial", "Corriente", "01080086260100175613", true);
-
-            addOrUpdateTrabajadora(conn, "Milagros", "Gutierrez", "V", "24342800", "04246194365");
-            addOrUpdateCuenta(conn, "24342800", "Banco Provincial", "Ahorro", "01080302190200068019", true);
-
-            addOrUpdateTrabajadora(conn, "Maria", "Diaz", "V", "7774946", "04246464683");
-           
-            addOrUpdateTrabajadora(conn, "Rosa Maria", "Gutierrez", "V", "9200133", "04246889337");
-         
-            addOrUpdateCuenta(conn, "9200133", "Banesco", "Corriente", "01340946380001307454", true); 
-            addOrUpdateCuenta(conn, "9200133", "Banco Nacional de Crédito (BNC)", "Corriente", "01160148150014749505", false);
-            addOrUpdateCuenta(conn, "9200133", "Bancamiga", "Corriente", "01720112381125322600", false);
-            addOrUpdateCuenta(conn, "9200133", "Banesco", "Corriente", "01340077650773172568", false);
-
-            addOrUpdateTrabajadora(conn, "Jaqueline", "Añez", "V", "24734839", "04246703185");
-            addOrUpdateCuenta(conn, "24734839", "Banco Provincial", "Corriente", "01080059500100533199", true);
-
-            LOGGER.info("Lista de trabajadoras y cuentas actualizada.");
-            
-            LOGGER.info("Agregando/Actualizando reglas de comisión...");
-            
-            // --- Reglas de Comisión Base (por categoría) ---
-            
-            addOrUpdateCommissionRule(conn, "7774946", "Manos/Pies", 0.70);
-            
-            addOrUpdateCommissionRule(conn, "24734839", "Peluqueria", 0.50);
-            addOrUpdateCommissionRule(conn, "24734839", "Quimico", 0.40); 
-            
-            addOrUpdateCommissionRule(conn, "18522231", "Peluqueria", 0.50);
-            addOrUpdateCommissionRule(conn, "18522231", "Quimico", 0.40); 
-            
-            addOrUpdateCommissionRule(conn, "31085005", "Peluqueria", 0.50);
-            addOrUpdateCommissionRule(conn, "31085005", "Quimico", 0.40); 
-            
-            addOrUpdateCommissionRule(conn, "9395233", "Peluqueria", 0.65);
-            addOrUpdateCommissionRule(conn, "9395233", "Quimico", 0.50);
-            
-            addOrUpdateCommissionRule(conn, "27683374", "Peluqueria", 0.60);
-            addOrUpdateCommissionRule(conn, "27683374", "Quimico", 0.50);
-            
-            addOrUpdateCommissionRule(conn, "18921264", "Peluqueria", 0.60);
-            addOrUpdateCommissionRule(conn, "18921264", "Quimico", 0.50);
-            
-            addOrUpdateCommissionRule(conn, "5562378", "Peluqueria", 0.60);
-            addOrUpdateCommissionRule(conn, "5562378", "Quimico", 0.50);
-            
-            addOrUpdateCommissionRule(conn, "24342800", "Peluqueria", 0.60);
-            addOrUpdateCommissionRule(conn, "24342800", "Quimico", 0.50);
-            
-            LOGGER.info("Reglas de comisión actualizadas.");
-
 
             LOGGER.info("Base de datos inicializada correctamente");
 
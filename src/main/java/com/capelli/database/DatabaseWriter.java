@@ -0,0 +1,268 @@
+package com.capelli.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hilo escritor único de la base de datos.
+ * Todas las escrituras se serializan aquí, cada una dentro de su propia transacción,
+ * sobre una conexión dedicada. Con WAL los lectores nunca bloquean a este hilo.
+ * También administra los checkpoints del WAL cuando la aplicación está ociosa.
+ */
+public class DatabaseWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseWriter.class.getName());
+
+    /**
+     * Abre la conexión física dedicada del escritor.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong pendingCheckpointWrites = new AtomicLong();
+    private volatile Thread writerThread;
+    private Connection conn;
+    private boolean inTransaction = false;
+    private final List<Runnable> rollbackActions = new ArrayList<>();
+    private final List<Runnable> commitActions = new ArrayList<>();
+
+    DatabaseWriter(ConnectionFactory connectionFactory, int checkpointIntervalSeconds) {
+        this.connectionFactory = connectionFactory;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-writer");
+            t.setDaemon(true);
+            writerThread = t;
+            return t;
+        });
+        if (checkpointIntervalSeconds > 0) {
+            executor.scheduleWithFixedDelay(this::idleCheckpoint,
+                    checkpointIntervalSeconds, checkpointIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Indica si el hilo actual es el hilo escritor.
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    /**
+     * Encola una escritura. Se ejecuta en una transacción que se confirma si la unidad
+     * de trabajo termina sin error y se revierte en caso contrario.
+     */
+    public <T> CompletableFuture<T> submit(SqlWork<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> complete(future, work));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLException("El escritor de base de datos está detenido", e));
+        }
+        return future;
+    }
+
+    /**
+     * Como submit, pero la escritura se ejecuta recién después de {@code delayMillis}.
+     * Sirve para juntar varias escrituras chicas en una sola transacción.
+     */
+    public <T> CompletableFuture<T> submitDelayed(SqlWork<T> work, long delayMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.schedule(() -> complete(future, work), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLException("El escritor de base de datos está detenido", e));
+        }
+        return future;
+    }
+
+    private <T> void complete(CompletableFuture<T> future, SqlWork<T> work) {
+        try {
+            future.complete(runInTransaction(work));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Ejecuta una escritura y espera su resultado.
+     * Si se invoca desde el propio hilo escritor, se ejecuta dentro de la transacción en curso.
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        if (isWriterThread()) {
+            return work.execute(connection());
+        }
+        return await(submit(work));
+    }
+
+    /**
+     * Espera el resultado de una escritura encolada, propagando la SQLException original.
+     */
+    public static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando la escritura", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Registra una acción a ejecutar si la transacción en curso se revierte,
+     * para deshacer estado en memoria que acompaña a la escritura.
+     * Las acciones se ejecutan en orden inverso al registro.
+     */
+    public void onRollback(Runnable action) {
+        if (!isWriterThread() || !inTransaction) {
+            throw new IllegalStateException("onRollback solo puede usarse dentro de una escritura en curso");
+        }
+        rollbackActions.add(action);
+    }
+
+    /**
+     * Registra una acción a ejecutar en este hilo después de confirmar la transacción en curso,
+     * para avisar de cambios que solo deben verse si la escritura se confirma.
+     * Las acciones se ejecutan en orden de registro; sus errores se registran y no afectan la escritura.
+     */
+    public void onCommit(Runnable action) {
+        if (!isWriterThread() || !inTransaction) {
+            throw new IllegalStateException("onCommit solo puede usarse dentro de una escritura en curso");
+        }
+        commitActions.add(action);
+    }
+
+    private <T> T runInTransaction(SqlWork<T> work) throws SQLException {
+        Connection c = connection();
+        c.setAutoCommit(false);
+        inTransaction = true;
+        try {
+            T result = work.execute(c);
+            c.commit();
+            pendingCheckpointWrites.incrementAndGet();
+            inTransaction = false;
+            for (Runnable action : commitActions) {
+                try {
+                    action.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Error en acción posterior al commit", ex);
+                }
+            }
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            try {
+                c.rollback();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Error haciendo rollback", ex);
+            }
+            for (int i = rollbackActions.size() - 1; i >= 0; i--) {
+                try {
+                    rollbackActions.get(i).run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Error en acción de rollback", ex);
+                }
+            }
+            throw e;
+        } finally {
+            inTransaction = false;
+            rollbackActions.clear();
+            commitActions.clear();
+            try {
+                c.setAutoCommit(true);
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "Conexión del escritor inválida, se reabrirá", ex);
+                closeConnection();
+            }
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (conn == null || conn.isClosed()) {
+            conn = connectionFactory.open();
+            LOGGER.fine("Conexión dedicada del escritor abierta");
+        }
+        return conn;
+    }
+
+    /**
+     * Checkpoint pasivo cuando hubo escrituras desde el último: no bloquea a los lectores
+     * y evita que el archivo WAL crezca durante sesiones largas.
+     */
+    private void idleCheckpoint() {
+        if (pendingCheckpointWrites.getAndSet(0) == 0) {
+            return;
+        }
+        checkpoint("PASSIVE");
+    }
+
+    private void checkpoint(String mode) {
+        try (Statement stmt = connection().createStatement()) {
+            stmt.execute("PRAGMA wal_checkpoint(" + mode + ")");
+            LOGGER.fine("Checkpoint WAL (" + mode + ") ejecutado");
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error en checkpoint WAL (" + mode + ")", e);
+        }
+    }
+
+    /**
+     * Termina las escrituras pendientes, trunca el WAL y cierra la conexión dedicada.
+     */
+    public void shutdown() {
+        try {
+            executor.submit(() -> {
+                checkpoint("TRUNCATE");
+                closeConnection();
+            });
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warning("El escritor no terminó a tiempo");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error cerrando conexión del escritor", e);
+            }
+            conn = null;
+        }
+    }
+}
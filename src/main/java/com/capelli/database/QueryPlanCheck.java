@@ -0,0 +1,132 @@
+package com.capelli.database;
+
+import com.capelli.config.AppConfig;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verificación de regresión de los planes de consulta de reportes.
+ * Ejecuta EXPLAIN QUERY PLAN sobre cada consulta de ReportQueries.CHECKED_QUERIES y falla
+ * (código de salida 1) si alguna recorre una tabla completa en lugar de buscar por índice.
+ * Las de ReportQueries.INDEX_WALK_QUERIES pueden recorrer un índice que las cubre, no la tabla.
+ * Ejecutar este main después de cambiar consultas o índices.
+ *
+ * Trabaja sobre una base temporal propia con todas las migraciones aplicadas, nunca sobre
+ * la configurada en db.url: los planes dependen del esquema y de los índices, no de los datos.
+ */
+public class QueryPlanCheck {
+
+    private static final Pattern CTE_NAME = Pattern.compile("(?:WITH|,)\\s+(\\w+)\\s+AS\\s+\\(", Pattern.CASE_INSENSITIVE);
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== VERIFICACIÓN DE PLANES DE CONSULTA ===");
+        Path file = Files.createTempFile("capelli-plan-check-", ".db");
+        AppConfig.setProperty(AppConfig.DB_URL, "jdbc:sqlite:" + file.toAbsolutePath());
+        AppConfig.setProperty(AppConfig.DB_INIT_ON_STARTUP, "true");
+        Database.initialize();
+
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = Database.connect()) {
+            if (conn == null) {
+                System.out.println("✗ No se pudo conectar a la base de datos");
+                System.exit(1);
+            }
+            for (Map.Entry<String, String> entry : new TreeMap<>(ReportQueries.CHECKED_QUERIES).entrySet()) {
+                failures.addAll(check(conn, entry.getKey(), entry.getValue(), false));
+            }
+            for (Map.Entry<String, String> entry : new TreeMap<>(ReportQueries.INDEX_WALK_QUERIES).entrySet()) {
+                failures.addAll(check(conn, entry.getKey(), entry.getValue(), true));
+            }
+        } catch (SQLException e) {
+            System.out.println("✗ Error al obtener el plan: " + e.getMessage());
+            failures.add("Error al obtener el plan: " + e.getMessage());
+        } finally {
+            Database.shutdown();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Path.of(file + "-wal"));
+            Files.deleteIfExists(Path.of(file + "-shm"));
+        }
+
+        System.out.println();
+        if (failures.isEmpty()) {
+            System.out.println("✅ Ninguna consulta recorre tablas completas");
+        } else {
+            System.out.println("❌ " + failures.size() + " recorrido(s) completo(s) detectado(s):");
+            failures.forEach(f -> System.out.println("   - " + f));
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Devuelve los pasos del plan que recorren una tabla completa.
+     *
+     * @param indexWalk true si la consulta puede recorrer completo un índice que la cubre
+     */
+    static List<String> check(Connection conn, String name, String sql, boolean indexWalk) throws SQLException {
+        List<String> failures = new ArrayList<>();
+        System.out.println();
+        System.out.println(name + ":");
+        Set<String> cteNames = cteNames(sql);
+
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int params = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= params; i++) {
+                pstmt.setString(i, "2000-01-01");
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String detail = rs.getString("detail");
+                    boolean fullScan = isFullScan(detail, cteNames, indexWalk);
+                    System.out.println("  " + (fullScan ? "✗ " : "  ") + detail);
+                    if (fullScan) {
+                        failures.add(name + ": " + detail);
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Un paso "SCAN" es un recorrido completo de la tabla (o del índice entero, si dice USING INDEX).
+     * EXPLAIN QUERY PLAN muestra el alias de la tabla, así que se rechaza cualquier SCAN:
+     * en estas consultas todas las tablas deben accederse con SEARCH.
+     * Se acepta recorrer una CTE o una subconsulta: es el resultado intermedio de la misma
+     * consulta, no una tabla. Con {@code indexWalk} se acepta además "USING COVERING INDEX".
+     */
+    static boolean isFullScan(String detail, Set<String> cteNames, boolean indexWalk) {
+        if (!detail.startsWith("SCAN ") || detail.startsWith("SCAN CONSTANT ROW")) {
+            return false;
+        }
+        String target = detail.substring("SCAN ".length()).split(" ")[0];
+        if (cteNames.contains(target) || target.startsWith("(subquery-")) {
+            return false;
+        }
+        return !(indexWalk && detail.contains(" USING COVERING INDEX "));
+    }
+
+    /**
+     * Nombres de las CTE de la consulta ("WITH nombre AS (", ", nombre AS (").
+     */
+    static Set<String> cteNames(String sql) {
+        Set<String> names = new HashSet<>();
+        Matcher matcher = CTE_NAME.matcher(sql);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,248 @@
+package com.capelli.database;
+
+import com.capelli.model.Money;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Consultas de reportes y nómina filtradas por fecha.
+ * sale_date se guarda como texto 'yyyy-MM-dd HH:mm:ss' (hora local), así que un rango
+ * semiabierto [inicio, fin) sobre la columna sin funciones puede usar idx_sales_sale_date.
+ * Nunca envolver sale_date en DATE(): obliga a recorrer toda la tabla sales.
+ * Los montos están en centavos (columnas _cents); las sumas se leen con getLong.
+ */
+public final class ReportQueries {
+
+    /**
+     * Comisiones y abonos asentados en commission_ledger, por trabajadora y tipo.
+     * Las reversiones tienen monto negativo, así que la suma ya descuenta las ventas editadas.
+     * Parámetros: rango (2), comparado contra posting_date ('yyyy-MM-dd').
+     */
+    public static final String PAYROLL_LEDGER = "SELECT "
+            + "    l.employee_id, "
+            + "    l.kind, "
+            + "    SUM(l.amount_cents) AS total_cents "
+            + "FROM "
+            + "    commission_ledger l "
+            + "WHERE "
+            + "    l.posting_date >= ? AND l.posting_date < ? "
+            + "GROUP BY l.employee_id, l.kind";
+
+    /**
+     * Propinas por trabajadora. Las del salón (recipient_id NULL) y las de trabajadoras
+     * eliminadas quedan fuera del JOIN. Parámetros: rango (2).
+     */
+    public static final String PAYROLL_TIPS = "SELECT "
+            + "    w.id AS employee_id, "
+            + "    SUM(t.amount_cents) AS total_tips_cents "
+            + "FROM "
+            + "    sales s "
+            + "JOIN "
+            + "    tips t ON t.sale_id = s.sale_id "
+            + "JOIN "
+            + "    trabajadoras w ON w.id = t.recipient_id "
+            + "WHERE "
+            + "    s.sale_date >= ? AND s.sale_date < ? "
+            + "GROUP BY w.id";
+
+    /**
+     * Recalcula daily_close para las ventas del rango, un grupo de filas por día:
+     * la tasa de la primera venta (TASA), las cuentas por cobrar (POR_COBRAR) y los pagos
+     * de ventas que no son a crédito clasificados por bucket. amount_usd_cents convierte los buckets
+     * en Bs con la tasa del día, y queda en NULL si esa tasa es 0. La fila TASA guarda la tasa
+     * en diezmilésimas (Money.RATE_SCALE).
+     * Antes de ejecutarla se borran las filas del mismo rango. Parámetros: rango (2).
+     */
+    public static final String DAILY_CLOSE_REFRESH = "INSERT INTO daily_close (close_date, bucket, amount_cents, amount_usd_cents) "
+            + "WITH day_sales AS ( "
+            + "    SELECT s.sale_id, substr(s.sale_date, 1, 10) AS close_date, s.sale_date, s.total_cents, "
+            + "        s.discount_type, s.bcv_rate_at_sale "
+            + "    FROM sales s "
+            + "    WHERE s.sale_date >= ? AND s.sale_date < ? "
+            + "), "
+            // MIN() en SQLite devuelve las demás columnas de la misma fila
+            + "day_rates AS ( "
+            + "    SELECT close_date, bcv_rate_at_sale AS rate, MIN(sale_date) "
+            + "    FROM day_sales GROUP BY close_date "
+            + "), "
+            + "movements AS ( "
+            + "    SELECT ds.close_date, "
+            + "        CASE "
+            + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Efectivo $' THEN 'EFECTIVO_USD' "
+            + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Transferencia' THEN 'TRANSFERENCIA_USD' "
+            + "            WHEN p.moneda = 'Bs' AND p.metodo_pago = 'Pago Movil' AND p.destino_pago = 'Rosa' THEN 'BS_ROSA' "
+            + "            WHEN p.moneda = 'Bs' THEN 'BS_CAPELLI' "
+            + "        END AS bucket, "
+            + "        p.monto_cents AS amount "
+            + "    FROM day_sales ds "
+            + "    JOIN sale_payments p ON p.sale_id = ds.sale_id "
+            + "    WHERE ds.discount_type != 'Cuenta por Cobrar' "
+            + "    UNION ALL "
+            + "    SELECT close_date, 'POR_COBRAR', total_cents FROM day_sales "
+            + "    WHERE discount_type = 'Cuenta por Cobrar' "
+            + ") "
+            + "SELECT movements.close_date, bucket, SUM(amount), "
+            + "    CASE "
+            + "        WHEN bucket NOT IN ('BS_CAPELLI', 'BS_ROSA') THEN SUM(amount) "
+            + "        WHEN rate > 0 THEN " + usdCents("SUM(amount)", "rate") + " "
+            + "    END "
+            + "FROM movements "
+            + "JOIN day_rates ON day_rates.close_date = movements.close_date "
+            + "WHERE bucket IS NOT NULL "
+            + "GROUP BY movements.close_date, bucket "
+            + "UNION ALL "
+            + "SELECT close_date, 'TASA', " + rateUnits("rate") + ", NULL FROM day_rates";
+
+    /**
+     * Totales de daily_close por bucket en un rango de días (inclusive), sin la tasa.
+     * unconverted suma lo que no se pudo convertir a dólares por falta de tasa.
+     * Parámetros: primer y último día 'yyyy-MM-dd' (2).
+     */
+    public static final String DAILY_CLOSE_TOTALS = "SELECT bucket, SUM(amount_cents) AS amount_cents, "
+            + "    COALESCE(SUM(amount_usd_cents), 0) AS amount_usd_cents, "
+            + "    COALESCE(SUM(CASE WHEN amount_usd_cents IS NULL THEN amount_cents END), 0) AS unconverted_cents "
+            + "FROM daily_close "
+            + "WHERE close_date >= ? AND close_date <= ? AND bucket != 'TASA' "
+            + "GROUP BY bucket";
+
+    /**
+     * Detalle financiero por ítem vendido, con pagos y propinas de su venta tomados de sale_summary.
+     * Es una exportación para leer: los montos salen en dólares con dos decimales. Parámetros: rango (2).
+     */
+    public static final String FINANCIAL_REPORT = "SELECT "
+            + "    substr(s.sale_date, 1, 10) AS Fecha, "
+            + "    s.correlative_number AS Factura, "
+            + "    COALESCE(c.full_name, 'N/A') AS Cliente, "
+            + "    COALESCE(t.nombres || ' ' || t.apellidos, 'N/A') AS Trabajadora, "
+            + "    COALESCE(svc.name, 'N/A') AS Servicio, "
+            + "    COALESCE(svc.service_category, 'N/A') AS Categoria_Servicio, "
+            + "    si.price_cents / 100.0 AS Precio_Item_USD, "
+            + "    s.discount_type AS Tipo_Descuento, "
+            + "    s.discount_cents / 100.0 AS Descuento_Venta_USD, "
+            + "    s.vat_cents / 100.0 AS IVA_Venta_USD, "
+            + "    COALESCE(ss.tips_usd_cents, 0) / 100.0 AS Propina_Venta_USD, "
+            + "    s.total_cents / 100.0 AS Total_Venta_USD, "
+            + "    s.bcv_rate_at_sale AS Tasa_BCV_Venta, "
+            + "    ss.payments_detail AS Pagos_Detallados, "
+            + "    COALESCE(ss.paid_usd_cents, 0) / 100.0 AS Total_Pagado_USD "
+            + "FROM "
+            + "    sales s "
+            + "LEFT JOIN "
+            + "    sale_items si ON s.sale_id = si.sale_id "
+            + "LEFT JOIN "
+            + "    trabajadoras t ON si.employee_id = t.id "
+            + "LEFT JOIN "
+            + "    services svc ON si.service_id = svc.service_id "
+            + "LEFT JOIN "
+            + "    clients c ON s.client_id = c.client_id "
+            + "LEFT JOIN "
+            + "    sale_summary ss ON ss.sale_id = s.sale_id "
+            + "WHERE "
+            + "    s.sale_date >= ? AND s.sale_date < ? "
+            + "ORDER BY "
+            + "    s.sale_date, s.correlative_number, Trabajadora";
+
+    /** Cantidad de filas de FINANCIAL_REPORT, para mostrar el avance de una exportación. Parámetros: rango (2). */
+    public static final String FINANCIAL_REPORT_COUNT = "SELECT COUNT(*) "
+            + "FROM sales s "
+            + "LEFT JOIN sale_items si ON s.sale_id = si.sale_id "
+            + "WHERE s.sale_date >= ? AND s.sale_date < ?";
+
+    /** Orden del historial de ventas: una fila por ítem (o por venta sin ítems), de la más reciente a la más antigua. */
+    private static final String SALES_HISTORY_ORDER = "ORDER BY s.sale_date DESC, s.sale_id DESC, COALESCE(si.sale_item_id, 0) DESC ";
+
+    /**
+     * Primera clave de cada página del historial y total de filas. Recorre solo índices, sin unir nombres.
+     * Parámetros: tamaño de página.
+     */
+    public static final String SALES_HISTORY_PAGE_STARTS = "SELECT sale_date, sale_id, item_key, total_rows FROM ( "
+            + "    SELECT s.sale_date, s.sale_id, COALESCE(si.sale_item_id, 0) AS item_key, "
+            + "        ROW_NUMBER() OVER (" + SALES_HISTORY_ORDER + ") AS row_number, "
+            + "        COUNT(*) OVER () AS total_rows "
+            + "    FROM sales s "
+            + "    LEFT JOIN sale_items si ON s.sale_id = si.sale_id "
+            + ") "
+            + "WHERE (row_number - 1) % ? = 0 "
+            + "ORDER BY row_number";
+
+    /**
+     * Una página del historial desde una clave (inclusive), con los datos a mostrar.
+     * Parámetros: sale_date, sale_id e item_key de la primera fila, y cantidad de filas.
+     */
+    public static final String SALES_HISTORY_PAGE = "SELECT "
+            + "    s.sale_id, "
+            + "    COALESCE(si.sale_item_id, 0) AS item_key, "
+            + "    s.correlative_number, "
+            + "    s.sale_date, "
+            + "    COALESCE(c.full_name, 'Cliente Genérico') AS client_name, "
+            + "    COALESCE(ser.name, 'SERVICIO BORRADO') AS service_name, "
+            + "    si.client_brought_product, "
+            + "    COALESCE((t.nombres || ' ' || t.apellidos), 'TRABAJADORA BORRADA') AS employee_name, "
+            + "    si.price_cents, "
+            + "    s.discount_cents, "
+            + "    s.total_cents "
+            + "FROM sales s "
+            + "LEFT JOIN sale_items si ON s.sale_id = si.sale_id "
+            + "LEFT JOIN services ser ON si.service_id = ser.service_id "
+            + "LEFT JOIN trabajadoras t ON si.employee_id = t.id "
+            + "LEFT JOIN clients c ON s.client_id = c.client_id "
+            + "WHERE (s.sale_date, s.sale_id, COALESCE(si.sale_item_id, 0)) <= (?, ?, ?) "
+            + SALES_HISTORY_ORDER
+            + "LIMIT ?";
+
+    /**
+     * Consultas verificadas por QueryPlanCheck. Toda consulta nueva filtrada por fecha debe registrarse aquí.
+     */
+    public static final Map<String, String> CHECKED_QUERIES = Map.of(
+            "PAYROLL_LEDGER", PAYROLL_LEDGER,
+            "PAYROLL_TIPS", PAYROLL_TIPS,
+            "DAILY_CLOSE_REFRESH", DAILY_CLOSE_REFRESH,
+            "DAILY_CLOSE_TOTALS", DAILY_CLOSE_TOTALS,
+            "FINANCIAL_REPORT", FINANCIAL_REPORT,
+            "FINANCIAL_REPORT_COUNT", FINANCIAL_REPORT_COUNT,
+            "SALES_HISTORY_PAGE", SALES_HISTORY_PAGE
+    );
+
+    /**
+     * Consultas que recorren a propósito todo el historial. QueryPlanCheck acepta que lo hagan
+     * sobre un índice que las cubre, sin leer las filas de la tabla, pero no sobre la tabla.
+     */
+    public static final Map<String, String> INDEX_WALK_QUERIES = Map.of(
+            "SALES_HISTORY_PAGE_STARTS", SALES_HISTORY_PAGE_STARTS
+    );
+
+    private ReportQueries() {
+    }
+
+    /**
+     * Asigna el rango semiabierto [startDate, endDate + 1 día) a dos parámetros consecutivos.
+     * Las cotas son fechas 'yyyy-MM-dd', que comparan correctamente contra 'yyyy-MM-dd HH:mm:ss'.
+     *
+     * @param firstIndex Índice del parámetro de inicio; el de fin es el siguiente
+     * @param endDate Último día incluido
+     */
+    public static void bindDateRange(PreparedStatement pstmt, int firstIndex, LocalDate startDate, LocalDate endDate) throws SQLException {
+        pstmt.setString(firstIndex, startDate.toString());
+        pstmt.setString(firstIndex + 1, endDate.plusDays(1).toString());
+    }
+
+    /**
+     * Centavos de dólar de un monto en centavos de bolívar, dividiendo por la tasa en
+     * diezmilésimas y redondeando al centavo (mitades hacia afuera), igual que Money.toUsd.
+     *
+     * @param bsCents Expresión SQL con los centavos de bolívar
+     * @param rate Expresión SQL con la tasa REAL, que debe ser positiva
+     */
+    static String usdCents(String bsCents, String rate) {
+        return "CAST(ROUND(" + bsCents + " * " + Money.RATE_SCALE + ".0 / " + rateUnits(rate) + ") AS INTEGER)";
+    }
+
+    /**
+     * Tasa en diezmilésimas (Money.rateUnits) de una expresión SQL con la tasa REAL.
+     */
+    static String rateUnits(String rate) {
+        return "CAST(ROUND(" + rate + " * " + Money.RATE_SCALE + ") AS INTEGER)";
+    }
+}
@@ -0,0 +1,453 @@
+package com.capelli.database;
+
+import com.capelli.model.SaleSnapshot;
+import com.capelli.model.Service;
+import com.capelli.payroll.CommissionLedger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Persistencia de ventas a partir de un SaleSnapshot.
+ */
+public class SaleDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(SaleDAO.class.getName());
+
+    /**
+     * Venta confirmada.
+     * @param correlative Número de factura asignado (o el que ya tenía, si es una edición)
+     */
+    public record SavedSale(long saleId, int correlative) {}
+
+    /**
+     * Lo que cambió al guardar una venta. Se avisa a los listeners después del commit.
+     * @param previousDay Día de la venta antes de la edición, o null si es nueva
+     * @param headerChanged Cambió la cabecera (cliente, fecha, montos o tasa)
+     */
+    public record SaleChange(long saleId, boolean created, LocalDate previousDay, LocalDate day,
+                             boolean headerChanged, boolean itemsChanged, boolean paymentsChanged, boolean tipsChanged) {
+
+        public boolean isEmpty() {
+            return !created && !headerChanged && !itemsChanged && !paymentsChanged && !tipsChanged;
+        }
+    }
+
+    /**
+     * Tabla de detalle de una venta.
+     * @param columns Columnas que se escriben y se comparan al editar, sin sale_id
+     */
+    private record DetailTable(String name, String idColumn, List<String> columns) {}
+
+    private static final DetailTable ITEMS = new DetailTable("sale_items", "sale_item_id",
+            List.of("service_id", "employee_id", "price_cents", "client_brought_product"));
+    private static final DetailTable PAYMENTS = new DetailTable("sale_payments", "payment_id",
+            List.of("monto_cents", "moneda", "metodo_pago", "destino_pago", "referencia_pago", "tasa_bcv_al_pago"));
+    private static final DetailTable TIPS = new DetailTable("tips", "tip_id",
+            List.of("recipient_id", "recipient_name", "amount_cents"));
+
+    private static final String HEADER_COLUMNS = "client_id, sale_date, subtotal_cents, discount_type, "
+            + "discount_cents, vat_cents, total_cents, bcv_rate_at_sale";
+    private static final int HEADER_COLUMN_COUNT = 8;
+
+    private static final List<Consumer<SaleChange>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Centavos de dólar de un pago de sale_payments (los pagos en Bs guardan el monto en Bs).
+     * Cada pago se convierte con la tasa en diezmilésimas, como Money.toUsd, y se redondea
+     * al centavo antes de sumarlo.
+     */
+    private static final String PAYMENT_USD = "(CASE WHEN sp.moneda = 'Bs' AND sp.tasa_bcv_al_pago > 0 "
+            + "THEN " + ReportQueries.usdCents("sp.monto_cents", "sp.tasa_bcv_al_pago") + " ELSE sp.monto_cents END)";
+
+    /**
+     * Fila de sale_summary de cada venta (alias s): propinas, total pagado en dólares y
+     * descripción de los pagos tal como la muestra el reporte financiero.
+     */
+    private static final String SUMMARY_SELECT = "SELECT "
+            + "    s.sale_id, "
+            + "    (SELECT COALESCE(SUM(tip.amount_cents), 0) FROM tips tip WHERE tip.sale_id = s.sale_id), "
+            + "    (SELECT COALESCE(SUM(" + PAYMENT_USD + "), 0) FROM sale_payments sp WHERE sp.sale_id = s.sale_id), "
+            + "    ( "
+            + "        SELECT GROUP_CONCAT( "
+            + "            sp.metodo_pago || ' (' || "
+            + "            printf('%.2f', sp.monto_cents / 100.0) || ' ' || sp.moneda || "
+            + "            CASE "
+            + "                WHEN sp.moneda = 'Bs' THEN ' / @' || printf('%.2f', sp.tasa_bcv_al_pago) "
+            + "                ELSE '' "
+            + "            END || ' = $' || printf('%.2f', " + PAYMENT_USD + " / 100.0) || "
+            + "            COALESCE(' / Ref: ' || sp.referencia_pago, '') || "
+            + "            COALESCE(' / Dest: ' || sp.destino_pago, '') || "
+            + "            ')', "
+            + "            ' | ' "
+            + "        ) "
+            + "        FROM sale_payments sp "
+            + "        WHERE sp.sale_id = s.sale_id "
+            + "    ) "
+            + "FROM sales s ";
+
+    private static final String SUMMARY_INSERT = "INSERT OR REPLACE INTO sale_summary "
+            + "(sale_id, tips_usd_cents, paid_usd_cents, payments_detail) ";
+
+    /**
+     * Registra un listener que recibe cada venta guardada con cambios. Se llama desde el hilo
+     * escritor después del commit; los listeners de Swing deben pasar al EDT.
+     */
+    public static void addChangeListener(Consumer<SaleChange> listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeChangeListener(Consumer<SaleChange> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Encola la venta en el hilo escritor y retorna de inmediato.
+     *
+     * @return Futuro con la venta guardada, completado al confirmar la transacción
+     */
+    public CompletableFuture<SavedSale> submit(SaleSnapshot sale) {
+        return Database.submitWrite(conn -> save(conn, sale));
+    }
+
+    /**
+     * Guarda la venta completa (cabecera, ítems, pagos, propinas y saldo) en la transacción en curso.
+     * Al editar solo se escriben las diferencias con lo guardado, y solo se recalculan los
+     * resúmenes que dependen de lo que cambió. Los listeners reciben el cambio después del commit.
+     *
+     * @return La venta guardada con su correlativo
+     */
+    public SavedSale save(Connection conn, SaleSnapshot sale) throws SQLException {
+        long saleId;
+        int correlative;
+        LocalDate previousDay = null;
+        boolean headerChanged;
+        List<Object> header = headerValues(sale);
+        if (sale.isNew()) {
+            // El número se toma en esta misma transacción: si algo falla, no se consume
+            correlative = CorrelativeSequence.getInstance().next(conn);
+            saleId = insertHeader(conn, header, correlative);
+            headerChanged = true;
+        } else {
+            saleId = sale.saleId();
+            StoredHeader stored = loadHeader(conn, saleId);
+            previousDay = stored.day();
+            correlative = stored.correlative();
+            headerChanged = !normalize(header).equals(stored.values());
+            if (headerChanged) {
+                updateHeader(conn, saleId, header);
+            }
+        }
+
+        SaleChange change = new SaleChange(saleId, sale.isNew(), previousDay,
+                LocalDate.parse(sale.saleDate().substring(0, 10)),
+                headerChanged,
+                syncDetails(conn, saleId, sale.isNew(), ITEMS, itemRows(sale)),
+                syncDetails(conn, saleId, sale.isNew(), PAYMENTS, paymentRows(sale)),
+                syncDetails(conn, saleId, sale.isNew(), TIPS, tipRows(sale)));
+        refreshRollups(conn, change);
+
+        if (sale.balanceCredit().isPositive() && sale.clientId() != null) {
+            Database.updateClientBalance(conn, sale.clientId(), sale.balanceCredit().toDouble());
+        }
+
+        if (change.isEmpty()) {
+            LOGGER.info("Venta ID " + saleId + " guardada sin cambios");
+        } else {
+            Database.onCommit(() -> notifyListeners(change));
+        }
+        return new SavedSale(saleId, correlative);
+    }
+
+    /**
+     * Recalcula en la transacción en curso solo los resúmenes afectados por el cambio.
+     */
+    private static void refreshRollups(Connection conn, SaleChange change) throws SQLException {
+        long saleId = change.saleId();
+        boolean dayMoved = change.previousDay() != null && !change.previousDay().equals(change.day());
+
+        if (change.created() || change.paymentsChanged() || change.tipsChanged()) {
+            refreshSummary(conn, saleId);
+        }
+        // El día de la venta es la fecha de sus asientos de comisión
+        if (change.created() || change.itemsChanged() || dayMoved) {
+            CommissionLedger.postSale(conn, saleId);
+        }
+        // Cierre diario del día de la venta y, si una edición cambió la fecha, del día anterior
+        if (change.created() || change.headerChanged() || change.paymentsChanged()) {
+            DailyCloseDAO.refreshDays(conn, change.day());
+            if (dayMoved) {
+                DailyCloseDAO.refreshDays(conn, change.previousDay());
+            }
+        }
+    }
+
+    private static void notifyListeners(SaleChange change) {
+        for (Consumer<SaleChange> listener : LISTENERS) {
+            listener.accept(change);
+        }
+    }
+
+    private static List<Object> headerValues(SaleSnapshot sale) {
+        return Arrays.asList(sale.clientId(), sale.saleDate(), sale.subtotal().cents(), sale.discountType(),
+                sale.discountAmount().cents(), sale.vatAmount().cents(), sale.total().cents(), sale.bcvRate());
+    }
+
+    private long insertHeader(Connection conn, List<Object> header, int correlative) throws SQLException {
+        String sqlSale = "INSERT INTO sales (" + HEADER_COLUMNS + ", correlative_number) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlSale)) {
+            int index = bindValues(pstmt, 1, header);
+            pstmt.setString(index, String.valueOf(correlative));
+            pstmt.executeUpdate();
+        }
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new SQLException("Error al obtener el ID de la venta generada");
+        }
+    }
+
+    private void updateHeader(Connection conn, long saleId, List<Object> header) throws SQLException {
+        String sqlUpdate = "UPDATE sales SET client_id=?, sale_date=?, subtotal_cents=?, discount_type=?, " +
+                           "discount_cents=?, vat_cents=?, total_cents=?, bcv_rate_at_sale=? WHERE sale_id=?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlUpdate)) {
+            int index = bindValues(pstmt, 1, header);
+            pstmt.setLong(index, saleId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Cabecera guardada de una venta.
+     * @param day Día de la venta, o null si no tiene fecha
+     * @param values Valores de HEADER_COLUMNS, normalizados
+     */
+    private record StoredHeader(int correlative, LocalDate day, List<Object> values) {}
+
+    private StoredHeader loadHeader(Connection conn, long saleId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT " + HEADER_COLUMNS + ", correlative_number FROM sales WHERE sale_id = ?")) {
+            pstmt.setLong(1, saleId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("La venta a actualizar no existe: " + saleId);
+                }
+                List<Object> values = new ArrayList<>();
+                for (int column = 1; column <= HEADER_COLUMN_COUNT; column++) {
+                    values.add(rs.getObject(column));
+                }
+                String saleDate = rs.getString("sale_date");
+                return new StoredHeader(
+                        parseCorrelative(rs.getString("correlative_number")),
+                        saleDate != null ? LocalDate.parse(saleDate.substring(0, 10)) : null,
+                        normalize(values));
+            }
+        }
+    }
+
+    private static int parseCorrelative(String value) {
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private List<List<Object>> itemRows(SaleSnapshot sale) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        for (SaleSnapshot.Item item : sale.items()) {
+            rows.add(Arrays.asList(getServiceId(item.serviceName()), item.employeeId(), item.price().cents(), item.clientBroughtProduct()));
+        }
+        return rows;
+    }
+
+    private static List<List<Object>> paymentRows(SaleSnapshot sale) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (SaleSnapshot.Payment p : sale.payments()) {
+            rows.add(Arrays.asList(p.amount().cents(), p.currency(), p.method(), p.destination(), p.reference(), p.bcvRate()));
+        }
+        return rows;
+    }
+
+    private static List<List<Object>> tipRows(SaleSnapshot sale) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (SaleSnapshot.Tip tip : sale.tips()) {
+            rows.add(Arrays.asList(tip.recipientId(), tip.recipientName(), tip.amount().cents()));
+        }
+        return rows;
+    }
+
+    /**
+     * Lleva las filas de detalle de la venta a {@code wanted} con el mínimo de escrituras:
+     * las filas iguales a una guardada no se tocan, las distintas reutilizan una fila guardada
+     * sobrante (UPDATE, conserva su ID) y solo las que faltan o sobran se insertan o se borran.
+     *
+     * @param created true si la venta es nueva y no tiene filas guardadas
+     * @return true si se escribió algo
+     */
+    private static boolean syncDetails(Connection conn, long saleId, boolean created,
+                                       DetailTable table, List<List<Object>> wanted) throws SQLException {
+        Map<Long, List<Object>> unmatched = created ? new LinkedHashMap<>() : loadDetails(conn, saleId, table);
+
+        List<List<Object>> pending = new ArrayList<>();
+        for (List<Object> row : wanted) {
+            List<Object> normalized = normalize(row);
+            Long same = null;
+            for (Map.Entry<Long, List<Object>> stored : unmatched.entrySet()) {
+                if (stored.getValue().equals(normalized)) {
+                    same = stored.getKey();
+                    break;
+                }
+            }
+            if (same != null) {
+                unmatched.remove(same);
+            } else {
+                pending.add(row);
+            }
+        }
+        if (pending.isEmpty() && unmatched.isEmpty()) {
+            return false;
+        }
+
+        String columns = String.join(", ", table.columns());
+        String placeholders = String.join(", ", Collections.nCopies(table.columns().size(), "?"));
+        String assignments = String.join(" = ?, ", table.columns()) + " = ?";
+        Iterator<Long> reusable = unmatched.keySet().iterator();
+        try (PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO " + table.name() + " (sale_id, " + columns + ") VALUES (?, " + placeholders + ")");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE " + table.name() + " SET " + assignments + " WHERE " + table.idColumn() + " = ?");
+             PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM " + table.name() + " WHERE " + table.idColumn() + " = ?")) {
+            for (List<Object> row : pending) {
+                if (reusable.hasNext()) {
+                    int index = bindValues(update, 1, row);
+                    update.setLong(index, reusable.next());
+                    update.addBatch();
+                } else {
+                    insert.setLong(1, saleId);
+                    bindValues(insert, 2, row);
+                    insert.addBatch();
+                }
+            }
+            while (reusable.hasNext()) {
+                delete.setLong(1, reusable.next());
+                delete.addBatch();
+            }
+            insert.executeBatch();
+            update.executeBatch();
+            delete.executeBatch();
+        }
+        return true;
+    }
+
+    /**
+     * @return Filas guardadas de la venta por ID, con sus valores normalizados
+     */
+    private static Map<Long, List<Object>> loadDetails(Connection conn, long saleId, DetailTable table) throws SQLException {
+        Map<Long, List<Object>> rows = new LinkedHashMap<>();
+        String sql = "SELECT " + table.idColumn() + ", " + String.join(", ", table.columns())
+                + " FROM " + table.name() + " WHERE sale_id = ? ORDER BY " + table.idColumn();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, saleId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    List<Object> values = new ArrayList<>();
+                    for (int column = 2; column <= table.columns().size() + 1; column++) {
+                        values.add(rs.getObject(column));
+                    }
+                    rows.put(rs.getLong(1), normalize(values));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return El índice del siguiente parámetro libre
+     */
+    private static int bindValues(PreparedStatement pstmt, int firstIndex, List<Object> values) throws SQLException {
+        int index = firstIndex;
+        for (Object value : values) {
+            if (value == null) {
+                pstmt.setNull(index, java.sql.Types.NULL);
+            } else if (value instanceof Boolean b) {
+                pstmt.setBoolean(index, b);
+            } else {
+                pstmt.setObject(index, value);
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Lleva los valores a una forma comparable entre lo que arma la ventana y lo que devuelve SQLite:
+     * números (y booleanos, que SQLite guarda como 0/1) a Double; el resto queda igual.
+     */
+    private static List<Object> normalize(List<Object> values) {
+        List<Object> normalized = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof Boolean b) {
+                normalized.add(b ? 1.0 : 0.0);
+            } else if (value instanceof Number n) {
+                normalized.add(n.doubleValue());
+            } else {
+                normalized.add(value);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Recalcula la fila de sale_summary de una venta a partir de sus pagos y propinas.
+     * Se llama en la misma transacción que los escribe, así el resumen nunca queda desfasado.
+     */
+    static void refreshSummary(Connection conn, long saleId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SUMMARY_INSERT + SUMMARY_SELECT + "WHERE s.sale_id = ?")) {
+            pstmt.setLong(1, saleId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recalcula sale_summary para todas las ventas. Necesario después de cargar ventas
+     * sin pasar por este DAO (por ejemplo, importaciones o bases de prueba).
+     */
+    public static void rebuildSummaries(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM sale_summary");
+            int rows = stmt.executeUpdate(SUMMARY_INSERT + SUMMARY_SELECT);
+            LOGGER.info("Resumen de pagos y propinas calculado para " + rows + " ventas");
+        }
+    }
+
+    private int getServiceId(String serviceName) throws SQLException {
+        String originalServiceName = serviceName.replace(" (Cliente)", "").trim();
+
+        Service service = CatalogCache.getInstance().findServiceByName(originalServiceName);
+        if (service == null) {
+            throw new SQLException("Servicio no encontrado en la base de datos: " + originalServiceName);
+        }
+        return service.getId();
+    }
+}
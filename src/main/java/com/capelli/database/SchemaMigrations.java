@@ -0,0 +1,809 @@
+package com.capelli.database;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+
+/**
+ * Migraciones de esquema numeradas.
+ * La versión aplicada se guarda en PRAGMA user_version; al iniciar solo se ejecutan
+ * las migraciones con número mayor, todas dentro de la misma transacción.
+ * Para cambiar el esquema se agrega una migración al final: nunca se edita una ya publicada.
+ *
+ * Las migraciones no usan SQL ni ayudantes de los DAO, que siguen al esquema vigente: lo que
+ * cada una necesita está copiado al final de esta clase, tal como era al publicarla.
+ */
+public final class SchemaMigrations {
+
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrations.class.getName());
+
+    /**
+     * Paso de migración ejecutado sobre la conexión del escritor.
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    record Migration(int version, String description, Step step) {}
+
+    private static final List<Migration> MIGRATIONS;
+
+    static {
+        List<Migration> list = new ArrayList<>();
+        list.add(new Migration(1, "Esquema base", SchemaMigrations::createBaseSchema));
+        list.add(new Migration(2, "Columnas agregadas después del esquema base", SchemaMigrations::addLegacyColumns));
+        list.add(new Migration(3, "Índices por fecha de venta y por venta", SchemaMigrations::addSalesIndexes));
+        list.add(new Migration(4, "Historial de tasas BCV", SchemaMigrations::createBcvRates));
+        list.add(new Migration(5, "Reglas de comisión priorizadas", SchemaMigrations::createCommissionRules));
+        list.add(new Migration(6, "Resumen de pagos y propinas por venta", SchemaMigrations::createSaleSummary));
+        list.add(new Migration(7, "Cierre diario materializado", SchemaMigrations::createDailyClose));
+        list.add(new Migration(8, "Libro de comisiones y períodos de nómina cerrados", SchemaMigrations::createCommissionLedger));
+        list.add(new Migration(9, "Miniaturas de las fotos de trabajadoras", SchemaMigrations::addPhotoThumbnails));
+        list.add(new Migration(10, "Índice de cuentas bancarias por trabajadora", SchemaMigrations::addCuentasIndex));
+        list.add(new Migration(11, "Montos de ventas, resúmenes y comisiones en centavos enteros", SchemaMigrations::convertAmountsToCents));
+        list.add(new Migration(12, "Propinas vinculadas a la trabajadora por ID", SchemaMigrations::linkTipRecipients));
+        list.add(new Migration(13, "Resumen de ventas y cierre diario con la tasa en diezmilésimas", SchemaMigrations::rebuildWithScaledRate));
+        list.add(new Migration(14, "Trabajadoras que cobran sus abonos en efectivo", SchemaMigrations::addCashPayoutFlag));
+        MIGRATIONS = Collections.unmodifiableList(list);
+    }
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Versión de esquema que espera esta versión de la aplicación.
+     */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    /**
+     * Aplica las migraciones pendientes. Debe ejecutarse dentro de una transacción
+     * (Database.executeWrite) para que un fallo no deje el esquema a medias.
+     *
+     * @return Cantidad de migraciones aplicadas
+     */
+    static int migrate(Connection conn) throws SQLException {
+        int current = getUserVersion(conn);
+        int latest = latestVersion();
+        if (current > latest) {
+            throw new SQLException("La base de datos tiene un esquema más nuevo (" + current
+                    + ") que esta versión de la aplicación (" + latest + ")");
+        }
+
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            LOGGER.info("Aplicando migración " + migration.version() + ": " + migration.description());
+            migration.step().apply(conn);
+            applied++;
+        }
+
+        if (applied > 0) {
+            setUserVersion(conn, latest);
+            LOGGER.info("Esquema actualizado de la versión " + current + " a la " + latest);
+        } else {
+            LOGGER.fine("Esquema al día (versión " + current + ")");
+        }
+        return applied;
+    }
+
+    static int getUserVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void setUserVersion(Connection conn, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+
+    /**
+     * Agrega una columna solo si no existe, consultando table_info en lugar de
+     * provocar y descartar el error de ALTER TABLE.
+     */
+    static void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        if (columnExists(conn, table, column)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+        LOGGER.info("Columna '" + column + "' agregada a la tabla '" + table + "'.");
+    }
+
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM pragma_table_info(?) WHERE name = ?")) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // ===== MIGRACIONES =====
+
+    /**
+     * V1: tablas originales. Usa IF NOT EXISTS porque las bases previas al control
+     * de versiones ya las tienen (user_version = 0).
+     */
+    private static void createBaseSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS clients (\n"
+                    + "    client_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    cedula TEXT NOT NULL UNIQUE,\n"
+                    + "    full_name TEXT NOT NULL,\n"
+                    + "    address TEXT,\n"
+                    + "    phone TEXT,\n"
+                    + "    hair_type TEXT,\n"
+                    + "    birth_date TEXT,\n"
+                    + "    last_dye_date TEXT,\n"
+                    + "    last_chemical_date TEXT,\n"
+                    + "    last_keratin_date TEXT,\n"
+                    + "    extensions_type TEXT,\n"
+                    + "    last_extensions_maintenance_date TEXT\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS trabajadoras (\n"
+                    + "    id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    nombres TEXT NOT NULL,\n"
+                    + "    apellidos TEXT NOT NULL,\n"
+                    + "    tipo_ci TEXT,\n"
+                    + "    numero_ci TEXT UNIQUE,\n"
+                    + "    telefono TEXT,\n"
+                    + "    correo TEXT,\n"
+                    + "    foto BLOB\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS cuentas_bancarias (\n"
+                    + "    id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    trabajadora_id INTEGER NOT NULL,\n"
+                    + "    banco TEXT NOT NULL,\n"
+                    + "    tipo_cuenta TEXT NOT NULL,\n"
+                    + "    numero_cuenta TEXT NOT NULL UNIQUE,\n"
+                    + "    es_principal BOOLEAN NOT NULL,\n"
+                    + "    FOREIGN KEY (trabajadora_id) REFERENCES trabajadoras (id) ON DELETE CASCADE\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS services (\n"
+                    + "    service_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    name TEXT NOT NULL UNIQUE,\n"
+                    + "    price_corto REAL DEFAULT 0.0,\n"
+                    + "    price_medio REAL DEFAULT 0.0,\n"
+                    + "    price_largo REAL DEFAULT 0.0,\n"
+                    + "    price_ext REAL DEFAULT 0.0,\n"
+                    + "    permite_cliente_producto BOOLEAN DEFAULT 0,\n"
+                    + "    price_cliente_producto REAL DEFAULT 0.0,\n"
+                    + "    is_active BOOLEAN DEFAULT 1\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sales (\n"
+                    + "    sale_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    client_id INTEGER,\n"
+                    + "    sale_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n"
+                    + "    subtotal REAL NOT NULL,\n"
+                    + "    discount_type TEXT,\n"
+                    + "    discount_amount REAL,\n"
+                    + "    total REAL NOT NULL,\n"
+                    + "    FOREIGN KEY (client_id) REFERENCES clients (client_id)\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sale_payments (\n"
+                    + "    payment_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    sale_id INTEGER NOT NULL,\n"
+                    + "    monto REAL NOT NULL,\n"
+                    + "    moneda TEXT NOT NULL, \n" // '$' o 'Bs'
+                    + "    metodo_pago TEXT NOT NULL,\n"
+                    + "    destino_pago TEXT,\n"
+                    + "    referencia_pago TEXT,\n"
+                    + "    tasa_bcv_al_pago REAL DEFAULT 0.0,\n"
+                    + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id) ON DELETE CASCADE\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS sale_items (\n"
+                    + "    sale_item_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    sale_id INTEGER NOT NULL,\n"
+                    + "    service_id INTEGER NOT NULL,\n"
+                    + "    employee_id INTEGER NOT NULL,\n"
+                    + "    price_at_sale REAL NOT NULL,\n"
+                    + "    client_brought_product BOOLEAN DEFAULT 0,\n"
+                    + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id),\n"
+                    + "    FOREIGN KEY (service_id) REFERENCES services (service_id),\n"
+                    + "    FOREIGN KEY (employee_id) REFERENCES trabajadoras (id)\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS tips (\n"
+                    + "    tip_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    sale_id INTEGER,\n"
+                    + "    recipient_name TEXT NOT NULL,\n"
+                    + "    amount REAL NOT NULL,\n"
+                    + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id)\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS app_settings (\n"
+                    + "    setting_key TEXT PRIMARY KEY NOT NULL,\n"
+                    + "    setting_value TEXT NOT NULL\n"
+                    + ");");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS trabajadora_commission_rules (\n"
+                    + "    rule_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    trabajadora_id INTEGER NOT NULL,\n"
+                    + "    service_category TEXT NOT NULL,\n"
+                    + "    commission_rate REAL NOT NULL,\n"
+                    + "    UNIQUE(trabajadora_id, service_category),\n"
+                    + "    FOREIGN KEY (trabajadora_id) REFERENCES trabajadoras (id) ON DELETE CASCADE\n"
+                    + ");");
+
+            stmt.execute("INSERT OR IGNORE INTO app_settings (setting_key, setting_value) VALUES ('correlative', '1');");
+        }
+    }
+
+    /**
+     * V2: columnas que antes se agregaban con ALTER TABLE en cada arranque.
+     * Se comprueba su existencia porque las bases sin versión pueden tener solo algunas.
+     */
+    private static void addLegacyColumns(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "sales", "bcv_rate_at_sale", "REAL DEFAULT 0.0");
+        addColumnIfMissing(conn, "sales", "vat_amount", "REAL DEFAULT 0.0");
+        addColumnIfMissing(conn, "sales", "correlative_number", "TEXT");
+        addColumnIfMissing(conn, "services", "service_category", "TEXT");
+        addColumnIfMissing(conn, "services", "is_active", "BOOLEAN DEFAULT 1");
+        addColumnIfMissing(conn, "sale_items", "client_brought_product", "BOOLEAN DEFAULT 0");
+        addColumnIfMissing(conn, "clients", "balance", "REAL DEFAULT 0.0");
+
+        // Bonos fijos de trabajadoras
+        addColumnIfMissing(conn, "trabajadoras", "bono_activo", "BOOLEAN DEFAULT 0");
+        addColumnIfMissing(conn, "trabajadoras", "monto_bono", "REAL DEFAULT 0.0");
+        addColumnIfMissing(conn, "trabajadoras", "razon_bono", "TEXT");
+    }
+
+    /**
+     * V3: índices para los filtros por rango de fecha (ReportQueries) y para
+     * los detalles de cada venta, que antes se buscaban recorriendo la tabla completa.
+     */
+    private static void addSalesIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_sale_date ON sales (sale_date)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_sale_id ON sale_items (sale_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_payments_sale_id ON sale_payments (sale_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tips_sale_id ON tips (sale_id)");
+        }
+    }
+
+    /**
+     * V4: historial de tasas BCV consultadas. Se siembra con la tasa de la primera venta
+     * de cada día ya registrado, para que las ventas históricas encuentren su tasa localmente.
+     */
+    private static void createBcvRates(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS bcv_rates (\n"
+                    + "    rate_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    fetched_at TEXT NOT NULL,\n"
+                    + "    rate REAL NOT NULL,\n"
+                    + "    source TEXT NOT NULL\n"
+                    + ");");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_bcv_rates_fetched_at ON bcv_rates (fetched_at)");
+
+            // MIN() en SQLite devuelve las demás columnas de la misma fila
+            stmt.execute("INSERT INTO bcv_rates (fetched_at, rate, source) "
+                    + "SELECT MIN(sale_date), bcv_rate_at_sale, 'venta' FROM sales "
+                    + "WHERE bcv_rate_at_sale > 0 "
+                    + "GROUP BY substr(sale_date, 1, 10)");
+        }
+    }
+
+    /**
+     * V5: reglas de comisión priorizadas (excepciones por trabajadora, servicio o producto del cliente).
+     * Las columnas en NULL no filtran; gana la regla de menor prioridad que coincida.
+     * Las tasas por categoría de trabajadora_commission_rules quedan como último nivel.
+     */
+    private static void createCommissionRules(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS commission_rules (\n"
+                    + "    rule_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    priority INTEGER NOT NULL,\n"
+                    + "    trabajadora_id INTEGER,\n"
+                    + "    service_id INTEGER,\n"
+                    + "    service_category TEXT,\n"
+                    + "    client_brought_product BOOLEAN,\n"
+                    + "    price_equals REAL,\n"
+                    + "    rate_type TEXT NOT NULL CHECK (rate_type IN ('PORCENTAJE', 'FIJO')),\n"
+                    + "    amount REAL NOT NULL,\n"
+                    + "    source TEXT NOT NULL DEFAULT 'manual',\n"
+                    + "    description TEXT,\n"
+                    + "    FOREIGN KEY (trabajadora_id) REFERENCES trabajadoras (id) ON DELETE CASCADE,\n"
+                    + "    FOREIGN KEY (service_id) REFERENCES services (service_id)\n"
+                    + ");");
+        }
+    }
+
+    /**
+     * V6: totales de pagos y propinas de cada venta, que SaleDAO mantiene al guardar.
+     * El reporte financiero los lee con un join por clave en lugar de recalcularlos por ítem.
+     */
+    private static void createSaleSummary(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS sale_summary (\n"
+                    + "    sale_id INTEGER PRIMARY KEY,\n"
+                    + "    tips_usd REAL NOT NULL DEFAULT 0.0,\n"
+                    + "    paid_usd REAL NOT NULL DEFAULT 0.0,\n"
+                    + "    payments_detail TEXT,\n"
+                    + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id) ON DELETE CASCADE\n"
+                    + ");");
+        }
+        rebuildSaleSummaryV6(conn);
+    }
+
+    /**
+     * V7: cierre diario por día y bucket (ver DailyCloseDAO), calculado para todas las ventas existentes.
+     */
+    private static void createDailyClose(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS daily_close (\n"
+                    + "    close_date TEXT NOT NULL,\n"
+                    + "    bucket TEXT NOT NULL,\n"
+                    + "    amount REAL NOT NULL,\n"
+                    + "    amount_usd REAL,\n"
+                    + "    PRIMARY KEY (close_date, bucket)\n"
+                    + ");");
+        }
+        rebuildDailyClose(conn, DAILY_CLOSE_V7);
+    }
+
+    /**
+     * V8: libro de comisiones (ver CommissionLedger) y períodos de nómina cerrados.
+     * Las ventas existentes se asientan en Database.initialize(), después de la semilla,
+     * porque las comisiones dependen de las reglas ya confirmadas.
+     */
+    private static void createCommissionLedger(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS commission_ledger (\n"
+                    + "    entry_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    sale_id INTEGER NOT NULL,\n"
+                    + "    employee_id INTEGER NOT NULL,\n"
+                    + "    service_id INTEGER NOT NULL,\n"
+                    + "    posting_date TEXT NOT NULL,\n"
+                    + "    kind TEXT NOT NULL CHECK (kind IN ('COMISION', 'ABONO_BANCO', 'ABONO_EFECTIVO')),\n"
+                    + "    amount REAL NOT NULL,\n"
+                    + "    rule_source TEXT,\n"
+                    + "    rule_id INTEGER,\n"
+                    + "    reverses_entry_id INTEGER,\n"
+                    + "    posted_at TEXT NOT NULL,\n"
+                    + "    FOREIGN KEY (reverses_entry_id) REFERENCES commission_ledger (entry_id)\n"
+                    + ");");
+            // Cubre la suma de nómina: la consulta no necesita leer la tabla
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_commission_ledger_posting "
+                    + "ON commission_ledger (posting_date, employee_id, kind, amount)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_commission_ledger_sale_id ON commission_ledger (sale_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_commission_ledger_reverses "
+                    + "ON commission_ledger (reverses_entry_id) WHERE reverses_entry_id IS NOT NULL");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS payroll_periods (\n"
+                    + "    period_id INTEGER PRIMARY KEY AUTOINCREMENT,\n"
+                    + "    start_date TEXT NOT NULL,\n"
+                    + "    end_date TEXT NOT NULL,\n"
+                    + "    closed_at TEXT NOT NULL\n"
+                    + ");");
+        }
+    }
+
+    /**
+     * V9: miniatura de cada foto de trabajadora (ver TrabajadoraPhotoCache), generada para las ya guardadas.
+     */
+    private static void addPhotoThumbnails(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "trabajadoras", "foto_thumb", "BLOB");
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, foto FROM trabajadoras WHERE foto IS NOT NULL");
+             PreparedStatement update = conn.prepareStatement("UPDATE trabajadoras SET foto_thumb = ? WHERE id = ?")) {
+            while (rs.next()) {
+                byte[] thumbnail = thumbnailV9(rs.getBytes("foto"));
+                if (thumbnail != null) {
+                    update.setBytes(1, thumbnail);
+                    update.setInt(2, rs.getInt("id"));
+                    update.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * V10: índice para leer las cuentas de un grupo de trabajadoras en una consulta (TrabajadoraDAO).
+     */
+    private static void addCuentasIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_cuentas_bancarias_trabajadora_id ON cuentas_bancarias (trabajadora_id)");
+        }
+    }
+
+    /**
+     * V11: los montos de ventas, pagos, propinas y comisiones pasan de REAL a centavos en
+     * columnas INTEGER con sufijo _cents (ver Money), para que las sumas sean exactas.
+     * Las tasas siguen en REAL. sale_summary y daily_close se derivan de las ventas,
+     * así que se recrean con el nuevo formato y se recalculan.
+     */
+    private static void convertAmountsToCents(Connection conn) throws SQLException {
+        moveToCents(conn, "sales", "subtotal", "subtotal_cents");
+        moveToCents(conn, "sales", "discount_amount", "discount_cents");
+        moveToCents(conn, "sales", "vat_amount", "vat_cents");
+        moveToCents(conn, "sales", "total", "total_cents");
+        moveToCents(conn, "sale_items", "price_at_sale", "price_cents");
+        moveToCents(conn, "sale_payments", "monto", "monto_cents");
+        moveToCents(conn, "tips", "amount", "amount_cents");
+
+        try (Statement stmt = conn.createStatement()) {
+            // Una columna indexada no se puede borrar
+            stmt.execute("DROP INDEX IF EXISTS idx_commission_ledger_posting");
+        }
+        moveToCents(conn, "commission_ledger", "amount", "amount_cents");
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_commission_ledger_posting "
+                    + "ON commission_ledger (posting_date, employee_id, kind, amount_cents)");
+
+            stmt.execute("DROP TABLE IF EXISTS sale_summary");
+            stmt.execute("CREATE TABLE sale_summary (\n"
+                    + "    sale_id INTEGER PRIMARY KEY,\n"
+                    + "    tips_usd_cents INTEGER NOT NULL DEFAULT 0,\n"
+                    + "    paid_usd_cents INTEGER NOT NULL DEFAULT 0,\n"
+                    + "    payments_detail TEXT,\n"
+                    + "    FOREIGN KEY (sale_id) REFERENCES sales (sale_id) ON DELETE CASCADE\n"
+                    + ");");
+
+            // La fila TASA guarda la tasa del día en diezmilésimas (Money.RATE_SCALE)
+            stmt.execute("DROP TABLE IF EXISTS daily_close");
+            stmt.execute("CREATE TABLE daily_close (\n"
+                    + "    close_date TEXT NOT NULL,\n"
+                    + "    bucket TEXT NOT NULL,\n"
+                    + "    amount_cents INTEGER NOT NULL,\n"
+                    + "    amount_usd_cents INTEGER,\n"
+                    + "    PRIMARY KEY (close_date, bucket)\n"
+                    + ");");
+        }
+        rebuildSaleSummaryCents(conn, PAYMENT_USD_V11);
+        rebuildDailyClose(conn, dailyCloseCents(BS_TO_USD_V11));
+    }
+
+    /**
+     * V12: cada propina guarda el ID de la trabajadora (NULL si es para el salón), así la
+     * nómina la suma con un JOIN en lugar de comparar nombres. Las propinas existentes se
+     * vinculan por nombre normalizado (sin acentos, mayúsculas ni espacios de más); los
+     * nombres que no coinciden con ninguna trabajadora, o con más de una, quedan en NULL.
+     */
+    private static void linkTipRecipients(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "tips", "recipient_id", "INTEGER REFERENCES trabajadoras (id) ON DELETE SET NULL");
+
+        Map<String, Integer> byName = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, nombres, apellidos FROM trabajadoras");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String key = nameKey(rs.getString("nombres") + " " + rs.getString("apellidos"));
+                if (byName.putIfAbsent(key, rs.getInt("id")) != null) {
+                    ambiguous.add(key);
+                }
+            }
+        }
+        // Dos trabajadoras con el mismo nombre: no se puede saber de cuál es la propina
+        byName.keySet().removeAll(ambiguous);
+
+        int linked = 0;
+        try (PreparedStatement names = conn.prepareStatement(
+                     "SELECT DISTINCT recipient_name FROM tips WHERE recipient_id IS NULL");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE tips SET recipient_id = ? WHERE recipient_id IS NULL AND recipient_name = ?");
+             ResultSet rs = names.executeQuery()) {
+            while (rs.next()) {
+                String name = rs.getString("recipient_name");
+                Integer id = byName.get(nameKey(name));
+                if (id == null) {
+                    if (!"salon".equals(nameKey(name))) {
+                        LOGGER.warning("Propinas sin trabajadora que coincida con el nombre: " + name);
+                    }
+                    continue;
+                }
+                update.setInt(1, id);
+                update.setString(2, name);
+                linked += update.executeUpdate();
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tips_recipient_id ON tips (recipient_id)");
+        }
+        LOGGER.info("Propinas vinculadas a su trabajadora: " + linked);
+    }
+
+    /**
+     * V13: sale_summary y daily_close pasan los Bs a dólares con la tasa en diezmilésimas,
+     * como Money.toUsd, en lugar de dividir por la tasa REAL. Se recalculan completos.
+     */
+    private static void rebuildWithScaledRate(Connection conn) throws SQLException {
+        rebuildSaleSummaryCents(conn, PAYMENT_USD_V13);
+        rebuildDailyClose(conn, dailyCloseCents(BS_TO_USD_V13));
+    }
+
+    /**
+     * V14: cada trabajadora indica si cobra en efectivo sus abonos manuales, en lugar de
+     * reconocerla por su nombre completo. Se marcan las que la nómina pagaba así hasta ahora.
+     */
+    private static void addCashPayoutFlag(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "trabajadoras", "abonos_efectivo", "BOOLEAN NOT NULL DEFAULT 0");
+        try (Statement stmt = conn.createStatement()) {
+            int marked = stmt.executeUpdate("UPDATE trabajadoras SET abonos_efectivo = 1 "
+                    + "WHERE (nombres || ' ' || apellidos) IN ('Rosa Maria Gutierrez', 'Jeimy Añez', 'Milagros Gutierrez')");
+            LOGGER.info("Trabajadoras con abonos en efectivo: " + marked);
+        }
+    }
+
+    /**
+     * Nombre para comparar: sin acentos, en minúsculas y con un solo espacio entre palabras.
+     */
+    private static String nameKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Reemplaza una columna REAL en unidades por una INTEGER en centavos, redondeando al centavo.
+     */
+    private static void moveToCents(Connection conn, String table, String column, String centsColumn) throws SQLException {
+        addColumnIfMissing(conn, table, centsColumn, "INTEGER NOT NULL DEFAULT 0");
+        if (!columnExists(conn, table, column)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE " + table + " SET " + centsColumn
+                    + " = CAST(ROUND(COALESCE(" + column + ", 0) * 100) AS INTEGER)");
+            stmt.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+        }
+    }
+
+    // ===== COPIAS CONGELADAS =====
+    // SQL y ayudantes tal como los usaba cada migración al publicarse. No se actualizan
+    // cuando cambia el esquema o el código de los DAO: para eso se agrega otra migración.
+
+    /** V6: monto en dólares de un pago, con montos REAL. */
+    private static final String PAYMENT_USD_V6 = "(CASE WHEN sp.moneda = 'Bs' AND sp.tasa_bcv_al_pago > 0 "
+            + "THEN sp.monto / sp.tasa_bcv_al_pago ELSE sp.monto END)";
+
+    /** V6: sale_summary de todas las ventas, con montos REAL. */
+    private static final String SALE_SUMMARY_V6 = "INSERT OR REPLACE INTO sale_summary "
+            + "(sale_id, tips_usd, paid_usd, payments_detail) "
+            + "SELECT "
+            + "    s.sale_id, "
+            + "    (SELECT COALESCE(SUM(tip.amount), 0.0) FROM tips tip WHERE tip.sale_id = s.sale_id), "
+            + "    (SELECT COALESCE(SUM(" + PAYMENT_USD_V6 + "), 0.0) FROM sale_payments sp WHERE sp.sale_id = s.sale_id), "
+            + "    ( "
+            + "        SELECT GROUP_CONCAT( "
+            + "            sp.metodo_pago || ' (' || "
+            + "            printf('%.2f', sp.monto) || ' ' || sp.moneda || "
+            + "            CASE "
+            + "                WHEN sp.moneda = 'Bs' THEN ' / @' || printf('%.2f', sp.tasa_bcv_al_pago) "
+            + "                ELSE '' "
+            + "            END || ' = $' || printf('%.2f', " + PAYMENT_USD_V6 + ") || "
+            + "            COALESCE(' / Ref: ' || sp.referencia_pago, '') || "
+            + "            COALESCE(' / Dest: ' || sp.destino_pago, '') || "
+            + "            ')', "
+            + "            ' | ' "
+            + "        ) "
+            + "        FROM sale_payments sp "
+            + "        WHERE sp.sale_id = s.sale_id "
+            + "    ) "
+            + "FROM sales s ";
+
+    /** V7: daily_close de un rango de fechas, con montos REAL. Parámetros: rango (2). */
+    private static final String DAILY_CLOSE_V7 = "INSERT INTO daily_close (close_date, bucket, amount, amount_usd) "
+            + "WITH day_sales AS ( "
+            + "    SELECT s.sale_id, substr(s.sale_date, 1, 10) AS close_date, s.sale_date, s.total, "
+            + "        s.discount_type, s.bcv_rate_at_sale "
+            + "    FROM sales s "
+            + "    WHERE s.sale_date >= ? AND s.sale_date < ? "
+            + "), "
+            + "day_rates AS ( "
+            + "    SELECT close_date, bcv_rate_at_sale AS rate, MIN(sale_date) "
+            + "    FROM day_sales GROUP BY close_date "
+            + "), "
+            + "movements AS ( "
+            + "    SELECT ds.close_date, "
+            + "        CASE "
+            + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Efectivo $' THEN 'EFECTIVO_USD' "
+            + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Transferencia' THEN 'TRANSFERENCIA_USD' "
+            + "            WHEN p.moneda = 'Bs' AND p.metodo_pago = 'Pago Movil' AND p.destino_pago = 'Rosa' THEN 'BS_ROSA' "
+            + "            WHEN p.moneda = 'Bs' THEN 'BS_CAPELLI' "
+            + "        END AS bucket, "
+            + "        p.monto AS amount "
+            + "    FROM day_sales ds "
+            + "    JOIN sale_payments p ON p.sale_id = ds.sale_id "
+            + "    WHERE ds.discount_type != 'Cuenta por Cobrar' "
+            + "    UNION ALL "
+            + "    SELECT close_date, 'POR_COBRAR', total FROM day_sales "
+            + "    WHERE discount_type = 'Cuenta por Cobrar' "
+            + ") "
+            + "SELECT movements.close_date, bucket, SUM(amount), "
+            + "    CASE "
+            + "        WHEN bucket NOT IN ('BS_CAPELLI', 'BS_ROSA') THEN SUM(amount) "
+            + "        WHEN rate > 0 THEN SUM(amount) / rate "
+            + "    END "
+            + "FROM movements "
+            + "JOIN day_rates ON day_rates.close_date = movements.close_date "
+            + "WHERE bucket IS NOT NULL "
+            + "GROUP BY movements.close_date, bucket "
+            + "UNION ALL "
+            + "SELECT close_date, 'TASA', rate, NULL FROM day_rates";
+
+    /** V11: centavos de dólar de un pago, dividiendo por la tasa REAL. */
+    private static final String PAYMENT_USD_V11 = "(CASE WHEN sp.moneda = 'Bs' AND sp.tasa_bcv_al_pago > 0 "
+            + "THEN CAST(ROUND(sp.monto_cents / sp.tasa_bcv_al_pago) AS INTEGER) ELSE sp.monto_cents END)";
+
+    /** V11: centavos de dólar de los pagos en Bs de un día, dividiendo por la tasa REAL. */
+    private static final String BS_TO_USD_V11 = "CAST(ROUND(SUM(amount) / rate) AS INTEGER)";
+
+    /** V13: centavos de dólar de un pago, dividiendo por la tasa en diezmilésimas. */
+    private static final String PAYMENT_USD_V13 = "(CASE WHEN sp.moneda = 'Bs' AND sp.tasa_bcv_al_pago > 0 "
+            + "THEN CAST(ROUND(sp.monto_cents * 10000.0 / CAST(ROUND(sp.tasa_bcv_al_pago * 10000) AS INTEGER)) AS INTEGER) "
+            + "ELSE sp.monto_cents END)";
+
+    /** V13: centavos de dólar de los pagos en Bs de un día, dividiendo por la tasa en diezmilésimas. */
+    private static final String BS_TO_USD_V13 = "CAST(ROUND(SUM(amount) * 10000.0 / CAST(ROUND(rate * 10000) AS INTEGER)) AS INTEGER)";
+
+    private static void rebuildSaleSummaryV6(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM sale_summary");
+            int rows = stmt.executeUpdate(SALE_SUMMARY_V6);
+            LOGGER.info("Resumen de pagos y propinas calculado para " + rows + " ventas");
+        }
+    }
+
+    /**
+     * sale_summary en centavos (desde V11).
+     *
+     * @param paymentUsd Expresión con los centavos de dólar de un pago (alias sp)
+     */
+    private static void rebuildSaleSummaryCents(Connection conn, String paymentUsd) throws SQLException {
+        String sql = "INSERT OR REPLACE INTO sale_summary "
+                + "(sale_id, tips_usd_cents, paid_usd_cents, payments_detail) "
+                + "SELECT "
+                + "    s.sale_id, "
+                + "    (SELECT COALESCE(SUM(tip.amount_cents), 0) FROM tips tip WHERE tip.sale_id = s.sale_id), "
+                + "    (SELECT COALESCE(SUM(" + paymentUsd + "), 0) FROM sale_payments sp WHERE sp.sale_id = s.sale_id), "
+                + "    ( "
+                + "        SELECT GROUP_CONCAT( "
+                + "            sp.metodo_pago || ' (' || "
+                + "            printf('%.2f', sp.monto_cents / 100.0) || ' ' || sp.moneda || "
+                + "            CASE "
+                + "                WHEN sp.moneda = 'Bs' THEN ' / @' || printf('%.2f', sp.tasa_bcv_al_pago) "
+                + "                ELSE '' "
+                + "            END || ' = $' || printf('%.2f', " + paymentUsd + " / 100.0) || "
+                + "            COALESCE(' / Ref: ' || sp.referencia_pago, '') || "
+                + "            COALESCE(' / Dest: ' || sp.destino_pago, '') || "
+                + "            ')', "
+                + "            ' | ' "
+                + "        ) "
+                + "        FROM sale_payments sp "
+                + "        WHERE sp.sale_id = s.sale_id "
+                + "    ) "
+                + "FROM sales s ";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM sale_summary");
+            int rows = stmt.executeUpdate(sql);
+            LOGGER.info("Resumen de pagos y propinas calculado para " + rows + " ventas");
+        }
+    }
+
+    /**
+     * daily_close en centavos (desde V11), con la tasa del día en diezmilésimas en la fila TASA.
+     * Parámetros: rango (2).
+     *
+     * @param bsToUsd Expresión con los centavos de dólar de SUM(amount) en Bs a la tasa {@code rate}
+     */
+    private static String dailyCloseCents(String bsToUsd) {
+        return "INSERT INTO daily_close (close_date, bucket, amount_cents, amount_usd_cents) "
+                + "WITH day_sales AS ( "
+                + "    SELECT s.sale_id, substr(s.sale_date, 1, 10) AS close_date, s.sale_date, s.total_cents, "
+                + "        s.discount_type, s.bcv_rate_at_sale "
+                + "    FROM sales s "
+                + "    WHERE s.sale_date >= ? AND s.sale_date < ? "
+                + "), "
+                + "day_rates AS ( "
+                + "    SELECT close_date, bcv_rate_at_sale AS rate, MIN(sale_date) "
+                + "    FROM day_sales GROUP BY close_date "
+                + "), "
+                + "movements AS ( "
+                + "    SELECT ds.close_date, "
+                + "        CASE "
+                + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Efectivo $' THEN 'EFECTIVO_USD' "
+                + "            WHEN p.moneda = '$' AND p.metodo_pago = 'Transferencia' THEN 'TRANSFERENCIA_USD' "
+                + "            WHEN p.moneda = 'Bs' AND p.metodo_pago = 'Pago Movil' AND p.destino_pago = 'Rosa' THEN 'BS_ROSA' "
+                + "            WHEN p.moneda = 'Bs' THEN 'BS_CAPELLI' "
+                + "        END AS bucket, "
+                + "        p.monto_cents AS amount "
+                + "    FROM day_sales ds "
+                + "    JOIN sale_payments p ON p.sale_id = ds.sale_id "
+                + "    WHERE ds.discount_type != 'Cuenta por Cobrar' "
+                + "    UNION ALL "
+                + "    SELECT close_date, 'POR_COBRAR', total_cents FROM day_sales "
+                + "    WHERE discount_type = 'Cuenta por Cobrar' "
+                + ") "
+                + "SELECT movements.close_date, bucket, SUM(amount), "
+                + "    CASE "
+                + "        WHEN bucket NOT IN ('BS_CAPELLI', 'BS_ROSA') THEN SUM(amount) "
+                + "        WHEN rate > 0 THEN " + bsToUsd + " "
+                + "    END "
+                + "FROM movements "
+                + "JOIN day_rates ON day_rates.close_date = movements.close_date "
+                + "WHERE bucket IS NOT NULL "
+                + "GROUP BY movements.close_date, bucket "
+                + "UNION ALL "
+                + "SELECT close_date, 'TASA', CAST(ROUND(rate * 10000) AS INTEGER), NULL FROM day_rates";
+    }
+
+    /**
+     * Recalcula daily_close completo con la consulta de la versión que lo pide.
+     */
+    private static void rebuildDailyClose(Connection conn, String insertSql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM daily_close");
+        }
+        try (PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            insert.setString(1, "1970-01-01");
+            insert.setString(2, "9999-12-31");
+            int rows = insert.executeUpdate();
+            LOGGER.info("Cierre diario reconstruido: " + rows + " filas");
+        }
+    }
+
+    /**
+     * V9: miniatura en PNG de 40 × 40 de una foto guardada, o null si no se puede decodificar.
+     */
+    private static byte[] thumbnailV9(byte[] original) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+            if (image == null) {
+                return null;
+            }
+            BufferedImage thumbnail = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = thumbnail.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.drawImage(image, 0, 0, 40, 40, null);
+            g2d.dispose();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageIO.write(thumbnail, "png", baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo generar la miniatura de una foto", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.capelli.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Datos iniciales del salón: catálogo de servicios, trabajadoras, cuentas y reglas de comisión.
+ * Se aplican solo cuando cambia su checksum (guardado en app_settings), no en cada arranque.
+ * Cualquier modificación de estas listas cambia el checksum y se vuelve a aplicar al iniciar.
+ */
+public final class SeedData {
+
+    private static final Logger LOGGER = Logger.getLogger(SeedData.class.getName());
+
+    public static final String KEY_SEED_CHECKSUM = "seed_checksum";
+
+    record ServiceSeed(String name, double pCorto, double pMedio, double pLargo, double pExt,
+                       boolean permiteCliente, double pCliente, String category) {}
+
+    /** @param abonosEfectivo Si cobra en efectivo sus abonos manuales; solo se usa al crearla */
+    record TrabajadoraSeed(String nombres, String apellidos, String tipoCi, String numeroCi, String telefono,
+                           boolean abonosEfectivo) {}
+
+    record CuentaSeed(String trabajadoraCi, String banco, String tipoCuenta, String numeroCuenta, boolean esPrincipal) {}
+
+    record CommissionSeed(String trabajadoraCi, String serviceCategory, double commissionRate) {}
+
+    /** Regla de commission_rules. Los campos null no filtran. */
+    record PriorityCommissionSeed(int priority, String trabajadoraCi, String serviceName, String serviceCategory,
+                                  Boolean clientBroughtProduct, Double priceEquals, String rateType, double amount,
+                                  String description) {}
+
+    static final List<ServiceSeed> SERVICES = List.of(
+        new ServiceSeed("Lavado", 10.0, 0.0, 0.0, 0.0, true, 8.0, "Lavado"),
+        new ServiceSeed("Secado", 10.0, 12.0, 15.0, 20.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Ondas", 15.0, 20.0, 35.0, 40.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Corte Puntas", 20.0, 0.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Corte Elaborado", 25.0, 0.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Maquillaje", 60.0, 70.0, 80.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Peinados", 40.0, 50.0, 60.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Color (Tinte)", 40.0, 50.0, 0.0, 0.0, true, 25.0, "Quimico"),
+        new ServiceSeed("Mechas", 80.0, 100.0, 120.0, 150.0, false, 0.0, "Quimico"),
+        new ServiceSeed("Cejas", 5.0, 8.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Bozo", 5.0, 8.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Manicure Tradicional", 12.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Pedicure Tradicional", 12.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Keratina", 60.0, 120.0, 0.0, 0.0, false, 0.0, "Quimico"),
+        new ServiceSeed("Hidratación solo", 15.0, 20.0, 25.0, 0.0, false, 0.0, "Quimico"),
+        new ServiceSeed("Hidratación Fusio-Dose", 35.0, 0.0, 0.0, 0.0, false, 0.0, "Quimico"),
+        new ServiceSeed("Secado con extensiones", 25.0, 30.0, 45.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Planchado", 15.0, 20.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Pestañas", 10.0, 0.0, 0.0, 0.0, false, 0.0, "Peluqueria"),
+        new ServiceSeed("Manicure Gelish", 15.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Manicure Rubber", 18.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Manicure Polygel", 20.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Pedicure Gelish", 15.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Hidratación M/P", 15.0, 0.0, 0.0, 0.0, false, 0.0, "Manos/Pies"),
+        new ServiceSeed("Extensiones (Medio Paquete)", 60.0, 0.0, 0.0, 0.0, false, 0.0, "Extensiones"),
+        new ServiceSeed("Extensiones (1 Paquete)", 120.0, 0.0, 0.0, 0.0, false, 0.0, "Extensiones"),
+        new ServiceSeed("Extensiones (2 Paquetes)", 140.0, 0.0, 0.0, 0.0, false, 0.0, "Extensiones"),
+        new ServiceSeed("Extensiones (3 Paquetes)", 160.0, 0.0, 0.0, 0.0, false, 0.0, "Extensiones"),
+        new ServiceSeed("Extensiones (4 Paquetes)", 180.0, 0.0, 0.0, 0.0, false, 0.0, "Extensiones"),
+        new ServiceSeed("Productos", 35.0, 0.0, 0.0, 0.0, false, 0.0, "Otros"),
+        new ServiceSeed("Abono Manual Staff", 0.0, 0.0, 0.0, 0.0, false, 0.0, "PAGO-MANUAL")
+    );
+
+    /** Servicios retirados del catálogo: se desactivan, no se borran (tienen ventas históricas). */
+    static final List<String> OBSOLETE_SERVICES = List.of(
+        "Hidratación + Secado", "Aplicación de Tinte", "Mantenimiento", "Extensiones"
+    );
+
+    static final List<TrabajadoraSeed> TRABAJADORAS = List.of(
+        new TrabajadoraSeed("Dayana", "Govea", "V", "18522231", "04127915851", false),
+        new TrabajadoraSeed("Maria Virginia", "Romero", "V", "31085005", "04143604499", false),
+        new TrabajadoraSeed("Pascualina", "Gutierrez", "V", "5562378", "04146638330", false),
+        new TrabajadoraSeed("Aurora Sofia", "Exposito", "V", "27683374", "04242092890", false),
+        new TrabajadoraSeed("Jeimy", "Añez", "V", "18921264", "04246695087", true),
+        new TrabajadoraSeed("Belkis", "Gutierrez", "V", "9395233", "04146126300", false),
+        new TrabajadoraSeed("Milagros", "Gutierrez", "V", "24342800", "04246194365", true),
+        new TrabajadoraSeed("Maria", "Diaz", "V", "7774946", "04246464683", false),
+        new TrabajadoraSeed("Rosa Maria", "Gutierrez", "V", "9200133", "04246889337", true),
+        new TrabajadoraSeed("Jaqueline", "Añez", "V", "24734839", "04246703185", false)
+    );
+
+    static final List<CuentaSeed> CUENTAS = List.of(
+        new CuentaSeed("18522231", "Banco Provincial", "Corriente", "01080511200100296908", true),
+        new CuentaSeed("31085005", "Banesco", "Corriente", "01340039330391056651", true),
+        new CuentaSeed("5562378", "Banco Provincial", "Ahorro", "01080086240200360744", true),
+        new CuentaSeed("27683374", "Banesco", "Corriente", "01340039330391055077", true),
+        new CuentaSeed("18921264", "Banco Provincial", "Corriente", "01080059550100393036", true),
+        new CuentaSeed("9395233", "Banco Provincial", "Corriente", "01080086260100175613", true),
+        new CuentaSeed("24342800", "Banco Provincial", "Ahorro", "01080302190200068019", true),
+        new CuentaSeed("9200133", "Banesco", "Corriente", "01340946380001307454", true),
+        new CuentaSeed("9200133", "Banco Nacional de Crédito (BNC)", "Corriente", "01160148150014749505", false),
+        new CuentaSeed("9200133", "Bancamiga", "Corriente", "01720112381125322600", false),
+        new CuentaSeed("9200133", "Banesco", "Corriente", "01340077650773172568", false),
+        new CuentaSeed("24734839", "Banco Provincial", "Corriente", "01080059500100533199", true)
+    );
+
+    // --- Reglas de Comisión Priorizadas (excepciones; menor prioridad se evalúa primero) ---
+    static final List<PriorityCommissionSeed> PRIORITY_COMMISSION_RULES = List.of(
+        // Maria Virginia: depilación al 50% (antes que las reglas del grupo)
+        percent(10, "31085005", "Cejas", 0.50, "Maria Virginia: depilación"),
+        percent(10, "31085005", "Bozo", 0.50, "Maria Virginia: depilación"),
+        // Grupo Jaqueline, Dayana y Maria Virginia
+        new PriorityCommissionSeed(20, "24734839", null, "Lavado", null, 8.0, "FIJO", 3.0, "Jaqueline: lavado de $8"),
+        new PriorityCommissionSeed(21, "24734839", null, "Lavado", null, null, "PORCENTAJE", 0.40, "Jaqueline: lavado"),
+        fixed(22, "24734839", "Hidratación Fusio-Dose", 8.0, "Jaqueline: Hidratación Fusio-Dose"),
+        fixed(22, "24734839", "Extensiones (1 Paquete)", 10.0, "Jaqueline: Extensiones (1 Paquete)"),
+        fixed(22, "24734839", "Extensiones (2 Paquetes)", 20.0, "Jaqueline: Extensiones (2 Paquetes)"),
+        fixed(22, "24734839", "Extensiones (3 Paquetes)", 15.0, "Jaqueline: Extensiones (3 Paquetes)"),
+        new PriorityCommissionSeed(20, "18522231", null, "Lavado", null, 8.0, "FIJO", 3.0, "Dayana: lavado de $8"),
+        new PriorityCommissionSeed(21, "18522231", null, "Lavado", null, null, "PORCENTAJE", 0.40, "Dayana: lavado"),
+        fixed(22, "18522231", "Hidratación Fusio-Dose", 8.0, "Dayana: Hidratación Fusio-Dose"),
+        fixed(22, "18522231", "Extensiones (1 Paquete)", 10.0, "Dayana: Extensiones (1 Paquete)"),
+        fixed(22, "18522231", "Extensiones (2 Paquetes)", 20.0, "Dayana: Extensiones (2 Paquetes)"),
+        fixed(22, "18522231", "Extensiones (3 Paquetes)", 15.0, "Dayana: Extensiones (3 Paquetes)"),
+        new PriorityCommissionSeed(20, "31085005", null, "Lavado", null, 8.0, "FIJO", 3.0, "Maria Virginia: lavado de $8"),
+        new PriorityCommissionSeed(21, "31085005", null, "Lavado", null, null, "PORCENTAJE", 0.40, "Maria Virginia: lavado"),
+        fixed(22, "31085005", "Hidratación Fusio-Dose", 8.0, "Maria Virginia: Hidratación Fusio-Dose"),
+        fixed(22, "31085005", "Extensiones (1 Paquete)", 10.0, "Maria Virginia: Extensiones (1 Paquete)"),
+        fixed(22, "31085005", "Extensiones (2 Paquetes)", 20.0, "Maria Virginia: Extensiones (2 Paquetes)"),
+        fixed(22, "31085005", "Extensiones (3 Paquetes)", 15.0, "Maria Virginia: Extensiones (3 Paquetes)"),
+        // Belkis
+        percent(10, "9395233", "Mechas", 0.36, "Belkis: Mechas"),
+        percent(10, "9395233", "Keratina", 0.70, "Belkis: Keratina"),
+        percent(10, "9395233", "Cejas", 0.50, "Belkis: Cejas"),
+        percent(10, "9395233", "Bozo", 0.50, "Belkis: Bozo"),
+        // Aurora Sofia
+        percent(10, "27683374", "Cejas", 0.50, "Aurora Sofia: depilación"),
+        percent(10, "27683374", "Bozo", 0.50, "Aurora Sofia: depilación"),
+        // Jeimy
+        percent(10, "18921264", "Mechas", 0.36, "Jeimy: Mechas"),
+        fixed(10, "18921264", "Extensiones (1 Paquete)", 20.0, "Jeimy: Extensiones (1 Paquete)"),
+        fixed(10, "18921264", "Extensiones (2 Paquetes)", 30.0, "Jeimy: Extensiones (2 Paquetes)"),
+        fixed(10, "18921264", "Extensiones (3 Paquetes)", 40.0, "Jeimy: Extensiones (3 Paquetes)"),
+        fixed(10, "18921264", "Extensiones (4 Paquetes)", 40.0, "Jeimy: Extensiones (4 Paquetes)"),
+        // Tinte para todas: monto fijo si la clienta trajo el producto, si no 25%
+        new PriorityCommissionSeed(50, null, "Color (Tinte)", null, true, null, "FIJO", 12.5, "Tinte con producto de la clienta"),
+        percent(51, null, "Color (Tinte)", 0.25, "Tinte")
+    );
+
+    // --- Reglas de Comisión Base (por categoría) ---
+    static final List<CommissionSeed> COMMISSION_RULES = List.of(
+        new CommissionSeed("7774946", "Manos/Pies", 0.70),
+        new CommissionSeed("24734839", "Peluqueria", 0.50),
+        new CommissionSeed("24734839", "Quimico", 0.40),
+        new CommissionSeed("18522231", "Peluqueria", 0.50),
+        new CommissionSeed("18522231", "Quimico", 0.40),
+        new CommissionSeed("31085005", "Peluqueria", 0.50),
+        new CommissionSeed("31085005", "Quimico", 0.40),
+        new CommissionSeed("9395233", "Peluqueria", 0.65),
+        new CommissionSeed("9395233", "Quimico", 0.50),
+        new CommissionSeed("27683374", "Peluqueria", 0.60),
+        new CommissionSeed("27683374", "Quimico", 0.50),
+        new CommissionSeed("18921264", "Peluqueria", 0.60),
+        new CommissionSeed("18921264", "Quimico", 0.50),
+        new CommissionSeed("5562378", "Peluqueria", 0.60),
+        new CommissionSeed("5562378", "Quimico", 0.50),
+        new CommissionSeed("24342800", "Peluqueria", 0.60),
+        new CommissionSeed("24342800", "Quimico", 0.50)
+    );
+
+    private SeedData() {
+    }
+
+    private static PriorityCommissionSeed percent(int priority, String ci, String serviceName, double rate, String description) {
+        return new PriorityCommissionSeed(priority, ci, serviceName, null, null, null, "PORCENTAJE", rate, description);
+    }
+
+    private static PriorityCommissionSeed fixed(int priority, String ci, String serviceName, double amount, String description) {
+        return new PriorityCommissionSeed(priority, ci, serviceName, null, null, null, "FIJO", amount, description);
+    }
+
+    /**
+     * Checksum SHA-256 de todos los datos iniciales.
+     */
+    public static String checksum() {
+        StringBuilder canonical = new StringBuilder();
+        SERVICES.forEach(s -> canonical.append(s).append('\n'));
+        OBSOLETE_SERVICES.forEach(s -> canonical.append("obsolete:").append(s).append('\n'));
+        TRABAJADORAS.forEach(t -> canonical.append(t).append('\n'));
+        CUENTAS.forEach(c -> canonical.append(c).append('\n'));
+        COMMISSION_RULES.forEach(r -> canonical.append(r).append('\n'));
+        PRIORITY_COMMISSION_RULES.forEach(r -> canonical.append(r).append('\n'));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Aplica los datos iniciales si su checksum difiere del guardado.
+     * Debe ejecutarse dentro de la transacción del escritor.
+     *
+     * @return true si se aplicaron
+     */
+    static boolean applyIfChanged(Connection conn) throws SQLException {
+        String expected = checksum();
+        if (expected.equals(getStoredChecksum(conn))) {
+            LOGGER.fine("Datos iniciales al día, se omite el seed.");
+            return false;
+        }
+
+        LOGGER.info("Agregando/Actualizando lista de servicios...");
+        for (ServiceSeed s : SERVICES) {
+            addOrUpdateService(conn, s);
+        }
+        deactivateObsoleteServices(conn);
+        LOGGER.info("Lista de servicios actualizada.");
+
+        LOGGER.info("Agregando/Actualizando lista de trabajadoras y cuentas...");
+        for (TrabajadoraSeed t : TRABAJADORAS) {
+            addOrUpdateTrabajadora(conn, t);
+        }
+        for (CuentaSeed c : CUENTAS) {
+            addOrUpdateCuenta(conn, c);
+        }
+        LOGGER.info("Lista de trabajadoras y cuentas actualizada.");
+
+        LOGGER.info("Agregando/Actualizando reglas de comisión...");
+        for (CommissionSeed r : COMMISSION_RULES) {
+            addOrUpdateCommissionRule(conn, r);
+        }
+        upsertPriorityCommissionRules(conn);
+        LOGGER.info("Reglas de comisión actualizadas.");
+
+        storeChecksum(conn, expected);
+        return true;
+    }
+
+    private static String getStoredChecksum(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT setting_value FROM app_settings WHERE setting_key = ?")) {
+            pstmt.setString(1, KEY_SEED_CHECKSUM);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static void storeChecksum(Connection conn, String checksum) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT OR REPLACE INTO app_settings (setting_key, setting_value) VALUES (?, ?)")) {
+            pstmt.setString(1, KEY_SEED_CHECKSUM);
+            pstmt.setString(2, checksum);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta o actualiza un servicio en la base de datos.
+     */
+    private static void addOrUpdateService(Connection conn, ServiceSeed s) throws SQLException {
+        String sql = "INSERT INTO services (name, price_corto, price_medio, price_largo, price_ext, permite_cliente_producto, price_cliente_producto, service_category, is_active) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1) " +
+                     "ON CONFLICT(name) DO UPDATE SET " +
+                     "  price_corto = excluded.price_corto, " +
+                     "  price_medio = excluded.price_medio, " +
+                     "  price_largo = excluded.price_largo, " +
+                     "  price_ext = excluded.price_ext, " +
+                     "  permite_cliente_producto = excluded.permite_cliente_producto, " +
+                     "  price_cliente_producto = excluded.price_cliente_producto, " +
+                     "  service_category = excluded.service_category, " +
+                     "  is_active = 1";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, s.name());
+            pstmt.setDouble(2, s.pCorto());
+            pstmt.setDouble(3, s.pMedio());
+            pstmt.setDouble(4, s.pLargo());
+            pstmt.setDouble(5, s.pExt());
+            pstmt.setBoolean(6, s.permiteCliente());
+            pstmt.setDouble(7, s.pCliente());
+            pstmt.setString(8, s.category());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void deactivateObsoleteServices(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE services SET is_active = 0 WHERE name = ?")) {
+            for (String name : OBSOLETE_SERVICES) {
+                pstmt.setString(1, name);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        LOGGER.info("Servicios obsoletos desactivados (is_active = 0).");
+    }
+
+    /**
+     * Inserta o actualiza una trabajadora. Los abonos en efectivo solo se siembran al crearla:
+     * después se cambian desde su ficha y el seed no los pisa.
+     */
+    private static void addOrUpdateTrabajadora(Connection conn, TrabajadoraSeed t) throws SQLException {
+        String sql = "INSERT INTO trabajadoras (nombres, apellidos, tipo_ci, numero_ci, telefono, correo, foto, abonos_efectivo) " +
+                     "VALUES (?, ?, ?, ?, ?, NULL, NULL, ?) " +
+                     "ON CONFLICT(numero_ci) DO UPDATE SET " +
+                     "  nombres = excluded.nombres, " +
+                     "  apellidos = excluded.apellidos, " +
+                     "  tipo_ci = excluded.tipo_ci, " +
+                     "  telefono = excluded.telefono";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, t.nombres());
+            pstmt.setString(2, t.apellidos());
+            pstmt.setString(3, t.tipoCi());
+            pstmt.setString(4, t.numeroCi());
+            pstmt.setString(5, t.telefono());
+            pstmt.setBoolean(6, t.abonosEfectivo());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int findTrabajadoraIdByCi(Connection conn, String ci) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM trabajadoras WHERE numero_ci = ?")) {
+            pstmt.setString(1, ci);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("id") : -1;
+            }
+        }
+    }
+
+    /**
+     * Inserta o actualiza una cuenta bancaria.
+     */
+    private static void addOrUpdateCuenta(Connection conn, CuentaSeed c) throws SQLException {
+        int trabajadoraId = findTrabajadoraIdByCi(conn, c.trabajadoraCi());
+        if (trabajadoraId == -1) {
+            LOGGER.warning("No se encontró trabajadora con CI: " + c.trabajadoraCi() + " para agregar cuenta. Saltando...");
+            return;
+        }
+
+        String sql = "INSERT INTO cuentas_bancarias (trabajadora_id, banco, tipo_cuenta, numero_cuenta, es_principal) " +
+                     "VALUES (?, ?, ?, ?, ?) " +
+                     "ON CONFLICT(numero_cuenta) DO UPDATE SET " +
+                     "  trabajadora_id = excluded.trabajadora_id, " +
+                     "  banco = excluded.banco, " +
+                     "  tipo_cuenta = excluded.tipo_cuenta, " +
+                     "  es_principal = excluded.es_principal";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, trabajadoraId);
+            pstmt.setString(2, c.banco());
+            pstmt.setString(3, c.tipoCuenta());
+            pstmt.setString(4, c.numeroCuenta());
+            pstmt.setBoolean(5, c.esPrincipal());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta o actualiza una regla de comisión.
+     */
+    private static void addOrUpdateCommissionRule(Connection conn, CommissionSeed r) throws SQLException {
+        int trabajadoraId = findTrabajadoraIdByCi(conn, r.trabajadoraCi());
+        if (trabajadoraId == -1) {
+            LOGGER.warning("No se encontró trabajadora con CI: " + r.trabajadoraCi() + " para agregar regla de comisión. Saltando...");
+            return;
+        }
+
+        String sql = "INSERT INTO trabajadora_commission_rules (trabajadora_id, service_category, commission_rate) " +
+                     "VALUES (?, ?, ?) " +
+                     "ON CONFLICT(trabajadora_id, service_category) DO UPDATE SET " +
+                     "  commission_rate = excluded.commission_rate";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, trabajadoraId);
+            pstmt.setString(2, r.serviceCategory());
+            pstmt.setDouble(3, r.commissionRate());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Sincroniza las reglas priorizadas sembradas (source = 'seed'); las creadas a mano no se tocan.
+     * Una regla sembrada que ya existe con la misma prioridad y condiciones se actualiza y conserva
+     * su rule_id, así el libro de comisiones no ve un cambio de regla donde no lo hay; las que ya
+     * no están en el seed se borran.
+     * Una regla cuya trabajadora o servicio no existe se omite: insertarla con NULL la aplicaría a todos.
+     */
+    private static void upsertPriorityCommissionRules(Connection conn) throws SQLException {
+        Map<List<Object>, Deque<Integer>> existing = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT rule_id, priority, trabajadora_id, service_id, " +
+                     "service_category, client_brought_product, price_equals FROM commission_rules " +
+                     "WHERE source = 'seed' ORDER BY rule_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                List<Object> key = ruleKey(rs.getInt("priority"),
+                        rs.getObject("trabajadora_id") == null ? null : rs.getInt("trabajadora_id"),
+                        rs.getObject("service_id") == null ? null : rs.getInt("service_id"),
+                        rs.getString("service_category"),
+                        rs.getObject("client_brought_product") == null ? null : rs.getBoolean("client_brought_product"),
+                        rs.getObject("price_equals") == null ? null : rs.getDouble("price_equals"));
+                existing.computeIfAbsent(key, k -> new ArrayDeque<>()).add(rs.getInt("rule_id"));
+            }
+        }
+
+        String insertSql = "INSERT INTO commission_rules (priority, trabajadora_id, service_id, service_category, " +
+                     "client_brought_product, price_equals, rate_type, amount, source, description) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'seed', ?)";
+        String updateSql = "UPDATE commission_rules SET rate_type = ?, amount = ?, description = ? WHERE rule_id = ?";
+
+        int inserted = 0;
+        int updated = 0;
+        try (PreparedStatement insert = conn.prepareStatement(insertSql);
+             PreparedStatement update = conn.prepareStatement(updateSql)) {
+            for (PriorityCommissionSeed r : PRIORITY_COMMISSION_RULES) {
+                Integer trabajadoraId = null;
+                if (r.trabajadoraCi() != null) {
+                    int id = findTrabajadoraIdByCi(conn, r.trabajadoraCi());
+                    if (id == -1) {
+                        LOGGER.warning("No se encontró trabajadora con CI: " + r.trabajadoraCi() + " para la regla '" + r.description() + "'. Saltando...");
+                        continue;
+                    }
+                    trabajadoraId = id;
+                }
+                Integer serviceId = null;
+                if (r.serviceName() != null) {
+                    int id = findServiceIdByName(conn, r.serviceName());
+                    if (id == -1) {
+                        LOGGER.warning("No se encontró el servicio " + r.serviceName() + " para la regla '" + r.description() + "'. Saltando...");
+                        continue;
+                    }
+                    serviceId = id;
+                }
+
+                Deque<Integer> ids = existing.get(ruleKey(r.priority(), trabajadoraId, serviceId,
+                        r.serviceCategory(), r.clientBroughtProduct(), r.priceEquals()));
+                Integer ruleId = ids == null ? null : ids.poll();
+                if (ruleId != null) {
+                    update.setString(1, r.rateType());
+                    update.setDouble(2, r.amount());
+                    update.setString(3, r.description());
+                    update.setInt(4, ruleId);
+                    update.addBatch();
+                    updated++;
+                    continue;
+                }
+
+                insert.setInt(1, r.priority());
+                insert.setObject(2, trabajadoraId);
+                insert.setObject(3, serviceId);
+                insert.setString(4, r.serviceCategory());
+                insert.setObject(5, r.clientBroughtProduct());
+                insert.setObject(6, r.priceEquals());
+                insert.setString(7, r.rateType());
+                insert.setDouble(8, r.amount());
+                insert.setString(9, r.description());
+                insert.addBatch();
+                inserted++;
+            }
+            update.executeBatch();
+            insert.executeBatch();
+        }
+
+        int deleted = 0;
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM commission_rules WHERE rule_id = ?")) {
+            for (Deque<Integer> ids : existing.values()) {
+                for (Integer ruleId : ids) {
+                    delete.setInt(1, ruleId);
+                    delete.addBatch();
+                    deleted++;
+                }
+            }
+            delete.executeBatch();
+        }
+        LOGGER.info("Reglas priorizadas del seed: " + updated + " actualizadas, " + inserted + " nuevas, " + deleted + " borradas");
+    }
+
+    /**
+     * Prioridad y condiciones de una regla priorizada, lo que la identifica entre dos aplicaciones del seed.
+     */
+    private static List<Object> ruleKey(int priority, Integer trabajadoraId, Integer serviceId, String serviceCategory,
+                                        Boolean clientBroughtProduct, Double priceEquals) {
+        return Arrays.asList(priority, trabajadoraId, serviceId, serviceCategory, clientBroughtProduct, priceEquals);
+    }
+
+    private static int findServiceIdByName(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT service_id FROM services WHERE name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("service_id") : -1;
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ import java.util.Map;
 
 public class ServiceDAO {
 
+    private final CatalogCache cache = CatalogCache.getInstance();
+
     /**
      * Devuelve todos los servicios como un Map, usando el nombre como clave.
      */
@@ -28,18 +30,42 @@ public class ServiceDAO {
     /**
      * Devuelve todos los servicios como una Lista.
      * (MODIFICADO para traer solo servicios activos)
+     * Se sirve desde CatalogCache.
      */
     public List<Service> getAll() throws SQLException {
-        List<Service> servicesList = new ArrayList<>();
-        
-        // ===== INICIO DE MODIFICACIÓN: Añadido "WHERE is_active = 1" =====
+        return cache.getActiveServices();
+    }
+
+    /**
+     * Busca un servicio por ID en la caché, incluidos los desactivados.
+     * @return El servicio, o null si no existe
+     */
+    public Service getById(int serviceId) throws SQLException {
+        return cache.findService(serviceId);
+    }
+
+    /**
+     * Busca un servicio por nombre exacto en la caché, incluidos los desactivados.
+     * @return El servicio, o null si no existe
+     */
+    public Service getByName(String name) throws SQLException {
+        return cache.findServiceByName(name);
+    }
+
+    /**
+     * Lee el catálogo completo para CatalogCache.
+     */
+    static CatalogCache.ServiceCatalog loadCatalog(Connection conn) throws SQLException {
+        List<Service> active = new ArrayList<>();
+        Map<Integer, Service> byId = new HashMap<>();
+        Map<String, Service> byName = new HashMap<>();
+
         String sql = "SELECT service_id, name, price_corto, price_medio, price_largo, price_ext, "
-                 + "permite_cliente_producto, price_cliente_producto, service_category "
-                 + "FROM services WHERE is_active = 1 ORDER BY name";
-        // ===== FIN DE MODIFICACIÓN =====
+                 + "permite_cliente_producto, price_cliente_producto, service_category, "
+                 + "COALESCE(is_active, 1) AS is_active "
+                 + "FROM services ORDER BY name";
 
-        try (Connection conn = Database.connect(); 
-             Statement stmt = conn.createStatement(); 
+        try (Statement stmt = conn.createStatement(); 
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -53,30 +79,45 @@ public class ServiceDAO {
                 service.setPermiteClienteProducto(rs.getBoolean("permite_cliente_producto"));
                 service.setPriceClienteProducto(rs.getDouble("price_cliente_producto"));
                 service.setService_category(rs.getString("service_category"));
-                servicesList.add(service);
+                byId.put(service.getId(), service);
+                byName.put(service.getName(), service);
+                if (rs.getBoolean("is_active")) {
+                    active.add(service);
+                }
             }
         }
-        return servicesList;
+        return new CatalogCache.ServiceCatalog(List.copyOf(active), Map.copyOf(byId), Map.copyOf(byName));
     }
 
     public void save(Service service) throws SQLException {
+        try {
+            write(service);
+        } finally {
+            cache.invalidateServices();
+        }
+    }
+
+    private void write(Service service) throws SQLException {
         if (service.getId() == 0) {
        
             // AÑADIDO: service_category (is_active se maneja por DB default)
             String sql = "INSERT INTO services(name, price_corto, price_medio, price_largo, price_ext, "
                        + "permite_cliente_producto, price_cliente_producto, service_category) "
                        + "VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
-            try (Connection conn = Database.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, service.getName());
-                pstmt.setDouble(2, service.getPrice_corto());
-                pstmt.setDouble(3, service.getPrice_medio());
-                pstmt.setDouble(4, service.getPrice_largo());
-                pstmt.setDouble(5, service.getPrice_ext());
-                pstmt.setBoolean(6, service.isPermiteClienteProducto()); 
-                pstmt.setDouble(7, service.getPriceClienteProducto());  
-                pstmt.setString(8, service.getService_category()); 
-                pstmt.executeUpdate();
-            }
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, service.getName());
+                    pstmt.setDouble(2, service.getPrice_corto());
+                    pstmt.setDouble(3, service.getPrice_medio());
+                    pstmt.setDouble(4, service.getPrice_largo());
+                    pstmt.setDouble(5, service.getPrice_ext());
+                    pstmt.setBoolean(6, service.isPermiteClienteProducto()); 
+                    pstmt.setDouble(7, service.getPriceClienteProducto());  
+                    pstmt.setString(8, service.getService_category()); 
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } else {
        
             // AÑADIDO: service_category (is_active se asume 1 si se edita)
@@ -84,27 +125,37 @@ public class ServiceDAO {
                        + "price_ext = ?, permite_cliente_producto = ?, price_cliente_producto = ?, "
                        + "service_category = ?, is_active = 1 " // <-- Asegura que al editar se reactive
                        + "WHERE service_id = ?";
-            try (Connection conn = Database.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, service.getName());
-                pstmt.setDouble(2, service.getPrice_corto());
-                pstmt.setDouble(3, service.getPrice_medio());
-                pstmt.setDouble(4, service.getPrice_largo());
-                pstmt.setDouble(5, service.getPrice_ext());
-                pstmt.setBoolean(6, service.isPermiteClienteProducto()); 
-                pstmt.setDouble(7, service.getPriceClienteProducto());    
-                pstmt.setString(8, service.getService_category()); 
-                pstmt.setInt(9, service.getId()); // CAMBIO DE ÍNDICE
-                pstmt.executeUpdate();
-            }
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, service.getName());
+                    pstmt.setDouble(2, service.getPrice_corto());
+                    pstmt.setDouble(3, service.getPrice_medio());
+                    pstmt.setDouble(4, service.getPrice_largo());
+                    pstmt.setDouble(5, service.getPrice_ext());
+                    pstmt.setBoolean(6, service.isPermiteClienteProducto()); 
+                    pstmt.setDouble(7, service.getPriceClienteProducto());    
+                    pstmt.setString(8, service.getService_category()); 
+                    pstmt.setInt(9, service.getId()); // CAMBIO DE ÍNDICE
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         }
     }
 
     public void delete(int id) throws SQLException {
         // MODIFICACIÓN: No borramos, desactivamos
         String sql = "UPDATE services SET is_active = 0 WHERE service_id = ?";
-        try (Connection conn = Database.connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        try {
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
+        } finally {
+            cache.invalidateServices();
         }
     }
 }
\ No newline at end of file
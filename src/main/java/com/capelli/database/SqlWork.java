@@ -0,0 +1,15 @@
+package com.capelli.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Unidad de trabajo SQL que se ejecuta sobre una conexión entregada por la capa de datos.
+ *
+ * @param <T> Tipo del resultado
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+
+    T execute(Connection conn) throws SQLException;
+}
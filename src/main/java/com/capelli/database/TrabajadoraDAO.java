@@ -3,12 +3,8 @@ package com.capelli.database;
 import com.capelli.model.CuentaBancaria;
 import com.capelli.model.Trabajadora;
 
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
-import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,10 +12,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TrabajadoraDAO {
 
+    private final CatalogCache cache = CatalogCache.getInstance();
+    private final TrabajadoraPhotoCache photos = TrabajadoraPhotoCache.getInstance();
+
     /**
      * Guarda o actualiza una trabajadora y sus cuentas bancarias en la base de datos.
      * Utiliza una transacción para asegurar la integridad de los datos.
@@ -27,19 +29,37 @@ public class TrabajadoraDAO {
      * @return El ID de la trabajadora guardada o actualizada.
      */
     public int save(Trabajadora trabajadora) throws SQLException, IOException {
+        try {
+            return write(trabajadora);
+        } finally {
+            cache.invalidateTrabajadoras();
+            photos.invalidate(trabajadora.getId());
+        }
+    }
+
+    private int write(Trabajadora trabajadora) throws SQLException, IOException {
         String sqlTrabajadora;
         // MODIFICACIÓN: Se agregan los campos de bono al SQL
         if (trabajadora.getId() == 0) {
-            sqlTrabajadora = "INSERT INTO trabajadoras (nombres, apellidos, tipo_ci, numero_ci, telefono, correo, foto, bono_activo, monto_bono, razon_bono) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            sqlTrabajadora = "INSERT INTO trabajadoras (nombres, apellidos, tipo_ci, numero_ci, telefono, correo, bono_activo, monto_bono, razon_bono, abonos_efectivo) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         } else {
-            sqlTrabajadora = "UPDATE trabajadoras SET nombres = ?, apellidos = ?, tipo_ci = ?, numero_ci = ?, telefono = ?, correo = ?, foto = ?, bono_activo = ?, monto_bono = ?, razon_bono = ? WHERE id = ?";
+            sqlTrabajadora = "UPDATE trabajadoras SET nombres = ?, apellidos = ?, tipo_ci = ?, numero_ci = ?, telefono = ?, correo = ?, bono_activo = ?, monto_bono = ?, razon_bono = ?, abonos_efectivo = ? WHERE id = ?";
         }
 
-        Connection conn = null;
-        try {
-            conn = Database.connect();
-            conn.setAutoCommit(false);
+        // Solo se escribe la foto si se eligió una nueva; la guardada no se carga para editar los demás datos.
+        // La imagen y su miniatura se serializan antes de encolar la escritura para no ocupar el hilo escritor.
+        ImageIcon foto = trabajadora.getFoto();
+        byte[] fotoBytes = null;
+        byte[] thumbBytes = null;
+        if (foto != null) {
+            Image image = foto.getImage();
+            fotoBytes = TrabajadoraPhotoCache.toPng(image, image.getWidth(null), image.getHeight(null));
+            thumbBytes = TrabajadoraPhotoCache.toPng(image, TrabajadoraPhotoCache.THUMBNAIL_SIZE, TrabajadoraPhotoCache.THUMBNAIL_SIZE);
+        }
+        byte[] fotoToWrite = fotoBytes;
+        byte[] thumbToWrite = thumbBytes;
 
+        Database.executeWrite(conn -> {
             try (PreparedStatement pstmt = conn.prepareStatement(sqlTrabajadora)) {
 
                 pstmt.setString(1, trabajadora.getNombres());
@@ -49,16 +69,11 @@ public class TrabajadoraDAO {
                 pstmt.setString(5, trabajadora.getTelefono());
                 pstmt.setString(6, trabajadora.getCorreoElectronico());
 
-                if (trabajadora.getFoto() != null) {
-                    pstmt.setBytes(7, toByteArray(trabajadora.getFoto()));
-                } else {
-                    pstmt.setNull(7, java.sql.Types.BLOB);
-                }
-
                 // NUEVOS CAMPOS DE BONO
-                pstmt.setBoolean(8, trabajadora.isBonoActivo());
-                pstmt.setDouble(9, trabajadora.getMontoBono());
-                pstmt.setString(10, trabajadora.getRazonBono());
+                pstmt.setBoolean(7, trabajadora.isBonoActivo());
+                pstmt.setDouble(8, trabajadora.getMontoBono());
+                pstmt.setString(9, trabajadora.getRazonBono());
+                pstmt.setBoolean(10, trabajadora.isAbonosEfectivo());
 
                 if (trabajadora.getId() != 0) {
                     pstmt.setInt(11, trabajadora.getId()); // El ID pasa a ser el parámetro 11 en el UPDATE
@@ -78,6 +93,15 @@ public class TrabajadoraDAO {
                 }
             }
 
+            if (fotoToWrite != null) {
+                try (PreparedStatement pstmt = conn.prepareStatement("UPDATE trabajadoras SET foto = ?, foto_thumb = ? WHERE id = ?")) {
+                    pstmt.setBytes(1, fotoToWrite);
+                    pstmt.setBytes(2, thumbToWrite);
+                    pstmt.setInt(3, trabajadora.getId());
+                    pstmt.executeUpdate();
+                }
+            }
+
             String sqlDeleteCuentas = "DELETE FROM cuentas_bancarias WHERE trabajadora_id = ?";
             try (PreparedStatement pstmtDelete = conn.prepareStatement(sqlDeleteCuentas)) {
                 pstmtDelete.setInt(1, trabajadora.getId());
@@ -97,116 +121,151 @@ public class TrabajadoraDAO {
                 pstmtInsert.executeBatch();
             }
             
-            conn.commit();
-
-        } catch (SQLException | IOException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    System.err.println("Error haciendo rollback: " + ex.getMessage());
-                }
-            }
-            throw e;
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException ex) {
-                    System.err.println("Error cerrando la conexión: " + ex.getMessage());
-                }
-            }
+            return null;
+        });
+        if (fotoBytes != null) {
+            trabajadora.setTieneFoto(true);
+            trabajadora.setFoto(null); // Ya guardada: se vuelve a leer a pedido con TrabajadoraPhotoCache
         }
         return trabajadora.getId();
     }
 
     /**
-     * Obtiene todas las trabajadoras de la base de datos.
+     * Obtiene todas las trabajadoras, desde CatalogCache. No incluyen la foto (ver TrabajadoraPhotoCache).
      * @return Una lista de objetos Trabajadora.
      */
     public List<Trabajadora> getAll() throws SQLException, IOException {
+        return cache.getTrabajadoras();
+    }
+
+    /**
+     * Busca una trabajadora por su nombre completo en la caché.
+     * @return La trabajadora, o null si no existe
+     */
+    public Trabajadora getByNombreCompleto(String nombreCompleto) throws SQLException {
+        return cache.findTrabajadoraByName(nombreCompleto);
+    }
+
+    /**
+     * Lee todas las trabajadoras con sus cuentas, para CatalogCache.
+     * Los BLOB de foto no se leen: solo si existen.
+     */
+    static List<Trabajadora> loadAll(Connection conn) throws SQLException {
+        return load(conn, null);
+    }
+
+    /**
+     * Lee de la base de datos las trabajadoras indicadas con sus cuentas.
+     * Son siempre dos consultas, sin importar cuántas trabajadoras se pidan.
+     * @return Las trabajadoras encontradas, en orden de ID
+     */
+    public List<Trabajadora> findByIds(Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (Connection conn = Database.connect()) {
+            return load(conn, ids);
+        }
+    }
+
+    /**
+     * Lee trabajadoras y luego todas sus cuentas en una sola consulta, y las asigna en memoria.
+     * Los IDs se pasan como un arreglo JSON (json_each), así la consulta no depende de cuántos sean.
+     * @param ids IDs a leer, o null para todas
+     */
+    private static List<Trabajadora> load(Connection conn, Collection<Integer> ids) throws SQLException {
+        String idFilter = ids != null ? "WHERE id IN (SELECT value FROM json_each(?)) " : "";
+        String idsJson = ids != null ? toJsonArray(ids) : null;
+
         List<Trabajadora> trabajadoras = new ArrayList<>();
-        String sql = "SELECT * FROM trabajadoras";
-
-        try (Connection conn = Database.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                Trabajadora t = new Trabajadora();
-                t.setId(rs.getInt("id"));
-                t.setNombres(rs.getString("nombres"));
-                t.setApellidos(rs.getString("apellidos"));
-                t.setTipoCi(rs.getString("tipo_ci"));
-                t.setNumeroCi(rs.getString("numero_ci"));
-                t.setTelefono(rs.getString("telefono"));
-                t.setCorreoElectronico(rs.getString("correo"));
-                
-                // Recuperar datos del bono (si las columnas no existen, devolverán valores por defecto o null, 
-                // pero como ya ejecutamos el ALTER TABLE en Database.initialize, deberían existir)
-                try {
+        Map<Integer, Trabajadora> byId = new HashMap<>();
+        String sql = "SELECT id, nombres, apellidos, tipo_ci, numero_ci, telefono, correo, "
+                + "bono_activo, monto_bono, razon_bono, abonos_efectivo, foto IS NOT NULL AS tiene_foto "
+                + "FROM trabajadoras " + idFilter
+                + "ORDER BY id";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (idsJson != null) {
+                pstmt.setString(1, idsJson);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Trabajadora t = new Trabajadora();
+                    t.setId(rs.getInt("id"));
+                    t.setNombres(rs.getString("nombres"));
+                    t.setApellidos(rs.getString("apellidos"));
+                    t.setTipoCi(rs.getString("tipo_ci"));
+                    t.setNumeroCi(rs.getString("numero_ci"));
+                    t.setTelefono(rs.getString("telefono"));
+                    t.setCorreoElectronico(rs.getString("correo"));
+
+                    // Datos del bono (columnas de la migración V2)
                     t.setBonoActivo(rs.getBoolean("bono_activo"));
                     t.setMontoBono(rs.getDouble("monto_bono"));
                     t.setRazonBono(rs.getString("razon_bono"));
-                } catch (SQLException ex) {
-                    // En caso de que la columna no exista aún (versión vieja de DB sin actualizar),
-                    // ignoramos el error y quedan los valores por defecto.
+                    t.setAbonosEfectivo(rs.getBoolean("abonos_efectivo"));
+
+                    t.setTieneFoto(rs.getBoolean("tiene_foto"));
+
+                    trabajadoras.add(t);
+                    byId.put(t.getId(), t);
                 }
-                
-                byte[] fotoBytes = rs.getBytes("foto");
-                if (fotoBytes != null) {
-                    t.setFoto(new ImageIcon(fotoBytes));
+            }
+        }
+
+        String sqlCuentas = "SELECT trabajadora_id, banco, tipo_cuenta, numero_cuenta, es_principal "
+                + "FROM cuentas_bancarias "
+                + (ids != null ? "WHERE trabajadora_id IN (SELECT value FROM json_each(?)) " : "")
+                + "ORDER BY trabajadora_id, id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlCuentas)) {
+            if (idsJson != null) {
+                pstmt.setString(1, idsJson);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Trabajadora t = byId.get(rs.getInt("trabajadora_id"));
+                    if (t != null) {
+                        t.getCuentas().add(new CuentaBancaria(
+                            rs.getString("banco"),
+                            rs.getString("tipo_cuenta"),
+                            rs.getString("numero_cuenta"),
+                            rs.getBoolean("es_principal")
+                        ));
+                    }
                 }
-                
-                t.setCuentas(getCuentasByTrabajadoraId(t.getId(), conn));
-                
-                trabajadoras.add(t);
             }
         }
         return trabajadoras;
     }
 
+    static String toJsonArray(Collection<Integer> ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (Integer id : ids) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(id.intValue());
+        }
+        return json.append(']').toString();
+    }
+
     /**
      * Elimina una trabajadora de la base de datos.
      * @param id El ID de la trabajadora a eliminar.
      */
     public void delete(int id) throws SQLException {
         String sql = "DELETE FROM trabajadoras WHERE id = ?";
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        }
-    }
-
-    private List<CuentaBancaria> getCuentasByTrabajadoraId(int trabajadoraId, Connection conn) throws SQLException {
-        List<CuentaBancaria> cuentas = new ArrayList<>();
-        String sql = "SELECT * FROM cuentas_bancarias WHERE trabajadora_id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, trabajadoraId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                cuentas.add(new CuentaBancaria(
-                    rs.getString("banco"),
-                    rs.getString("tipo_cuenta"),
-                    rs.getString("numero_cuenta"),
-                    rs.getBoolean("es_principal")
-                ));
-            }
+        try {
+            Database.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
+        } finally {
+            cache.invalidateTrabajadoras();
+            photos.invalidate(id);
         }
-        return cuentas;
-    }
-
-    private byte[] toByteArray(ImageIcon icon) throws IOException {
-        Image image = icon.getImage();
-        BufferedImage bufferedImage = new BufferedImage(image.getWidth(null), image.getHeight(null), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = bufferedImage.createGraphics();
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "png", baos);
-        return baos.toByteArray();
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.capelli.database;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * Fotos de trabajadoras leídas a pedido. CatalogCache no carga los BLOB: solo sabe si la
+ * trabajadora tiene foto, así nómina y comisiones nunca decodifican imágenes.
+ *
+ * La miniatura (foto_thumb) se guarda ya escalada junto a la original y es lo que muestra
+ * la lista de trabajadoras; la original solo se lee al editar. Las imágenes decodificadas
+ * quedan en dos LRU acotadas, una para miniaturas y otra, más chica, para originales.
+ */
+public final class TrabajadoraPhotoCache {
+
+    private static final Logger LOGGER = Logger.getLogger(TrabajadoraPhotoCache.class.getName());
+
+    /** Lado en píxeles de las miniaturas, el tamaño de la columna FOTO de la lista. */
+    public static final int THUMBNAIL_SIZE = 40;
+
+    private static final int MAX_THUMBNAILS = 200;
+    private static final int MAX_ORIGINALS = 8;
+
+    private static final TrabajadoraPhotoCache INSTANCE = new TrabajadoraPhotoCache();
+
+    private final Map<Integer, ImageIcon> thumbnails = lru(MAX_THUMBNAILS);
+    private final Map<Integer, ImageIcon> originals = lru(MAX_ORIGINALS);
+
+    private TrabajadoraPhotoCache() {
+    }
+
+    public static TrabajadoraPhotoCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return La miniatura, o null si la trabajadora no tiene foto
+     */
+    public synchronized ImageIcon getThumbnail(int trabajadoraId) throws SQLException {
+        ImageIcon icon = thumbnails.get(trabajadoraId);
+        if (icon == null) {
+            icon = load("foto_thumb", trabajadoraId);
+            if (icon != null) {
+                thumbnails.put(trabajadoraId, icon);
+            }
+        }
+        return icon;
+    }
+
+    /**
+     * Miniaturas de varias trabajadoras, para llenar la lista de una vez: las que no están
+     * en la LRU se leen todas en una sola consulta.
+     *
+     * @return Miniatura por ID; las trabajadoras sin foto no aparecen
+     */
+    public synchronized Map<Integer, ImageIcon> getThumbnails(Collection<Integer> trabajadoraIds) throws SQLException {
+        Map<Integer, ImageIcon> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : trabajadoraIds) {
+            ImageIcon icon = thumbnails.get(id);
+            if (icon != null) {
+                result.put(id, icon);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id, foto_thumb FROM trabajadoras "
+                     + "WHERE foto_thumb IS NOT NULL AND id IN (SELECT value FROM json_each(?))")) {
+            pstmt.setString(1, TrabajadoraDAO.toJsonArray(missing));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ImageIcon icon = new ImageIcon(rs.getBytes("foto_thumb"));
+                    thumbnails.put(rs.getInt("id"), icon);
+                    result.put(rs.getInt("id"), icon);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return La foto original, o null si la trabajadora no tiene foto
+     */
+    public synchronized ImageIcon getFoto(int trabajadoraId) throws SQLException {
+        ImageIcon icon = originals.get(trabajadoraId);
+        if (icon == null) {
+            icon = load("foto", trabajadoraId);
+            if (icon != null) {
+                originals.put(trabajadoraId, icon);
+            }
+        }
+        return icon;
+    }
+
+    /**
+     * Descarta las imágenes de una trabajadora; TrabajadoraDAO lo llama al guardar o borrar.
+     */
+    public synchronized void invalidate(int trabajadoraId) {
+        thumbnails.remove(trabajadoraId);
+        originals.remove(trabajadoraId);
+    }
+
+    private static ImageIcon load(String column, int trabajadoraId) throws SQLException {
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT " + column + " FROM trabajadoras WHERE id = ?")) {
+            pstmt.setInt(1, trabajadoraId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                byte[] bytes = rs.next() ? rs.getBytes(1) : null;
+                return bytes != null ? new ImageIcon(bytes) : null;
+            }
+        }
+    }
+
+    /**
+     * Escala una imagen a un PNG de {@code width} × {@code height}.
+     */
+    static byte[] toPng(Image image, int width, int height) throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = bufferedImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return La miniatura en PNG de una foto guardada, o null si no se puede decodificar
+     */
+    static byte[] thumbnail(byte[] original) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+            return image != null ? toPng(image, THUMBNAIL_SIZE, THUMBNAIL_SIZE) : null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo generar la miniatura de una foto", e);
+            return null;
+        }
+    }
+
+    private static <V> Map<Integer, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
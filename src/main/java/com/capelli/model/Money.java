@@ -0,0 +1,155 @@
+package com.capelli.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Monto de dinero en centavos enteros, en dólares o en bolívares según el contexto.
+ * Las sumas y restas son exactas; solo se redondea al multiplicar por un porcentaje
+ * o al convertir con una tasa, y siempre al centavo más cercano (mitades hacia afuera).
+ *
+ * Las tasas BCV se llevan a diezmilésimas ({@link #RATE_SCALE}) antes de convertir,
+ * así la conversión Bs/$ es aritmética entera y da lo mismo en la ventana y en los reportes.
+ * En la base de datos los montos se guardan en columnas INTEGER con sufijo _cents.
+ * Para acumular muchos montos (reportes, nómina) conviene sumar los centavos en un long.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    /** Decimales con que se guarda una tasa: 36.5 Bs/$ son 365000 diezmilésimas. */
+    public static final long RATE_SCALE = 10_000;
+
+    /** Decimales con que se aplica un porcentaje (0.16 son 160000 millonésimas). */
+    private static final long FACTOR_SCALE = 1_000_000;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Monto escrito por el usuario o leído de una columna REAL, redondeado al centavo.
+     */
+    public static Money of(double amount) {
+        return ofCents(toCents(amount));
+    }
+
+    /**
+     * Centavos de un monto decimal. Usa la representación decimal más corta del double,
+     * así 1.005 da 101 centavos y no 100 como {@code Math.round(1.005 * 100)}.
+     */
+    public static long toCents(double amount) {
+        return scaled(amount, 2);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Tasa en diezmilésimas de bolívar por dólar.
+     */
+    public static long rateUnits(double rate) {
+        return scaled(rate, 4);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(-cents);
+    }
+
+    /**
+     * Multiplica por un factor (por ejemplo 0.16 para el IVA) con seis decimales de precisión.
+     */
+    public Money times(double factor) {
+        return ofCents(divideRounded(Math.multiplyExact(cents, scaled(factor, 6)), FACTOR_SCALE));
+    }
+
+    /**
+     * Convierte dólares a bolívares con la tasa indicada.
+     */
+    public Money toBs(double rate) {
+        return ofCents(divideRounded(Math.multiplyExact(cents, rateUnits(rate)), RATE_SCALE));
+    }
+
+    /**
+     * Convierte bolívares a dólares con la tasa indicada, que debe ser positiva.
+     */
+    public Money toUsd(double rate) {
+        long units = rateUnits(rate);
+        if (units <= 0) {
+            throw new IllegalArgumentException("Tasa inválida para convertir a dólares: " + rate);
+        }
+        return ofCents(divideRounded(Math.multiplyExact(cents, RATE_SCALE), units));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    public Money abs() {
+        return cents < 0 ? negate() : this;
+    }
+
+    /**
+     * Para mostrar con DecimalFormat o String.format; no usar para seguir calculando.
+     */
+    public double toDouble() {
+        return toDouble(cents);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    /**
+     * Monto con dos decimales y punto ("1234.50").
+     */
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    /**
+     * División entera redondeada al más cercano; las mitades se alejan de cero.
+     */
+    static long divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+
+    private static long scaled(double value, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Monto inválido: " + value);
+        }
+        return BigDecimal.valueOf(value).movePointRight(decimals).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
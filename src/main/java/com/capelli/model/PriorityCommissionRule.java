@@ -0,0 +1,24 @@
+package com.capelli.model;
+
+/**
+ * Regla de comisión priorizada (tabla commission_rules).
+ * Los criterios en null no filtran. Entre las reglas que coinciden gana la de menor prioridad.
+ *
+ * @param priceEquals Si no es null, la regla solo aplica cuando el precio es ese monto (±0.01)
+ * @param amount Porcentaje como fracción (0.40) si rateType es PORCENTAJE, o monto en dólares si es FIJO
+ */
+public record PriorityCommissionRule(
+    int ruleId,
+    int priority,
+    Integer trabajadoraId,
+    Integer serviceId,
+    String serviceCategory,
+    Boolean clientBroughtProduct,
+    Double priceEquals,
+    RateType rateType,
+    double amount,
+    String description
+) {
+
+    public enum RateType { PORCENTAJE, FIJO }
+}
@@ -0,0 +1,54 @@
+package com.capelli.model;
+
+import java.util.List;
+
+/**
+ * Copia inmutable de una venta tal como estaba al pulsar "Generar Factura".
+ * Se construye en el hilo de la interfaz y se guarda en el hilo escritor,
+ * por lo que no debe referenciar componentes Swing ni listas de la ventana.
+ * El correlativo no forma parte de la copia: se asigna al guardar, dentro de la transacción.
+ *
+ * @param saleId ID de la venta a actualizar, o -1 si es una venta nueva
+ * @param clientId ID del cliente, o null si la venta no tiene cliente
+ * @param saleDate Fecha en formato 'yyyy-MM-dd HH:mm:ss' (hora local)
+ * @param balanceCredit Vuelto a abonar al saldo del cliente (cero si no se abona)
+ */
+public record SaleSnapshot(
+    long saleId,
+    Integer clientId,
+    String saleDate,
+    Money subtotal,
+    String discountType,
+    Money discountAmount,
+    Money vatAmount,
+    Money total,
+    double bcvRate,
+    List<Item> items,
+    List<Payment> payments,
+    List<Tip> tips,
+    Money balanceCredit
+) {
+
+    public record Item(String serviceName, int employeeId, Money price, boolean clientBroughtProduct) {}
+
+    /**
+     * @param amount Monto en la moneda del pago, tal como se guarda en sale_payments.monto_cents
+     */
+    public record Payment(Money amount, String currency, String method, String destination, String reference, double bcvRate) {}
+
+    /**
+     * @param recipientId ID de la trabajadora, o null si la propina es para el salón
+     * @param recipientName Nombre tal como se muestra en la factura
+     */
+    public record Tip(Integer recipientId, String recipientName, Money amount) {}
+
+    public SaleSnapshot {
+        items = List.copyOf(items);
+        payments = List.copyOf(payments);
+        tips = List.copyOf(tips);
+    }
+
+    public boolean isNew() {
+        return saleId < 0;
+    }
+}
@@ -14,6 +14,7 @@ public class Trabajadora {
     private String telefono;
     private String correoElectronico;
     private ImageIcon foto;
+    private boolean tieneFoto;
     private List<CuentaBancaria> cuentas;
 
     // NUEVOS CAMPOS PARA EL BONO
@@ -21,6 +22,9 @@ public class Trabajadora {
     private double montoBono;
     private String razonBono;
 
+    /** Cobra en efectivo sus abonos manuales (el resto se paga por banco). */
+    private boolean abonosEfectivo;
+
     public Trabajadora() {
         this.cuentas = new ArrayList<>();
         // Inicializar valores por defecto del bono
@@ -93,6 +97,10 @@ public class Trabajadora {
         this.correoElectronico = correoElectronico;
     }
 
+    /**
+     * @return Foto nueva elegida en el formulario y aún no guardada, o null.
+     *         La foto guardada se lee con TrabajadoraPhotoCache.
+     */
     public ImageIcon getFoto() {
         return foto;
     }
@@ -101,6 +109,17 @@ public class Trabajadora {
         this.foto = foto;
     }
 
+    /**
+     * @return true si la trabajadora tiene una foto guardada
+     */
+    public boolean isTieneFoto() {
+        return tieneFoto;
+    }
+
+    public void setTieneFoto(boolean tieneFoto) {
+        this.tieneFoto = tieneFoto;
+    }
+
     public List<CuentaBancaria> getCuentas() {
         return cuentas;
     }
@@ -138,4 +157,12 @@ public class Trabajadora {
     public void setRazonBono(String razonBono) {
         this.razonBono = razonBono;
     }
+
+    public boolean isAbonosEfectivo() {
+        return abonosEfectivo;
+    }
+
+    public void setAbonosEfectivo(boolean abonosEfectivo) {
+        this.abonosEfectivo = abonosEfectivo;
+    }
 }
\ No newline at end of file
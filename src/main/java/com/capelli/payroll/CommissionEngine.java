@@ -0,0 +1,226 @@
+package com.capelli.payroll;
+
+import com.capelli.database.CatalogCache;
+import com.capelli.database.CommissionRuleDAO;
+import com.capelli.model.CommissionRule;
+import com.capelli.model.PriorityCommissionRule;
+import com.capelli.model.Service;
+import com.capelli.model.Trabajadora;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Motor de comisiones compilado.
+ * Al cargar, cruza las reglas priorizadas (commission_rules) y las tasas por categoría
+ * (trabajadora_commission_rules, último nivel) con el catálogo, y deja para cada par
+ * trabajadora/servicio la cadena de reglas que le aplican, en una tabla indexada por ID.
+ * Evaluar un ítem es leer esa cadena y revisar solo precio y producto del cliente.
+ */
+public final class CommissionEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(CommissionEngine.class.getName());
+
+    /** Categoría usada por el reporte cuando el servicio no tiene una (ver ReportQueries). */
+    static final String SIN_CATEGORIA = "Sin Categoria";
+    static final String PAGO_MANUAL = "PAGO-MANUAL";
+
+    /** Tabla de origen de una regla, tal como se registra en commission_ledger.rule_source. */
+    public static final String SOURCE_PRIORITY = "commission_rules";
+    public static final String SOURCE_CATEGORY = "trabajadora_commission_rules";
+
+    private static final double PRICE_TOLERANCE = 0.01;
+
+    /**
+     * Comisión de un ítem y la regla que la produjo.
+     * @param ruleSource SOURCE_PRIORITY o SOURCE_CATEGORY
+     * @param ruleId rule_id de la regla en esa tabla
+     */
+    public record Commission(double amount, String ruleSource, int ruleId) {}
+
+    /**
+     * Regla ya resuelta para un par trabajadora/servicio.
+     * @param clientProduct -1 si no filtra, 0 o 1 si exige ese valor
+     */
+    private record CompiledRule(boolean filtersPrice, double priceEquals, int clientProduct, boolean percentage, double amount,
+                                String source, int ruleId) {
+
+        boolean isUnconditional() {
+            return !filtersPrice && clientProduct < 0;
+        }
+
+        boolean matches(double price, boolean clientBroughtProduct) {
+            if (filtersPrice && Math.abs(price - priceEquals) >= PRICE_TOLERANCE) {
+                return false;
+            }
+            return clientProduct < 0 || (clientProduct == 1) == clientBroughtProduct;
+        }
+
+        double apply(double price) {
+            return percentage ? price * amount : amount;
+        }
+    }
+
+    private static final CompiledRule[] NO_RULES = new CompiledRule[0];
+
+    private static final Object CURRENT_LOCK = new Object();
+    private static CommissionEngine current;
+    private static long currentVersion = -1;
+
+    // chains[trabajadoraId][serviceId]; null si la trabajadora o el servicio no existían al compilar
+    private final CompiledRule[][][] chains;
+    private final boolean[] manualPaymentServices;
+
+    private CommissionEngine(CompiledRule[][][] chains, boolean[] manualPaymentServices) {
+        this.chains = chains;
+        this.manualPaymentServices = manualPaymentServices;
+    }
+
+    /**
+     * Carga y compila las reglas vigentes con el catálogo actual.
+     */
+    public static CommissionEngine load() throws SQLException {
+        CommissionRuleDAO dao = new CommissionRuleDAO();
+        CatalogCache catalog = CatalogCache.getInstance();
+        return compile(dao.getPriorityRules(), dao.getAll(), catalog.getTrabajadoras(), catalog.getAllServices());
+    }
+
+    /**
+     * Motor compilado compartido. Se recompila solo cuando cambian las reglas o el catálogo,
+     * así registrar una venta no vuelve a leer las reglas.
+     */
+    public static CommissionEngine current() throws SQLException {
+        // La versión se lee antes de cargar: si algo cambia durante la carga, la siguiente llamada recompila
+        long version = CommissionRuleDAO.version() + CatalogCache.getInstance().version();
+        synchronized (CURRENT_LOCK) {
+            if (current != null && currentVersion == version) {
+                return current;
+            }
+        }
+        CommissionEngine engine = load();
+        synchronized (CURRENT_LOCK) {
+            current = engine;
+            currentVersion = version;
+        }
+        LOGGER.fine("Reglas de comisión compiladas");
+        return engine;
+    }
+
+    /**
+     * @param priorityRules Reglas priorizadas, en cualquier orden
+     * @param categoryRates Tasas por trabajadora y categoría (último nivel)
+     */
+    static CommissionEngine compile(List<PriorityCommissionRule> priorityRules, List<CommissionRule> categoryRates,
+                                    List<Trabajadora> trabajadoras, List<Service> services) {
+        List<PriorityCommissionRule> ordered = new ArrayList<>(priorityRules);
+        ordered.sort((a, b) -> a.priority() != b.priority()
+                ? Integer.compare(a.priority(), b.priority())
+                : Integer.compare(a.ruleId(), b.ruleId()));
+
+        Map<Integer, Map<String, CommissionRule>> ratesByWorker = new HashMap<>();
+        for (CommissionRule rate : categoryRates) {
+            ratesByWorker.computeIfAbsent(rate.getTrabajadora_id(), k -> new HashMap<>())
+                    .put(rate.getService_category(), rate);
+        }
+
+        int maxWorkerId = trabajadoras.stream().mapToInt(Trabajadora::getId).max().orElse(-1);
+        int maxServiceId = services.stream().mapToInt(Service::getId).max().orElse(-1);
+
+        boolean[] manualPayment = new boolean[maxServiceId + 1];
+        for (Service s : services) {
+            manualPayment[s.getId()] = PAGO_MANUAL.equals(categoryOf(s));
+        }
+
+        CompiledRule[][][] chains = new CompiledRule[maxWorkerId + 1][][];
+        for (Trabajadora t : trabajadoras) {
+            CompiledRule[][] byService = new CompiledRule[maxServiceId + 1][];
+            Map<String, CommissionRule> rates = ratesByWorker.getOrDefault(t.getId(), Map.of());
+            for (Service s : services) {
+                byService[s.getId()] = buildChain(ordered, rates, t.getId(), s);
+            }
+            chains[t.getId()] = byService;
+        }
+        return new CommissionEngine(chains, manualPayment);
+    }
+
+    private static CompiledRule[] buildChain(List<PriorityCommissionRule> ordered, Map<String, CommissionRule> rates,
+                                             int trabajadoraId, Service service) {
+        String category = categoryOf(service);
+        List<CompiledRule> chain = new ArrayList<>();
+
+        for (PriorityCommissionRule r : ordered) {
+            if (r.trabajadoraId() != null && r.trabajadoraId() != trabajadoraId) continue;
+            if (r.serviceId() != null && r.serviceId() != service.getId()) continue;
+            if (r.serviceCategory() != null && !r.serviceCategory().equals(category)) continue;
+
+            CompiledRule compiled = new CompiledRule(
+                    r.priceEquals() != null,
+                    r.priceEquals() != null ? r.priceEquals() : 0.0,
+                    r.clientBroughtProduct() == null ? -1 : (r.clientBroughtProduct() ? 1 : 0),
+                    r.rateType() == PriorityCommissionRule.RateType.PORCENTAJE,
+                    r.amount(),
+                    SOURCE_PRIORITY,
+                    r.ruleId());
+            chain.add(compiled);
+            if (compiled.isUnconditional()) {
+                // Las reglas siguientes nunca se alcanzarían
+                return chain.toArray(NO_RULES);
+            }
+        }
+
+        CommissionRule rate = rates.get(category);
+        if (rate != null) {
+            chain.add(new CompiledRule(false, 0.0, -1, true, rate.getCommission_rate(), SOURCE_CATEGORY, rate.getRule_id()));
+        }
+        return chain.toArray(NO_RULES);
+    }
+
+    private static String categoryOf(Service service) {
+        return Objects.requireNonNullElse(service.getService_category(), SIN_CATEGORIA);
+    }
+
+    /**
+     * Comisión de un ítem vendido.
+     * @return La comisión, o NaN si ninguna regla aplica (trabajadora o servicio desconocido incluidos)
+     */
+    public double commission(int trabajadoraId, int serviceId, double price, boolean clientBroughtProduct) {
+        CompiledRule rule = find(trabajadoraId, serviceId, price, clientBroughtProduct);
+        return rule != null ? rule.apply(price) : Double.NaN;
+    }
+
+    /**
+     * Comisión de un ítem vendido junto con la regla que la produjo.
+     * @return La comisión, o null si ninguna regla aplica
+     */
+    public Commission evaluate(int trabajadoraId, int serviceId, double price, boolean clientBroughtProduct) {
+        CompiledRule rule = find(trabajadoraId, serviceId, price, clientBroughtProduct);
+        return rule != null ? new Commission(rule.apply(price), rule.source(), rule.ruleId()) : null;
+    }
+
+    private CompiledRule find(int trabajadoraId, int serviceId, double price, boolean clientBroughtProduct) {
+        if (trabajadoraId < 0 || trabajadoraId >= chains.length || chains[trabajadoraId] == null) {
+            return null;
+        }
+        CompiledRule[][] byService = chains[trabajadoraId];
+        if (serviceId < 0 || serviceId >= byService.length || byService[serviceId] == null) {
+            return null;
+        }
+        for (CompiledRule rule : byService[serviceId]) {
+            if (rule.matches(price, clientBroughtProduct)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true si el servicio es un abono manual (categoría PAGO-MANUAL), que no genera comisión
+     */
+    public boolean isManualPayment(int serviceId) {
+        return serviceId >= 0 && serviceId < manualPaymentServices.length && manualPaymentServices[serviceId];
+    }
+}
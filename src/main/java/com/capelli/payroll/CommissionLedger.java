@@ -0,0 +1,485 @@
+package com.capelli.payroll;
+
+import com.capelli.database.CatalogCache;
+import com.capelli.database.Database;
+import com.capelli.database.ReportQueries;
+import com.capelli.model.Money;
+import com.capelli.model.Trabajadora;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Libro de comisiones (tabla commission_ledger).
+ * Cada ítem vendido se asienta una sola vez al confirmar la venta, con el monto y la regla
+ * que lo produjo; la nómina de cualquier período es la suma de los asientos de ese rango.
+ *
+ * Los asientos no se modifican: al editar una venta se asienta la reversión (monto negativo)
+ * de los que seguían vigentes y luego los nuevos. Si el día de un asiento cae en un período
+ * de nómina cerrado (payroll_periods), el ajuste se asienta en el primer día abierto, así la
+ * nómina ya pagada no cambia.
+ */
+public final class CommissionLedger {
+
+    private static final Logger LOGGER = Logger.getLogger(CommissionLedger.class.getName());
+
+    /** Clave de app_settings con el mayor sale_id que ya revisó {@link #postMissing}. */
+    public static final String KEY_POSTED_THROUGH_SALE = "ledger_posted_through_sale_id";
+
+    /**
+     * Tipo de asiento; el nombre es el valor de commission_ledger.kind.
+     */
+    public enum Kind {
+        /** Comisión de un servicio, pagada por banco. */
+        COMISION,
+        /** Abono manual (categoría PAGO-MANUAL) pagado por banco. */
+        ABONO_BANCO,
+        /** Abono manual de una trabajadora que cobra en efectivo. */
+        ABONO_EFECTIVO
+    }
+
+    /**
+     * Asiento del libro.
+     * @param entryId 0 si aún no se guardó
+     * @param postingDate Día cuya nómina incluye el asiento
+     * @param amountCents Monto en centavos de dólar, redondeado una sola vez al asentar
+     * @param ruleSource Tabla de la regla aplicada, o null si es un abono o no hubo regla
+     */
+    private record Entry(long entryId, long saleId, int employeeId, int serviceId, LocalDate postingDate,
+                         Kind kind, long amountCents, String ruleSource, Integer ruleId) {}
+
+    /**
+     * Orden de los asientos de una venta por lo que importa para la nómina (sin ID ni fecha),
+     * para comparar lo asentado con lo que se asentaría hoy.
+     */
+    private static final Comparator<Entry> POSTING_ORDER = Comparator
+            .comparingInt(Entry::employeeId)
+            .thenComparingInt(Entry::serviceId)
+            .thenComparing(Entry::kind)
+            .thenComparingLong(Entry::amountCents)
+            .thenComparing(Entry::ruleSource, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Entry::ruleId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** Período de nómina cerrado, inclusive en ambos extremos. */
+    public record ClosedPeriod(LocalDate startDate, LocalDate endDate) {
+
+        boolean contains(LocalDate day) {
+            return !day.isBefore(startDate) && !day.isAfter(endDate);
+        }
+    }
+
+    /** Ítems vendidos con lo necesario para calcular su comisión (alias s y si). */
+    private static final String ITEMS_SELECT = "SELECT "
+            + "    s.sale_id, "
+            + "    substr(s.sale_date, 1, 10) AS sale_day, "
+            + "    si.employee_id, "
+            + "    si.service_id, "
+            + "    si.price_cents, "
+            + "    si.client_brought_product, "
+            + "    svc.name AS service_name, "
+            + "    (t.nombres || ' ' || t.apellidos) AS trabajadora_name "
+            + "FROM sales s "
+            + "JOIN sale_items si ON si.sale_id = s.sale_id "
+            + "JOIN services svc ON si.service_id = svc.service_id "
+            + "JOIN trabajadoras t ON si.employee_id = t.id ";
+
+    /** Asientos que no son reversiones ni fueron revertidos; se completa con el filtro de ventas. */
+    private static final String ACTIVE_SELECT = "SELECT "
+            + "    l.entry_id, l.sale_id, l.employee_id, l.service_id, l.posting_date, l.kind, "
+            + "    l.amount_cents, l.rule_source, l.rule_id "
+            + "FROM commission_ledger l "
+            + "WHERE l.reverses_entry_id IS NULL "
+            + "  AND NOT EXISTS (SELECT 1 FROM commission_ledger r WHERE r.reverses_entry_id = l.entry_id) ";
+
+    /** Ventas de un rango de fechas. Parámetros: rango (2). */
+    private static final String SALES_IN_RANGE = "SELECT sale_id FROM sales WHERE sale_date >= ? AND sale_date < ?";
+
+    private static final String INSERT_ENTRY = "INSERT INTO commission_ledger "
+            + "(sale_id, employee_id, service_id, posting_date, kind, amount_cents, rule_source, rule_id, reverses_entry_id, posted_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, datetime('now', 'localtime'))";
+
+    /**
+     * Asienta los ítems actuales de una venta en la transacción en curso, revirtiendo antes
+     * lo que la venta tuviera asentado. SaleDAO lo llama después de insertar los ítems.
+     */
+    public static void postSale(Connection conn, long saleId) throws SQLException {
+        List<ClosedPeriod> closed = loadClosedPeriods(conn);
+        reverse(conn, activeEntries(conn, saleId), closed);
+        insert(conn, saleEntries(conn, saleId, Level.WARNING), closed);
+    }
+
+    /**
+     * Asienta las ventas con ítems que aún no tienen asientos: las registradas antes de
+     * existir el libro o cargadas sin pasar por SaleDAO. Solo revisa las ventas posteriores
+     * a la última revisada (sale_id es AUTOINCREMENT), así un arranque sin ventas nuevas no
+     * recorre el historial.
+     *
+     * @return Número de asientos creados
+     */
+    public static int postMissing(Connection conn) throws SQLException {
+        long checkedThrough = 0;
+        long lastSale;
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT "
+                + "(SELECT setting_value FROM app_settings WHERE setting_key = ?), "
+                + "(SELECT COALESCE(MAX(sale_id), 0) FROM sales)")) {
+            pstmt.setString(1, KEY_POSTED_THROUGH_SALE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                if (rs.getString(1) != null) {
+                    checkedThrough = Long.parseLong(rs.getString(1));
+                }
+                lastSale = rs.getLong(2);
+            }
+        }
+        if (lastSale <= checkedThrough) {
+            return 0;
+        }
+
+        List<Entry> entries;
+        try (PreparedStatement pstmt = conn.prepareStatement(ITEMS_SELECT
+                + "WHERE s.sale_id > ? AND s.sale_id <= ? "
+                + "AND NOT EXISTS (SELECT 1 FROM commission_ledger l WHERE l.sale_id = s.sale_id)")) {
+            pstmt.setLong(1, checkedThrough);
+            pstmt.setLong(2, lastSale);
+            // Al asentar el historial completo se resume la falta de reglas en un solo aviso
+            entries = computeEntries(pstmt, Level.FINE);
+        }
+        long withoutRule = entries.stream().filter(e -> e.kind() == Kind.COMISION && e.ruleSource() == null).count();
+        if (withoutRule > 0) {
+            LOGGER.warning("Libro de comisiones: " + withoutRule + " ítems sin regla de comisión, asentados con comisión 0.0");
+        }
+        if (!entries.isEmpty()) {
+            insert(conn, entries, loadClosedPeriods(conn));
+            LOGGER.info("Libro de comisiones: " + entries.size() + " asientos para ventas sin asentar");
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT OR REPLACE INTO app_settings (setting_key, setting_value) VALUES (?, ?)")) {
+            pstmt.setString(1, KEY_POSTED_THROUGH_SALE);
+            pstmt.setString(2, Long.toString(lastSale));
+            pstmt.executeUpdate();
+        }
+        return entries.size();
+    }
+
+    /**
+     * Vuelve a asentar, con las reglas vigentes, las ventas del rango cuya comisión cambió.
+     * Las ventas de días en períodos cerrados no se tocan.
+     *
+     * Lee los ítems y los asientos de todo el rango en dos consultas ordenadas por venta y
+     * las recorre juntas, en lugar de consultar cada venta por separado.
+     *
+     * @return Número de ventas reasentadas
+     */
+    public int repost(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        return Database.executeWrite(conn -> {
+            List<ClosedPeriod> closed = loadClosedPeriods(conn);
+            List<Entry> current;
+            try (PreparedStatement pstmt = conn.prepareStatement(ITEMS_SELECT
+                    + "WHERE s.sale_date >= ? AND s.sale_date < ? ORDER BY s.sale_id")) {
+                ReportQueries.bindDateRange(pstmt, 1, firstDay, lastDay);
+                current = computeEntries(pstmt, Level.FINE);
+            }
+            List<Entry> active;
+            try (PreparedStatement pstmt = conn.prepareStatement(ACTIVE_SELECT
+                    + "AND l.sale_id IN (" + SALES_IN_RANGE + ") ORDER BY l.sale_id")) {
+                ReportQueries.bindDateRange(pstmt, 1, firstDay, lastDay);
+                active = readEntries(pstmt);
+            }
+
+            int reposted = 0;
+            int c = 0;
+            int a = 0;
+            while (c < current.size() || a < active.size()) {
+                long saleId = Math.min(
+                        c < current.size() ? current.get(c).saleId() : Long.MAX_VALUE,
+                        a < active.size() ? active.get(a).saleId() : Long.MAX_VALUE);
+                int cEnd = endOfSale(current, c, saleId);
+                int aEnd = endOfSale(active, a, saleId);
+                List<Entry> saleCurrent = current.subList(c, cEnd);
+                List<Entry> saleActive = active.subList(a, aEnd);
+                c = cEnd;
+                a = aEnd;
+
+                // El día de la venta es el de sus ítems; solo una venta sin ítems requiere consultarlo
+                LocalDate saleDay = !saleCurrent.isEmpty() ? saleCurrent.get(0).postingDate() : saleDayOf(conn, saleId);
+                if (isClosed(closed, saleDay) || samePostings(saleActive, saleCurrent)) {
+                    continue;
+                }
+                reverse(conn, saleActive, closed);
+                insert(conn, saleCurrent, closed);
+                reposted++;
+            }
+            LOGGER.info("Libro de comisiones: " + reposted + " ventas reasentadas entre " + firstDay + " y " + lastDay);
+            return reposted;
+        });
+    }
+
+    /**
+     * Vuelve a asentar las ventas posteriores al último período cerrado (todas, si no hay
+     * ninguno cerrado). Se llama después de cambiar reglas de comisión, para que la próxima
+     * nómina ya las aplique sin tener que pulsar "Recalcular Comisiones".
+     *
+     * @return Número de ventas reasentadas
+     */
+    public int repostOpenPeriods() throws SQLException {
+        LocalDate[] range = Database.executeRead(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT "
+                    + "(SELECT MAX(end_date) FROM payroll_periods), "
+                    + "substr(MIN(sale_date), 1, 10), substr(MAX(sale_date), 1, 10) FROM sales");
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                if (rs.getString(2) == null) {
+                    return null; // Sin ventas
+                }
+                LocalDate first = LocalDate.parse(rs.getString(2));
+                if (rs.getString(1) != null) {
+                    LocalDate afterClosed = LocalDate.parse(rs.getString(1)).plusDays(1);
+                    first = afterClosed.isAfter(first) ? afterClosed : first;
+                }
+                return new LocalDate[]{first, LocalDate.parse(rs.getString(3))};
+            }
+        });
+        if (range == null || range[0].isAfter(range[1])) {
+            return 0;
+        }
+        return repost(range[0], range[1]);
+    }
+
+    /**
+     * Cierra un período de nómina: sus asientos ya no cambian.
+     */
+    public void closePeriod(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        Database.executeWrite(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO payroll_periods (start_date, end_date, closed_at) VALUES (?, ?, datetime('now', 'localtime'))")) {
+                pstmt.setString(1, firstDay.toString());
+                pstmt.setString(2, lastDay.toString());
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+        LOGGER.info("Período de nómina cerrado: " + firstDay + " a " + lastDay);
+    }
+
+    /**
+     * @return true si todos los días del rango están en períodos cerrados
+     */
+    public boolean isClosed(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        List<ClosedPeriod> closed;
+        try (Connection conn = Database.connect()) {
+            closed = loadClosedPeriods(conn);
+        }
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            if (!isClosed(closed, day)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Entry> saleEntries(Connection conn, long saleId, Level missingRuleLevel) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ITEMS_SELECT + "WHERE s.sale_id = ?")) {
+            pstmt.setLong(1, saleId);
+            return computeEntries(pstmt, missingRuleLevel);
+        }
+    }
+
+    /**
+     * Calcula los asientos de los ítems que devuelve la consulta (ITEMS_SELECT con su filtro).
+     * @param missingRuleLevel Nivel del aviso por cada ítem sin regla de comisión
+     */
+    private static List<Entry> computeEntries(PreparedStatement itemsQuery, Level missingRuleLevel) throws SQLException {
+        CommissionEngine engine = CommissionEngine.current();
+        List<Trabajadora> trabajadoras = CatalogCache.getInstance().getTrabajadoras();
+        boolean[] cashPayout = new boolean[trabajadoras.stream().mapToInt(Trabajadora::getId).max().orElse(-1) + 1];
+        for (Trabajadora t : trabajadoras) {
+            cashPayout[t.getId()] = t.isAbonosEfectivo();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try (ResultSet rs = itemsQuery.executeQuery()) {
+            while (rs.next()) {
+                long saleId = rs.getLong("sale_id");
+                LocalDate day = LocalDate.parse(rs.getString("sale_day"));
+                int employeeId = rs.getInt("employee_id");
+                int serviceId = rs.getInt("service_id");
+                long priceCents = rs.getLong("price_cents");
+
+                if (engine.isManualPayment(serviceId)) {
+                    boolean cash = employeeId >= 0 && employeeId < cashPayout.length && cashPayout[employeeId];
+                    Kind kind = cash ? Kind.ABONO_EFECTIVO : Kind.ABONO_BANCO;
+                    entries.add(new Entry(0, saleId, employeeId, serviceId, day, kind, priceCents, null, null));
+                    continue;
+                }
+
+                // Las reglas trabajan en dólares; la comisión vuelve a centavos al asentarse
+                double price = Money.toDouble(priceCents);
+                CommissionEngine.Commission commission = engine.evaluate(employeeId, serviceId, price, rs.getBoolean("client_brought_product"));
+                if (commission == null) {
+                    LOGGER.log(missingRuleLevel, String.format("No se encontró regla de comisión para: %s - %s ($%.2f). Comisión será 0.0",
+                            rs.getString("trabajadora_name"), rs.getString("service_name"), price));
+                    entries.add(new Entry(0, saleId, employeeId, serviceId, day, Kind.COMISION, 0, null, null));
+                } else {
+                    entries.add(new Entry(0, saleId, employeeId, serviceId, day, Kind.COMISION,
+                            Money.toCents(commission.amount()), commission.ruleSource(), commission.ruleId()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static List<Entry> activeEntries(Connection conn, long saleId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ACTIVE_SELECT + "AND l.sale_id = ?")) {
+            pstmt.setLong(1, saleId);
+            return readEntries(pstmt);
+        }
+    }
+
+    /**
+     * Lee los asientos que devuelve la consulta (ACTIVE_SELECT con su filtro).
+     */
+    private static List<Entry> readEntries(PreparedStatement entriesQuery) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        try (ResultSet rs = entriesQuery.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new Entry(
+                        rs.getLong("entry_id"),
+                        rs.getLong("sale_id"),
+                        rs.getInt("employee_id"),
+                        rs.getInt("service_id"),
+                        LocalDate.parse(rs.getString("posting_date")),
+                        Kind.valueOf(rs.getString("kind")),
+                        rs.getLong("amount_cents"),
+                        rs.getString("rule_source"),
+                        rs.getObject("rule_id") == null ? null : rs.getInt("rule_id")));
+            }
+        }
+        return entries;
+    }
+
+    private static void reverse(Connection conn, List<Entry> active, List<ClosedPeriod> closed) throws SQLException {
+        if (active.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_ENTRY)) {
+            for (Entry e : active) {
+                bind(pstmt, e, postingDate(closed, e.postingDate()), -e.amountCents());
+                pstmt.setLong(9, e.entryId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void insert(Connection conn, List<Entry> entries, List<ClosedPeriod> closed) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_ENTRY)) {
+            for (Entry e : entries) {
+                bind(pstmt, e, postingDate(closed, e.postingDate()), e.amountCents());
+                pstmt.setNull(9, java.sql.Types.INTEGER);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, Entry e, LocalDate postingDate, long amountCents) throws SQLException {
+        pstmt.setLong(1, e.saleId());
+        pstmt.setInt(2, e.employeeId());
+        pstmt.setInt(3, e.serviceId());
+        pstmt.setString(4, postingDate.toString());
+        pstmt.setString(5, e.kind().name());
+        pstmt.setLong(6, amountCents);
+        pstmt.setString(7, e.ruleSource());
+        if (e.ruleId() != null) {
+            pstmt.setInt(8, e.ruleId());
+        } else {
+            pstmt.setNull(8, java.sql.Types.INTEGER);
+        }
+    }
+
+    /**
+     * @return true si ambas listas tienen los mismos asientos, sin importar el orden
+     */
+    private static boolean samePostings(List<Entry> a, List<Entry> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        List<Entry> sortedA = new ArrayList<>(a);
+        List<Entry> sortedB = new ArrayList<>(b);
+        sortedA.sort(POSTING_ORDER);
+        sortedB.sort(POSTING_ORDER);
+        for (int i = 0; i < sortedA.size(); i++) {
+            if (POSTING_ORDER.compare(sortedA.get(i), sortedB.get(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Índice siguiente al último asiento de la venta, en una lista ordenada por venta
+     */
+    private static int endOfSale(List<Entry> entries, int from, long saleId) {
+        int end = from;
+        while (end < entries.size() && entries.get(end).saleId() == saleId) {
+            end++;
+        }
+        return end;
+    }
+
+    private static LocalDate saleDayOf(Connection conn, long saleId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT substr(sale_date, 1, 10) FROM sales WHERE sale_id = ?")) {
+            pstmt.setLong(1, saleId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return LocalDate.parse(rs.getString(1));
+            }
+        }
+    }
+
+    private static List<ClosedPeriod> loadClosedPeriods(Connection conn) throws SQLException {
+        List<ClosedPeriod> periods = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT start_date, end_date FROM payroll_periods");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                periods.add(new ClosedPeriod(LocalDate.parse(rs.getString(1)), LocalDate.parse(rs.getString(2))));
+            }
+        }
+        return periods;
+    }
+
+    private static boolean isClosed(List<ClosedPeriod> closed, LocalDate day) {
+        return closed.stream().anyMatch(p -> p.contains(day));
+    }
+
+    /**
+     * @return El mismo día si está abierto; si no, el primer día abierto desde hoy o desde el fin del período cerrado
+     */
+    private static LocalDate postingDate(List<ClosedPeriod> closed, LocalDate day) {
+        LocalDate date = day;
+        while (true) {
+            LocalDate from = date;
+            LocalDate closedUntil = closed.stream()
+                    .filter(p -> p.contains(from))
+                    .map(ClosedPeriod::endDate)
+                    .max(Comparator.naturalOrder())
+                    .orElse(null);
+            if (closedUntil == null) {
+                return date;
+            }
+            LocalDate next = closedUntil.plusDays(1);
+            LocalDate today = LocalDate.now();
+            date = today.isAfter(next) ? today : next;
+        }
+    }
+}
@@ -206,7 +206,7 @@ public class CommissionManagementWindow extends JFrame {
 
         try {
             dao.save(currentRule);
-            JOptionPane.showMessageDialog(this, "Regla guardada con éxito.");
+            JOptionPane.showMessageDialog(this, "Regla guardada con éxito." + repostOpenPeriods());
             loadRules();
             clearFields();
         } catch (SQLException e) {
@@ -228,7 +228,7 @@ public class CommissionManagementWindow extends JFrame {
         if (response == JOptionPane.YES_OPTION) {
             try {
                 dao.delete(currentRule.getRule_id());
-                JOptionPane.showMessageDialog(this, "Regla eliminada con éxito.");
+                JOptionPane.showMessageDialog(this, "Regla eliminada con éxito." + repostOpenPeriods());
                 loadRules();
                 clearFields();
             } catch (SQLException e) {
@@ -237,6 +237,23 @@ public class CommissionManagementWindow extends JFrame {
         }
     }
 
+    /**
+     * Aplica las reglas guardadas a las ventas de los períodos abiertos, para que la próxima
+     * nómina ya las refleje.
+     *
+     * @return Texto para agregar al mensaje de la operación
+     */
+    private String repostOpenPeriods() {
+        try {
+            int reposted = new CommissionLedger().repostOpenPeriods();
+            return "\nVentas con comisión recalculada en períodos abiertos: " + reposted;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return "\n\n⚠ No se pudieron recalcular las comisiones: " + e.getMessage()
+                    + "\nLa nómina no reflejará el cambio hasta usar \"Recalcular Comisiones\" en Nómina.";
+        }
+    }
+
     private void clearFields() {
         currentRule = null;
         trabajadoraComboBox.setSelectedIndex(0);
@@ -0,0 +1,173 @@
+package com.capelli.payroll;
+
+import com.capelli.database.CatalogCache;
+import com.capelli.database.CommissionRuleDAO;
+import com.capelli.database.Database;
+import com.capelli.model.CommissionRule;
+import com.capelli.model.Money;
+import com.capelli.model.Service;
+import com.capelli.model.Trabajadora;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Verificación de que CommissionEngine paga exactamente lo mismo que la lógica anterior
+ * (comparaciones por nombre en PayrollService, conservada aquí como referencia).
+ * Compara todas las combinaciones trabajadora × servicio × precio de catálogo × producto del
+ * cliente, y además cada ítem vendido registrado. Sale con código 1 ante cualquier diferencia.
+ * Ejecutar este main después de cambiar reglas de comisión.
+ */
+public class CommissionParityCheck {
+
+    private static final int MAX_REPORTED = 20;
+
+    public static void main(String[] args) {
+        System.out.println("=== VERIFICACIÓN DE COMISIONES: MOTOR vs LÓGICA ANTERIOR ===");
+        Database.initialize();
+
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        try {
+            CommissionEngine engine = CommissionEngine.load();
+            Map<String, Double> ruleMap = new CommissionRuleDAO().getAll().stream()
+                    .collect(Collectors.toMap(
+                            rule -> rule.getTrabajadora_id() + "-" + rule.getService_category(),
+                            CommissionRule::getCommission_rate));
+            List<Trabajadora> trabajadoras = CatalogCache.getInstance().getTrabajadoras();
+            List<Service> services = CatalogCache.getInstance().getAllServices();
+
+            // 1. Combinaciones sintéticas
+            for (Trabajadora t : trabajadoras) {
+                for (Service s : services) {
+                    String category = Objects.requireNonNullElse(s.getService_category(), CommissionEngine.SIN_CATEGORIA);
+                    if (CommissionEngine.PAGO_MANUAL.equals(category)) continue;
+                    for (double price : candidatePrices(s)) {
+                        for (boolean cbp : new boolean[]{false, true}) {
+                            checked++;
+                            compare(engine, ruleMap, t.getId(), t.getNombreCompleto(), s.getId(), s.getName(), category, price, cbp, failures);
+                        }
+                    }
+                }
+            }
+
+            // 2. Ítems vendidos
+            String sql = "SELECT si.employee_id, si.service_id, si.price_cents, si.client_brought_product, "
+                    + "svc.name AS service_name, COALESCE(svc.service_category, 'Sin Categoria') AS service_category, "
+                    + "(t.nombres || ' ' || t.apellidos) AS trabajadora_name "
+                    + "FROM sale_items si "
+                    + "JOIN services svc ON si.service_id = svc.service_id "
+                    + "JOIN trabajadoras t ON si.employee_id = t.id";
+            try (Connection conn = Database.connect();
+                 PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String category = rs.getString("service_category");
+                    if (CommissionEngine.PAGO_MANUAL.equals(category)) continue;
+                    checked++;
+                    compare(engine, ruleMap, rs.getInt("employee_id"), rs.getString("trabajadora_name"),
+                            rs.getInt("service_id"), rs.getString("service_name"), category,
+                            Money.toDouble(rs.getLong("price_cents")), rs.getBoolean("client_brought_product"), failures);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("✗ Error al cargar datos: " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.out.println("Casos comparados: " + checked);
+        if (failures.isEmpty()) {
+            System.out.println("✅ El motor reproduce todas las comisiones");
+        } else {
+            System.out.println("❌ " + failures.size() + " diferencia(s):");
+            failures.stream().limit(MAX_REPORTED).forEach(f -> System.out.println("   - " + f));
+        }
+        Database.shutdown();
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static TreeSet<Double> candidatePrices(Service s) {
+        TreeSet<Double> prices = new TreeSet<>(List.of(s.getPrice_corto(), s.getPrice_medio(), s.getPrice_largo(),
+                s.getPrice_ext(), s.getPriceClienteProducto(), 8.0, 8.005, 12.34));
+        prices.removeIf(p -> p <= 0);
+        return prices;
+    }
+
+    private static void compare(CommissionEngine engine, Map<String, Double> ruleMap, int tId, String tName,
+                                int sId, String sName, String sCat, double price, boolean cbp, List<String> failures) {
+        double expected = legacyCommission(tName, tId, sName, sCat, price, ruleMap, cbp);
+        double actual = engine.commission(tId, sId, price, cbp);
+        if (Double.isNaN(actual)) {
+            actual = 0.0;
+        }
+        if (Double.compare(expected, actual) != 0) {
+            failures.add(String.format("%s / %s ($%.3f, producto cliente=%s): anterior=%s, motor=%s",
+                    tName, sName, price, cbp, expected, actual));
+        }
+    }
+
+    /**
+     * Lógica de PayrollService.calculateCommissionForItem antes del motor de reglas, sin cambios.
+     */
+    private static double legacyCommission(String tName, int tId, String sName, String sCat, double price, Map<String, Double> ruleMap, boolean clientBroughtProduct) {
+
+        boolean isDepilacion = sName.equals("Cejas") || sName.equals("Bozo");
+
+        if (tName.equals("Jaqueline Añez") ||
+            tName.equals("Dayana Govea") ||
+            tName.equals("Maria Virginia Romero")) {
+
+            if (tName.equals("Maria Virginia Romero") && isDepilacion) {
+                return price * 0.50;
+            }
+
+            if (sCat.equals("Lavado")) {
+                double comision = price * 0.40;
+                if (Math.abs(price - 8.0) < 0.01) {
+                    comision = 3.0;
+                }
+                return comision;
+            }
+
+            if (sName.equals("Hidratación Fusio-Dose")) return 8.0;
+            if (sName.equals("Extensiones (1 Paquete)")) return 10.0;
+            if (sName.equals("Extensiones (2 Paquetes)")) return 20.0;
+            if (sName.equals("Extensiones (3 Paquetes)")) return 15.0;
+        }
+        else if (tName.equals("Belkis Gutierrez")) {
+            if (sName.equals("Mechas")) return price * 0.36;
+            if (sName.equals("Keratina")) return price * 0.70;
+            if (isDepilacion) return price * 0.50;
+        }
+        else if (tName.equals("Aurora Sofia Exposito")) {
+            if (isDepilacion) return price * 0.50;
+        }
+        else if (tName.equals("Jeimy Añez")) {
+            if (sName.equals("Mechas")) return price * 0.36;
+            if (sName.equals("Extensiones (1 Paquete)")) return 20.0;
+            if (sName.equals("Extensiones (2 Paquetes)")) return 30.0;
+            if (sName.equals("Extensiones (3 Paquetes)") || sName.equals("Extensiones (4 Paquetes)")) return 40.0;
+        }
+
+        if (sName.equals("Color (Tinte)")) {
+            if (clientBroughtProduct) {
+                return 12.5;
+            } else {
+                return price * 0.25;
+            }
+        }
+
+        Double rate = ruleMap.get(tId + "-" + sCat);
+        if (rate != null) {
+            return price * rate;
+        }
+        return 0.0;
+    }
+}
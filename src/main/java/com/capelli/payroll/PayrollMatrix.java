@@ -0,0 +1,138 @@
+package com.capelli.payroll;
+
+import com.capelli.model.Money;
+import com.capelli.model.Trabajadora;
+import com.capelli.reports.CsvExport;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nómina de varios períodos: una fila por período y una columna por trabajadora.
+ * Los montos se guardan en centavos, indexados por período y por ID de trabajadora.
+ */
+public final class PayrollMatrix {
+
+    /**
+     * Período de nómina, inclusive en ambos extremos.
+     */
+    public record Period(LocalDate startDate, LocalDate endDate) {}
+
+    private final List<Period> periods;
+    /** Trabajadoras ordenadas por ID. */
+    private final List<Trabajadora> trabajadoras = new ArrayList<>();
+    // [período][ID de trabajadora]
+    private final long[][] bankCents;
+    private final long[][] cashCents;
+
+    PayrollMatrix(List<Period> periods, Trabajadora[] trabajadorasById, List<PayrollService.PeriodTotals> totals) {
+        this.periods = List.copyOf(periods);
+        for (Trabajadora t : trabajadorasById) {
+            if (t != null) {
+                trabajadoras.add(t);
+            }
+        }
+        bankCents = new long[totals.size()][];
+        cashCents = new long[totals.size()][];
+        for (int p = 0; p < totals.size(); p++) {
+            bankCents[p] = totals.get(p).bankCents();
+            cashCents[p] = totals.get(p).cashCents();
+        }
+    }
+
+    /**
+     * Divide el rango en semanas de siete días a partir de {@code startDate}; la última
+     * termina en {@code endDate} y puede ser más corta.
+     */
+    public static List<Period> weeklyPeriods(LocalDate startDate, LocalDate endDate) {
+        List<Period> periods = new ArrayList<>();
+        for (LocalDate start = startDate; !start.isAfter(endDate); start = start.plusWeeks(1)) {
+            LocalDate end = start.plusDays(6);
+            periods.add(new Period(start, end.isAfter(endDate) ? endDate : end));
+        }
+        return periods;
+    }
+
+    public List<Period> periods() {
+        return periods;
+    }
+
+    public List<Trabajadora> trabajadoras() {
+        return List.copyOf(trabajadoras);
+    }
+
+    /**
+     * Monto a pagar por banco en un período (comisiones, propinas y bonos).
+     * @param period Índice del período en {@link #periods()}
+     */
+    public Money bank(int period, Trabajadora trabajadora) {
+        return Money.ofCents(bankCents[period][trabajadora.getId()]);
+    }
+
+    /**
+     * Monto a pagar en efectivo en un período (abonos manuales).
+     * @param period Índice del período en {@link #periods()}
+     */
+    public Money cash(int period, Trabajadora trabajadora) {
+        return Money.ofCents(cashCents[period][trabajadora.getId()]);
+    }
+
+    /**
+     * Escribe la matriz como CSV: una fila por período con lo que cobra cada trabajadora por
+     * banco y una fila final de totales. Las trabajadoras con abonos en efectivo llevan una
+     * columna más para el efectivo.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        boolean[] cashColumn = new boolean[bankCents.length > 0 ? bankCents[0].length : 0];
+        List<String> header = new ArrayList<>(List.of("Desde", "Hasta"));
+        for (Trabajadora t : trabajadoras) {
+            header.add(t.getNombreCompleto());
+            if (hasCash(t)) {
+                cashColumn[t.getId()] = true;
+                header.add(t.getNombreCompleto() + " (Efectivo $)");
+            }
+        }
+        header.add("Total");
+        CsvExport.writeRow(out, header);
+
+        long[] columnTotals = new long[header.size()];
+        for (int p = 0; p < periods.size(); p++) {
+            List<String> row = new ArrayList<>(List.of(periods.get(p).startDate().toString(), periods.get(p).endDate().toString()));
+            long periodTotal = 0;
+            for (Trabajadora t : trabajadoras) {
+                long bank = bankCents[p][t.getId()];
+                addCell(row, columnTotals, bank);
+                periodTotal += bank;
+                if (cashColumn[t.getId()]) {
+                    long cash = cashCents[p][t.getId()];
+                    addCell(row, columnTotals, cash);
+                    periodTotal += cash;
+                }
+            }
+            addCell(row, columnTotals, periodTotal);
+            CsvExport.writeRow(out, row);
+        }
+
+        List<String> totalRow = new ArrayList<>(List.of("Total", ""));
+        for (int column = 2; column < header.size(); column++) {
+            totalRow.add(Money.ofCents(columnTotals[column]).toString());
+        }
+        CsvExport.writeRow(out, totalRow);
+    }
+
+    private static void addCell(List<String> row, long[] columnTotals, long cents) {
+        columnTotals[row.size()] += cents;
+        row.add(Money.ofCents(cents).toString());
+    }
+
+    private boolean hasCash(Trabajadora trabajadora) {
+        for (long[] period : cashCents) {
+            if (period[trabajadora.getId()] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
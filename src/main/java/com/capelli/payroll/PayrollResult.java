@@ -1,11 +1,12 @@
 package com.capelli.payroll;
 
 import com.capelli.model.CuentaBancaria;
+import com.capelli.model.Money;
 import com.capelli.model.Trabajadora;
 
 public record PayrollResult(
     Trabajadora trabajadora,
-    double amountToPayBank,  // Comisiones normales (para transferencia)
-    double amountToPayCash,  // Pagos manuales (para efectivo $)
+    Money amountToPayBank,  // Comisiones normales (para transferencia)
+    Money amountToPayCash,  // Pagos manuales (para efectivo $)
     CuentaBancaria primaryAccount
 ) {}
\ No newline at end of file
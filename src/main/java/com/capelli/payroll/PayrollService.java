@@ -1,10 +1,11 @@
 package com.capelli.payroll;
 
-import com.capelli.database.CommissionRuleDAO;
+import com.capelli.config.AppConfig;
 import com.capelli.database.Database;
+import com.capelli.database.ReportQueries;
 import com.capelli.database.TrabajadoraDAO;
-import com.capelli.model.CommissionRule;
 import com.capelli.model.CuentaBancaria;
+import com.capelli.model.Money;
 import com.capelli.model.Trabajadora;
 
 import java.io.IOException;
@@ -14,256 +15,192 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class PayrollService {
 
     private static final Logger LOGGER = Logger.getLogger(PayrollService.class.getName());
 
+    /**
+     * Totales de un período en centavos, indexados por ID de trabajadora.
+     */
+    record PeriodTotals(long[] bankCents, long[] cashCents) {}
+
     /**
      * Calcula la nómina basándose en:
-     * 1. Ventas y reglas de comisión (DB).
-     * 2. Pagos manuales (Abono Manual Staff).
-     * 3. Propinas registradas.
-     * 4. Bonos fijos semanales configurados en la trabajadora.
+     * 1. Comisiones y pagos manuales (Abono Manual Staff) asentados en el libro de comisiones.
+     * 2. Propinas registradas.
+     * 3. Bonos fijos semanales configurados en la trabajadora.
      */
     public List<PayrollResult> calculatePayroll(LocalDate startDate, LocalDate endDate) throws SQLException, IOException {
         
-        // 1. Obtener todas las trabajadoras
+        // 1. Obtener todas las trabajadoras (desde la caché del catálogo)
         TrabajadoraDAO trabajadoraDAO = new TrabajadoraDAO();
         List<Trabajadora> todasLasTrabajadoras = trabajadoraDAO.getAll();
-        
-        // Mapa ID -> Trabajadora
-        Map<Integer, Trabajadora> trabajadorasMap = todasLasTrabajadoras.stream()
-                .collect(Collectors.toMap(Trabajadora::getId, t -> t));
-        
-        // 2. Cargar reglas de comisión
-        CommissionRuleDAO commissionRuleDAO = new CommissionRuleDAO();
-        List<CommissionRule> allRules = commissionRuleDAO.getAll();
-        
-        // Mapa: Key="trabajadora_id-service_category"
-        Map<String, Double> ruleMap = allRules.stream()
-                .collect(Collectors.toMap(
-                        rule -> rule.getTrabajadora_id() + "-" + rule.getService_category(),
-                        CommissionRule::getCommission_rate
-                ));
-        
-        LOGGER.info("Reglas de comisión cargadas: " + ruleMap.size());
-        
-        // 3. Mapas acumuladores
-        Map<Integer, Double> bankTotals = new HashMap<>();
-        Map<Integer, Double> cashTotals = new HashMap<>();
-        
-        for (Integer id : trabajadorasMap.keySet()) {
-            bankTotals.put(id, 0.0);
-            cashTotals.put(id, 0.0);
+        Trabajadora[] trabajadorasById = indexById(todasLasTrabajadoras);
+
+        // 2-4. Comisiones, propinas y bonos, todo leído en una misma transacción
+        PeriodTotals totals = Database.executeRead(conn ->
+                sumPeriod(conn, todasLasTrabajadoras, trabajadorasById, startDate, endDate));
+
+        // 5. Resultados Finales
+        List<PayrollResult> results = new ArrayList<>();
+        for (Trabajadora trabajadora : trabajadorasById) {
+            if (trabajadora == null) {
+                continue;
+            }
+            int id = trabajadora.getId();
+            Money totalBank = Money.ofCents(totals.bankCents()[id]);
+            Money totalCash = Money.ofCents(totals.cashCents()[id]);
+            
+            Optional<CuentaBancaria> primaryAccount = trabajadora.getCuentaPrincipal();
+            results.add(new PayrollResult(trabajadora, totalBank, totalCash, primaryAccount.orElse(null)));
         }
 
-        // 4. Procesar VENTAS
-        String sqlVentas = "SELECT "
-                + "    si.employee_id, "
-                + "    si.price_at_sale, "
-                + "    svc.name AS service_name, "
-                + "    COALESCE(svc.service_category, 'Sin Categoria') AS service_category, "
-                + "    (t.nombres || ' ' || t.apellidos) as trabajadora_name, "
-                + "    si.client_brought_product "
-                + "FROM "
-                + "    sale_items si "
-                + "JOIN "
-                + "    sales s ON si.sale_id = s.sale_id "
-                + "JOIN "
-                + "    services svc ON si.service_id = svc.service_id "
-                + "JOIN "
-                + "    trabajadoras t ON si.employee_id = t.id "
-                + "WHERE "
-                + "    DATE(s.sale_date) BETWEEN ? AND ? ";
+        return results;
+    }
+
+    /**
+     * Calcula la nómina de varios períodos a la vez (cierre de año, auditorías).
+     * Cada período se calcula igual que {@link #calculatePayroll}, en paralelo, cada uno en su
+     * propia conexión de solo lectura. Se deja libre una conexión del pool para la interfaz.
+     *
+     * @param periods Períodos a calcular, por ejemplo los de {@link PayrollMatrix#weeklyPeriods}
+     */
+    public PayrollMatrix calculatePayroll(List<PayrollMatrix.Period> periods) throws SQLException, IOException {
+        List<Trabajadora> todasLasTrabajadoras = new TrabajadoraDAO().getAll();
+        Trabajadora[] trabajadorasById = indexById(todasLasTrabajadoras);
+
+        int threads = Math.min(periods.size(),
+                Math.min(Runtime.getRuntime().availableProcessors(), AppConfig.getDbPoolSize() - 1));
+        if (threads <= 1) {
+            List<PeriodTotals> totals = new ArrayList<>();
+            for (PayrollMatrix.Period period : periods) {
+                totals.add(Database.executeRead(conn ->
+                        sumPeriod(conn, todasLasTrabajadoras, trabajadorasById, period.startDate(), period.endDate())));
+            }
+            return new PayrollMatrix(periods, trabajadorasById, totals);
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "payroll-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<PeriodTotals>> futures = new ArrayList<>();
+            for (PayrollMatrix.Period period : periods) {
+                futures.add(executor.submit(() -> Database.executeRead(conn ->
+                        sumPeriod(conn, todasLasTrabajadoras, trabajadorasById, period.startDate(), period.endDate()))));
+            }
+            List<PeriodTotals> totals = new ArrayList<>();
+            for (Future<PeriodTotals> future : futures) {
+                totals.add(await(future));
+            }
+            LOGGER.info("Nómina de " + periods.size() + " períodos calculada con " + threads + " hilos en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new PayrollMatrix(periods, trabajadorasById, totals);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Suma comisiones, propinas y bonos de un período con la conexión dada.
+     */
+    private static PeriodTotals sumPeriod(Connection conn, List<Trabajadora> todasLasTrabajadoras,
+                                          Trabajadora[] trabajadorasById, LocalDate startDate, LocalDate endDate) throws SQLException {
+        int maxId = trabajadorasById.length - 1;
 
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sqlVentas)) {
+        // Acumuladores en centavos indexados por ID: la suma es exacta y no crea objetos por fila
+        long[] bankTotals = new long[maxId + 1];
+        long[] cashTotals = new long[maxId + 1];
 
-            pstmt.setString(1, startDate.toString());
-            pstmt.setString(2, endDate.toString());
+        // 2. Sumar el LIBRO DE COMISIONES (calculado al registrar cada venta)
+        try (PreparedStatement pstmt = conn.prepareStatement(ReportQueries.PAYROLL_LEDGER)) {
+
+            ReportQueries.bindDateRange(pstmt, 1, startDate, endDate);
 
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 int employee_id = rs.getInt("employee_id");
-                double price = rs.getDouble("price_at_sale");
-                String serviceName = rs.getString("service_name");
-                String serviceCategory = rs.getString("service_category");
-                String trabajadoraName = rs.getString("trabajadora_name");
-                boolean clientBroughtProduct = rs.getBoolean("client_brought_product");
+                long total = rs.getLong("total_cents");
                 
-                // A) Abono Manual
-                if ("PAGO-MANUAL".equals(serviceCategory)) {
-                    double amount = price;
-                    if (trabajadoraName.equals("Rosa Maria Gutierrez") || 
-                        trabajadoraName.equals("Jeimy Añez") || 
-                        trabajadoraName.equals("Milagros Gutierrez")) {
-                        cashTotals.merge(employee_id, amount, Double::sum);
-                    } else {
-                        bankTotals.merge(employee_id, amount, Double::sum);
-                    }
-                } 
-                // B) Servicios Normales
-                else {
-                    double commissionForItem = calculateCommissionForItem(
-                            trabajadoraName, 
-                            employee_id, 
-                            serviceName, 
-                            serviceCategory, 
-                            price, 
-                            ruleMap,
-                            clientBroughtProduct
-                    );
-                    bankTotals.merge(employee_id, commissionForItem, Double::sum);
+                if (employee_id < 0 || employee_id > maxId || trabajadorasById[employee_id] == null) {
+                    continue; // Trabajadora eliminada: no aparece en la nómina
+                }
+                if (CommissionLedger.Kind.ABONO_EFECTIVO.name().equals(rs.getString("kind"))) {
+                    cashTotals[employee_id] += total;
+                } else {
+                    bankTotals[employee_id] += total;
                 }
             }
         }
         
-        // 5. Procesar PROPINAS
-        String sqlPropinas = "SELECT "
-                           + "    t.recipient_name, "
-                           + "    SUM(t.amount) as total_tips "
-                           + "FROM "
-                           + "    tips t "
-                           + "JOIN "
-                           + "    sales s ON t.sale_id = s.sale_id "
-                           + "WHERE "
-                           + "    DATE(s.sale_date) BETWEEN ? AND ? "
-                           + "GROUP BY t.recipient_name";
-                           
-        try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sqlPropinas)) {
+        // 3. Procesar PROPINAS
+        try (PreparedStatement pstmt = conn.prepareStatement(ReportQueries.PAYROLL_TIPS)) {
              
-            pstmt.setString(1, startDate.toString());
-            pstmt.setString(2, endDate.toString());
+            ReportQueries.bindDateRange(pstmt, 1, startDate, endDate);
             
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
-                String recipientName = rs.getString("recipient_name");
-                double tipAmount = rs.getDouble("total_tips");
-                
-                if (recipientName == null) continue;
+                int employee_id = rs.getInt("employee_id");
+                long tipAmount = rs.getLong("total_tips_cents");
 
-                boolean matched = false;
-                for (Trabajadora t : todasLasTrabajadoras) {
-                    if (t.getNombreCompleto().trim().equalsIgnoreCase(recipientName.trim())) {
-                        bankTotals.merge(t.getId(), tipAmount, Double::sum);
-                        matched = true;
-                        break;
-                    }
-                }
-                if (!matched) {
-                    LOGGER.warning("No se encontró trabajadora para la propina: " + recipientName);
+                if (employee_id < 0 || employee_id > maxId || trabajadorasById[employee_id] == null) {
+                    continue;
                 }
+                bankTotals[employee_id] += tipAmount;
             }
         }
 
-        // 6. Procesar BONOS FIJOS
+        // 4. Procesar BONOS FIJOS
         for (Trabajadora t : todasLasTrabajadoras) {
             if (t.isBonoActivo() && t.getMontoBono() > 0) {
-                bankTotals.merge(t.getId(), t.getMontoBono(), Double::sum);
-                LOGGER.info("Bono Fijo aplicado: $" + t.getMontoBono() + " para " + t.getNombreCompleto());
+                bankTotals[t.getId()] += Money.toCents(t.getMontoBono());
+                LOGGER.fine("Bono Fijo aplicado: $" + t.getMontoBono() + " para " + t.getNombreCompleto());
             }
         }
 
-        // 7. Resultados Finales
-        List<PayrollResult> results = new ArrayList<>();
-        for (Map.Entry<Integer, Trabajadora> entry : trabajadorasMap.entrySet()) {
-            int id = entry.getKey();
-            Trabajadora trabajadora = entry.getValue();
-            
-            double totalBank = bankTotals.getOrDefault(id, 0.0);
-            double totalCash = cashTotals.getOrDefault(id, 0.0);
-            
-            Optional<CuentaBancaria> primaryAccount = trabajadora.getCuentaPrincipal();
-            results.add(new PayrollResult(trabajadora, totalBank, totalCash, primaryAccount.orElse(null)));
-        }
-
-        return results;
+        return new PeriodTotals(bankTotals, cashTotals);
     }
 
     /**
-     * Lógica de cálculo de comisiones.
-     * ORDEN ACTUALIZADO: Excepciones Persona > Excepciones Servicio (Tinte) > Reglas BD.
+     * Tabla ID -> Trabajadora; los IDs son chicos y densos, como en CommissionEngine.
      */
-    private double calculateCommissionForItem(String tName, int tId, String sName, String sCat, double price, Map<String, Double> ruleMap, boolean clientBroughtProduct) {
-        
-        boolean isDepilacion = sName.equals("Cejas") || sName.equals("Bozo");
-
-        // --- PRIORIDAD 1: Excepciones de Trabajadoras Específicas ---
-
-        // GRUPO: Dayana, Jaqueline, Maria Virginia
-        if (tName.equals("Jaqueline Añez") || 
-            tName.equals("Dayana Govea") || 
-            tName.equals("Maria Virginia Romero")) {
-
-            if (tName.equals("Maria Virginia Romero") && isDepilacion) {
-                return price * 0.50; 
-            }
-            
-            // Lógica flexible para Lavado (Dayana y grupo)
-            if (sCat.equals("Lavado")) {
-                double comision = price * 0.40;
-                if (Math.abs(price - 8.0) < 0.01) {
-                    comision = 3.0;
-                }
-                return comision;
-            }
-
-            if (sName.equals("Hidratación Fusio-Dose")) return 8.0; 
-            if (sName.equals("Extensiones (1 Paquete)")) return 10.0;
-            if (sName.equals("Extensiones (2 Paquetes)")) return 20.0;
-            if (sName.equals("Extensiones (3 Paquetes)")) return 15.0; 
-        }
-
-        // Reglas para Belkis Gutierrez
-        else if (tName.equals("Belkis Gutierrez")) {
-            if (sName.equals("Mechas")) return price * 0.36;
-            if (sName.equals("Keratina")) return price * 0.70;
-            if (isDepilacion) return price * 0.50;
+    private static Trabajadora[] indexById(List<Trabajadora> trabajadoras) {
+        int maxId = trabajadoras.stream().mapToInt(Trabajadora::getId).max().orElse(-1);
+        Trabajadora[] byId = new Trabajadora[maxId + 1];
+        for (Trabajadora t : trabajadoras) {
+            byId[t.getId()] = t;
         }
+        return byId;
+    }
 
-        // Reglas para Aurora Sofia Exposito
-        else if (tName.equals("Aurora Sofia Exposito")) {
-            if (isDepilacion) return price * 0.50;
-        }
-        
-        // Reglas para Jeimy Añez
-        else if (tName.equals("Jeimy Añez")) {
-            if (sName.equals("Mechas")) return price * 0.36;
-            if (sName.equals("Extensiones (1 Paquete)")) return 20.0;
-            if (sName.equals("Extensiones (2 Paquetes)")) return 30.0;
-            if (sName.equals("Extensiones (3 Paquetes)") || sName.equals("Extensiones (4 Paquetes)")) return 40.0;
-        }
-        
-        // --- PRIORIDAD 2: Excepciones Globales por Servicio (MOVIDO AQUÍ) ---
-        // Esto asegura que el Tinte se pague al 25% antes de mirar la categoría general de la trabajadora.
-        if (sName.equals("Color (Tinte)")) {
-            if (clientBroughtProduct) {
-                return 12.5; 
-            } else {
-                return price * 0.25; // Regla del 25%
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando el cálculo de nómina", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
             }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException(cause);
         }
-
-        // --- PRIORIDAD 3: Reglas Generales de Categoría (Base de Datos) ---
-        String key = tId + "-" + sCat;
-        Double rate = ruleMap.get(key);
-
-        if (rate != null) {
-            return price * rate;
-        }
-
-        // --- Fallback ---
-        LOGGER.warning(String.format("No se encontró regla de comisión para: %s - %s ($%.2f). Comisión será 0.0", tName, sName, price));
-        return 0.0;
     }
-}
\ No newline at end of file
+}
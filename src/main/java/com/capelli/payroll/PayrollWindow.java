@@ -8,13 +8,19 @@ import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class PayrollWindow extends JFrame {
 
@@ -23,6 +29,8 @@ public class PayrollWindow extends JFrame {
     private final DefaultTableModel tableModel;
     private final JTable payrollTable;
     private final PayrollService payrollService;
+    private final CommissionLedger commissionLedger = new CommissionLedger();
+    private final JButton weeklyExportButton;
     private final DecimalFormat currencyFormat = new DecimalFormat("#,##0.00");
 
     public PayrollWindow() {
@@ -37,7 +45,7 @@ public class PayrollWindow extends JFrame {
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // Panel de Controles
-        JPanel controlsPanel = new JPanel(new MigLayout("fillx", "[right]10[grow,fill]20[right]10[grow,fill]20[grow,fill]", ""));
+        JPanel controlsPanel = new JPanel(new MigLayout("fillx", "[right]10[grow,fill]20[right]10[grow,fill]20[grow,fill]10[grow,fill]10[grow,fill]10[grow,fill]", ""));
         controlsPanel.setBorder(new TitledBorder("Seleccionar Rango de Fechas"));
 
         startDateSpinner = new JSpinner(new SpinnerDateModel());
@@ -47,12 +55,21 @@ public class PayrollWindow extends JFrame {
         endDateSpinner.setEditor(new JSpinner.DateEditor(endDateSpinner, "dd/MM/yyyy"));
 
         JButton calculateButton = new JButton("Calcular Nómina");
+        JButton repostButton = new JButton("Recalcular Comisiones");
+        repostButton.setToolTipText("Vuelve a aplicar las reglas vigentes a las ventas del rango que no estén en un período cerrado");
+        JButton closePeriodButton = new JButton("Cerrar Período");
+        closePeriodButton.setToolTipText("Congela las comisiones del rango: las ediciones posteriores se ajustan en el siguiente período abierto");
+        weeklyExportButton = new JButton("Exportar por Semanas");
+        weeklyExportButton.setToolTipText("Calcula la nómina de cada semana del rango y la exporta a CSV (una fila por semana, una columna por trabajadora)");
         
         controlsPanel.add(new JLabel("Fecha Inicio:"));
         controlsPanel.add(startDateSpinner, "sg date");
         controlsPanel.add(new JLabel("Fecha Fin:"));
         controlsPanel.add(endDateSpinner, "sg date");
         controlsPanel.add(calculateButton, "sg button");
+        controlsPanel.add(repostButton, "sg button");
+        controlsPanel.add(closePeriodButton, "sg button");
+        controlsPanel.add(weeklyExportButton, "sg button");
 
         // Panel de Tabla
         // ===== INICIO DE MODIFICACIÓN: Añadida columna "Monto Efectivo $" =====
@@ -76,17 +93,132 @@ public class PayrollWindow extends JFrame {
 
         // Listeners
         calculateButton.addActionListener(e -> calculatePayroll());
+        repostButton.addActionListener(e -> repostCommissions());
+        closePeriodButton.addActionListener(e -> closePeriod());
+        weeklyExportButton.addActionListener(e -> exportWeeklyPayroll());
     }
 
-    private void calculatePayroll() {
-        Date startDate = (Date) startDateSpinner.getValue();
-        Date endDate = (Date) endDateSpinner.getValue();
+    private LocalDate getStartDate() {
+        return ((Date) startDateSpinner.getValue()).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
 
-        LocalDate startLocalDate = startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate endLocalDate = endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    private LocalDate getEndDate() {
+        return ((Date) endDateSpinner.getValue()).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
 
+    /**
+     * @return true si el rango es válido; si no, avisa al usuario
+     */
+    private boolean validateRange(LocalDate startLocalDate, LocalDate endLocalDate) {
         if (startLocalDate.isAfter(endLocalDate)) {
             JOptionPane.showMessageDialog(this, "La fecha de inicio no puede ser posterior a la fecha de fin.", "Error de Fechas", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
+    private void repostCommissions() {
+        LocalDate startLocalDate = getStartDate();
+        LocalDate endLocalDate = getEndDate();
+        if (!validateRange(startLocalDate, endLocalDate)) {
+            return;
+        }
+
+        try {
+            int reposted = commissionLedger.repost(startLocalDate, endLocalDate);
+            JOptionPane.showMessageDialog(this, "Ventas con comisión recalculada: " + reposted, "Comisiones", JOptionPane.INFORMATION_MESSAGE);
+            calculatePayroll();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Error al recalcular las comisiones: " + e.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    private void closePeriod() {
+        LocalDate startLocalDate = getStartDate();
+        LocalDate endLocalDate = getEndDate();
+        if (!validateRange(startLocalDate, endLocalDate)) {
+            return;
+        }
+        if (!endLocalDate.isBefore(LocalDate.now())) {
+            JOptionPane.showMessageDialog(this, "Solo se pueden cerrar períodos que ya terminaron.", "Cerrar Período", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        try {
+            if (commissionLedger.isClosed(startLocalDate, endLocalDate)) {
+                JOptionPane.showMessageDialog(this, "El período ya está cerrado.", "Cerrar Período", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            int confirm = JOptionPane.showConfirmDialog(this,
+                    "¿Cerrar la nómina del " + startLocalDate + " al " + endLocalDate + "?\n"
+                    + "Las comisiones del período no volverán a cambiar.",
+                    "Cerrar Período", JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                commissionLedger.closePeriod(startLocalDate, endLocalDate);
+            }
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Error al cerrar el período: " + e.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Calcula la nómina de cada semana del rango (en paralelo, ver PayrollService) y la
+     * guarda como CSV con una fila por semana y una columna por trabajadora.
+     */
+    private void exportWeeklyPayroll() {
+        LocalDate startLocalDate = getStartDate();
+        LocalDate endLocalDate = getEndDate();
+        if (!validateRange(startLocalDate, endLocalDate)) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Guardar Nómina por Semanas");
+        fileChooser.setSelectedFile(new File("nomina_semanal_" + startLocalDate + "_" + endLocalDate + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path fileToSave = fileChooser.getSelectedFile().toPath();
+        List<PayrollMatrix.Period> periods = PayrollMatrix.weeklyPeriods(startLocalDate, endLocalDate);
+
+        weeklyExportButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                PayrollMatrix matrix = payrollService.calculatePayroll(periods);
+                try (BufferedWriter out = Files.newBufferedWriter(fileToSave, StandardCharsets.UTF_8)) {
+                    out.write('\uFEFF'); // BOM: Excel abre el archivo como UTF-8 y respeta los acentos
+                    matrix.writeCsv(out);
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                weeklyExportButton.setEnabled(true);
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(PayrollWindow.this, "Nómina de " + periods.size() + " semanas exportada a:\n" + fileToSave.toAbsolutePath(), "Exportación Completa", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(PayrollWindow.this, "Error al exportar la nómina: " + e.getCause().getMessage(), "Error de Exportación", JOptionPane.ERROR_MESSAGE);
+                    e.getCause().printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void calculatePayroll() {
+        LocalDate startLocalDate = getStartDate();
+        LocalDate endLocalDate = getEndDate();
+        if (!validateRange(startLocalDate, endLocalDate)) {
             return;
         }
 
@@ -102,8 +234,8 @@ public class PayrollWindow extends JFrame {
                 // ===== INICIO DE MODIFICACIÓN: Añadidos nuevos campos al agregar fila =====
                 tableModel.addRow(new Object[]{
                     t.getNombreCompleto(),
-                    currencyFormat.format(result.amountToPayBank()),
-                    currencyFormat.format(result.amountToPayCash()),
+                    currencyFormat.format(result.amountToPayBank().toDouble()),
+                    currencyFormat.format(result.amountToPayCash().toDouble()),
                     (cb != null) ? cb.getBanco() : "N/A",
                     (cb != null) ? cb.getNumeroDeCuenta() : "N/A",
                     t.getCiCompleta(),
@@ -0,0 +1,89 @@
+package com.capelli.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Escritura de un ResultSet a CSV fila por fila, sin cargar el resultado en memoria.
+ * Todas las celdas van entre comillas; los saltos de línea (de GROUP_CONCAT) se reemplazan por " | ".
+ */
+public final class CsvExport {
+
+    /** Cada cuántas filas se informa el avance. */
+    private static final int PROGRESS_INTERVAL = 500;
+
+    /**
+     * Recibe el avance de la exportación y permite cancelarla.
+     */
+    public interface Progress {
+
+        void rowsWritten(long rows);
+
+        boolean isCancelled();
+    }
+
+    private CsvExport() {
+    }
+
+    /**
+     * Escribe la cabecera y todas las filas restantes del ResultSet.
+     * @return Filas escritas, o -1 si se canceló
+     */
+    public static long write(ResultSet rs, Writer out, Progress progress) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        for (int column = 1; column <= columnCount; column++) {
+            if (column > 1) {
+                out.write(',');
+            }
+            writeCell(out, metaData.getColumnName(column));
+        }
+        out.write(System.lineSeparator());
+
+        long rows = 0;
+        while (rs.next()) {
+            for (int column = 1; column <= columnCount; column++) {
+                if (column > 1) {
+                    out.write(',');
+                }
+                Object value = rs.getObject(column);
+                writeCell(out, value != null ? value.toString() : "");
+            }
+            out.write(System.lineSeparator());
+
+            rows++;
+            if (rows % PROGRESS_INTERVAL == 0) {
+                if (progress.isCancelled()) {
+                    return -1;
+                }
+                progress.rowsWritten(rows);
+            }
+        }
+        progress.rowsWritten(rows);
+        return rows;
+    }
+
+    /**
+     * Escribe una fila ya armada (por ejemplo, una tabla calculada en memoria).
+     */
+    public static void writeRow(Writer out, List<String> cells) throws IOException {
+        for (int column = 0; column < cells.size(); column++) {
+            if (column > 0) {
+                out.write(',');
+            }
+            writeCell(out, cells.get(column));
+        }
+        out.write(System.lineSeparator());
+    }
+
+    private static void writeCell(Writer out, String value) throws IOException {
+        out.write('"');
+        out.write(value.replace("\n", " | ").replace("\"", "\"\""));
+        out.write('"');
+    }
+}
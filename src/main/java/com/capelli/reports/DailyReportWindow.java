@@ -1,19 +1,23 @@
 package com.capelli.reports;
 
 import com.capelli.capellisaleswindow.BCVService;
+import com.capelli.database.DailyCloseDAO;
+import com.capelli.database.DailyCloseDAO.Bucket;
+import com.capelli.database.DailyCloseDAO.BucketTotal;
+import com.capelli.database.DailyCloseDAO.DailyClose;
 import com.capelli.database.Database;
 import com.capelli.config.AppConfig;
+import com.capelli.model.Money;
 import com.formdev.flatlaf.FlatDarkLaf;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.miginfocom.swing.MigLayout;
@@ -24,6 +28,8 @@ public class DailyReportWindow extends JFrame {
     
     // Componentes de Fecha
     private final JSpinner dateSpinner;
+    private final JCheckBox monthToDateCheck;
+    private final JButton rebuildButton;
     
     // Etiquetas de montos
     private final JLabel rateUsedLabel; // Etiqueta para mostrar la tasa usada
@@ -40,13 +46,15 @@ public class DailyReportWindow extends JFrame {
     private final DecimalFormat currencyFormat = new DecimalFormat("#,##0.00");
 
     // Record para transportar datos del worker a la UI
-    private record DailyStats(
+    public record DailyStats(
         double rateUsed,
-        double cashUsd, 
-        double totalBsCapelli, 
-        double totalBsRosa, 
-        double zelleUsd, 
-        double receivableUsd
+        Money cashUsd, 
+        Money totalBsCapelli, 
+        Money totalBsRosa, 
+        Money capelliUsd,
+        Money rosaUsd,
+        Money zelleUsd, 
+        Money receivableUsd
     ) {}
 
     public DailyReportWindow() {
@@ -65,6 +73,13 @@ public class DailyReportWindow extends JFrame {
         JButton refreshButton = new JButton("Consultar Fecha");
         refreshButton.addActionListener(e -> loadReportData());
 
+        monthToDateCheck = new JCheckBox("Acumulado del mes");
+        monthToDateCheck.addActionListener(e -> loadReportData());
+
+        rebuildButton = new JButton("Recalcular");
+        rebuildButton.setToolTipText("Recalcula el cierre del período desde las ventas registradas");
+        rebuildButton.addActionListener(e -> rebuildClose());
+
         // Etiquetas de resultados
         rateUsedLabel = new JLabel("Tasa: -");
         rateUsedLabel.setForeground(Color.GRAY);
@@ -89,7 +104,9 @@ public class DailyReportWindow extends JFrame {
         JPanel datePanel = new JPanel(new MigLayout("insets 0", "[grow][][]"));
         datePanel.add(dateSpinner, "growx, w 150!");
         datePanel.add(refreshButton, "gapleft 10");
-        datePanel.add(rateUsedLabel, "gapleft 15");
+        datePanel.add(rateUsedLabel, "gapleft 15, wrap");
+        datePanel.add(monthToDateCheck);
+        datePanel.add(rebuildButton, "gapleft 10");
         mainPanel.add(datePanel, "growx");
 
         // Separador
@@ -128,97 +145,28 @@ public class DailyReportWindow extends JFrame {
         loadReportData();
     }
 
+    private LocalDate selectedDay() {
+        Date selectedDate = (Date) dateSpinner.getValue();
+        return selectedDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Primer día del período mostrado: el mismo día, o el 1 del mes si se pidió el acumulado.
+     */
+    private LocalDate periodStart(LocalDate day) {
+        return monthToDateCheck.isSelected() ? day.withDayOfMonth(1) : day;
+    }
+
     private void loadReportData() {
         setLabelsToLoading();
         
-        Date selectedDate = (Date) dateSpinner.getValue();
-        String dateStr = new SimpleDateFormat("yyyy-MM-dd").format(selectedDate);
+        LocalDate day = selectedDay();
+        LocalDate firstDay = periodStart(day);
         
         SwingWorker<DailyStats, Void> worker = new SwingWorker<>() {
             @Override
-            protected DailyStats doInBackground() throws Exception {
-                double rateFound = 0.0;
-                double cashUsd = 0;
-                double totalBsCapelli = 0;
-                double totalBsRosa = 0;
-                double zelleUsd = 0; 
-                double receivableUsd = 0;
-
-                try (Connection conn = Database.connect()) {
-                    
-                    // 1. Obtener la Tasa de la PRIMERA venta del día
-                    String sqlRate = "SELECT bcv_rate_at_sale FROM sales WHERE date(sale_date) = ? ORDER BY sale_date ASC LIMIT 1";
-                    try (PreparedStatement pstmt = conn.prepareStatement(sqlRate)) {
-                        pstmt.setString(1, dateStr);
-                        ResultSet rs = pstmt.executeQuery();
-                        if (rs.next()) {
-                            rateFound = rs.getDouble("bcv_rate_at_sale");
-                        }
-                    }
-                    
-                    // Si no hubo ventas o la tasa es 0, usamos la tasa actual/configurada por seguridad
-                    if (rateFound <= 0) {
-                        rateFound = AppConfig.getDefaultBcvRate();
-                    }
-
-                    // 2. Calcular Cuentas por Cobrar
-                    String sqlReceivable = "SELECT COALESCE(SUM(total), 0.0) FROM sales "
-                                         + "WHERE date(sale_date) = ? "
-                                         + "AND discount_type = 'Cuenta por Cobrar'";
-                    
-                    try (PreparedStatement pstmt = conn.prepareStatement(sqlReceivable)) {
-                        pstmt.setString(1, dateStr);
-                        ResultSet rs = pstmt.executeQuery();
-                        if (rs.next()) {
-                            receivableUsd = rs.getDouble(1);
-                        }
-                    }
-
-                    // 3. Calcular Pagos
-                    String sqlPayments = "SELECT "
-                                       + "    p.metodo_pago, p.moneda, p.monto, "
-                                       + "    p.destino_pago "
-                                       + "FROM sale_payments p "
-                                       + "JOIN sales s ON p.sale_id = s.sale_id "
-                                       + "WHERE date(s.sale_date) = ? "
-                                       + "AND s.discount_type != 'Cuenta por Cobrar'";
-
-                    try (PreparedStatement pstmt = conn.prepareStatement(sqlPayments)) {
-                        pstmt.setString(1, dateStr);
-                        ResultSet rs = pstmt.executeQuery();
-                        
-                        while (rs.next()) {
-                            String method = rs.getString("metodo_pago");
-                            String currency = rs.getString("moneda");
-                            double amount = rs.getDouble("monto");
-                            String destination = rs.getString("destino_pago");
-
-                            if ("$".equals(currency)) {
-                                if ("Efectivo $".equals(method)) {
-                                    cashUsd += amount;
-                                } else if ("Transferencia".equals(method)) {
-                                    zelleUsd += amount;
-                                }
-                            } else if ("Bs".equals(currency)) {
-                                if ("Pago Movil".equals(method)) {
-                                    if ("Rosa".equals(destination)) {
-                                        totalBsRosa += amount;
-                                    } else {
-                                        totalBsCapelli += amount;
-                                    }
-                                } else {
-                                    // TD, TC, Efectivo Bs van a Capelli
-                                    totalBsCapelli += amount;
-                                }
-                            }
-                        }
-                    }
-                } catch (SQLException e) {
-                    LOGGER.log(Level.SEVERE, "Error al cargar datos del reporte diario", e);
-                    // En caso de error retornamos ceros
-                }
-                
-                return new DailyStats(rateFound, cashUsd, totalBsCapelli, totalBsRosa, zelleUsd, receivableUsd);
+            protected DailyStats doInBackground() {
+                return computeStats(firstDay, day);
             }
 
             @Override
@@ -229,27 +177,28 @@ public class DailyReportWindow extends JFrame {
                     // Mostrar Tasa usada
                     rateUsedLabel.setText("(Tasa usada: " + currencyFormat.format(stats.rateUsed) + " Bs/$)");
                     
-                    // Conversiones
-                    double capelliInUsd = (stats.rateUsed > 0) ? (stats.totalBsCapelli / stats.rateUsed) : 0;
-                    double rosaInUsd = (stats.rateUsed > 0) ? (stats.totalBsRosa / stats.rateUsed) : 0;
+                    // Conversiones (con la tasa de cada día)
+                    Money capelliInUsd = stats.capelliUsd;
+                    Money rosaInUsd = stats.rosaUsd;
                     
                     // Set labels
-                    cashUsdLabel.setText("$ " + currencyFormat.format(stats.cashUsd));
+                    cashUsdLabel.setText("$ " + currencyFormat.format(stats.cashUsd.toDouble()));
                     
-                    posAndMobilePaymentBsLabel.setText("Bs " + currencyFormat.format(stats.totalBsCapelli) + 
-                            "  ➤  ($ " + currencyFormat.format(capelliInUsd) + ")");
+                    posAndMobilePaymentBsLabel.setText("Bs " + currencyFormat.format(stats.totalBsCapelli.toDouble()) + 
+                            "  ➤  ($ " + currencyFormat.format(capelliInUsd.toDouble()) + ")");
                             
-                    personalAccountPaymentsLabel.setText("Bs " + currencyFormat.format(stats.totalBsRosa) + 
-                            "  ➤  ($ " + currencyFormat.format(rosaInUsd) + ")");
+                    personalAccountPaymentsLabel.setText("Bs " + currencyFormat.format(stats.totalBsRosa.toDouble()) + 
+                            "  ➤  ($ " + currencyFormat.format(rosaInUsd.toDouble()) + ")");
                     
-                    zelleLabel.setText("$ " + currencyFormat.format(stats.zelleUsd));
-                    accountsReceivableLabel.setText("$ " + currencyFormat.format(stats.receivableUsd));
+                    zelleLabel.setText("$ " + currencyFormat.format(stats.zelleUsd.toDouble()));
+                    accountsReceivableLabel.setText("$ " + currencyFormat.format(stats.receivableUsd.toDouble()));
                     
                     // Calcular Total General en Dólares
                     // (Nota: othersLabel está hardcodeado a 0 en la inicialización, si hubiera lógica se suma aquí)
-                    double grandTotal = stats.cashUsd + stats.zelleUsd + stats.receivableUsd + capelliInUsd + rosaInUsd;
+                    Money grandTotal = stats.cashUsd.plus(stats.zelleUsd).plus(stats.receivableUsd)
+                            .plus(capelliInUsd).plus(rosaInUsd);
                     
-                    totalDayLabel.setText("$ " + currencyFormat.format(grandTotal));
+                    totalDayLabel.setText("$ " + currencyFormat.format(grandTotal.toDouble()));
 
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Error al mostrar resultados", e);
@@ -259,6 +208,85 @@ public class DailyReportWindow extends JFrame {
         worker.execute();
     }
     
+    /**
+     * Calcula los montos del día fuera del EDT (lo usa el worker de la ventana y los benchmarks).
+     */
+    public static DailyStats computeStats(LocalDate day) {
+        return computeStats(day, day);
+    }
+
+    /**
+     * Suma el cierre diario materializado entre dos días (inclusive); la tasa mostrada es la del último.
+     * Ante un error de base de datos registra el fallo y devuelve ceros.
+     */
+    public static DailyStats computeStats(LocalDate firstDay, LocalDate lastDay) {
+        DailyClose close;
+        try {
+            close = new DailyCloseDAO().find(firstDay, lastDay);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al cargar datos del reporte diario", e);
+            // En caso de error retornamos ceros
+            close = new DailyClose(0.0, Map.of());
+        }
+
+        // Tasa de la PRIMERA venta del día; si no hubo ventas o es 0, la del historial BCV o la configurada
+        double rateFound = close.firstRate();
+        if (rateFound <= 0) {
+            rateFound = BCVService.getRateForDate(lastDay).orElse(AppConfig.getDefaultBcvRate());
+        }
+
+        BucketTotal capelli = close.get(Bucket.BS_CAPELLI);
+        BucketTotal rosa = close.get(Bucket.BS_ROSA);
+        return new DailyStats(
+                rateFound,
+                close.get(Bucket.EFECTIVO_USD).amount(),
+                capelli.amount(),
+                rosa.amount(),
+                toUsd(capelli, rateFound),
+                toUsd(rosa, rateFound),
+                close.get(Bucket.TRANSFERENCIA_USD).amount(),
+                close.get(Bucket.POR_COBRAR).amount());
+    }
+
+    /**
+     * Los días con tasa ya vienen convertidos; lo que queda sin convertir se pasa con la tasa usada.
+     */
+    private static Money toUsd(BucketTotal bs, double rate) {
+        return bs.amountUsd().plus(rate > 0 ? bs.unconverted().toUsd(rate) : Money.ZERO);
+    }
+
+    /**
+     * Reconstruye el cierre del período seleccionado a partir de las ventas y vuelve a cargarlo.
+     */
+    private void rebuildClose() {
+        LocalDate day = selectedDay();
+        LocalDate firstDay = periodStart(day);
+        rebuildButton.setEnabled(false);
+        setLabelsToLoading();
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                new DailyCloseDAO().rebuild(firstDay, day);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                rebuildButton.setEnabled(true);
+                try {
+                    get();
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error al recalcular el cierre diario", e);
+                    JOptionPane.showMessageDialog(DailyReportWindow.this,
+                            "Error al recalcular el cierre: " + e.getMessage(),
+                            "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                }
+                loadReportData();
+            }
+        }.execute();
+    }
+
     private void setLabelsToLoading() {
         String loading = "Calculando...";
         rateUsedLabel.setText("Consultando...");
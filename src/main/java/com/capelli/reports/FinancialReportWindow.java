@@ -4,6 +4,7 @@
 package com.capelli.reports;
 
 import com.capelli.database.Database;
+import com.capelli.database.ReportQueries;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
@@ -12,8 +13,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -22,6 +25,7 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
 import java.util.Vector;
 
 public class FinancialReportWindow extends JFrame {
@@ -30,6 +34,7 @@ public class FinancialReportWindow extends JFrame {
     private final JSpinner endDateSpinner;
     private final DefaultTableModel tableModel;
     private final JTable reportTable;
+    private final JButton exportButton;
 
     public FinancialReportWindow() {
         super("Reporte Financiero Detallado");
@@ -52,7 +57,7 @@ public class FinancialReportWindow extends JFrame {
         endDateSpinner.setEditor(new JSpinner.DateEditor(endDateSpinner, "dd/MM/yyyy"));
 
         JButton generateButton = new JButton("Generar Reporte");
-        JButton exportButton = new JButton("Exportar a CSV");
+        exportButton = new JButton("Exportar a CSV");
 
         controlsPanel.add(new JLabel("Fecha Inicio:"));
         controlsPanel.add(startDateSpinner, "sg date");
@@ -83,71 +88,15 @@ public class FinancialReportWindow extends JFrame {
     }
 
     private void generateReport() {
-        Date startDate = (Date) startDateSpinner.getValue();
-        Date endDate = (Date) endDateSpinner.getValue();
-        LocalDate startLocalDate = startDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate endLocalDate = endDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-
-        // ===== INICIO DE MODIFICACIÓN (SQL) =====
-        // La consulta ahora se une con 'sale_payments' (usando subconsultas con GROUP_CONCAT)
-        // y 'tips' para obtener una vista completa de la transacción por cada item de servicio.
-        String sql = "SELECT "
-                + "    DATE(s.sale_date, 'localtime') AS Fecha, "
-                + "    s.correlative_number AS Factura, "
-                + "    COALESCE(c.full_name, 'N/A') AS Cliente, "
-                + "    COALESCE(t.nombres || ' ' || t.apellidos, 'N/A') AS Trabajadora, "
-                + "    COALESCE(svc.name, 'N/A') AS Servicio, "
-                + "    COALESCE(svc.service_category, 'N/A') AS Categoria_Servicio, "
-                + "    si.price_at_sale AS Precio_Item_USD, "
-                + "    s.discount_type AS Tipo_Descuento, "
-                + "    s.discount_amount AS Descuento_Venta_USD, "
-                + "    s.vat_amount AS IVA_Venta_USD, "
-                + "    (SELECT COALESCE(SUM(tip.amount), 0.0) FROM tips tip WHERE tip.sale_id = s.sale_id) AS Propina_Venta_USD, "
-                + "    s.total AS Total_Venta_USD, "
-                + "    s.bcv_rate_at_sale AS Tasa_BCV_Venta, "
-                + "    ( "
-                + "        SELECT GROUP_CONCAT( "
-                + "            payment_method || ' (' || "
-                + "            printf('%.2f', amount_currency) || ' ' || currency || "
-                + "            CASE "
-                + "                WHEN currency = 'Bs' THEN ' / @' || printf('%.2f', bcv_rate_at_payment) "
-                + "                ELSE '' "
-                + "            END || ' = $' || printf('%.2f', amount_usd) || "
-                + "            COALESCE(' / Ref: ' || payment_reference, '') || "
-                + "            COALESCE(' / Dest: ' || payment_destination, '') || "
-                + "            ')', "
-                + "            ' | ' "
-                + "        ) "
-                + "        FROM sale_payments sp "
-                + "        WHERE sp.sale_id = s.sale_id "
-                + "    ) AS Pagos_Detallados, "
-                + "    ( "
-                + "        SELECT COALESCE(SUM(sp.amount_usd), 0.0) "
-                + "        FROM sale_payments sp "
-                + "        WHERE sp.sale_id = s.sale_id "
-                + "    ) AS Total_Pagado_USD "
-                + "FROM "
-                + "    sales s "
-                + "LEFT JOIN "
-                + "    sale_items si ON s.sale_id = si.sale_id "
-                + "LEFT JOIN "
-                + "    trabajadoras t ON si.employee_id = t.id "
-                + "LEFT JOIN "
-                + "    services svc ON si.service_id = svc.service_id "
-                + "LEFT JOIN "
-                + "    clients c ON s.client_id = c.client_id "
-                + "WHERE "
-                + "    DATE(s.sale_date, 'localtime') BETWEEN ? AND ? "
-                + "ORDER BY "
-                + "    s.sale_date, s.correlative_number, Trabajadora";
-        // ===== FIN DE MODIFICACIÓN (SQL) =====
+        LocalDate startLocalDate = toLocalDate((Date) startDateSpinner.getValue());
+        LocalDate endLocalDate = toLocalDate((Date) endDateSpinner.getValue());
+
 
 
         try (Connection conn = Database.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(ReportQueries.FINANCIAL_REPORT)) {
 
-            pstmt.setString(1, startLocalDate.toString());
-            pstmt.setString(2, endLocalDate.toString());
+            ReportQueries.bindDateRange(pstmt, 1, startLocalDate, endLocalDate);
 
             ResultSet rs = pstmt.executeQuery();
             
@@ -193,51 +142,92 @@ public class FinancialReportWindow extends JFrame {
         return new DefaultTableModel(data, columnNames);
     }
 
+    /**
+     * Exporta el reporte del rango seleccionado directamente desde la consulta, fila por fila,
+     * sin pasar por la tabla: la memoria usada no depende del tamaño del rango.
+     */
     private void exportToCSV() {
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this, "No hay datos para exportar. Genere un reporte primero.", "Reporte Vacío", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
+        LocalDate startLocalDate = toLocalDate((Date) startDateSpinner.getValue());
+        LocalDate endLocalDate = toLocalDate((Date) endDateSpinner.getValue());
 
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Guardar Reporte CSV");
         fileChooser.setSelectedFile(new File("reporte_financiero.csv"));
 
-        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File fileToSave = fileChooser.getSelectedFile();
-            try (FileWriter fw = new FileWriter(fileToSave);
-                 BufferedWriter bw = new BufferedWriter(fw)) {
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path fileToSave = fileChooser.getSelectedFile().toPath();
+
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exportando reporte financiero...", "Contando filas...", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        exportButton.setEnabled(false);
 
-                // Escribir cabeceras
-                for (int i = 0; i < tableModel.getColumnCount(); i++) {
-                    bw.write("\"" + tableModel.getColumnName(i) + "\"");
-                    if (i < tableModel.getColumnCount() - 1) {
-                        bw.write(",");
+        SwingWorker<Long, Void> worker = new SwingWorker<>() {
+            private volatile long totalRows;
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                try (Connection conn = Database.connect()) {
+                    try (PreparedStatement count = conn.prepareStatement(ReportQueries.FINANCIAL_REPORT_COUNT)) {
+                        ReportQueries.bindDateRange(count, 1, startLocalDate, endLocalDate);
+                        try (ResultSet rs = count.executeQuery()) {
+                            totalRows = rs.next() ? rs.getLong(1) : 0;
+                        }
                     }
-                }
-                bw.newLine();
-
-                // Escribir datos
-                for (int i = 0; i < tableModel.getRowCount(); i++) {
-                    for (int j = 0; j < tableModel.getColumnCount(); j++) {
-                        Object value = tableModel.getValueAt(i, j);
-                        String cellValue = (value != null) ? value.toString() : "";
-                        // Reemplazar saltos de línea (de GROUP_CONCAT) por un caracter legible en CSV
-                        cellValue = cellValue.replace("\n", " | "); 
-                        bw.write("\"" + cellValue.replace("\"", "\"\"") + "\"");
-                        if (j < tableModel.getColumnCount() - 1) {
-                            bw.write(",");
+
+                    try (PreparedStatement pstmt = conn.prepareStatement(ReportQueries.FINANCIAL_REPORT)) {
+                        ReportQueries.bindDateRange(pstmt, 1, startLocalDate, endLocalDate);
+                        try (ResultSet rs = pstmt.executeQuery();
+                             BufferedWriter out = Files.newBufferedWriter(fileToSave, StandardCharsets.UTF_8)) {
+                            out.write('\uFEFF'); // BOM: Excel abre el archivo como UTF-8 y respeta los acentos
+                            return CsvExport.write(rs, out, new CsvExport.Progress() {
+                                @Override
+                                public void rowsWritten(long rows) {
+                                    setProgress(totalRows > 0 ? (int) Math.min(100, rows * 100 / totalRows) : 100);
+                                }
+
+                                @Override
+                                public boolean isCancelled() {
+                                    return monitor.isCanceled();
+                                }
+                            });
                         }
                     }
-                    bw.newLine();
                 }
+            }
 
-                JOptionPane.showMessageDialog(this, "Reporte exportado exitosamente a:\n" + fileToSave.getAbsolutePath(), "Exportación Completa", JOptionPane.INFORMATION_MESSAGE);
-
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error al exportar a CSV: " + e.getMessage(), "Error de Exportación", JOptionPane.ERROR_MESSAGE);
-                e.printStackTrace();
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                monitor.close();
+                try {
+                    long rows = get();
+                    if (rows < 0) {
+                        Files.deleteIfExists(fileToSave);
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(FinancialReportWindow.this, "Reporte exportado exitosamente (" + rows + " filas) a:\n" + fileToSave.toAbsolutePath(), "Exportación Completa", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | IOException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(FinancialReportWindow.this, "Error al exportar a CSV: " + cause.getMessage(), "Error de Exportación", JOptionPane.ERROR_MESSAGE);
+                    cause.printStackTrace();
+                }
             }
-        }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                int percent = (Integer) evt.getNewValue();
+                monitor.setProgress(percent);
+                monitor.setNote(percent + "% completado");
+            }
+        });
+        worker.execute();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 }
\ No newline at end of file
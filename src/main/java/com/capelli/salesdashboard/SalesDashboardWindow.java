@@ -2,18 +2,17 @@ package com.capelli.salesdashboard;
 
 import com.capelli.capellisaleswindow.CapelliSalesWindow;
 import com.capelli.database.Database;
+import com.capelli.database.SaleDAO;
 import com.formdev.flatlaf.FlatDarkLaf;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.BorderFactory;
@@ -26,8 +25,8 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
-import javax.swing.table.DefaultTableModel;
 import net.miginfocom.swing.MigLayout;
 
 /**
@@ -39,11 +38,14 @@ public class SalesDashboardWindow extends JFrame {
 
     private static final Logger LOGGER = Logger.getLogger(SalesDashboardWindow.class.getName());
     
-    private DefaultTableModel salesTableModel;
+    private SalesHistoryTableModel salesTableModel;
     private JTable salesTable;
     private JLabel topSellerLabel;
     private JButton editSaleButton; // Nuevo botón
-    private final DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
+
+    /** Refresca el dashboard cada vez que se guarda una venta, desde esta u otra ventana. */
+    private final Consumer<SaleDAO.SaleChange> saleListener =
+            change -> SwingUtilities.invokeLater(this::refreshDashboard);
 
     public SalesDashboardWindow() {
         setTitle("Dashboard de Ventas - Capelli");
@@ -56,39 +58,23 @@ public class SalesDashboardWindow extends JFrame {
 
         loadSalesData();
         loadTopSeller();
+        SaleDAO.addChangeListener(saleListener);
+    }
+
+    @Override
+    public void dispose() {
+        SaleDAO.removeChangeListener(saleListener);
+        super.dispose();
     }
 
     private void initComponents() {
-        String[] columnNames = {
-            "ID Venta", 
-            "Fecha", 
-            "Cliente", 
-            "Servicio", 
-            "Trabajadora", 
-            "Precio", 
-            "Descuento", 
-            "Total Venta"
-        };
-        
-        salesTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                // Columnas 0, 5, 6, 7 son numéricas
-                if (columnIndex == 0) return Object.class; // Permite String (Correlativo) o Int (ID)
-                if (columnIndex >= 5 && columnIndex <= 7) return String.class;
-                return String.class;
-            }
-        };
+        salesTableModel = new SalesHistoryTableModel();
         
         salesTable = new JTable(salesTableModel);
         salesTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         salesTable.setRowHeight(25);
-        salesTable.setAutoCreateRowSorter(true); // Permite ordenar columnas
+        // Sin ordenamiento por columnas: un RowSorter lee todas las filas y anularía la carga por páginas.
+        // El historial ya viene de la venta más reciente a la más antigua.
         
         topSellerLabel = new JLabel("Cargando estadísticas...", SwingConstants.CENTER);
         topSellerLabel.setFont(new Font("Segoe UI", Font.BOLD, 22));
@@ -127,103 +113,47 @@ public class SalesDashboardWindow extends JFrame {
     }
 
     /**
-     * Carga los datos de ventas desde la base de datos.
+     * Carga el índice de páginas del historial en segundo plano; las filas se leen al mostrarse.
      */
     private void loadSalesData() {
         LOGGER.info("Cargando datos de ventas...");
-        salesTableModel.setRowCount(0);
         
-        String sql = "SELECT " +
-                     "    s.sale_id, " +
-                     "    s.correlative_number, " + 
-                     "    s.sale_date, " +          
-                     "    COALESCE(c.full_name, 'Cliente Genérico') as client_name, " +
-                     "    COALESCE(ser.name, 'SERVICIO BORRADO') as service_name, " + 
-                     "    si.client_brought_product, " +
-                     "    COALESCE((t.nombres || ' ' || t.apellidos), 'TRABAJADORA BORRADA') as employee_name, " + 
-                     "    si.price_at_sale, " +
-                     "    s.discount_amount, " +
-                     "    s.total " +
-                     "FROM sales s " +
-                     "LEFT JOIN sale_items si ON s.sale_id = si.sale_id " + 
-                     "LEFT JOIN services ser ON si.service_id = ser.service_id " + 
-                     "LEFT JOIN trabajadoras t ON si.employee_id = t.id " + 
-                     "LEFT JOIN clients c ON s.client_id = c.client_id " +
-                     "ORDER BY s.sale_date DESC, s.sale_id DESC " +
-                     "LIMIT 1000";
-
-        try (Connection conn = Database.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-             
-            SimpleDateFormat dbFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            SimpleDateFormat uiFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+        new SwingWorker<SalesHistoryTableModel.PageIndex, Void>() {
+            @Override
+            protected SalesHistoryTableModel.PageIndex doInBackground() throws Exception {
+                return SalesHistoryTableModel.loadIndex();
+            }
 
-            int rowCount = 0;
-            while (rs.next()) {
-                
-                String serviceName = rs.getString("service_name");
-                boolean broughtProduct = rs.getBoolean("client_brought_product");
-                if (broughtProduct) {
-                    serviceName += " (Cliente)";
-                }
-                
-                // Lógica para mostrar el Correlativo
-                String correlativoStr = rs.getString("correlative_number");
-                Object idVentaMostrar;
-                if (correlativoStr != null && !correlativoStr.isEmpty()) {
-                    try {
-                        idVentaMostrar = Integer.parseInt(correlativoStr);
-                    } catch (NumberFormatException e) {
-                        idVentaMostrar = correlativoStr;
-                    }
-                } else {
-                    idVentaMostrar = rs.getInt("sale_id");
-                }
-                
-                // Lógica para formatear fecha
-                String rawDate = rs.getString("sale_date");
-                String formattedDate = rawDate;
+            @Override
+            protected void done() {
                 try {
-                    if (rawDate != null) {
-                        Date date = dbFormat.parse(rawDate);
-                        formattedDate = uiFormat.format(date);
+                    SalesHistoryTableModel.PageIndex index = get();
+                    salesTableModel.setIndex(index);
+                    int rowCount = index.rowCount();
+                    
+                    LOGGER.info("Historial de ventas con " + rowCount + " filas");
+                    
+                    if (rowCount == 0) {
+                        LOGGER.warning("No se encontraron ventas en la base de datos");
+                        JOptionPane.showMessageDialog(SalesDashboardWindow.this,
+                            "No hay ventas registradas aún.",
+                            "Sin Datos",
+                            JOptionPane.INFORMATION_MESSAGE);
                     }
-                } catch (Exception e) {
-                    LOGGER.warning("No se pudo parsear la fecha: " + rawDate);
+                    
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    LOGGER.log(Level.SEVERE, "Error al cargar el historial de ventas", cause);
+                    JOptionPane.showMessageDialog(SalesDashboardWindow.this,
+                        "Error al cargar el historial de ventas:\n" + cause.getMessage(),
+                        "Error de Base de Datos",
+                        JOptionPane.ERROR_MESSAGE);
+                    topSellerLabel.setText("Error al cargar datos");
                 }
-                
-                salesTableModel.addRow(new Object[]{
-                    idVentaMostrar,
-                    formattedDate,
-                    rs.getString("client_name"),
-                    serviceName,
-                    rs.getString("employee_name"),
-                    currencyFormat.format(rs.getDouble("price_at_sale")),
-                    currencyFormat.format(rs.getDouble("discount_amount")),
-                    currencyFormat.format(rs.getDouble("total"))
-                });
-                rowCount++;
-            }
-            
-            LOGGER.info("Cargadas " + rowCount + " ventas exitosamente");
-            
-            if (rowCount == 0) {
-                LOGGER.warning("No se encontraron ventas en la base de datos");
-                JOptionPane.showMessageDialog(this,
-                    "No hay ventas registradas aún.",
-                    "Sin Datos",
-                    JOptionPane.INFORMATION_MESSAGE);
             }
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error al cargar el historial de ventas", e);
-            JOptionPane.showMessageDialog(this,
-                "Error al cargar el historial de ventas:\n" + e.getMessage(),
-                "Error de Base de Datos",
-                JOptionPane.ERROR_MESSAGE);
-            topSellerLabel.setText("Error al cargar datos");
-        }
+        }.execute();
     }
 
     /**
@@ -275,12 +205,8 @@ public class SalesDashboardWindow extends JFrame {
             return;
         }
 
-        // Obtener el valor de la columna ID (puede ser Correlativo o ID interno)
-        Object idObj = salesTableModel.getValueAt(salesTable.convertRowIndexToModel(selectedRow), 0);
-        String idStr = String.valueOf(idObj);
-        
-        // Resolver el ID real de la base de datos (sale_id)
-        long saleId = getSaleIdFromCorrelative(idStr);
+        // El modelo conserva el sale_id de cada fila (-1 si su página aún no cargó)
+        long saleId = salesTableModel.getSaleId(selectedRow);
         
         if (saleId == -1) {
              JOptionPane.showMessageDialog(this, 
@@ -294,17 +220,9 @@ public class SalesDashboardWindow extends JFrame {
         try {
             CapelliSalesWindow editWindow = new CapelliSalesWindow(saleId);
             editWindow.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            // El dashboard se refresca con saleListener cuando la edición se guarda
             editWindow.setVisible(true);
             
-            // Listener para refrescar el dashboard cuando se cierre la ventana de edición
-            editWindow.addWindowListener(new java.awt.event.WindowAdapter() {
-                @Override
-                public void windowClosed(java.awt.event.WindowEvent windowEvent) {
-                    LOGGER.info("Ventana de edición cerrada, refrescando dashboard...");
-                    refreshDashboard();
-                }
-            });
-            
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error al abrir ventana de edición", e);
             JOptionPane.showMessageDialog(this, 
@@ -314,29 +232,6 @@ public class SalesDashboardWindow extends JFrame {
         }
     }
 
-    /**
-     * Busca el sale_id real en la base de datos dado un número correlativo (o ID).
-     */
-    private long getSaleIdFromCorrelative(String correlativeOrId) {
-        String sql = "SELECT sale_id FROM sales WHERE correlative_number = ? OR sale_id = ? LIMIT 1";
-        
-        try (Connection conn = Database.connect(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, correlativeOrId);
-            pstmt.setString(2, correlativeOrId); // Intentar matchear como ID si falla correlativo
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getLong("sale_id");
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error buscando sale_id para: " + correlativeOrId, e);
-        }
-        return -1;
-    }
-
     public void refreshDashboard() {
         LOGGER.info("Refrescando dashboard...");
         loadSalesData();
@@ -0,0 +1,264 @@
+package com.capelli.salesdashboard;
+
+import com.capelli.database.Database;
+import com.capelli.database.ReportQueries;
+import com.capelli.model.Money;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.DecimalFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo del historial de ventas que carga las filas por páginas a medida que se muestran.
+ * Al recargar solo se lee la clave de inicio de cada página (fecha, venta, ítem) y el total
+ * de filas; cada página se consulta después desde su clave, en segundo plano, cuando la tabla
+ * pide una de sus celdas. Las filas se guardan sin formato y se formatean al pintarse.
+ *
+ * Como cada página empieza en una clave y no en un desplazamiento, las ventas registradas
+ * después de recargar no corren las páginas ya calculadas.
+ */
+public class SalesHistoryTableModel extends AbstractTableModel {
+
+    private static final Logger LOGGER = Logger.getLogger(SalesHistoryTableModel.class.getName());
+
+    public static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 20;
+    private static final String LOADING = "Cargando...";
+
+    private static final String[] COLUMN_NAMES = {
+        "ID Venta",
+        "Fecha",
+        "Cliente",
+        "Servicio",
+        "Trabajadora",
+        "Precio",
+        "Descuento",
+        "Total Venta"
+    };
+
+    private static final DateTimeFormatter DB_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter UI_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    /** Posición de una fila en el orden del historial. */
+    public record RowKey(String saleDate, long saleId, long itemKey) {}
+
+    /** Clave de inicio de cada página y total de filas del historial. */
+    public record PageIndex(List<RowKey> pageStarts, int rowCount) {
+        public static final PageIndex EMPTY = new PageIndex(List.of(), 0);
+    }
+
+    /** Fila del historial tal como sale de la base de datos. */
+    public record SaleRow(long saleId, String correlative, String saleDate, String clientName, String serviceName,
+                          boolean clientBroughtProduct, String employeeName, Money price, Money discount, Money total) {}
+
+    private final DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
+
+    private PageIndex index = PageIndex.EMPTY;
+    private long generation;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private final Map<Integer, List<SaleRow>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<SaleRow>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Lee las claves de inicio de página del historial completo.
+     */
+    public static PageIndex loadIndex() throws SQLException {
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(ReportQueries.SALES_HISTORY_PAGE_STARTS)) {
+            pstmt.setInt(1, PAGE_SIZE);
+            List<RowKey> starts = new ArrayList<>();
+            int rowCount = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    starts.add(new RowKey(rs.getString("sale_date"), rs.getLong("sale_id"), rs.getLong("item_key")));
+                    rowCount = rs.getInt("total_rows");
+                }
+            }
+            return new PageIndex(List.copyOf(starts), rowCount);
+        }
+    }
+
+    /**
+     * Lee hasta {@code limit} filas del historial a partir de {@code start} (inclusive).
+     */
+    public static List<SaleRow> loadPage(RowKey start, int limit) throws SQLException {
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(ReportQueries.SALES_HISTORY_PAGE)) {
+            pstmt.setString(1, start.saleDate());
+            pstmt.setLong(2, start.saleId());
+            pstmt.setLong(3, start.itemKey());
+            pstmt.setInt(4, limit);
+            List<SaleRow> rows = new ArrayList<>(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new SaleRow(
+                            rs.getLong("sale_id"),
+                            rs.getString("correlative_number"),
+                            rs.getString("sale_date"),
+                            rs.getString("client_name"),
+                            rs.getString("service_name"),
+                            rs.getBoolean("client_brought_product"),
+                            rs.getString("employee_name"),
+                            Money.ofCents(rs.getLong("price_cents")),
+                            Money.ofCents(rs.getLong("discount_cents")),
+                            Money.ofCents(rs.getLong("total_cents"))));
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Reemplaza el índice de páginas y descarta las páginas cargadas. Llamar desde el EDT.
+     */
+    public void setIndex(PageIndex index) {
+        this.index = index;
+        generation++;
+        pages.clear();
+        pendingPages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return El sale_id de la fila, o -1 si su página aún no está cargada
+     */
+    public long getSaleId(int rowIndex) {
+        SaleRow row = getLoadedRow(rowIndex);
+        return row != null ? row.saleId() : -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return index.rowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        // La columna 0 puede ser el correlativo (Integer o String) o el ID interno
+        return columnIndex == 0 ? Object.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        SaleRow row = getLoadedRow(rowIndex);
+        if (row == null) {
+            return columnIndex == 1 ? LOADING : "";
+        }
+        return switch (columnIndex) {
+            case 0 -> displayId(row);
+            case 1 -> formatDate(row.saleDate());
+            case 2 -> row.clientName();
+            case 3 -> row.clientBroughtProduct() ? row.serviceName() + " (Cliente)" : row.serviceName();
+            case 4 -> row.employeeName();
+            case 5 -> currencyFormat.format(row.price().toDouble());
+            case 6 -> currencyFormat.format(row.discount().toDouble());
+            case 7 -> currencyFormat.format(row.total().toDouble());
+            default -> null;
+        };
+    }
+
+    /**
+     * Devuelve la fila si su página está en memoria; si no, pide la página y devuelve null.
+     */
+    private SaleRow getLoadedRow(int rowIndex) {
+        int page = rowIndex / PAGE_SIZE;
+        List<SaleRow> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int offset = rowIndex % PAGE_SIZE;
+        // Una página puede venir más corta si se borraron ventas después de recargar
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    private void requestPage(int page) {
+        if (page >= index.pageStarts().size() || !pendingPages.add(page)) {
+            return;
+        }
+        RowKey start = index.pageStarts().get(page);
+        long requestGeneration = generation;
+
+        new SwingWorker<List<SaleRow>, Void>() {
+            @Override
+            protected List<SaleRow> doInBackground() throws Exception {
+                return loadPage(start, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return; // Se recargó el historial mientras se leía esta página
+                }
+                pendingPages.remove(page);
+                try {
+                    pages.put(page, get());
+                    int first = page * PAGE_SIZE;
+                    int last = Math.min(first + PAGE_SIZE, getRowCount()) - 1;
+                    fireTableRowsUpdated(first, last);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Error al cargar la página " + page + " del historial de ventas", e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    private static Object displayId(SaleRow row) {
+        String correlative = row.correlative();
+        if (correlative == null || correlative.isEmpty()) {
+            return row.saleId();
+        }
+        try {
+            return Integer.parseInt(correlative);
+        } catch (NumberFormatException e) {
+            return correlative;
+        }
+    }
+
+    private static String formatDate(String rawDate) {
+        if (rawDate == null) {
+            return null;
+        }
+        try {
+            return UI_FORMAT.format(LocalDateTime.parse(rawDate, DB_FORMAT));
+        } catch (DateTimeParseException e) {
+            return rawDate;
+        }
+    }
+}
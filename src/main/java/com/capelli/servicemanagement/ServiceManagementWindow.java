@@ -147,11 +147,8 @@ public class ServiceManagementWindow extends JFrame {
                 if (selectedRow >= 0) {
                     try {
                         int serviceId = Integer.parseInt(tableModel.getValueAt(selectedRow, 0).toString());
-                        // Buscamos el servicio completo
-                        Service service = serviceDAO.getAll().stream()
-                                .filter(s -> s.getId() == serviceId)
-                                .findFirst()
-                                .orElse(null);
+                        // Buscamos el servicio completo (en caché)
+                        Service service = serviceDAO.getById(serviceId);
 
                         if (service != null) {
                             currentService = service;
@@ -1,8 +1,10 @@
 package com.capelli.ui;
 
 import com.capelli.database.TrabajadoraDAO;
+import com.capelli.database.TrabajadoraPhotoCache;
 import com.capelli.model.CuentaBancaria;
 import com.capelli.model.Trabajadora;
+import com.capelli.payroll.CommissionLedger;
 import com.formdev.flatlaf.FlatClientProperties;
 import com.formdev.flatlaf.extras.FlatSVGIcon;
 import net.miginfocom.swing.MigLayout;
@@ -16,6 +18,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class MainPanel extends JPanel {
@@ -82,8 +85,14 @@ public class MainPanel extends JPanel {
         try {
             tableModel.setRowCount(0);
             listaTrabajadoras = trabajadoraDAO.getAll();
+            // Todas las miniaturas en una consulta, no una por fila
+            List<Integer> conFoto = listaTrabajadoras.stream()
+                    .filter(Trabajadora::isTieneFoto)
+                    .map(Trabajadora::getId)
+                    .toList();
+            Map<Integer, ImageIcon> miniaturas = TrabajadoraPhotoCache.getInstance().getThumbnails(conFoto);
             for (Trabajadora t : listaTrabajadoras) {
-                addTrabajadoraToTable(t);
+                addTrabajadoraToTable(t, miniaturas.get(t.getId()));
             }
         } catch (SQLException | IOException e) {
             JOptionPane.showMessageDialog(this, "Error al cargar los datos de las trabajadoras: " + e.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
@@ -123,13 +132,18 @@ public class MainPanel extends JPanel {
                 .orElse(null);
 
         if (trabajadoraAEditar != null) {
+            boolean abonosEfectivoAntes = trabajadoraAEditar.isAbonosEfectivo();
             TrabajadoraDialog dialog = new TrabajadoraDialog((Frame) SwingUtilities.getWindowAncestor(this), trabajadoraAEditar, isDarkMode);
             dialog.setVisible(true);
 
             if (dialog.isSaved()) {
                 try {
                     trabajadoraDAO.save(trabajadoraAEditar);
-                    JOptionPane.showMessageDialog(this, "Trabajadora actualizada con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    String mensaje = "Trabajadora actualizada con éxito.";
+                    if (trabajadoraAEditar.isAbonosEfectivo() != abonosEfectivoAntes) {
+                        mensaje += repostOpenPeriods();
+                    }
+                    JOptionPane.showMessageDialog(this, mensaje, "Éxito", JOptionPane.INFORMATION_MESSAGE);
                     refreshTableData();
                 } catch (SQLException | IOException e) {
                     JOptionPane.showMessageDialog(this, "Error al actualizar la trabajadora: " + e.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
@@ -139,6 +153,23 @@ public class MainPanel extends JPanel {
         }
     }
 
+    /**
+     * Vuelve a asentar los abonos de los períodos abiertos con la forma de pago actual
+     * (efectivo o banco), para que la próxima nómina ya la refleje.
+     *
+     * @return Texto para agregar al mensaje de la operación
+     */
+    private String repostOpenPeriods() {
+        try {
+            int reposted = new CommissionLedger().repostOpenPeriods();
+            return "\nVentas con abonos recalculados en períodos abiertos: " + reposted;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return "\n\n⚠ No se pudieron recalcular los abonos: " + e.getMessage()
+                    + "\nLa nómina no reflejará el cambio hasta usar \"Recalcular Comisiones\" en Nómina.";
+        }
+    }
+
     private void deleteTrabajadora() {
         int selectedRow = table.getSelectedRow();
         if (selectedRow == -1) {
@@ -162,11 +193,11 @@ public class MainPanel extends JPanel {
         }
     }
 
-    private void addTrabajadoraToTable(Trabajadora t) {
+    private void addTrabajadoraToTable(Trabajadora t, ImageIcon miniatura) {
         Optional<CuentaBancaria> cuentaPrincipal = t.getCuentaPrincipal();
         tableModel.addRow(new Object[]{
                 t.getId(),
-                t.getFoto(),
+                miniatura,
                 t.getNombres(),
                 t.getApellidos(),
                 t.getCiCompleta(),
@@ -183,9 +214,8 @@ public class MainPanel extends JPanel {
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
             JLabel label = new JLabel();
             if (value instanceof ImageIcon) {
-                ImageIcon icon = (ImageIcon) value;
-                Image scaledImage = icon.getImage().getScaledInstance(40, 40, Image.SCALE_SMOOTH);
-                label.setIcon(new ImageIcon(scaledImage));
+                // Miniatura ya escalada a TrabajadoraPhotoCache.THUMBNAIL_SIZE
+                label.setIcon((ImageIcon) value);
                 label.setHorizontalAlignment(CENTER);
             }
             return label;
@@ -1,5 +1,6 @@
 package com.capelli.ui;
 
+import com.capelli.database.TrabajadoraPhotoCache;
 import com.capelli.model.CuentaBancaria;
 import com.capelli.model.Trabajadora;
 import com.capelli.validation.CommonValidators;
@@ -18,9 +19,11 @@ import javax.swing.text.BadLocationException;
 import javax.swing.text.DocumentFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class TrabajadoraDialog extends JDialog {
@@ -49,13 +52,11 @@ public class TrabajadoraDialog extends JDialog {
     private final JCheckBox chkBonoActivo;
     private final JTextField txtMontoBono;
     private final JTextField txtRazonBono;
+    private final JCheckBox chkAbonosEfectivo;
 
     public TrabajadoraDialog(Frame owner, Trabajadora trabajadora, boolean isDarkMode) {
         super(owner, true);
         this.trabajadora = (trabajadora != null) ? trabajadora : new Trabajadora();
-        if (trabajadora != null) {
-            this.fotoIcon = trabajadora.getFoto();
-        }
 
         setTitle(trabajadora == null ? "Crear Trabajadora" : "Editar Trabajadora");
         setLayout(new BorderLayout());
@@ -204,6 +205,10 @@ public class TrabajadoraDialog extends JDialog {
         bonoPanel.add(new JLabel("Razón (Ej. Limpieza):"));
         bonoPanel.add(txtRazonBono, "growx");
 
+        // Los abonos manuales se pagan por banco salvo que la trabajadora los cobre en efectivo
+        chkAbonosEfectivo = new JCheckBox("Cobra sus abonos manuales en efectivo");
+        bonoPanel.add(chkAbonosEfectivo, "span 2, wrap");
+
         // --- Botones de Acción ---
         JButton btnGuardar = new JButton("Guardar");
         JButton btnCancelar = new JButton("Cancelar");
@@ -263,9 +268,17 @@ public class TrabajadoraDialog extends JDialog {
         txtNumeroCi.setText(trabajadora.getNumeroCi());
         txtTelefono.setText(trabajadora.getTelefono());
         txtCorreo.setText(trabajadora.getCorreoElectronico());
-        if (trabajadora.getFoto() != null) {
-            Image scaledImage = trabajadora.getFoto().getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
-            lblFoto.setIcon(new ImageIcon(scaledImage));
+        if (trabajadora.isTieneFoto()) {
+            // La foto guardada solo se lee para mostrarla; fotoIcon queda en null mientras no se elija otra
+            try {
+                ImageIcon foto = TrabajadoraPhotoCache.getInstance().getFoto(trabajadora.getId());
+                if (foto != null) {
+                    Image scaledImage = foto.getImage().getScaledInstance(100, 100, Image.SCALE_SMOOTH);
+                    lblFoto.setIcon(new ImageIcon(scaledImage));
+                }
+            } catch (SQLException ex) {
+                LOGGER.log(Level.WARNING, "No se pudo cargar la foto de la trabajadora " + trabajadora.getId(), ex);
+            }
         }
         for (CuentaBancaria cuenta : trabajadora.getCuentas()) {
             cuentasTableModel.addRow(new Object[]{cuenta.isEsPrincipal(), cuenta.getBanco(), cuenta.getTipoDeCuenta(), cuenta.getNumeroDeCuenta()});
@@ -280,6 +293,8 @@ public class TrabajadoraDialog extends JDialog {
         boolean bonoActivo = trabajadora.isBonoActivo();
         txtMontoBono.setEnabled(bonoActivo);
         txtRazonBono.setEnabled(bonoActivo);
+
+        chkAbonosEfectivo.setSelected(trabajadora.isAbonosEfectivo());
     }
 
     private void guardar(ActionEvent e) {
@@ -305,6 +320,8 @@ public class TrabajadoraDialog extends JDialog {
         }
         trabajadora.setCuentas(cuentas);
 
+        trabajadora.setAbonosEfectivo(chkAbonosEfectivo.isSelected());
+
         // Recopilar datos del bono
         trabajadora.setBonoActivo(chkBonoActivo.isSelected());
         if (chkBonoActivo.isSelected()) {
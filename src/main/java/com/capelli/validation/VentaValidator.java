@@ -1,13 +1,18 @@
 package com.capelli.validation;
 
 import com.capelli.config.AppConfig; // Necesario para obtener el porcentaje de IVA
+import com.capelli.model.Money;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Validador para operaciones de venta.
+ * Los montos son Money, así que los totales recalculados se comparan exactos, al centavo.
  */
 public class VentaValidator {
+
+    private static final Money PRECIO_BAJO = Money.ofCents(100);
+    private static final Money PRECIO_ALTO = Money.ofCents(50_000);
     
     /**
      * DTO simple para representar un servicio en la venta.
@@ -15,9 +20,9 @@ public class VentaValidator {
     public static class ServicioVenta {
         private final String servicio;
         private final String trabajadora;
-        private final double precio;
+        private final Money precio;
         
-        public ServicioVenta(String servicio, String trabajadora, double precio) {
+        public ServicioVenta(String servicio, String trabajadora, Money precio) {
             this.servicio = servicio;
             this.trabajadora = trabajadora;
             this.precio = precio;
@@ -25,7 +30,7 @@ public class VentaValidator {
         
         public String getServicio() { return servicio; }
         public String getTrabajadora() { return trabajadora; }
-        public double getPrecio() { return precio; }
+        public Money getPrecio() { return precio; }
     }
     
     /**
@@ -35,12 +40,12 @@ public class VentaValidator {
      */
     public static ValidationResult validateVenta(
             List<ServicioVenta> servicios,
-            double subtotal,
-            double descuento,
-            double iva, 
-            double propina,
-            double total, // Total en $
-            double totalPagadoEnDolares, // NUEVO PARÁMETRO
+            Money subtotal,
+            Money descuento,
+            Money iva, 
+            Money propina,
+            Money total, // Total en $
+            Money totalPagadoEnDolares,
             String tipoDescuento) {
         
         ValidationResult result = new ValidationResult();
@@ -60,41 +65,42 @@ public class VentaValidator {
         }
         
         // 3. Validar montos
-        CommonValidators.validateNonNegative(subtotal, "Subtotal", result);
-        CommonValidators.validateNonNegative(descuento, "Descuento", result);
-        CommonValidators.validateNonNegative(iva, "IVA", result);
-        CommonValidators.validateNonNegative(propina, "Propina", result);
-        CommonValidators.validateNonNegative(total, "Total", result);
+        CommonValidators.validateNonNegative(subtotal.toDouble(), "Subtotal", result);
+        CommonValidators.validateNonNegative(descuento.toDouble(), "Descuento", result);
+        CommonValidators.validateNonNegative(iva.toDouble(), "IVA", result);
+        CommonValidators.validateNonNegative(propina.toDouble(), "Propina", result);
+        CommonValidators.validateNonNegative(total.toDouble(), "Total", result);
         
         // 4. Validar que el subtotal sea coherente
-        double subtotalCalculado = servicios.stream()
-                .mapToDouble(ServicioVenta::getPrecio)
-                .sum();
+        Money subtotalCalculado = Money.ZERO;
+        for (ServicioVenta vs : servicios) {
+            subtotalCalculado = subtotalCalculado.plus(vs.getPrecio());
+        }
         
-        if (Math.abs(subtotalCalculado - subtotal) > 0.01) {
+        if (!subtotalCalculado.equals(subtotal)) {
             result.addError("Subtotal", 
-                String.format("El subtotal no coincide con la suma de servicios (Esperado: %.2f, Actual: %.2f)", 
+                String.format("El subtotal no coincide con la suma de servicios (Esperado: %s, Actual: %s)", 
                     subtotalCalculado, subtotal));
         }
 
         // --- INICIO DE MODIFICACIÓN IVA/DESCUENTO ---
         // 5. Separar subtotales para validación de IVA y Descuento
-        double subtotalGravable = 0.0;
-        double subtotalNoGravable = 0.0;
+        Money subtotalGravable = Money.ZERO;
+        Money subtotalNoGravable = Money.ZERO;
         for (ServicioVenta vs : servicios) {
             // DEBE USAR EL MISMO NOMBRE QUE EN CapelliSalesWindow.java
             if ("Abono Manual Staff".equals(vs.getServicio())) {
-                subtotalNoGravable += vs.getPrecio();
+                subtotalNoGravable = subtotalNoGravable.plus(vs.getPrecio());
             } else {
-                subtotalGravable += vs.getPrecio();
+                subtotalGravable = subtotalGravable.plus(vs.getPrecio());
             }
         }
 
         // 6. Validar que el descuento no sea mayor que el subtotal (gravable)
-        if (tipoDescuento.equals("Promoción") && descuento > subtotalGravable) {
+        if (tipoDescuento.equals("Promoción") && descuento.isGreaterThan(subtotalGravable)) {
             result.addError("Descuento", 
                 "El descuento de promoción no puede ser mayor que el subtotal gravable");
-        } else if (descuento > subtotal) {
+        } else if (descuento.isGreaterThan(subtotal)) {
             result.addError("Descuento", 
                 "El descuento no puede ser mayor que el subtotal total");
         }
@@ -102,24 +108,24 @@ public class VentaValidator {
         // 7. Validar que el total sea correcto
         // El IVA se calcula sobre la parte gravable, después del descuento.
         // El subtotalNoGravable no tiene descuento ni IVA.
-        double ivaCalculado = (subtotalGravable - descuento) * AppConfig.getVatPercentage();
+        Money ivaCalculado = subtotalGravable.minus(descuento).times(AppConfig.getVatPercentage());
         
         // Si el IVA que llegó de la ventana es 0 (porque usaron CTRL+I), 
         // nuestra validación debe respetarlo.
-        if (iva == 0.0) {
-            ivaCalculado = 0.0; // Se asume que el usuario excluyó el IVA manualmente
+        if (iva.isZero()) {
+            ivaCalculado = Money.ZERO; // Se asume que el usuario excluyó el IVA manualmente
         }
 
-        if (Math.abs(ivaCalculado - iva) > 0.01) {
+        if (!ivaCalculado.equals(iva)) {
              result.addError("IVA", 
-                String.format("El IVA no coincide con el cálculo (Esperado: %.2f, Actual: %.2f)", 
+                String.format("El IVA no coincide con el cálculo (Esperado: %s, Actual: %s)", 
                     ivaCalculado, iva));
         }
 
-        double totalCalculado = (subtotalGravable - descuento) + subtotalNoGravable + iva + propina;
-        if (Math.abs(totalCalculado - total) > 0.01) {
+        Money totalCalculado = subtotalGravable.minus(descuento).plus(subtotalNoGravable).plus(iva).plus(propina);
+        if (!totalCalculado.equals(total)) {
             result.addError("Total", 
-                String.format("El total no es correcto (Esperado: %.2f, Actual: %.2f)", 
+                String.format("El total no es correcto (Esperado: %s, Actual: %s)", 
                     totalCalculado, total));
         }
         // --- FIN DE MODIFICACIÓN ---
@@ -128,13 +134,11 @@ public class VentaValidator {
         CommonValidators.validateNotEmpty(tipoDescuento, "Tipo de descuento", result);
         
         // 9. Validar monto pagado (excepto para cuentas por cobrar)
-        double Epsilon = 0.01; // Tolerancia para punto flotante
-        
         if (!"Cuenta por Cobrar".equals(tipoDescuento)) {
             // Comparamos el total pagado (suma de todos los pagos) con el total de la factura
-            if (totalPagadoEnDolares < (total - Epsilon)) { 
+            if (totalPagadoEnDolares.isLessThan(total)) { 
                 result.addError("Monto pagado", 
-                    String.format("El monto total pagado (%.2f) es insuficiente. Total: %.2f", 
+                    String.format("El monto total pagado (%s) es insuficiente. Total: %s", 
                         totalPagadoEnDolares, total));
             }
         } else {
@@ -144,11 +148,11 @@ public class VentaValidator {
         }
         
         // 10. Validar propina si existe
-        if (propina > 0) {
+        if (propina.isPositive()) {
             // Advertencia si la propina es muy alta (más del 30% del subtotal)
-            if (propina > subtotal * 0.30) {
+            if (propina.isGreaterThan(subtotal.times(0.30))) {
                 result.addWarning("Propina", 
-                    String.format("La propina (%.2f) es mayor al 30%% del subtotal", propina));
+                    String.format("La propina (%s) es mayor al 30%% del subtotal", propina));
             }
         }
         
@@ -175,22 +179,23 @@ public class VentaValidator {
         
         // Validar precio
         // Permitimos 0 o positivo para el Abono Manual, pero positivo para el resto
+        Money precio = servicio.getPrecio();
         if (servicio.getServicio().equals("Abono Manual Staff")) {
-            CommonValidators.validateNonNegative(servicio.getPrecio(), prefix + " - Precio", result);
+            CommonValidators.validateNonNegative(precio.toDouble(), prefix + " - Precio", result);
         } else {
-            CommonValidators.validatePositive(servicio.getPrecio(), prefix + " - Precio", result);
+            CommonValidators.validatePositive(precio.toDouble(), prefix + " - Precio", result);
         }
 
         // Advertencia si el precio es muy bajo (pero mayor a 0)
-        if (servicio.getPrecio() > 0 && servicio.getPrecio() < 1.0) {
+        if (precio.isPositive() && precio.isLessThan(PRECIO_BAJO)) {
             result.addWarning(prefix + " - Precio", 
-                String.format("El precio (%.2f) es muy bajo, ¿es correcto?", servicio.getPrecio()));
+                String.format("El precio (%s) es muy bajo, ¿es correcto?", precio));
         }
         
         // Advertencia si el precio es muy alto
-        if (servicio.getPrecio() > 500.0) {
+        if (precio.isGreaterThan(PRECIO_ALTO)) {
             result.addWarning(prefix + " - Precio", 
-                String.format("El precio (%.2f) es muy alto, ¿es correcto?", servicio.getPrecio()));
+                String.format("El precio (%s) es muy alto, ¿es correcto?", precio));
         }
         
         return result;
@@ -199,11 +204,11 @@ public class VentaValidator {
     /**
      * Valida el monto de propina.
      */
-    public static ValidationResult validatePropina(double propina, String destinatario) {
+    public static ValidationResult validatePropina(Money propina, String destinatario) {
         ValidationResult result = new ValidationResult();
         
-        if (propina > 0) {
-            CommonValidators.validatePositive(propina, "Propina", result);
+        if (propina.isPositive()) {
+            CommonValidators.validatePositive(propina.toDouble(), "Propina", result);
             CommonValidators.validateNotEmpty(destinatario, "Destinatario de propina", result);
         }
         
@@ -285,35 +290,35 @@ public class VentaValidator {
     /**
      * Valida límites de descuento según el tipo.
      */
-    public static ValidationResult validateDescuento(String tipoDescuento, double descuento, 
-                                                     double subtotalGravable) { // Modificado para recibir el subtotal gravable
+    public static ValidationResult validateDescuento(String tipoDescuento, Money descuento, 
+                                                     Money subtotalGravable) { // Modificado para recibir el subtotal gravable
         ValidationResult result = new ValidationResult();
         
-        if (descuento == 0) {
+        if (descuento.isZero()) {
             return result; // Sin descuento, todo OK
         }
         
         CommonValidators.validateNotEmpty(tipoDescuento, "Tipo de descuento", result);
         
-        if ("Ninguno".equals(tipoDescuento) && descuento > 0) {
+        if ("Ninguno".equals(tipoDescuento) && descuento.isPositive()) {
             result.addError("Descuento", 
                 "No puede haber descuento si el tipo es 'Ninguno'");
         }
         
         if ("Promoción".equals(tipoDescuento)) {
             // Validar que el descuento sea aproximadamente 20% del subtotal GRAVABLE
-            double descuentoEsperado = subtotalGravable * AppConfig.getPromoDiscountPercentage();
-            if (Math.abs(descuento - descuentoEsperado) > 0.01) {
+            Money descuentoEsperado = subtotalGravable.times(AppConfig.getPromoDiscountPercentage());
+            if (!descuento.equals(descuentoEsperado)) {
                 result.addWarning("Descuento", 
-                    String.format("El descuento de promoción (%.2f) no coincide con el %.2f%% del subtotal gravable (%.2f)", 
+                    String.format("El descuento de promoción (%s) no coincide con el %.2f%% del subtotal gravable (%s)", 
                         descuento, (AppConfig.getPromoDiscountPercentage() * 100), descuentoEsperado));
             }
         }
         
         // Validar que el descuento no sea mayor al 50% (sospechoso)
-        if (descuento > subtotalGravable * 0.50) {
+        if (descuento.isGreaterThan(subtotalGravable.times(0.50))) {
             result.addWarning("Descuento", 
-                String.format("El descuento (%.2f) es mayor al 50%% del subtotal gravable, ¿es correcto?", 
+                String.format("El descuento (%s) es mayor al 50%% del subtotal gravable, ¿es correcto?", 
                     descuento));
         }
         